@@ -2,6 +2,7 @@ package com.djonatan.abastecimento;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Ponto de Entrada (Entry Point) da Aplicação Spring Boot.
@@ -9,8 +10,12 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * Esta é a classe principal que inicializa todo o sistema. A sua única responsabilidade
  * é "dar o pontapé de saída" no processo de arranque do Spring, que inclui a configuração
  * automática, o scan de componentes e a inicialização do servidor web embutido.
+ *
+ * - @EnableScheduling: Ativa a execução de tarefas periódicas (@Scheduled), usadas, por exemplo,
+ * para gravar os checkpoints dos totais do turno aberto.
  */
 @SpringBootApplication
+@EnableScheduling
 public class AbastecimentoApiApplication {
 
     /**
@@ -0,0 +1,250 @@
+package com.djonatan.abastecimento.analise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cálculo, em paralelo (fork-join), das previsões de procura e do impacto das mudanças de preço de vários combustíveis.
+ *
+ * Cada combustível é uma tarefa independente sobre uma cópia da sua série horária (`SerieHoraria.Copia`):
+ * a tarefa raiz divide o vetor de séries ao meio até chegar a um único combustível, e as folhas correm em paralelo
+ * na pool fork-join. Cada folha calcula:
+ * - a média móvel das últimas horas completas;
+ * - a linha de base sazonal: a média dos litros em cada hora da semana (168 posições) ao longo das semanas guardadas;
+ * - a previsão das próximas horas: a linha de base da hora da semana, ajustada pelo nível recente
+ * (rácio entre os litros reais e os da linha de base nas últimas horas completas);
+ * - a elasticidade preço-procura: o declive da regressão de ln(litros / linha de base) sobre ln(preço médio da hora),
+ * de modo que a sazonalidade não seja confundida com o efeito do preço;
+ * - as mudanças de preço detetadas na série e a variação de volume nas horas seguintes, face às mesmas horas
+ * da semana anterior.
+ *
+ * A hora atual, ainda incompleta, nunca entra nos cálculos; só é prevista.
+ */
+public class AnaliseProcura extends RecursiveAction {
+
+    /**
+     * Número de horas de uma semana (posições da linha de base sazonal).
+     */
+    public static final int HORAS_SEMANA = 168;
+
+    /**
+     * Variação relativa mínima do preço médio horário para ser considerada uma mudança de preço
+     * (evita confundir arredondamentos, ou horas com os dois preços, com mudanças reais).
+     */
+    private static final double VARIACAO_PRECO_MINIMA = 0.005;
+
+    /**
+     * Número máximo de mudanças de preço devolvidas por combustível (as mais recentes).
+     */
+    private static final int MAX_MUDANCAS = 20;
+
+    private final SerieHoraria.Copia[] series;
+    private final Resultado[] resultados;
+    private final int inicio;
+    private final int fim;
+    private final int horizonte;
+    private final int janela;
+
+    /**
+     * @param series As cópias das séries, uma por combustível.
+     * @param resultados O vetor (do mesmo tamanho) onde cada folha escreve o resultado do seu combustível.
+     * @param horizonte O número de horas a prever, a começar na hora atual.
+     * @param janela O número de horas completas da média móvel e do ajuste de nível.
+     */
+    public AnaliseProcura(SerieHoraria.Copia[] series, Resultado[] resultados, int horizonte, int janela) {
+        this(series, resultados, 0, series.length, horizonte, janela);
+    }
+
+    private AnaliseProcura(SerieHoraria.Copia[] series, Resultado[] resultados, int inicio, int fim,
+                           int horizonte, int janela) {
+        this.series = series;
+        this.resultados = resultados;
+        this.inicio = inicio;
+        this.fim = fim;
+        this.horizonte = horizonte;
+        this.janela = janela;
+    }
+
+    @Override
+    protected void compute() {
+        if (fim - inicio <= 1) {
+            for (int i = inicio; i < fim; i++) {
+                resultados[i] = analisar(series[i], horizonte, janela);
+            }
+            return;
+        }
+        int meio = (inicio + fim) >>> 1;
+        invokeAll(new AnaliseProcura(series, resultados, inicio, meio, horizonte, janela),
+                new AnaliseProcura(series, resultados, meio, fim, horizonte, janela));
+    }
+
+    /**
+     * Analisa uma série. A última posição da cópia é a hora atual (incompleta).
+     */
+    static Resultado analisar(SerieHoraria.Copia serie, int horizonte, int janela) {
+        long[] litros = serie.litros();
+        long[] valores = serie.valores();
+        int atual = litros.length - 1;
+        int primeira = (int) Math.max(0, Math.min(atual, serie.primeiraHora() - serie.horaInicial()));
+        long horaAtual = serie.horaInicial() + atual;
+
+        // Linha de base sazonal, em litros por hora, sobre as horas completas com dados válidos.
+        double[] soma = new double[HORAS_SEMANA];
+        int[] semanas = new int[HORAS_SEMANA];
+        for (int i = primeira; i < atual; i++) {
+            int posicao = horaDaSemana(serie.horaInicial() + i);
+            soma[posicao] += litros[i] / 1000.0;
+            semanas[posicao]++;
+        }
+        double[] base = new double[HORAS_SEMANA];
+        for (int h = 0; h < HORAS_SEMANA; h++) {
+            base[h] = semanas[h] > 0 ? soma[h] / semanas[h] : 0;
+        }
+
+        // Média móvel e nível recente face à linha de base.
+        int inicioJanela = Math.max(primeira, atual - janela);
+        double litrosJanela = 0;
+        double baseJanela = 0;
+        for (int i = inicioJanela; i < atual; i++) {
+            litrosJanela += litros[i] / 1000.0;
+            baseJanela += base[horaDaSemana(serie.horaInicial() + i)];
+        }
+        int horasJanela = atual - inicioJanela;
+        double mediaMovel = horasJanela > 0 ? litrosJanela / horasJanela : 0;
+        double nivel = baseJanela > 0 ? Math.max(0.5, Math.min(2.0, litrosJanela / baseJanela)) : 1.0;
+
+        double[] previsao = new double[horizonte];
+        for (int k = 0; k < horizonte; k++) {
+            previsao[k] = base[horaDaSemana(horaAtual + k)] * nivel;
+        }
+
+        // Elasticidade: regressão de ln(volume ajustado à sazonalidade) sobre ln(preço), nas horas com vendas.
+        double somaX = 0, somaY = 0, somaXX = 0, somaXY = 0;
+        int observacoes = 0;
+        for (int i = primeira; i < atual; i++) {
+            double b = base[horaDaSemana(serie.horaInicial() + i)];
+            if (litros[i] <= 0 || valores[i] <= 0 || b <= 0) {
+                continue;
+            }
+            double x = Math.log(precoMedio(litros[i], valores[i]));
+            double y = Math.log(litros[i] / 1000.0 / b);
+            somaX += x;
+            somaY += y;
+            somaXX += x * x;
+            somaXY += x * y;
+            observacoes++;
+        }
+        Double elasticidade = null;
+        if (observacoes >= 2) {
+            double varianciaX = somaXX - somaX * somaX / observacoes;
+            if (varianciaX > 1e-9 * observacoes) {
+                elasticidade = (somaXY - somaX * somaY / observacoes) / varianciaX;
+            }
+        }
+
+        List<MudancaPreco> mudancas = detetarMudancas(serie, base, primeira, atual, janela);
+        return new Resultado(horaAtual, mediaMovel, nivel, previsao, elasticidade, observacoes, mudancas);
+    }
+
+    /**
+     * Percorre as horas com vendas e regista cada mudança do preço médio horário, com a variação do volume
+     * nas `janela` horas seguintes face às mesmas horas da semana anterior (ou, sem uma semana de histórico,
+     * face às horas anteriores, ambas descontada a linha de base).
+     */
+    private static List<MudancaPreco> detetarMudancas(SerieHoraria.Copia serie, double[] base,
+                                                      int primeira, int atual, int janela) {
+        long[] litros = serie.litros();
+        long[] valores = serie.valores();
+        List<MudancaPreco> mudancas = new ArrayList<>();
+        double precoAnterior = 0;
+        for (int i = primeira; i < atual; i++) {
+            if (litros[i] <= 0 || valores[i] <= 0) {
+                continue;
+            }
+            double preco = precoMedio(litros[i], valores[i]);
+            if (precoAnterior > 0 && Math.abs(preco / precoAnterior - 1) >= VARIACAO_PRECO_MINIMA) {
+                int ate = Math.min(atual, i + janela);
+                Double variacaoVolume = null;
+                if (ate > i && i - HORAS_SEMANA >= primeira) {
+                    // As mesmas horas da semana anterior: a comparação não depende da hora do dia nem do dia da semana.
+                    double antes = litrosEntre(litros, i - HORAS_SEMANA, ate - HORAS_SEMANA);
+                    double depois = litrosEntre(litros, i, ate);
+                    variacaoVolume = antes > 0 ? (depois / antes - 1) * 100 : null;
+                } else if (ate > i) {
+                    double antes = volumeRelativo(serie, base, Math.max(primeira, i - janela), i);
+                    double depois = volumeRelativo(serie, base, i, ate);
+                    variacaoVolume = antes > 0 && depois >= 0 ? (depois / antes - 1) * 100 : null;
+                }
+                mudancas.add(new MudancaPreco(serie.horaInicial() + i, precoAnterior, preco,
+                        (preco / precoAnterior - 1) * 100, variacaoVolume));
+                if (mudancas.size() > MAX_MUDANCAS) {
+                    mudancas.remove(0);
+                }
+            }
+            precoAnterior = preco;
+        }
+        return mudancas;
+    }
+
+    private static double litrosEntre(long[] litros, int de, int ate) {
+        double soma = 0;
+        for (int i = de; i < ate; i++) {
+            soma += litros[i] / 1000.0;
+        }
+        return soma;
+    }
+
+    /**
+     * Rácio entre os litros vendidos e os da linha de base no intervalo [de, ate[, ou -1 se não houver base.
+     */
+    private static double volumeRelativo(SerieHoraria.Copia serie, double[] base, int de, int ate) {
+        double reais = 0;
+        double esperados = 0;
+        for (int i = de; i < ate; i++) {
+            reais += serie.litros()[i] / 1000.0;
+            esperados += base[horaDaSemana(serie.horaInicial() + i)];
+        }
+        return esperados > 0 ? reais / esperados : -1;
+    }
+
+    private static double precoMedio(long litrosMilesimos, long valorCentavos) {
+        return (valorCentavos / 100.0) / (litrosMilesimos / 1000.0);
+    }
+
+    /**
+     * A posição da hora na semana (0 a 167). Só a consistência importa: a mesma hora de semanas
+     * diferentes cai sempre na mesma posição.
+     */
+    static int horaDaSemana(long hora) {
+        return (int) Math.floorMod(hora, (long) HORAS_SEMANA);
+    }
+
+    /**
+     * O resultado da análise de um combustível.
+     *
+     * @param horaAtual A hora (em horas desde a época) da primeira posição da previsão.
+     * @param mediaMovel A média de litros por hora nas últimas horas completas.
+     * @param nivel O fator de ajuste da linha de base pelo nível recente (entre 0,5 e 2).
+     * @param previsao Os litros previstos para cada hora, a começar na hora atual.
+     * @param elasticidade A elasticidade preço-procura estimada, ou nulo se o preço não variou o suficiente.
+     * @param observacoes O número de horas usadas na estimativa da elasticidade.
+     * @param mudancas As mudanças de preço detetadas, da mais antiga para a mais recente.
+     */
+    public record Resultado(long horaAtual, double mediaMovel, double nivel, double[] previsao,
+                            Double elasticidade, int observacoes, List<MudancaPreco> mudancas) {
+    }
+
+    /**
+     * Uma mudança de preço detetada na série.
+     *
+     * @param hora A primeira hora com o novo preço.
+     * @param precoAnterior O preço médio por litro antes da mudança.
+     * @param precoNovo O preço médio por litro depois da mudança.
+     * @param variacaoPreco A variação do preço, em percentagem.
+     * @param variacaoVolume A variação do volume face à linha de base, em percentagem, ou nulo sem dados suficientes.
+     */
+    public record MudancaPreco(long hora, double precoAnterior, double precoNovo,
+                               double variacaoPreco, Double variacaoVolume) {
+    }
+}
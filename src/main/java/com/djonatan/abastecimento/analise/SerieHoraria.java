@@ -0,0 +1,90 @@
+package com.djonatan.abastecimento.analise;
+
+import java.util.Arrays;
+
+/**
+ * Série temporal horária de um combustível num posto: litros e receita por hora num buffer circular de tamanho fixo.
+ *
+ * Cada posição do buffer guarda uma hora (em horas desde a época, na hora local do posto), os litros vendidos
+ * nessa hora (em milésimos) e a receita (em centavos). Quando o buffer dá a volta, a hora mais antiga é reutilizada.
+ * A memória é fixa (24 bytes por hora guardada), independentemente do número de abastecimentos.
+ *
+ * As escritas e as cópias são feitas sob o lock da própria série; o custo de um registo é o de três escritas em vetores.
+ */
+public class SerieHoraria {
+
+    private final long[] horas;
+    private final long[] litros;
+    private final long[] valores;
+    private long primeiraHora = Long.MAX_VALUE;
+
+    /**
+     * @param capacidade O número de horas guardadas (ex: 8 semanas = 1344).
+     */
+    public SerieHoraria(int capacidade) {
+        this.horas = new long[capacidade];
+        this.litros = new long[capacidade];
+        this.valores = new long[capacidade];
+        Arrays.fill(horas, -1);
+    }
+
+    /**
+     * Soma litros e receita a uma hora. Valores negativos retiram vendas (anulações e correções).
+     * Horas mais antigas do que o buffer abrange são ignoradas.
+     */
+    public synchronized void somar(long hora, long litrosMilesimos, long valorCentavos) {
+        int posicao = (int) Math.floorMod(hora, (long) horas.length);
+        if (horas[posicao] != hora) {
+            if (horas[posicao] > hora) {
+                return;
+            }
+            horas[posicao] = hora;
+            litros[posicao] = 0;
+            valores[posicao] = 0;
+        }
+        litros[posicao] += litrosMilesimos;
+        valores[posicao] += valorCentavos;
+        primeiraHora = Math.min(primeiraHora, hora);
+    }
+
+    /**
+     * Marca o início da série (ex: o início do período carregado da base de dados no arranque),
+     * para que as horas anteriores sem vendas não sejam confundidas com horas de procura nula.
+     */
+    public synchronized void iniciarEm(long hora) {
+        primeiraHora = Math.min(primeiraHora, hora);
+    }
+
+    /**
+     * Copia a série por ordem cronológica, terminando na hora indicada (inclusive).
+     *
+     * @param horaFinal A última hora da cópia.
+     * @return um `Copia` com vetores de `capacidade` posições; as horas sem registo valem 0.
+     */
+    public synchronized Copia copiar(long horaFinal) {
+        int capacidade = horas.length;
+        long horaInicial = horaFinal - capacidade + 1;
+        long[] litrosCopia = new long[capacidade];
+        long[] valoresCopia = new long[capacidade];
+        for (int i = 0; i < capacidade; i++) {
+            long hora = horaInicial + i;
+            int posicao = (int) Math.floorMod(hora, (long) capacidade);
+            if (horas[posicao] == hora) {
+                litrosCopia[i] = litros[posicao];
+                valoresCopia[i] = valores[posicao];
+            }
+        }
+        return new Copia(horaInicial, Math.max(horaInicial, primeiraHora), litrosCopia, valoresCopia);
+    }
+
+    /**
+     * Uma cópia cronológica e imutável da série, usada nos cálculos (fora do lock).
+     *
+     * @param horaInicial A hora da posição 0.
+     * @param primeiraHora A primeira hora com dados válidos (as anteriores devem ser ignoradas).
+     * @param litros Litros por hora, em milésimos.
+     * @param valores Receita por hora, em centavos.
+     */
+    public record Copia(long horaInicial, long primeiraHora, long[] litros, long[] valores) {
+    }
+}
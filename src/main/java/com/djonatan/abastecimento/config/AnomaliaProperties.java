@@ -0,0 +1,56 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Propriedades de configuração da deteção de anomalias (prefixo `anomalia` no application.properties).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "anomalia")
+public class AnomaliaProperties {
+
+    /**
+     * Quantidade máxima de litros aceitável num único abastecimento (capacidade do maior depósito esperado).
+     */
+    private BigDecimal litrosMaximos = new BigDecimal("150");
+
+    /**
+     * Diferença relativa máxima aceitável entre o valor cobrado e litros x preço por litro.
+     */
+    private double toleranciaPreco = 0.02;
+
+    /**
+     * Número de abastecimentos na janela de rajada a partir do qual é gerado um alerta.
+     */
+    private double rajadaLimiar = 6;
+
+    /**
+     * Constante de tempo, em segundos, do decaimento da taxa de eventos por bomba.
+     */
+    private double rajadaJanelaSegundos = 60;
+
+    /**
+     * Número de desvios-padrão a partir do qual um volume é considerado atípico.
+     */
+    private double desviosLimiar = 4;
+
+    /**
+     * Peso de cada nova amostra na média e variância exponenciais (entre 0 e 1).
+     */
+    private double pesoAmostra = 0.05;
+
+    /**
+     * Número mínimo de amostras antes de a deteção de volume atípico ser ativada.
+     */
+    private int amostrasAquecimento = 20;
+
+    /**
+     * Número de alertas mantidos em memória por posto.
+     */
+    private int maxAlertas = 500;
+}
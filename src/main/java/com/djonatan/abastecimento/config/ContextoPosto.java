@@ -0,0 +1,78 @@
+package com.djonatan.abastecimento.config;
+
+/**
+ * Contexto do posto (tenant) associado à thread atual.
+ *
+ * Propósito:
+ * Cada pedido HTTP pertence a um único posto, identificado pelo `ContextoPostoFilter`. O ID do posto
+ * fica guardado num ThreadLocal durante o processamento do pedido e é usado:
+ * - pelos Services, para filtrar e carimbar os dados com o `postoId`;
+ * - pelo `DataSourceRoteado`, para escolher o shard (base de dados) onde estão os dados do posto.
+ *
+ * Tarefas em segundo plano (ex: checkpoints) não passam pelo filtro e devem definir o contexto
+ * explicitamente: por posto, com `definir`, ou diretamente por shard, com `forcarShard`.
+ */
+public final class ContextoPosto {
+
+    private static final ThreadLocal<Integer> POSTO = new ThreadLocal<>();
+    private static final ThreadLocal<String> SHARD_FORCADO = new ThreadLocal<>();
+
+    private ContextoPosto() {
+    }
+
+    /**
+     * Define o posto da thread atual.
+     *
+     * @param postoId O ID do posto.
+     */
+    public static void definir(int postoId) {
+        POSTO.set(postoId);
+    }
+
+    /**
+     * Retorna o posto da thread atual.
+     *
+     * @return O ID do posto.
+     * @throws IllegalStateException se nenhum posto tiver sido definido para esta thread.
+     */
+    public static int atual() {
+        Integer postoId = POSTO.get();
+        if (postoId == null) {
+            throw new IllegalStateException("Nenhum posto definido para a thread atual.");
+        }
+        return postoId;
+    }
+
+    /**
+     * Retorna o posto da thread atual, ou nulo se não houver nenhum definido.
+     */
+    public static Integer atualOuNulo() {
+        return POSTO.get();
+    }
+
+    /**
+     * Força o shard a usar pela thread atual, independentemente do posto.
+     * Usado por tarefas que percorrem todos os shards (ex: recuperação de turnos no arranque).
+     *
+     * @param shard O nome do shard.
+     */
+    public static void forcarShard(String shard) {
+        SHARD_FORCADO.set(shard);
+    }
+
+    /**
+     * Retorna o shard forçado para a thread atual, ou nulo se não houver nenhum.
+     */
+    public static String shardForcado() {
+        return SHARD_FORCADO.get();
+    }
+
+    /**
+     * Limpa o contexto da thread atual. Deve ser sempre chamado num bloco `finally`,
+     * pois as threads do servidor são reutilizadas entre pedidos.
+     */
+    public static void limpar() {
+        POSTO.remove();
+        SHARD_FORCADO.remove();
+    }
+}
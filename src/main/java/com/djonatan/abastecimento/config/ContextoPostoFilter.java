@@ -0,0 +1,54 @@
+package com.djonatan.abastecimento.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filtro HTTP que identifica o posto (tenant) de cada pedido.
+ *
+ * O posto é lido do cabeçalho `X-Posto-Id`; na sua ausência é usado `tenancia.posto-padrao`.
+ * É o primeiro filtro da cadeia, para que o controlo de admissão e toda a aplicação já vejam o posto
+ * no `ContextoPosto`. O contexto é sempre limpo no fim do pedido.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ContextoPostoFilter extends OncePerRequestFilter {
+
+    /**
+     * O cabeçalho HTTP que identifica o posto.
+     */
+    public static final String CABECALHO_POSTO = "X-Posto-Id";
+
+    @Autowired
+    private TenanciaProperties tenanciaProperties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String cabecalho = request.getHeader(CABECALHO_POSTO);
+        int postoId;
+        try {
+            postoId = cabecalho == null ? tenanciaProperties.getPostoPadrao() : Integer.parseInt(cabecalho.trim());
+        } catch (NumberFormatException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Cabeçalho " + CABECALHO_POSTO + " inválido.");
+            return;
+        }
+
+        ContextoPosto.definir(postoId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+}
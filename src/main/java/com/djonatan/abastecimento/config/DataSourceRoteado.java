@@ -0,0 +1,29 @@
+package com.djonatan.abastecimento.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * `DataSource` usado pelo JPA que delega cada pedido de ligação no shard do posto atual.
+ * A escolha é feita no momento em que o Hibernate obtém a ligação (no início de cada transação).
+ */
+public class DataSourceRoteado extends AbstractDataSource {
+
+    private final RoteadorShard roteador;
+
+    public DataSourceRoteado(RoteadorShard roteador) {
+        this.roteador = roteador;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return roteador.dataSourceAtual().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return roteador.dataSourceAtual().getConnection(username, password);
+    }
+}
@@ -0,0 +1,40 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propriedades de configuração do diário de eventos de abastecimento (prefixo `diario` no application.properties).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "diario")
+public class DiarioProperties {
+
+    /**
+     * Diretório local onde são guardados os segmentos e os instantâneos do diário (uma subpasta por posto).
+     */
+    private String diretorio = "dados/diario";
+
+    /**
+     * Número de eventos por segmento. Com registos de 80 bytes, o valor padrão corresponde a segmentos de 80 MiB.
+     */
+    private int eventosPorSegmento = 1 << 20;
+
+    /**
+     * Se verdadeiro, cada evento é sincronizado com o disco (fsync) antes do commit do registo.
+     * As escritas concorrentes partilham a mesma sincronização (group commit).
+     */
+    private boolean sincronizar = true;
+
+    /**
+     * Número de eventos novos a partir do qual é gravado um novo instantâneo do posto.
+     */
+    private long eventosEntreInstantaneos = 1_000_000;
+
+    /**
+     * Número de linhas por lote nos INSERTs em JDBC batch da reconstrução e na importação inicial.
+     */
+    private int tamanhoLote = 5000;
+}
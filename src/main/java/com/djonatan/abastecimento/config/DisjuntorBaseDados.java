@@ -0,0 +1,133 @@
+package com.djonatan.abastecimento.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disjuntor (circuit breaker) das ligações à base de dados, com um estado por shard.
+ *
+ * Funcionamento:
+ * - FECHADO: os pedidos usam a base de dados normalmente; cada falha de ligação é contada e cada sucesso repõe a contagem.
+ * - ABERTO: ao fim de `offline.falhas-limiar` falhas de ligação seguidas, o shard é dado como inacessível e o registo
+ * de abastecimentos passa a ser feito offline, sem esperar pelo timeout de ligação em cada pedido.
+ * O disjuntor volta a fechar quando a sonda periódica (`ModoOfflineService`) consegue usar o shard.
+ *
+ * Apenas falhas de rede contam (ligação recusada, perdida ou sem resposta dentro do `connectTimeout` do driver);
+ * erros de SQL ou de negócio não abrem o disjuntor. O esgotamento do pool (nenhuma ligação livre dentro do
+ * `connection-timeout` do Hikari, com a base de dados a responder) também não conta: indica carga, não uma base de
+ * dados inacessível, e o pedido falha com `503` sem passar o posto para offline.
+ */
+@Component
+public class DisjuntorBaseDados {
+
+    public enum Estado {
+        FECHADO,
+        ABERTO
+    }
+
+    @Autowired
+    private OfflineProperties propriedades;
+
+    private final ConcurrentHashMap<String, EstadoShard> estados = new ConcurrentHashMap<>();
+
+    /**
+     * Indica se o shard pode ser usado (disjuntor fechado).
+     */
+    public boolean disponivel(String shard) {
+        EstadoShard estado = estados.get(shard);
+        return estado == null || estado.abertoDesde == null;
+    }
+
+    /**
+     * Regista uma operação bem-sucedida no shard.
+     */
+    public void sucesso(String shard) {
+        EstadoShard estado = estados.get(shard);
+        if (estado != null && estado.falhas.get() != 0) {
+            estado.falhas.set(0);
+        }
+    }
+
+    /**
+     * Regista uma falha de ligação ao shard e abre o disjuntor se o limiar for atingido.
+     */
+    public void falha(String shard) {
+        EstadoShard estado = estados.computeIfAbsent(shard, nome -> new EstadoShard());
+        if (estado.falhas.incrementAndGet() >= propriedades.getFalhasLimiar() && estado.abertoDesde == null) {
+            estado.abertoDesde = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Fecha o disjuntor do shard (a base de dados voltou a responder).
+     */
+    public void fechar(String shard) {
+        EstadoShard estado = estados.get(shard);
+        if (estado != null) {
+            estado.falhas.set(0);
+            estado.abertoDesde = null;
+        }
+    }
+
+    /**
+     * Retorna os shards com o disjuntor aberto e o momento em que abriram.
+     */
+    public Map<String, LocalDateTime> abertos() {
+        Map<String, LocalDateTime> abertos = new TreeMap<>();
+        estados.forEach((shard, estado) -> {
+            LocalDateTime desde = estado.abertoDesde;
+            if (desde != null) {
+                abertos.put(shard, desde);
+            }
+        });
+        return abertos;
+    }
+
+    /**
+     * Retorna o estado do disjuntor de um shard.
+     */
+    public Estado estado(String shard) {
+        return disponivel(shard) ? Estado.FECHADO : Estado.ABERTO;
+    }
+
+    /**
+     * Indica se uma exceção (ou alguma das suas causas) é uma falha de rede na ligação à base de dados.
+     * As exceções do Spring e do Hibernate (ex: `CannotCreateTransactionException`) não bastam, pois também embrulham
+     * o timeout do pool; só contam as causas de rede do driver (SQLState da classe 08, ligação recusada ou perdida).
+     * Um timeout do pool com a base de dados inacessível tem como causa a última falha de ligação, e conta.
+     */
+    public static boolean falhaDeLigacao(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLNonTransientConnectionException
+                    || causa instanceof SQLRecoverableException
+                    || causa instanceof SocketException
+                    || causa instanceof SocketTimeoutException
+                    || causa instanceof UnknownHostException
+                    || causa instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+            if (causa.getCause() == causa) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static class EstadoShard {
+
+        private final AtomicInteger falhas = new AtomicInteger();
+        private volatile LocalDateTime abertoDesde;
+    }
+}
@@ -0,0 +1,85 @@
+package com.djonatan.abastecimento.config;
+
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.model.Turno;
+import com.djonatan.abastecimento.model.Usuario;
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configuração do formato binário (CBOR) para a comunicação com os terminais das bombas.
+ *
+ * Negociação de Conteúdo:
+ * Todos os Controllers passam a aceitar e devolver `application/cbor`, além de JSON. O terminal escolhe
+ * o formato pelos cabeçalhos `Accept` (resposta) e `Content-Type` (pedido); sem eles, mantém-se o JSON.
+ *
+ * Referências Normalizadas:
+ * Numa lista de abastecimentos, a mesma bomba e o mesmo combustível repetem-se em todas as linhas.
+ * No formato CBOR, as entidades de catálogo são serializadas por completo apenas na primeira ocorrência;
+ * as seguintes são substituídas pelo respetivo `id` (@JsonIdentityInfo aplicado através de um mixin por entidade).
+ * O JSON não é alterado, para não quebrar os clientes existentes.
+ */
+@Configuration
+public class FormatoBinarioConfig implements WebMvcConfigurer {
+
+    /**
+     * O tipo de conteúdo CBOR (RFC 8949).
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /**
+     * Substitui o conversor CBOR padrão do Spring por um que usa as referências normalizadas.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(criarMapeadorCbor()));
+    }
+
+    /**
+     * Cria o ObjectMapper CBOR com as referências normalizadas para as entidades de catálogo.
+     * Público e estático para ser reutilizado na comparação de formatos (`ComparacaoFormatos`, em src/test).
+     *
+     * @return um ObjectMapper que escreve e lê CBOR.
+     */
+    public static ObjectMapper criarMapeadorCbor() {
+        return Jackson2ObjectMapperBuilder.cbor()
+                .mixIn(Bomba.class, ReferenciaBomba.class)
+                .mixIn(Combustivel.class, ReferenciaCombustivel.class)
+                .mixIn(Usuario.class, ReferenciaUsuario.class)
+                .mixIn(Turno.class, ReferenciaTurno.class)
+                .build();
+    }
+
+    /*
+     * Mixins que fazem com que a segunda e seguintes ocorrências de uma entidade, na mesma resposta,
+     * sejam escritas apenas como o valor do seu `id`.
+     * Cada entidade tem o seu próprio mixin com `scope` próprio: os IDs só são únicos dentro de cada tabela,
+     * e com o âmbito por omissão (Object) a bomba 1 e o combustível 1 seriam tomados pelo mesmo objeto.
+     */
+
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Bomba.class)
+    private abstract static class ReferenciaBomba {
+    }
+
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Combustivel.class)
+    private abstract static class ReferenciaCombustivel {
+    }
+
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Usuario.class)
+    private abstract static class ReferenciaUsuario {
+    }
+
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Turno.class)
+    private abstract static class ReferenciaTurno {
+    }
+}
@@ -0,0 +1,91 @@
+package com.djonatan.abastecimento.config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Limitador de taxa do tipo token bucket, sem locks e com memória fixa.
+ *
+ * Estrutura:
+ * Cada cliente é mapeado, pelo hash do seu identificador, para uma posição de um `AtomicLongArray`
+ * de tamanho fixo. Cada posição guarda, num único `long`, o instante teórico (em nanossegundos desde a criação
+ * do limitador) em que o balde voltará a estar cheio, descontado de um token (algoritmo GCRA, equivalente
+ * a um token bucket com a mesma capacidade e reposição):
+ * - cada pedido aceite avança esse instante exatamente o intervalo de reposição de um token (1 / reposição por segundo);
+ * - um pedido é aceite se esse instante não estiver mais à frente do que a capacidade do balde permite.
+ * Como o tempo só avança pelos tokens realmente consumidos, as reposições fracionárias (ex: 0,5 ou 2,5 tokens
+ * por segundo, com pedidos muito próximos) nunca se perdem por arredondamento.
+ * Como o estado cabe num `long`, a atualização é feita com um simples compare-and-set, sem bloqueios.
+ *
+ * Compromisso: dois clientes cujo hash caia na mesma posição partilham o balde. Com a tabela
+ * dimensionada acima do número de terminais ativos, as colisões são raras e apenas tornam o limite
+ * mais restritivo para esses clientes; em troca, a memória nunca cresce com o número de clientes.
+ */
+public class LimitadorTaxa {
+
+    private final AtomicLongArray baldes;
+    private final int mascaraPosicao;
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final LongSupplier relogio;
+    private final long origemNanos;
+
+    /**
+     * @param posicoes O número de posições da tabela (arredondado para a potência de 2 seguinte).
+     * @param capacidade O número máximo de tokens de cada balde (pedidos seguidos aceites com o balde cheio).
+     * @param reposicaoPorSegundo O número de tokens repostos por segundo (maior que zero).
+     */
+    public LimitadorTaxa(int posicoes, int capacidade, double reposicaoPorSegundo) {
+        this(posicoes, capacidade, reposicaoPorSegundo, System::nanoTime);
+    }
+
+    /**
+     * @param relogio A fonte de tempo, em nanossegundos (`System::nanoTime`, ou um relógio controlado nos testes).
+     */
+    LimitadorTaxa(int posicoes, int capacidade, double reposicaoPorSegundo, LongSupplier relogio) {
+        if (capacidade < 1 || !(reposicaoPorSegundo > 0)) {
+            throw new IllegalArgumentException("A capacidade e a reposição por segundo do limite têm de ser positivas.");
+        }
+        int tamanho = Integer.highestOneBit(Math.max(1, posicoes - 1)) << 1;
+        this.baldes = new AtomicLongArray(tamanho);
+        this.mascaraPosicao = tamanho - 1;
+        this.intervaloNanos = Math.max(1, Math.round(1_000_000_000 / reposicaoPorSegundo));
+        this.toleranciaNanos = (capacidade - 1) * intervaloNanos;
+        this.relogio = relogio;
+        this.origemNanos = relogio.getAsLong();
+    }
+
+    /**
+     * Tenta consumir um token do balde do cliente.
+     *
+     * @param cliente O identificador do cliente (ex: o ID da bomba ou o endereço IP).
+     * @return true se o pedido pode prosseguir, false se o cliente excedeu o limite.
+     */
+    public boolean tentarConsumir(String cliente) {
+        int posicao = espalhar(cliente.hashCode()) & mascaraPosicao;
+        long agora = relogio.getAsLong() - origemNanos;
+
+        while (true) {
+            long estado = baldes.get(posicao);
+            // Um balde parado (ou ainda não usado, com 0) está cheio: o instante teórico não fica para trás de agora.
+            long teorico = Math.max(estado, agora);
+            if (teorico - agora > toleranciaNanos) {
+                return false;
+            }
+            if (baldes.compareAndSet(posicao, estado, teorico + intervaloNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Mistura os bits do hash para que identificadores sequenciais (ex: "1", "2", "3")
+     * se distribuam uniformemente pela tabela.
+     */
+    private static int espalhar(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+}
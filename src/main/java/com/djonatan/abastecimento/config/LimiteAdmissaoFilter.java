@@ -0,0 +1,123 @@
+package com.djonatan.abastecimento.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Filtro HTTP de controlo de admissão, executado antes de qualquer Controller.
+ *
+ * Propósito:
+ * Um terminal com defeito pode inundar a API com pedidos e esgotar o pool de ligações à base de dados
+ * de toda a rede de postos. Este filtro rejeita o excesso de pedidos o mais cedo possível, antes de
+ * chegarem ao `AbastecimentoService`:
+ * 1. Limite por cliente e por rota (token bucket): o excesso recebe HTTP 429 (Too Many Requests).
+ * 2. Limite global de concorrência: acima de `limite.max-concorrentes` pedidos em curso,
+ * os novos pedidos recebem HTTP 503 (Service Unavailable).
+ *
+ * As regras são configuradas em `LimiteProperties`; cada um dos dois limites pode ser desligado em separado
+ * (`limite.taxa-ativa` e `limite.concorrencia-ativa`).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class LimiteAdmissaoFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private LimiteProperties limiteProperties;
+
+    private final List<RegraAtiva> regras = new ArrayList<>();
+    private Semaphore concorrencia;
+
+    /**
+     * Cria um limitador por regra e o semáforo global, depois de as propriedades terem sido injetadas.
+     */
+    @Override
+    protected void initFilterBean() {
+        limiteProperties.getRotas().values().forEach(regra -> regras.add(new RegraAtiva(regra,
+                new LimitadorTaxa(limiteProperties.getPosicoes(), regra.getCapacidade(), regra.getReposicaoPorSegundo()))));
+        concorrencia = new Semaphore(limiteProperties.getMaxConcorrentes());
+    }
+
+    /**
+     * Apenas os pedidos à API são sujeitos a controlo (a documentação Swagger, por exemplo, não é).
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (limiteProperties.isTaxaAtiva()) {
+            RegraAtiva regra = procurarRegra(request);
+            if (regra != null && !regra.limitador.tentarConsumir(identificarCliente(request))) {
+                rejeitar(response, HttpStatus.TOO_MANY_REQUESTS, "Limite de pedidos excedido para este terminal.");
+                return;
+            }
+        }
+
+        if (!limiteProperties.isConcorrenciaAtiva()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!concorrencia.tryAcquire()) {
+            rejeitar(response, HttpStatus.SERVICE_UNAVAILABLE, "Servidor sobrecarregado. Tente novamente.");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concorrencia.release();
+        }
+    }
+
+    private RegraAtiva procurarRegra(HttpServletRequest request) {
+        for (RegraAtiva regra : regras) {
+            if (regra.regra.getMetodo().equalsIgnoreCase(request.getMethod())
+                    && request.getRequestURI().startsWith(regra.regra.getCaminho())) {
+                return regra;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * O cliente é identificado pelo posto e pelo terminal, pois o mesmo ID de bomba existe em vários postos.
+     */
+    private String identificarCliente(HttpServletRequest request) {
+        String cliente = request.getHeader(limiteProperties.getCabecalhoCliente());
+        return ContextoPosto.atualOuNulo() + ":" + (cliente != null ? cliente : request.getRemoteAddr());
+    }
+
+    /**
+     * Escreve a resposta de rejeição diretamente, sem passar pelo tratamento de erros do Spring,
+     * para que rejeitar um pedido custe o mínimo possível.
+     */
+    private void rejeitar(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"status\":" + status.value() + ",\"erro\":\"" + mensagem + "\"}");
+    }
+
+    /**
+     * Uma regra configurada e o respetivo limitador.
+     */
+    private record RegraAtiva(LimiteProperties.Regra regra, LimitadorTaxa limitador) {
+    }
+}
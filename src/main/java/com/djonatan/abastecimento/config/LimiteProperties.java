@@ -0,0 +1,84 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propriedades de configuração do controlo de admissão (prefixo `limite` no application.properties).
+ *
+ * Exemplo de uma regra por rota:
+ * <pre>
+ * limite.rotas.registar.metodo=POST
+ * limite.rotas.registar.caminho=/api/abastecimentos
+ * limite.rotas.registar.capacidade=20
+ * limite.rotas.registar.reposicao-por-segundo=5
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "limite")
+public class LimiteProperties {
+
+    /**
+     * Liga ou desliga a limitação de taxa por cliente e por rota (`rotas`).
+     */
+    private boolean taxaAtiva = true;
+
+    /**
+     * Liga ou desliga o limite global de pedidos em simultâneo (`maxConcorrentes`), independentemente dos limites por cliente.
+     */
+    private boolean concorrenciaAtiva = true;
+
+    /**
+     * Número máximo de pedidos à API a serem processados em simultâneo, somando todos os clientes.
+     * Acima deste número os pedidos são rejeitados com HTTP 503, antes de ocuparem uma ligação à base de dados.
+     */
+    private int maxConcorrentes = 64;
+
+    /**
+     * Número de posições da tabela de baldes de cada rota (arredondado para a potência de 2 seguinte).
+     * A memória usada é fixa (8 bytes por posição), independentemente do número de clientes.
+     */
+    private int posicoes = 4096;
+
+    /**
+     * Cabeçalho HTTP que identifica o cliente (terminal da bomba). Na sua ausência é usado o endereço IP.
+     */
+    private String cabecalhoCliente = "X-Bomba-Id";
+
+    /**
+     * As regras de limitação por rota, indexadas por um nome livre.
+     */
+    private Map<String, Regra> rotas = new LinkedHashMap<>();
+
+    /**
+     * Uma regra de limitação de taxa (token bucket) para um método e prefixo de caminho.
+     */
+    @Data
+    public static class Regra {
+
+        /**
+         * O método HTTP a que a regra se aplica (ex: "POST").
+         */
+        private String metodo;
+
+        /**
+         * O prefixo do caminho a que a regra se aplica (ex: "/api/abastecimentos").
+         */
+        private String caminho;
+
+        /**
+         * O número máximo de pedidos que um cliente pode fazer de seguida (tamanho do balde).
+         */
+        private int capacidade = 20;
+
+        /**
+         * O número de pedidos repostos por segundo no balde de cada cliente (pode ser fracionário, ex: 0.5).
+         */
+        private double reposicaoPorSegundo = 5;
+    }
+}
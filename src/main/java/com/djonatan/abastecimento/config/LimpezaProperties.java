@@ -0,0 +1,45 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propriedades de configuração da limpeza física das bombas desativadas (prefixo `limpeza` no application.properties).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "limpeza")
+public class LimpezaProperties {
+
+    /**
+     * Se verdadeiro, os abastecimentos antigos das bombas desativadas (e depois as próprias bombas) são apagados
+     * em segundo plano. Desligado por omissão: a remoção lógica já basta para o funcionamento da aplicação.
+     */
+    private boolean ativa = false;
+
+    /**
+     * Início da janela diária em que a limpeza pode correr (hora local, formato HH:mm).
+     */
+    private String janelaInicio = "02:00";
+
+    /**
+     * Fim da janela diária (hora local, formato HH:mm). Se for anterior ao início, a janela atravessa a meia-noite.
+     */
+    private String janelaFim = "05:00";
+
+    /**
+     * Número de dias durante os quais os abastecimentos de uma bomba desativada são mantidos antes de serem apagados.
+     */
+    private int retencaoDias = 365;
+
+    /**
+     * Número máximo de linhas apagadas por instrução DELETE (cada bloco é uma transação curta).
+     */
+    private int tamanhoBloco = 1000;
+
+    /**
+     * Pausa, em milissegundos, entre dois blocos, para deixar passar as escritas normais e a replicação.
+     */
+    private long pausaMs = 200;
+}
@@ -0,0 +1,30 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propriedades de configuração do modo offline do registo de abastecimentos (prefixo `offline` no application.properties).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "offline")
+public class OfflineProperties {
+
+    /**
+     * Diretório local onde são guardadas as filas de abastecimentos registados sem base de dados (um ficheiro por posto).
+     */
+    private String diretorio = "dados/offline";
+
+    /**
+     * Se verdadeiro, cada abastecimento aceite offline é sincronizado com o disco (fsync) antes da resposta.
+     */
+    private boolean sincronizar = true;
+
+    /**
+     * Número de falhas de ligação seguidas a partir do qual o disjuntor de um shard abre.
+     * Uma única falha (ex: uma ligação antiga cortada por uma firewall) não deve passar o posto para offline.
+     */
+    private int falhasLimiar = 3;
+}
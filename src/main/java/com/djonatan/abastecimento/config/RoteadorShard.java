@@ -0,0 +1,102 @@
+package com.djonatan.abastecimento.config;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapeia postos para shards e shards para os respetivos pools de ligações.
+ *
+ * Cada shard tem o seu próprio `DataSource` (pool HikariCP), pelo que a carga de um shard não consome
+ * ligações dos outros. Os mapas são concorrentes, o que permite adicionar shards e atribuir novos
+ * postos em funcionamento, sem reiniciar a aplicação. Esses registos são gravados no shard principal
+ * pelo `ShardService`, que os volta a aplicar aqui no arranque.
+ *
+ * Cada pedido é resolvido para exatamente um shard (o do seu posto), pelo que nenhuma operação
+ * de listagem ou registo consulta mais do que uma base de dados.
+ */
+public class RoteadorShard {
+
+    private final Map<String, DataSource> shards = new ConcurrentHashMap<>();
+    private final Map<Integer, String> postoParaShard = new ConcurrentHashMap<>();
+
+    public RoteadorShard(DataSource principal) {
+        shards.put(TenanciaProperties.SHARD_PRINCIPAL, principal);
+    }
+
+    /**
+     * Regista um novo shard.
+     *
+     * @throws RuntimeException se já existir um shard com o mesmo nome.
+     */
+    public void adicionarShard(String nome, DataSource dataSource) {
+        if (shards.putIfAbsent(nome, dataSource) != null) {
+            throw new RuntimeException("Já existe um shard com o nome: " + nome);
+        }
+    }
+
+    /**
+     * Remove um shard acabado de registar, sem postos atribuídos (ex: se não foi possível gravá-lo).
+     *
+     * @return O `DataSource` removido, ou nulo se não existia.
+     * @throws RuntimeException se algum posto estiver atribuído ao shard.
+     */
+    public DataSource removerShard(String nome) {
+        if (postoParaShard.containsValue(nome)) {
+            throw new RuntimeException("O shard tem postos atribuídos: " + nome);
+        }
+        return shards.remove(nome);
+    }
+
+    /**
+     * Atribui um posto a um shard existente.
+     * Apenas deve ser usado para postos novos: mover um posto com dados exige migrar primeiro os seus registos.
+     *
+     * @throws RuntimeException se o shard não existir.
+     */
+    public void atribuirPosto(int postoId, String shard) {
+        if (!shards.containsKey(shard)) {
+            throw new RuntimeException("Shard não encontrado: " + shard);
+        }
+        postoParaShard.put(postoId, shard);
+    }
+
+    /**
+     * Retorna o nome do shard de um posto (o shard principal, se o posto não tiver atribuição).
+     */
+    public String shardDoPosto(int postoId) {
+        return postoParaShard.getOrDefault(postoId, TenanciaProperties.SHARD_PRINCIPAL);
+    }
+
+    /**
+     * Retorna o `DataSource` a usar pela thread atual, de acordo com o `ContextoPosto`.
+     */
+    public DataSource dataSourceAtual() {
+        String nome = ContextoPosto.shardForcado();
+        if (nome == null) {
+            Integer postoId = ContextoPosto.atualOuNulo();
+            nome = postoId == null ? TenanciaProperties.SHARD_PRINCIPAL : shardDoPosto(postoId);
+        }
+        DataSource dataSource = shards.get(nome);
+        if (dataSource == null) {
+            throw new IllegalStateException("Shard não encontrado: " + nome);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Retorna os nomes de todos os shards registados.
+     */
+    public List<String> nomesShards() {
+        return new ArrayList<>(shards.keySet());
+    }
+
+    /**
+     * Retorna uma cópia da atribuição atual de postos a shards.
+     */
+    public Map<Integer, String> atribuicoes() {
+        return Map.copyOf(postoParaShard);
+    }
+}
@@ -0,0 +1,66 @@
+package com.djonatan.abastecimento.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuração dos shards de base de dados para a multi-tenancy.
+ *
+ * - `shardPrincipal`: o pool criado a partir de `spring.datasource.*` e `spring.datasource.hikari.*`,
+ * tal como fazia a configuração automática do Spring Boot antes da multi-tenancy.
+ * - `roteadorShard`: regista o shard principal, os shards de `tenancia.shards.*` e a atribuição de postos.
+ * - `dataSource` (@Primary): o `DataSourceRoteado`, usado pelo JPA, que encaminha cada ligação
+ * para o shard do posto do pedido.
+ */
+@Configuration
+public class TenanciaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shardPrincipal(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public RoteadorShard roteadorShard(HikariDataSource shardPrincipal, TenanciaProperties tenanciaProperties) {
+        RoteadorShard roteador = new RoteadorShard(shardPrincipal);
+        tenanciaProperties.getShards().forEach((nome, shard) ->
+                roteador.adicionarShard(nome, criarPool(shardPrincipal, nome, shard)));
+        tenanciaProperties.getPostos().forEach(roteador::atribuirPosto);
+        return roteador;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteadorShard roteadorShard) {
+        return new DataSourceRoteado(roteadorShard);
+    }
+
+    /**
+     * Cria o pool de ligações de um shard, copiando as definições do pool principal
+     * (timeouts, cache de prepared statements, etc.) e substituindo apenas a ligação e o tamanho.
+     *
+     * @param modelo O pool principal, usado como modelo.
+     * @param nome O nome do shard.
+     * @param shard A configuração de ligação do shard.
+     * @return O novo pool, já pronto a ser registado no `RoteadorShard`.
+     */
+    public static HikariDataSource criarPool(HikariDataSource modelo, String nome, TenanciaProperties.Shard shard) {
+        HikariConfig config = new HikariConfig();
+        modelo.copyStateTo(config);
+        config.setPoolName("shard-" + nome);
+        config.setJdbcUrl(shard.getUrl());
+        config.setUsername(shard.getUsername());
+        config.setPassword(shard.getPassword());
+        config.setMaximumPoolSize(shard.getMaxPool());
+        config.setMinimumIdle(Math.min(modelo.getMinimumIdle(), shard.getMaxPool()));
+        return new HikariDataSource(config);
+    }
+}
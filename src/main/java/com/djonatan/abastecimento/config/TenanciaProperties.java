@@ -0,0 +1,64 @@
+package com.djonatan.abastecimento.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propriedades de configuração da multi-tenancy (prefixo `tenancia` no application.properties).
+ *
+ * O shard "principal" usa sempre a configuração `spring.datasource.*`. Shards adicionais e a
+ * atribuição de postos a shards são declarados assim:
+ * <pre>
+ * tenancia.shards.norte.url=jdbc:mysql://db-norte:3306/abastecimento_db
+ * tenancia.shards.norte.username=app
+ * tenancia.shards.norte.password=segredo
+ * tenancia.postos.101=norte
+ * </pre>
+ * Postos sem atribuição ficam no shard "principal".
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tenancia")
+public class TenanciaProperties {
+
+    /**
+     * O nome do shard que usa a configuração `spring.datasource.*`.
+     */
+    public static final String SHARD_PRINCIPAL = "principal";
+
+    /**
+     * O posto assumido quando o pedido não traz o cabeçalho `X-Posto-Id`.
+     * Mantém a compatibilidade com as instalações de um único posto.
+     */
+    private int postoPadrao = 1;
+
+    /**
+     * Os shards adicionais, indexados pelo nome.
+     */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /**
+     * A atribuição de postos a shards (ID do posto -> nome do shard).
+     */
+    private Map<Integer, String> postos = new LinkedHashMap<>();
+
+    /**
+     * A configuração de ligação de um shard.
+     */
+    @Data
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+
+        /**
+         * Tamanho máximo do pool de ligações deste shard.
+         */
+        private int maxPool = 10;
+    }
+}
@@ -4,6 +4,7 @@ import com.djonatan.abastecimento.dto.AbastecimentoRequest;
 import com.djonatan.abastecimento.model.Abastecimento;
 import com.djonatan.abastecimento.service.AbastecimentoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -39,30 +40,54 @@ public class AbastecimentoController {
      * Este método demonstra o uso de um DTO (`AbastecimentoRequest`) para receber os dados,
      * o que torna a API mais flexível e segura.
      *
-     * @param request O DTO contendo o ID da bomba e os litros ou o valor do abastecimento.
-     * @return O objeto Abastecimento completo que foi criado e persistido.
+     * Se a base de dados estiver inacessível, o abastecimento é aceite offline e a resposta é HTTP 202 (Accepted),
+     * com o abastecimento ainda sem ID; será gravado assim que a base de dados voltar a responder.
+     *
+     * @param request O DTO contendo o ID da bomba, os litros ou o valor do abastecimento e,
+     * opcionalmente, o ID do operador e o preço por litro mostrado pelo terminal.
+     * @return O objeto Abastecimento completo que foi criado e persistido (200), ou aceite offline (202).
      */
     @PostMapping
-    public Abastecimento registar(@RequestBody AbastecimentoRequest request) {
+    public ResponseEntity<Abastecimento> registar(@RequestBody AbastecimentoRequest request) {
         // Delega para o serviço a decisão de qual lógica de negócio aplicar.
+        Abastecimento abastecimento;
         if (request.getLitros() != null) {
-            return abastecimentoService.registarPorLitros(request.getBombaId(), request.getLitros());
+            abastecimento = abastecimentoService.registarPorLitros(request.getBombaId(), request.getLitros(),
+                    request.getOperadorId(), request.getPrecoPorLitro());
         } else if (request.getValor() != null) {
-            return abastecimentoService.registarPorValor(request.getBombaId(), request.getValor());
+            abastecimento = abastecimentoService.registarPorValor(request.getBombaId(), request.getValor(),
+                    request.getOperadorId(), request.getPrecoPorLitro());
         } else {
             // Lança uma exceção se dados essenciais não forem fornecidos,
             // resultando numa resposta HTTP 400 (Bad Request) para o cliente.
             throw new IllegalArgumentException("É necessário fornecer a quantidade de litros ou o valor total.");
         }
+        return new ResponseEntity<>(abastecimento, abastecimento.getId() == 0 ? HttpStatus.ACCEPTED : HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint para corrigir os litros ou o valor de um abastecimento.
+     * Mapeado para o método HTTP PUT em "/api/abastecimentos/{id}".
+     * A correção é registada no diário de eventos (CORRIGIDO); o registo original continua disponível para auditoria.
+     *
+     * @param id O ID do abastecimento a corrigir.
+     * @param request O DTO com os litros ou o valor corretos (o ID da bomba é ignorado).
+     * @return O abastecimento corrigido.
+     */
+    @PutMapping("/{id}")
+    public Abastecimento corrigir(@PathVariable Integer id, @RequestBody AbastecimentoRequest request) {
+        return abastecimentoService.corrigir(id, request.getLitros(), request.getValor());
     }
 
     /**
-     * Endpoint para remover um abastecimento pelo seu ID.
+     * Endpoint para anular um abastecimento pelo seu ID.
      * Mapeado para o método HTTP DELETE em "/api/abastecimentos/{id}".
+     * O abastecimento deixa de constar do histórico e dos totais, mas não é apagado do diário de eventos:
+     * fica registado um evento ANULADO, para auditoria.
      * A segurança desta operação (verificar se o utilizador é admin) seria implementada
      * numa camada de segurança (ex: Spring Security) ou no próprio serviço.
      *
-     * @param id O ID do abastecimento a ser removido.
+     * @param id O ID do abastecimento a ser anulado.
      * @return Um ResponseEntity com status HTTP 204 (No Content), que é a prática
      * padrão para operações de DELETE bem-sucedidas.
      */
@@ -0,0 +1,51 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.ImpactoPreco;
+import com.djonatan.abastecimento.dto.PrevisaoProcura;
+import com.djonatan.abastecimento.service.AnaliseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller REST para a análise da procura: previsões horárias e impacto das mudanças de preço, por combustível.
+ * As respostas são calculadas a partir das séries horárias em memória, sem consultas ao histórico de abastecimentos.
+ */
+@RestController
+@RequestMapping("/api/analises")
+public class AnaliseController {
+
+    @Autowired
+    private AnaliseService analiseService;
+
+    /**
+     * Endpoint para prever os litros vendidos por hora, a começar na hora atual.
+     * Mapeado para o método HTTP GET em "/api/analises/previsao".
+     * Ex: /api/analises/previsao?horas=24&combustivelId=1
+     *
+     * @param horas O número de horas a prever (padrão: 24).
+     * @param combustivelId Opcional. Limita a previsão a um combustível.
+     * @return a previsão de cada combustível do posto.
+     */
+    @GetMapping("/previsao")
+    public List<PrevisaoProcura> prever(@RequestParam(defaultValue = "24") int horas,
+                                        @RequestParam(required = false) Integer combustivelId) {
+        return analiseService.prever(horas, combustivelId);
+    }
+
+    /**
+     * Endpoint para avaliar o efeito das mudanças de preço no volume vendido.
+     * Mapeado para o método HTTP GET em "/api/analises/impacto-preco".
+     *
+     * @param combustivelId Opcional. Limita a análise a um combustível.
+     * @return a elasticidade preço-procura e as mudanças de preço de cada combustível do posto.
+     */
+    @GetMapping("/impacto-preco")
+    public List<ImpactoPreco> impactoPreco(@RequestParam(required = false) Integer combustivelId) {
+        return analiseService.impactoPreco(combustivelId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.Alerta;
+import com.djonatan.abastecimento.service.DetecaoAnomaliaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller REST para a consulta dos alertas de abastecimentos suspeitos.
+ * Os alertas são gerados em tempo real pelo `DetecaoAnomaliaService` no momento do registo.
+ */
+@RestController
+@RequestMapping("/api/anomalias")
+public class AnomaliaController {
+
+    @Autowired
+    private DetecaoAnomaliaService detecaoAnomaliaService;
+
+    /**
+     * Endpoint para listar os alertas mais recentes.
+     * Mapeado para o método HTTP GET em "/api/anomalias".
+     *
+     * @param bombaId (Opcional) Filtra os alertas de uma bomba.
+     * @return A lista de alertas, do mais recente para o mais antigo.
+     */
+    @GetMapping
+    public List<Alerta> listar(@RequestParam(required = false) Integer bombaId) {
+        return detecaoAnomaliaService.listarAlertas(bombaId);
+    }
+}
@@ -3,6 +3,7 @@ package com.djonatan.abastecimento.controller;
 import com.djonatan.abastecimento.model.Bomba;
 import com.djonatan.abastecimento.service.BombaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -31,6 +32,20 @@ public class BombaController {
         return bombaService.listarTodas();
     }
 
+    /**
+     * Endpoint para obter uma bomba pelo seu ID.
+     * Mapeado para o método HTTP GET em "/api/bombas/{id}".
+     * A resposta inclui o cabeçalho ETag com a versão atual, a enviar no If-Match da atualização.
+     *
+     * @param id O ID a consultar.
+     * @return Um ResponseEntity com a bomba e a respetiva ETag.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Bomba> obter(@PathVariable Integer id) {
+        Bomba bomba = bombaService.obter(id);
+        return ResponseEntity.ok().eTag(VersaoCondicional.etag(bomba.getVersao())).body(bomba);
+    }
+
     /**
      * Endpoint para criar uma nova bomba.
      * Mapeado para o método HTTP POST em "/api/bombas".
@@ -49,26 +64,37 @@ public class BombaController {
     /**
      * Endpoint para atualizar uma bomba existente.
      * Mapeado para o método HTTP PUT em "/api/bombas/{id}".
+     * A atualização é condicional: a versão esperada vem do cabeçalho If-Match (ou do campo "versao").
+     * Se a bomba tiver sido alterada entretanto, a resposta é HTTP 409 (Conflict);
+     * sem versão, a resposta é HTTP 428 (Precondition Required). `If-Match: *` aceita qualquer versão atual.
      * @param id O ID da bomba a ser atualizada, extraído da URL.
      * @param bomba O objeto Bomba com os novos dados, vindo do corpo do pedido.
-     * @return O objeto Bomba com os dados atualizados.
+     * @param ifMatch A ETag lida anteriormente (opcional se o corpo tiver "versao").
+     * @return Um ResponseEntity com o objeto Bomba atualizado e a nova ETag.
      */
     @PutMapping("/{id}")
-    public Bomba atualizar(@PathVariable Integer id, @RequestBody Bomba bomba) {
+    public ResponseEntity<Bomba> atualizar(@PathVariable Integer id, @RequestBody Bomba bomba,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // Garante que o ID do objeto a ser salvo é o mesmo da URL, para consistência.
         bomba.setId(id);
-        return bombaService.salvar(bomba);
+        bomba.setVersao(VersaoCondicional.versaoEsperada(ifMatch, bomba.getVersao()));
+        Bomba atualizada = bombaService.salvar(bomba);
+        return ResponseEntity.ok().eTag(VersaoCondicional.etag(atualizada.getVersao())).body(atualizada);
     }
 
     /**
      * Endpoint para remover uma bomba pelo seu ID.
      * Mapeado para o método HTTP DELETE em "/api/bombas/{id}".
+     * A bomba é desativada (remoção lógica); os abastecimentos registados nela mantêm-se.
+     * Com o cabeçalho If-Match, a remoção só é feita se a bomba ainda estiver nessa versão (senão, HTTP 409).
      * @param id O ID da bomba a ser removida.
+     * @param ifMatch A ETag lida anteriormente (opcional).
      * @return Um ResponseEntity com status HTTP 204 (No Content).
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> remover(@PathVariable Integer id) {
-        bombaService.remover(id);
+    public ResponseEntity<Void> remover(@PathVariable Integer id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        bombaService.remover(id, VersaoCondicional.versaoOpcional(ifMatch));
         return ResponseEntity.noContent().build();
     }
 }
@@ -3,6 +3,7 @@ package com.djonatan.abastecimento.controller;
 import com.djonatan.abastecimento.model.Combustivel;
 import com.djonatan.abastecimento.service.CombustivelService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -35,6 +36,20 @@ public class CombustivelController {
         return combustivelService.listarTodos();
     }
 
+    /**
+     * Endpoint para obter um combustível pelo seu ID.
+     * Mapeado para o método HTTP GET em "/api/combustiveis/{id}".
+     * A resposta inclui o cabeçalho ETag com a versão atual, a enviar no If-Match da atualização.
+     *
+     * @param id O ID a consultar.
+     * @return Um ResponseEntity com o combustível e a respetiva ETag.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Combustivel> obter(@PathVariable Integer id) {
+        Combustivel combustivel = combustivelService.obter(id);
+        return ResponseEntity.ok().eTag(VersaoCondicional.etag(combustivel.getVersao())).body(combustivel);
+    }
+
     /**
      * Endpoint para criar um novo combustível.
      * Mapeado para o método HTTP POST na URL base "/api/combustiveis".
@@ -53,29 +68,41 @@ public class CombustivelController {
     /**
      * Endpoint para atualizar um combustível existente.
      * Mapeado para o método HTTP PUT na URL "/api/combustiveis/{id}".
+     * A atualização é condicional: a versão esperada vem do cabeçalho If-Match (ou do campo "versao").
+     * Se o combustível tiver sido alterado entretanto, a resposta é HTTP 409 (Conflict);
+     * sem versão, a resposta é HTTP 428 (Precondition Required). `If-Match: *` aceita qualquer versão atual.
      *
      * @param id O ID do combustível a ser atualizado, capturado da URL pela anotação @PathVariable.
      * @param combustivel O objeto Combustivel com os novos dados, vindo do corpo do pedido.
-     * @return O objeto Combustivel com os dados atualizados.
+     * @param ifMatch A ETag lida anteriormente (opcional se o corpo tiver "versao").
+     * @return Um ResponseEntity com o objeto Combustivel atualizado e a nova ETag.
      */
     @PutMapping("/{id}")
-    public Combustivel atualizar(@PathVariable Integer id, @RequestBody Combustivel combustivel) {
+    public ResponseEntity<Combustivel> atualizar(@PathVariable Integer id, @RequestBody Combustivel combustivel,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // Garante que o ID do objeto a ser salvo é o mesmo da URL, para consistência.
         combustivel.setId(id);
-        return combustivelService.salvar(combustivel);
+        combustivel.setVersao(VersaoCondicional.versaoEsperada(ifMatch, combustivel.getVersao()));
+        Combustivel atualizado = combustivelService.salvar(combustivel);
+        return ResponseEntity.ok().eTag(VersaoCondicional.etag(atualizado.getVersao())).body(atualizado);
     }
 
     /**
      * Endpoint para remover um combustível.
      * Mapeado para o método HTTP DELETE na URL "/api/combustiveis/{id}".
+     * O combustível e as suas bombas são desativados (remoção lógica); o histórico mantém-se.
+     *
+     * Com o cabeçalho If-Match, a remoção só é feita se o combustível ainda estiver nessa versão (senão, HTTP 409).
      *
      * @param id O ID do combustível a ser removido, capturado da URL.
+     * @param ifMatch A ETag lida anteriormente (opcional).
      * @return Um ResponseEntity com status HTTP 204 (No Content), indicando sucesso na remoção
      * sem necessidade de retornar um corpo na resposta. Esta é a prática padrão em APIs REST.
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> remover(@PathVariable Integer id) {
-        combustivelService.remover(id);
+    public ResponseEntity<Void> remover(@PathVariable Integer id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        combustivelService.remover(id, VersaoCondicional.versaoOpcional(ifMatch));
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,76 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
+import com.djonatan.abastecimento.dto.EstadoDiario;
+import com.djonatan.abastecimento.dto.ResultadoReconstrucao;
+import com.djonatan.abastecimento.service.DiarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller REST para a administração do diário de eventos de abastecimento do posto do pedido.
+ * Permite auditar os eventos, gravar instantâneos e reconstruir a tabela 'abastecimento' e os totais de turno.
+ * Estes endpoints destinam-se apenas a administradores.
+ */
+@RestController
+@RequestMapping("/api/admin/diario")
+public class DiarioController {
+
+    @Autowired
+    private DiarioService diarioService;
+
+    /**
+     * Endpoint para consultar o estado do diário (última sequência, instantâneo mais recente e segmentos).
+     * Mapeado para o método HTTP GET em "/api/admin/diario".
+     */
+    @GetMapping
+    public EstadoDiario estado() {
+        return diarioService.estado();
+    }
+
+    /**
+     * Endpoint para auditar os eventos do diário, página a página.
+     * Mapeado para o método HTTP GET em "/api/admin/diario/eventos".
+     *
+     * @param desde A primeira sequência a devolver (padrão: 1).
+     * @param limite O número máximo de eventos (padrão: 100, máximo: 10000).
+     * @return Os eventos, por ordem de sequência.
+     */
+    @GetMapping("/eventos")
+    public List<EventoAbastecimento> eventos(@RequestParam(defaultValue = "1") long desde,
+                                             @RequestParam(defaultValue = "100") int limite) {
+        return diarioService.listarEventos(desde, limite);
+    }
+
+    /**
+     * Endpoint para reconstruir a tabela 'abastecimento' e os totais de turno a partir do diário.
+     * Mapeado para o método HTTP POST em "/api/admin/diario/reconstrucao".
+     */
+    @PostMapping("/reconstrucao")
+    public ResultadoReconstrucao reconstruir() {
+        return diarioService.reconstruir();
+    }
+
+    /**
+     * Endpoint para importar para o diário vazio os abastecimentos já existentes na tabela.
+     * Mapeado para o método HTTP POST em "/api/admin/diario/importacao".
+     */
+    @PostMapping("/importacao")
+    public ResultadoReconstrucao importar() {
+        return diarioService.importar();
+    }
+
+    /**
+     * Endpoint para gravar imediatamente um instantâneo do diário.
+     * Mapeado para o método HTTP POST em "/api/admin/diario/instantaneo".
+     *
+     * @return A sequência do instantâneo gravado.
+     */
+    @PostMapping("/instantaneo")
+    public Map<String, Long> gravarInstantaneo() {
+        return Map.of("sequencia", diarioService.gravarInstantaneo());
+    }
+}
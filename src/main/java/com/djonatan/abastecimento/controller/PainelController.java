@@ -0,0 +1,32 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.Painel;
+import com.djonatan.abastecimento.service.PainelService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller REST para o painel do gerente do posto.
+ * Substitui as várias chamadas do painel (combustíveis, bombas, histórico e totais) por um único pedido,
+ * servido a partir de um snapshot em memória (`PainelService`).
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class PainelController {
+
+    @Autowired
+    private PainelService painelService;
+
+    /**
+     * Endpoint para obter o painel do posto.
+     * Mapeado para o método HTTP GET em "/api/dashboard".
+     *
+     * @return o catálogo, os últimos abastecimentos e os totais do dia, com o momento da última leitura (`atualizadoEm`).
+     */
+    @GetMapping
+    public Painel obter() {
+        return painelService.obter();
+    }
+}
@@ -0,0 +1,42 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.PaginaPesquisa;
+import com.djonatan.abastecimento.dto.ResultadoPesquisa;
+import com.djonatan.abastecimento.service.PesquisaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller REST para a pesquisa de bombas, combustíveis e utilizadores.
+ * Substitui a filtragem no cliente (descarregar a lista completa e filtrar): a pesquisa é feita no servidor,
+ * sobre índices em memória, e devolve apenas a página pedida.
+ */
+@RestController
+@RequestMapping("/api/pesquisa")
+public class PesquisaController {
+
+    @Autowired
+    private PesquisaService pesquisaService;
+
+    /**
+     * Endpoint de pesquisa.
+     * Mapeado para o método HTTP GET em "/api/pesquisa".
+     * Ex: GET /api/pesquisa?q=gas&tipo=COMBUSTIVEL&pagina=0&tamanho=20
+     *
+     * @param q O texto a pesquisar (acentos e maiúsculas são ignorados).
+     * @param tipo Opcional: BOMBA, COMBUSTIVEL ou USUARIO (sem tipo, pesquisa em todos).
+     * @param pagina O número da página, a começar em 0 (padrão: 0).
+     * @param tamanho O tamanho da página (padrão: 20, máximo: 100).
+     * @return A página de resultados, ordenados por relevância.
+     */
+    @GetMapping
+    public PaginaPesquisa pesquisar(@RequestParam String q,
+                                    @RequestParam(required = false) ResultadoPesquisa.Tipo tipo,
+                                    @RequestParam(defaultValue = "0") int pagina,
+                                    @RequestParam(defaultValue = "20") int tamanho) {
+        return pesquisaService.pesquisar(q, tipo, pagina, tamanho);
+    }
+}
@@ -0,0 +1,32 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.EstadoSaude;
+import com.djonatan.abastecimento.service.ModoOfflineService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller REST para o estado de saúde da aplicação.
+ * A resposta é construída apenas a partir do estado em memória (não consulta a base de dados),
+ * pelo que responde mesmo com os shards inacessíveis.
+ */
+@RestController
+@RequestMapping("/api/saude")
+public class SaudeController {
+
+    @Autowired
+    private ModoOfflineService modoOfflineService;
+
+    /**
+     * Endpoint para consultar o estado dos disjuntores de base de dados e das filas offline.
+     * Mapeado para o método HTTP GET em "/api/saude".
+     *
+     * @return o estado de saúde (DISPONIVEL ou DEGRADADO), com o detalhe por shard e por posto.
+     */
+    @GetMapping
+    public EstadoSaude estado() {
+        return modoOfflineService.estado();
+    }
+}
@@ -0,0 +1,61 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.AtribuicaoPostoRequest;
+import com.djonatan.abastecimento.dto.NovoShardRequest;
+import com.djonatan.abastecimento.service.ShardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Controller REST para a administração dos shards de base de dados da multi-tenancy.
+ * Estes endpoints destinam-se apenas a administradores da plataforma.
+ */
+@RestController
+@RequestMapping("/api/admin/shards")
+public class ShardController {
+
+    @Autowired
+    private ShardService shardService;
+
+    /**
+     * Endpoint para consultar os shards e a atribuição de postos.
+     * Mapeado para o método HTTP GET em "/api/admin/shards".
+     *
+     * @return Os nomes dos shards e o mapa de postos para shards.
+     */
+    @GetMapping
+    public Map<String, Object> listar() {
+        return Map.of("shards", shardService.listarShards(), "postos", shardService.listarAtribuicoes());
+    }
+
+    /**
+     * Endpoint para registar um novo shard sem reiniciar a aplicação.
+     * Mapeado para o método HTTP POST em "/api/admin/shards".
+     *
+     * @param request Os dados de ligação do novo shard.
+     * @return Um ResponseEntity com status HTTP 201 (Created).
+     */
+    @PostMapping
+    public ResponseEntity<Void> adicionar(@RequestBody NovoShardRequest request) {
+        shardService.adicionarShard(request);
+        return new ResponseEntity<>(HttpStatus.CREATED);
+    }
+
+    /**
+     * Endpoint para atribuir um posto novo a um shard.
+     * Mapeado para o método HTTP PUT em "/api/admin/shards/postos/{postoId}".
+     *
+     * @param postoId O ID do posto.
+     * @param request O nome do shard (ex: `{"shard": "norte"}`).
+     * @return Um ResponseEntity com status HTTP 204 (No Content).
+     */
+    @PutMapping("/postos/{postoId}")
+    public ResponseEntity<Void> atribuirPosto(@PathVariable Integer postoId, @RequestBody AtribuicaoPostoRequest request) {
+        shardService.atribuirPosto(postoId, request.getShard());
+        return ResponseEntity.noContent().build();
+    }
+}
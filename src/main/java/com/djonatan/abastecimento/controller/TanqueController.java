@@ -0,0 +1,87 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.EntregaRequest;
+import com.djonatan.abastecimento.dto.TanqueRequest;
+import com.djonatan.abastecimento.model.Entrega;
+import com.djonatan.abastecimento.model.Tanque;
+import com.djonatan.abastecimento.service.InventarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller REST para o inventário de combustível: tanques, entregas e acertos de nível.
+ * Os tanques são identificados pelo ID do combustível que armazenam (um tanque por combustível e por posto).
+ */
+@RestController
+@RequestMapping("/api/tanques")
+public class TanqueController {
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    /**
+     * Endpoint para listar os tanques do posto, com o nível atual.
+     * Mapeado para o método HTTP GET em "/api/tanques".
+     */
+    @GetMapping
+    public List<Tanque> listar() {
+        return inventarioService.listar();
+    }
+
+    /**
+     * Endpoint para criar o tanque de um combustível.
+     * Mapeado para o método HTTP POST em "/api/tanques/{combustivelId}".
+     * Ex: { "capacidade": 30000, "nivel": 12000 }
+     *
+     * @param combustivelId O ID do combustível armazenado.
+     * @param request A capacidade e o nível inicial do tanque.
+     * @return Um ResponseEntity com o tanque criado e o status HTTP 201 (Created).
+     */
+    @PostMapping("/{combustivelId}")
+    public ResponseEntity<Tanque> criar(@PathVariable Integer combustivelId, @RequestBody TanqueRequest request) {
+        return new ResponseEntity<>(inventarioService.criar(combustivelId, request), HttpStatus.CREATED);
+    }
+
+    /**
+     * Endpoint para acertar o nível do tanque com uma medição física.
+     * Mapeado para o método HTTP PUT em "/api/tanques/{combustivelId}/nivel".
+     * Ex: { "nivel": 11850.5 }
+     *
+     * @param combustivelId O ID do combustível.
+     * @param request O nível medido.
+     * @return O tanque com o nível acertado.
+     */
+    @PutMapping("/{combustivelId}/nivel")
+    public Tanque acertar(@PathVariable Integer combustivelId, @RequestBody TanqueRequest request) {
+        return inventarioService.acertar(combustivelId, request.getNivel());
+    }
+
+    /**
+     * Endpoint para registar uma entrega (reabastecimento) do tanque.
+     * Mapeado para o método HTTP POST em "/api/tanques/{combustivelId}/entregas".
+     * Ex: { "litros": 15000 }
+     *
+     * @param combustivelId O ID do combustível entregue.
+     * @param request Os litros entregues.
+     * @return Um ResponseEntity com a entrega registada e o status HTTP 201 (Created).
+     */
+    @PostMapping("/{combustivelId}/entregas")
+    public ResponseEntity<Entrega> registarEntrega(@PathVariable Integer combustivelId,
+                                                   @RequestBody EntregaRequest request) {
+        return new ResponseEntity<>(inventarioService.registarEntrega(combustivelId, request.getLitros()),
+                HttpStatus.CREATED);
+    }
+
+    /**
+     * Endpoint para listar as entregas do tanque, da mais recente para a mais antiga.
+     * Mapeado para o método HTTP GET em "/api/tanques/{combustivelId}/entregas".
+     */
+    @GetMapping("/{combustivelId}/entregas")
+    public List<Entrega> listarEntregas(@PathVariable Integer combustivelId) {
+        return inventarioService.listarEntregas(combustivelId);
+    }
+}
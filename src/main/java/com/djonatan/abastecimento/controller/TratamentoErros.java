@@ -0,0 +1,75 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.service.BaseDadosIndisponivelException;
+import com.djonatan.abastecimento.service.StockInsuficienteException;
+import com.djonatan.abastecimento.service.ViolacaoIntegridade;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tratamento global de exceções que têm um significado HTTP próprio.
+ *
+ * Uma `OptimisticLockingFailureException` significa que a entidade foi alterada por outro pedido
+ * depois de o cliente a ter lido (a `versao` enviada já não é a atual). A resposta é HTTP 409 (Conflict),
+ * e o cliente deve voltar a ler a entidade e repetir a alteração sobre a versão nova.
+ *
+ * Uma `DataIntegrityViolationException` significa que a alteração violou uma restrição da base de dados.
+ * Se for uma chave única ou estrangeira, o conflito é normalmente causado por um pedido concorrente (ex: remover
+ * um combustível que uma bomba acabou de passar a usar, ou criar dois registos com o mesmo valor único), e também
+ * é respondida com HTTP 409 (Conflict). As restantes (ex: coluna obrigatória em falta, valor demasiado longo)
+ * são erros nos dados do pedido, respondidos com HTTP 400 (Bad Request).
+ *
+ * Uma `StockInsuficienteException` (abastecimento com mais litros do que os que restam no tanque) também é
+ * respondida com HTTP 409 (Conflict): o pedido é válido, mas entra em conflito com o nível atual do tanque,
+ * e pode ser repetido depois de uma entrega ou de um acerto por medição.
+ *
+ * As falhas de ligação à base de dados resultam em HTTP 503 (Service Unavailable): o pedido pode ser repetido
+ * mais tarde. O registo de abastecimentos não chega aqui nesses casos, pois é aceite offline.
+ */
+@RestControllerAdvice
+public class TratamentoErros {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> conflitoDeVersao(OptimisticLockingFailureException e) {
+        return resposta(HttpStatus.CONFLICT,
+                "O recurso foi alterado por outro pedido. Leia a versão atual e tente novamente.");
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> violacaoDeIntegridade(DataIntegrityViolationException e) {
+        if (!ViolacaoIntegridade.conflito(e)) {
+            return resposta(HttpStatus.BAD_REQUEST,
+                    "Os dados enviados violam uma restrição (ex: campo obrigatório em falta ou demasiado longo).");
+        }
+        return resposta(HttpStatus.CONFLICT,
+                "A alteração entra em conflito com outros dados (ex: o registo está em uso). Verifique e tente novamente.");
+    }
+
+    @ExceptionHandler(StockInsuficienteException.class)
+    public ResponseEntity<Map<String, Object>> stockInsuficiente(StockInsuficienteException e) {
+        return resposta(HttpStatus.CONFLICT, e.getMessage());
+    }
+
+    @ExceptionHandler({BaseDadosIndisponivelException.class, CannotCreateTransactionException.class,
+            DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String, Object>> baseDadosIndisponivel(RuntimeException e) {
+        return resposta(HttpStatus.SERVICE_UNAVAILABLE,
+                "Base de dados temporariamente indisponível. Tente novamente dentro de instantes.");
+    }
+
+    static ResponseEntity<Map<String, Object>> resposta(HttpStatus status, String erro) {
+        Map<String, Object> corpo = new LinkedHashMap<>();
+        corpo.put("status", status.value());
+        corpo.put("erro", erro);
+        return ResponseEntity.status(status).body(corpo);
+    }
+}
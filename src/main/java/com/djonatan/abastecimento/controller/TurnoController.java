@@ -0,0 +1,67 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.dto.RelatorioTurno;
+import com.djonatan.abastecimento.model.Turno;
+import com.djonatan.abastecimento.service.TurnoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller REST para a gestão de turnos (caixa).
+ * Permite abrir e fechar o turno do posto e consultar os totais por combustível e por operador.
+ * O fecho é instantâneo, pois os totais são mantidos de forma incremental pelo `TurnoService`.
+ */
+@RestController
+@RequestMapping("/api/turnos")
+public class TurnoController {
+
+    @Autowired
+    private TurnoService turnoService;
+
+    /**
+     * Endpoint para abrir um novo turno.
+     * Mapeado para o método HTTP POST em "/api/turnos".
+     *
+     * @return Um ResponseEntity com o turno aberto e o status HTTP 201 (Created).
+     */
+    @PostMapping
+    public ResponseEntity<Turno> abrir() {
+        return new ResponseEntity<>(turnoService.abrir(), HttpStatus.CREATED);
+    }
+
+    /**
+     * Endpoint para consultar o relatório parcial do turno aberto.
+     * Mapeado para o método HTTP GET em "/api/turnos/atual".
+     *
+     * @return O relatório com os totais acumulados até ao momento.
+     */
+    @GetMapping("/atual")
+    public RelatorioTurno relatorioAtual() {
+        return turnoService.relatorioAtual();
+    }
+
+    /**
+     * Endpoint para fechar o turno aberto.
+     * Mapeado para o método HTTP POST em "/api/turnos/atual/fecho".
+     *
+     * @return O relatório de fecho do turno.
+     */
+    @PostMapping("/atual/fecho")
+    public RelatorioTurno fechar() {
+        return turnoService.fechar();
+    }
+
+    /**
+     * Endpoint para consultar o relatório de um turno pelo seu ID.
+     * Mapeado para o método HTTP GET em "/api/turnos/{id}".
+     *
+     * @param id O ID do turno.
+     * @return O relatório do turno.
+     */
+    @GetMapping("/{id}")
+    public RelatorioTurno relatorio(@PathVariable Integer id) {
+        return turnoService.relatorio(id);
+    }
+}
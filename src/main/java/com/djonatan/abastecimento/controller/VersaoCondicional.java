@@ -0,0 +1,81 @@
+package com.djonatan.abastecimento.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Utilitário para pedidos condicionais (ETag / If-Match) sobre entidades com `@Version`.
+ *
+ * A ETag de uma entidade é a sua versão entre aspas (ex: "3"). Numa atualização, a versão esperada
+ * vem do cabeçalho If-Match ou, na sua falta, do campo `versao` do corpo do pedido.
+ * Sem nenhuma das duas, a atualização é recusada com HTTP 428 (Precondition Required),
+ * para que nenhum cliente possa sobrepor, sem saber, uma alteração feita por outro.
+ *
+ * O If-Match usa a comparação forte (RFC 9110): `*` aceita qualquer versão atual do recurso,
+ * e uma ETag fraca (`W/"3"`) nunca coincide, pelo que o pedido falha com HTTP 412 (Precondition Failed).
+ */
+final class VersaoCondicional {
+
+    private VersaoCondicional() {
+    }
+
+    /**
+     * Converte a versão de uma entidade na ETag correspondente.
+     */
+    static String etag(Integer versao) {
+        return "\"" + versao + "\"";
+    }
+
+    /**
+     * Determina a versão que o cliente espera atualizar.
+     *
+     * @param ifMatch O valor do cabeçalho If-Match (pode ser nulo).
+     * @param versaoCorpo A versão enviada no corpo do pedido (pode ser nula).
+     * @return A versão esperada, ou nulo se o cliente aceitar qualquer versão atual (`If-Match: *`).
+     * @throws ResponseStatusException 428 se não houver versão, 412 se o If-Match for uma ETag fraca,
+     * ou 400 se o If-Match não for uma ETag válida.
+     */
+    static Integer versaoEsperada(String ifMatch, Integer versaoCorpo) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            if (versaoCorpo == null) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED,
+                        "A atualização exige o cabeçalho If-Match ou o campo 'versao'.");
+            }
+            return versaoCorpo;
+        }
+        return versaoDoIfMatch(ifMatch);
+    }
+
+    /**
+     * Determina a versão que o cliente espera remover. Numa remoção o If-Match é opcional.
+     *
+     * @param ifMatch O valor do cabeçalho If-Match (pode ser nulo).
+     * @return A versão esperada, ou nulo se não houver If-Match ou se for `*` (qualquer versão atual).
+     * @throws ResponseStatusException 412 se o If-Match for uma ETag fraca, ou 400 se não for uma ETag válida.
+     */
+    static Integer versaoOpcional(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        return versaoDoIfMatch(ifMatch);
+    }
+
+    private static Integer versaoDoIfMatch(String ifMatch) {
+        String valor = ifMatch.trim();
+        if (valor.equals("*")) {
+            return null;
+        }
+        if (valor.startsWith("W/")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "O If-Match exige uma ETag forte: " + ifMatch);
+        }
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+        try {
+            return Integer.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match inválido: " + ifMatch);
+        }
+    }
+}
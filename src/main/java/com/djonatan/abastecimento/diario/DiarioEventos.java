@@ -0,0 +1,556 @@
+package com.djonatan.abastecimento.diario;
+
+import com.djonatan.abastecimento.config.DiarioProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * O diário (log) de eventos de abastecimento: a fonte de verdade dos abastecimentos de cada posto.
+ *
+ * Armazenamento:
+ * - Cada posto tem a sua pasta (`posto-{id}`) com segmentos só de acréscimo (`segmento-{primeira sequência}.log`),
+ * compostos por eventos de tamanho fixo (`EventoAbastecimento.TAMANHO`). Um segmento é fechado quando
+ * atinge `diario.eventos-por-segmento` eventos e nunca mais é alterado.
+ * - Todos os eventos de um segmento têm a mesma versão do formato, indicada pelo primeiro evento. Os segmentos
+ * de versões anteriores continuam a ser lidos; se o segmento ativo for de uma versão anterior, a escrita
+ * seguinte abre um segmento novo.
+ * - Periodicamente é gravado um instantâneo (`instantaneo-{sequência}.snap`) com os abastecimentos ativos
+ * até essa sequência, para que a reconstrução só tenha de reproduzir os eventos posteriores.
+ *
+ * Escrita:
+ * As sequências são atribuídas por posto, sob o lock de escrita do posto. A sincronização com o disco
+ * é feita fora desse lock e partilhada pelas escritas concorrentes (group commit): uma thread que encontre
+ * o seu evento já sincronizado por outra não volta a chamar `force`.
+ * No arranque, um evento final incompleto (ex: falha de energia a meio da escrita) é detetado pelo CRC e descartado.
+ *
+ * Coordenação com a projeção:
+ * Cada posto tem um lock de leitura/escrita sobre a projeção (a tabela 'abastecimento'). Os registos, anulações
+ * e correções usam a parte partilhada; a reconstrução e a importação usam a parte exclusiva, para que nenhuma
+ * escrita aconteça enquanto a tabela é reconstruída.
+ */
+@Component
+public class DiarioEventos {
+
+    private static final String PREFIXO_POSTO = "posto-";
+    private static final String PREFIXO_SEGMENTO = "segmento-";
+    private static final String EXTENSAO_SEGMENTO = ".log";
+    private static final String PREFIXO_INSTANTANEO = "instantaneo-";
+    private static final String EXTENSAO_INSTANTANEO = ".snap";
+    private static final int MAGICO_INSTANTANEO = 0x44494152;
+    private static final int VERSAO_INSTANTANEO = 2;
+
+    /**
+     * Tamanho do buffer das leituras sequenciais.
+     */
+    private static final int TAMANHO_LEITURA = EventoAbastecimento.TAMANHO * 16384;
+
+    @Autowired
+    private DiarioProperties propriedades;
+
+    private final ConcurrentHashMap<Integer, Livro> livros = new ConcurrentHashMap<>();
+
+    /**
+     * Acrescenta um evento ao diário do seu posto, sincronizando com o disco se `diario.sincronizar` estiver ativo.
+     *
+     * @param evento O evento (a sequência é atribuída aqui).
+     * @return A sequência atribuída.
+     * @throws RuntimeException se não for possível escrever no diário.
+     */
+    public long acrescentar(EventoAbastecimento evento) {
+        return acrescentar(evento, propriedades.isSincronizar());
+    }
+
+    /**
+     * Acrescenta um evento ao diário, opcionalmente sem sincronizar (usado na importação em massa,
+     * que sincroniza uma única vez no fim com `sincronizar(postoId)`).
+     */
+    public long acrescentar(EventoAbastecimento evento, boolean sincronizar) {
+        Livro livro = livro(evento.getPostoId());
+        try {
+            long sequencia = livro.escrever(evento);
+            if (sincronizar) {
+                livro.sincronizarAte(sequencia);
+            }
+            return sequencia;
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao escrever no diário do posto " + evento.getPostoId() + ".", e);
+        }
+    }
+
+    /**
+     * Sincroniza com o disco todos os eventos já escritos no diário do posto.
+     */
+    public void sincronizar(int postoId) {
+        Livro livro = livro(postoId);
+        try {
+            livro.sincronizarAte(livro.ultimaSequencia);
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao sincronizar o diário do posto " + postoId + ".", e);
+        }
+    }
+
+    /**
+     * Retorna a sequência do último evento do posto (0 se o diário estiver vazio).
+     */
+    public long ultimaSequencia(int postoId) {
+        return livro(postoId).ultimaSequencia;
+    }
+
+    /**
+     * Executa uma escrita na projeção do posto com o lock partilhado (várias escritas em simultâneo).
+     */
+    public <T> T comProjecaoPartilhada(int postoId, Supplier<T> acao) {
+        return executar(livro(postoId).projecao.readLock(), acao);
+    }
+
+    /**
+     * Executa uma operação sobre a projeção do posto com o lock exclusivo (ex: reconstrução),
+     * esperando que as escritas em curso terminem e bloqueando as novas até ao fim.
+     */
+    public <T> T comProjecaoExclusiva(int postoId, Supplier<T> acao) {
+        return executar(livro(postoId).projecao.writeLock(), acao);
+    }
+
+    private static <T> T executar(Lock lock, Supplier<T> acao) {
+        lock.lock();
+        try {
+            return acao.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lê sequencialmente os eventos do posto no intervalo [desde, ate].
+     * O consumidor recebe sempre a mesma instância, reutilizada; deve copiá-la (`copia()`) se a quiser guardar.
+     *
+     * @return O número de eventos lidos.
+     */
+    public long ler(int postoId, long desde, long ate, Consumer<EventoAbastecimento> consumidor) {
+        Livro livro = livro(postoId);
+        List<Long> segmentos = livro.segmentos();
+        EventoAbastecimento evento = new EventoAbastecimento();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_LEITURA);
+        long lidos = 0;
+
+        for (int s = 0; s < segmentos.size(); s++) {
+            long primeira = segmentos.get(s);
+            long proxima = s + 1 < segmentos.size() ? segmentos.get(s + 1) : Long.MAX_VALUE;
+            if (proxima <= desde) {
+                continue;
+            }
+            if (primeira > ate) {
+                break;
+            }
+            try (FileChannel canal = FileChannel.open(livro.caminhoSegmento(primeira), StandardOpenOption.READ)) {
+                int tamanho = livro.tamanhoEventos(primeira, canal);
+                long posicao = Math.max(0, desde - primeira) * tamanho;
+                buffer.clear();
+                int lidosDoCanal;
+                while ((lidosDoCanal = canal.read(buffer, posicao)) > 0) {
+                    posicao += lidosDoCanal;
+                    buffer.flip();
+                    while (buffer.remaining() >= tamanho) {
+                        if (!evento.descodificar(buffer, tamanho) || evento.getSequencia() > ate) {
+                            return lidos;
+                        }
+                        consumidor.accept(evento);
+                        lidos++;
+                    }
+                    // Um evento partido entre duas leituras fica no início do buffer para a leitura seguinte.
+                    buffer.compact();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao ler o diário do posto " + postoId + ".", e);
+            }
+        }
+        return lidos;
+    }
+
+    /**
+     * Retorna uma página de eventos do posto a partir de uma sequência (auditoria).
+     * Com eventos de tamanho fixo, o início da página é encontrado sem percorrer os eventos anteriores.
+     */
+    public List<EventoAbastecimento> listar(int postoId, long desde, int limite) {
+        List<EventoAbastecimento> eventos = new ArrayList<>();
+        if (limite > 0) {
+            ler(postoId, Math.max(1, desde), Math.max(1, desde) + limite - 1, evento -> eventos.add(evento.copia()));
+        }
+        return eventos;
+    }
+
+    /**
+     * Constrói a projeção atual do posto: carrega o instantâneo mais recente e reproduz os eventos seguintes.
+     */
+    public Projecao carregarProjecao(int postoId) {
+        Livro livro = livro(postoId);
+        long ultima = livro.ultimaSequencia;
+        Projecao projecao = lerInstantaneo(livro);
+        ler(postoId, projecao.sequencia() + 1, ultima, projecao::aplicar);
+        return projecao;
+    }
+
+    /**
+     * Retorna a sequência do instantâneo mais recente do posto (0 se não houver nenhum).
+     */
+    public long sequenciaInstantaneo(int postoId) {
+        List<Long> instantaneos = livro(postoId).instantaneos();
+        return instantaneos.isEmpty() ? 0 : instantaneos.get(instantaneos.size() - 1);
+    }
+
+    /**
+     * Retorna o número de segmentos do posto.
+     */
+    public int numeroSegmentos(int postoId) {
+        return livro(postoId).segmentos().size();
+    }
+
+    /**
+     * Grava um instantâneo com os abastecimentos ativos da projeção.
+     * O ficheiro é escrito à parte e renomeado atomicamente; fica apenas o instantâneo anterior como reserva.
+     *
+     * @return A sequência do instantâneo gravado.
+     */
+    public long gravarInstantaneo(int postoId, Projecao projecao) {
+        Livro livro = livro(postoId);
+        Path destino = livro.caminhoInstantaneo(projecao.sequencia());
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (OutputStream ficheiro = Files.newOutputStream(temporario);
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(
+                     new CheckedOutputStream(ficheiro, crc), 1 << 20))) {
+            saida.writeInt(MAGICO_INSTANTANEO);
+            saida.writeInt(VERSAO_INSTANTANEO);
+            saida.writeLong(projecao.sequencia());
+            saida.writeInt(projecao.ativas());
+            for (int i = 0; i < projecao.tamanho(); i++) {
+                if (!projecao.ativo(i)) {
+                    continue;
+                }
+                saida.writeInt(projecao.id(i));
+                saida.writeInt(projecao.bombaId(i));
+                saida.writeInt(projecao.combustivelId(i));
+                saida.writeInt(projecao.operadorId(i));
+                saida.writeInt(projecao.turnoId(i));
+                saida.writeLong(projecao.dataMillis(i));
+                saida.writeLong(projecao.litrosMilesimos(i));
+                saida.writeLong(projecao.valorCentavos(i));
+                UUID idOffline = projecao.idOffline(i);
+                saida.writeBoolean(idOffline != null);
+                if (idOffline != null) {
+                    saida.writeLong(idOffline.getMostSignificantBits());
+                    saida.writeLong(idOffline.getLeastSignificantBits());
+                }
+            }
+            saida.flush();
+            // O CRC cobre tudo o que foi escrito até aqui; é acrescentado diretamente ao ficheiro.
+            new DataOutputStream(ficheiro).writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao gravar o instantâneo do posto " + postoId + ".", e);
+        }
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.force(true);
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            List<Long> instantaneos = livro.instantaneos();
+            for (int i = 0; i < instantaneos.size() - 2; i++) {
+                Files.deleteIfExists(livro.caminhoInstantaneo(instantaneos.get(i)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao gravar o instantâneo do posto " + postoId + ".", e);
+        }
+        return projecao.sequencia();
+    }
+
+    /**
+     * Lê o instantâneo válido mais recente do posto. Um instantâneo com CRC inválido é ignorado,
+     * passando-se ao anterior (ou a uma projeção vazia, reproduzindo o diário desde o início).
+     * Os instantâneos da versão 1 (sem o `idOffline`) continuam a ser lidos: foram gravados antes de os eventos
+     * terem o `idOffline`, pelo que não há nada a recuperar.
+     */
+    private Projecao lerInstantaneo(Livro livro) {
+        List<Long> instantaneos = livro.instantaneos();
+        for (int i = instantaneos.size() - 1; i >= 0; i--) {
+            Path caminho = livro.caminhoInstantaneo(instantaneos.get(i));
+            CRC32C crc = new CRC32C();
+            try (InputStream ficheiro = new BufferedInputStream(Files.newInputStream(caminho), 1 << 20);
+                 DataInputStream entrada = new DataInputStream(new CheckedInputStream(ficheiro, crc))) {
+                if (entrada.readInt() != MAGICO_INSTANTANEO) {
+                    continue;
+                }
+                int versao = entrada.readInt();
+                if (versao != 1 && versao != VERSAO_INSTANTANEO) {
+                    continue;
+                }
+                Projecao projecao = new Projecao();
+                projecao.definirSequencia(entrada.readLong());
+                int linhas = entrada.readInt();
+                for (int l = 0; l < linhas; l++) {
+                    int posicao = projecao.adicionar(entrada.readInt(), entrada.readInt(), entrada.readInt(),
+                            entrada.readInt(), entrada.readInt(), entrada.readLong(), entrada.readLong(), entrada.readLong());
+                    if (versao == VERSAO_INSTANTANEO && entrada.readBoolean()) {
+                        projecao.definirIdOffline(posicao, new UUID(entrada.readLong(), entrada.readLong()));
+                    }
+                }
+                int calculado = (int) crc.getValue();
+                if (new DataInputStream(ficheiro).readInt() == calculado) {
+                    return projecao;
+                }
+            } catch (IOException e) {
+                // Instantâneo ilegível: tenta o anterior.
+            }
+        }
+        return new Projecao();
+    }
+
+    /**
+     * Retorna os IDs dos postos com diário neste disco.
+     */
+    public Set<Integer> postos() {
+        Set<Integer> postos = new TreeSet<>(livros.keySet());
+        Path raiz = Paths.get(propriedades.getDiretorio());
+        if (Files.isDirectory(raiz)) {
+            try (DirectoryStream<Path> pastas = Files.newDirectoryStream(raiz, PREFIXO_POSTO + "*")) {
+                for (Path pasta : pastas) {
+                    postos.add(Integer.parseInt(pasta.getFileName().toString().substring(PREFIXO_POSTO.length())));
+                }
+            } catch (IOException | NumberFormatException e) {
+                throw new RuntimeException("Falha ao listar os diários em " + raiz + ".", e);
+            }
+        }
+        return postos;
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        for (Livro livro : livros.values()) {
+            livro.fechar();
+        }
+    }
+
+    private Livro livro(int postoId) {
+        return livros.computeIfAbsent(postoId, id -> {
+            try {
+                return new Livro(id, Paths.get(propriedades.getDiretorio(), PREFIXO_POSTO + id));
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao abrir o diário do posto " + id + ".", e);
+            }
+        });
+    }
+
+    /**
+     * O diário de um posto: o segmento ativo, a última sequência e os locks de escrita e de sincronização.
+     * Ordem dos locks: `escrita` antes de `sincronizacao`.
+     */
+    private final class Livro {
+
+        private final int postoId;
+        private final Path pasta;
+        private final ReentrantReadWriteLock projecao = new ReentrantReadWriteLock();
+        private final Object escrita = new Object();
+        private final Object sincronizacao = new Object();
+        private final ByteBuffer buffer = ByteBuffer.allocate(EventoAbastecimento.TAMANHO);
+        /** O tamanho dos eventos de cada segmento já lido (primeira sequência -> tamanho); nunca muda. */
+        private final ConcurrentHashMap<Long, Integer> tamanhos = new ConcurrentHashMap<>();
+
+        /** O segmento ativo (alterado apenas com os dois locks). */
+        private FileChannel canal;
+        private long primeiraDoSegmento;
+        /** O tamanho dos eventos do segmento ativo (menor que o atual se for de uma versão anterior). */
+        private int tamanhoDoSegmento = EventoAbastecimento.TAMANHO;
+        private volatile long ultimaSequencia;
+        /** Última sequência garantidamente em disco (protegida por `sincronizacao`). */
+        private long sincronizadaAte;
+
+        Livro(int postoId, Path pasta) throws IOException {
+            this.postoId = postoId;
+            this.pasta = pasta;
+            Files.createDirectories(pasta);
+            List<Long> segmentos = segmentos();
+            if (!segmentos.isEmpty()) {
+                primeiraDoSegmento = segmentos.get(segmentos.size() - 1);
+                canal = FileChannel.open(caminhoSegmento(primeiraDoSegmento), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                tamanhoDoSegmento = tamanhoEventos(primeiraDoSegmento, canal);
+                ultimaSequencia = recuperar();
+                sincronizadaAte = ultimaSequencia;
+            }
+        }
+
+        /**
+         * Descarta eventos incompletos ou corrompidos no fim do segmento ativo e posiciona o canal para escrita.
+         *
+         * @return A sequência do último evento válido.
+         */
+        private long recuperar() throws IOException {
+            long eventos = canal.size() / tamanhoDoSegmento;
+            ByteBuffer leitura = ByteBuffer.allocate(tamanhoDoSegmento);
+            EventoAbastecimento evento = new EventoAbastecimento();
+            while (eventos > 0) {
+                leitura.clear();
+                canal.read(leitura, (eventos - 1) * tamanhoDoSegmento);
+                leitura.flip();
+                if (evento.descodificar(leitura, tamanhoDoSegmento)) {
+                    break;
+                }
+                eventos--;
+            }
+            long tamanhoValido = eventos * tamanhoDoSegmento;
+            canal.truncate(tamanhoValido);
+            canal.position(tamanhoValido);
+            return eventos == 0 ? primeiraDoSegmento - 1 : evento.getSequencia();
+        }
+
+        long escrever(EventoAbastecimento evento) throws IOException {
+            synchronized (escrita) {
+                long sequencia = ultimaSequencia + 1;
+                if (canal == null || tamanhoDoSegmento != EventoAbastecimento.TAMANHO
+                        || sequencia - primeiraDoSegmento >= propriedades.getEventosPorSegmento()) {
+                    rolar(sequencia);
+                }
+                evento.setSequencia(sequencia);
+                buffer.clear();
+                evento.codificar(buffer);
+                buffer.flip();
+                long posicao = canal.position();
+                try {
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer);
+                    }
+                } catch (IOException e) {
+                    // Não deixa um evento parcial antes do próximo.
+                    canal.truncate(posicao);
+                    canal.position(posicao);
+                    throw e;
+                }
+                ultimaSequencia = sequencia;
+                return sequencia;
+            }
+        }
+
+        /**
+         * Fecha o segmento ativo (sincronizando-o) e abre um novo que começa na sequência indicada.
+         */
+        private void rolar(long primeira) throws IOException {
+            synchronized (sincronizacao) {
+                if (canal != null) {
+                    canal.force(false);
+                    canal.close();
+                    sincronizadaAte = ultimaSequencia;
+                }
+                canal = FileChannel.open(caminhoSegmento(primeira), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                primeiraDoSegmento = primeira;
+                tamanhoDoSegmento = EventoAbastecimento.TAMANHO;
+                tamanhos.put(primeira, EventoAbastecimento.TAMANHO);
+            }
+        }
+
+        /**
+         * Retorna o tamanho dos eventos de um segmento, pela versão do formato do seu primeiro evento.
+         * Um segmento vazio, ou com uma versão desconhecida, é lido com o tamanho atual (a leitura
+         * para no primeiro evento inválido, como num segmento corrompido).
+         */
+        int tamanhoEventos(long primeira, FileChannel segmento) throws IOException {
+            Integer conhecido = tamanhos.get(primeira);
+            if (conhecido != null) {
+                return conhecido;
+            }
+            // Os 10 primeiros bytes do primeiro evento, até ao byte da versão (posição 9).
+            ByteBuffer cabecalho = ByteBuffer.allocate(10);
+            if (segmento.read(cabecalho, 0) < cabecalho.capacity()) {
+                return EventoAbastecimento.TAMANHO;
+            }
+            int tamanho = EventoAbastecimento.tamanhoDaVersao(cabecalho.get(9));
+            tamanho = tamanho < 0 ? EventoAbastecimento.TAMANHO : tamanho;
+            tamanhos.put(primeira, tamanho);
+            return tamanho;
+        }
+
+        /**
+         * Garante que o evento com a sequência indicada está em disco. Um único `force` cobre todos os
+         * eventos escritos até ao momento, incluindo os de outras threads à espera deste lock.
+         */
+        void sincronizarAte(long sequencia) throws IOException {
+            synchronized (sincronizacao) {
+                if (sincronizadaAte >= sequencia || canal == null) {
+                    return;
+                }
+                long alvo = ultimaSequencia;
+                canal.force(false);
+                sincronizadaAte = alvo;
+            }
+        }
+
+        List<Long> segmentos() {
+            return listar(PREFIXO_SEGMENTO, EXTENSAO_SEGMENTO);
+        }
+
+        List<Long> instantaneos() {
+            return listar(PREFIXO_INSTANTANEO, EXTENSAO_INSTANTANEO);
+        }
+
+        private List<Long> listar(String prefixo, String extensao) {
+            List<Long> sequencias = new ArrayList<>();
+            try (DirectoryStream<Path> ficheiros = Files.newDirectoryStream(pasta, prefixo + "*" + extensao)) {
+                for (Path ficheiro : ficheiros) {
+                    String nome = ficheiro.getFileName().toString();
+                    sequencias.add(Long.parseLong(nome.substring(prefixo.length(), nome.length() - extensao.length())));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao listar o diário do posto " + postoId + ".", e);
+            }
+            sequencias.sort(null);
+            return sequencias;
+        }
+
+        Path caminhoSegmento(long primeira) {
+            return pasta.resolve(String.format("%s%020d%s", PREFIXO_SEGMENTO, primeira, EXTENSAO_SEGMENTO));
+        }
+
+        Path caminhoInstantaneo(long sequencia) {
+            return pasta.resolve(String.format("%s%020d%s", PREFIXO_INSTANTANEO, sequencia, EXTENSAO_INSTANTANEO));
+        }
+
+        void fechar() throws IOException {
+            synchronized (escrita) {
+                synchronized (sincronizacao) {
+                    if (canal != null) {
+                        canal.force(false);
+                        canal.close();
+                        canal = null;
+                    }
+                }
+            }
+        }
+    }
+}
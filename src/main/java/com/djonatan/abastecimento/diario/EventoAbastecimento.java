@@ -0,0 +1,225 @@
+package com.djonatan.abastecimento.diario;
+
+import com.djonatan.abastecimento.model.Abastecimento;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Um evento do diário de abastecimentos, com a representação binária de tamanho fixo usada nos segmentos.
+ *
+ * Formato (versão 2, 80 bytes, big-endian):
+ * <pre>
+ *  0  long  sequencia          36  long  dataMillis
+ *  8  byte  tipo               44  long  litrosMilesimos
+ *  9  byte  versão do formato  52  long  valorCentavos
+ * 10  short reservado          60  long  idOffline, 64 bits mais significativos (0 e 0 = gravado diretamente)
+ * 12  int   postoId            68  long  idOffline, 64 bits menos significativos
+ * 16  int   abastecimentoId    76  int   CRC32C dos bytes 0..75
+ * 20  int   bombaId
+ * 24  int   combustivelId
+ * 28  int   operadorId (0 = sem operador)
+ * 32  int   turnoId (0 = sem turno)
+ * </pre>
+ * A versão 1 (64 bytes) tem os mesmos campos até ao byte 59, sem o `idOffline`, e o CRC32C no byte 60.
+ * Os segmentos escritos antes da versão 2 continuam a ser lidos; cada segmento tem eventos de uma só versão.
+ *
+ * O tamanho fixo permite localizar qualquer evento pela sua sequência sem índices, e ler
+ * milhões de eventos por segundo reutilizando uma única instância (sem alocações por evento, exceto o
+ * `idOffline` dos abastecimentos aceites offline).
+ * A data é guardada como a hora local do registo, em milissegundos desde a época (sem fuso horário).
+ */
+@Data
+@NoArgsConstructor
+public class EventoAbastecimento {
+
+    /**
+     * O tamanho, em bytes, de cada evento escrito na versão atual do formato.
+     */
+    public static final int TAMANHO = 80;
+
+    /**
+     * O tamanho, em bytes, dos eventos da versão 1 do formato (anterior ao `idOffline`).
+     */
+    static final int TAMANHO_VERSAO_1 = 64;
+
+    private static final byte VERSAO_FORMATO = 2;
+
+    /**
+     * Os tipos de evento do diário.
+     */
+    public enum Tipo {
+        /** Um abastecimento foi registado. */
+        REGISTADO,
+        /** Um abastecimento foi anulado (deixa de contar, mas o registo original fica no diário). */
+        ANULADO,
+        /** Os litros e o valor de um abastecimento foram corrigidos; o evento traz os valores novos. */
+        CORRIGIDO
+    }
+
+    private long sequencia;
+    private Tipo tipo;
+    private int postoId;
+    private int abastecimentoId;
+    private int bombaId;
+    private int combustivelId;
+    private int operadorId;
+    private int turnoId;
+    private long dataMillis;
+    private long litrosMilesimos;
+    private long valorCentavos;
+    private UUID idOffline;
+
+    /**
+     * Cria um evento a partir do estado de um abastecimento persistido.
+     *
+     * @param tipo O tipo de evento.
+     * @param abastecimento O abastecimento (com ID, bomba e combustível preenchidos).
+     * @return O evento, ainda sem sequência (atribuída pelo diário).
+     */
+    public static EventoAbastecimento de(Tipo tipo, Abastecimento abastecimento) {
+        EventoAbastecimento evento = new EventoAbastecimento();
+        evento.tipo = tipo;
+        evento.postoId = abastecimento.getPostoId();
+        evento.abastecimentoId = abastecimento.getId();
+        evento.bombaId = abastecimento.getBomba().getId();
+        evento.combustivelId = abastecimento.getBomba().getCombustivel().getId();
+        evento.operadorId = abastecimento.getOperador() == null ? 0 : abastecimento.getOperador().getId();
+        evento.turnoId = abastecimento.getTurno() == null ? 0 : abastecimento.getTurno().getId();
+        evento.dataMillis = paraMillis(abastecimento.getData());
+        evento.litrosMilesimos = abastecimento.getLitros().setScale(3, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        evento.valorCentavos = abastecimento.getValorTotal().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        evento.idOffline = abastecimento.getIdOffline() == null ? null : UUID.fromString(abastecimento.getIdOffline());
+        return evento;
+    }
+
+    /**
+     * Retorna uma cópia deste evento (necessária quando a instância é reutilizada durante uma leitura).
+     */
+    public EventoAbastecimento copia() {
+        EventoAbastecimento copia = new EventoAbastecimento();
+        copia.sequencia = sequencia;
+        copia.tipo = tipo;
+        copia.postoId = postoId;
+        copia.abastecimentoId = abastecimentoId;
+        copia.bombaId = bombaId;
+        copia.combustivelId = combustivelId;
+        copia.operadorId = operadorId;
+        copia.turnoId = turnoId;
+        copia.dataMillis = dataMillis;
+        copia.litrosMilesimos = litrosMilesimos;
+        copia.valorCentavos = valorCentavos;
+        copia.idOffline = idOffline;
+        return copia;
+    }
+
+    /**
+     * Retorna uma cópia deste evento com outro tipo (usado nos eventos de compensação).
+     */
+    public EventoAbastecimento comTipo(Tipo novoTipo) {
+        EventoAbastecimento copia = copia();
+        copia.sequencia = 0;
+        copia.tipo = novoTipo;
+        return copia;
+    }
+
+    public LocalDateTime getData() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(dataMillis), ZoneOffset.UTC);
+    }
+
+    public BigDecimal getLitros() {
+        return BigDecimal.valueOf(litrosMilesimos, 3);
+    }
+
+    public BigDecimal getValorTotal() {
+        return BigDecimal.valueOf(valorCentavos, 2);
+    }
+
+    static long paraMillis(LocalDateTime data) {
+        return data.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Retorna o tamanho, em bytes, dos eventos de uma versão do formato, ou -1 se a versão não for conhecida.
+     */
+    static int tamanhoDaVersao(int versao) {
+        return switch (versao) {
+            case 1 -> TAMANHO_VERSAO_1;
+            case VERSAO_FORMATO -> TAMANHO;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Escreve o evento (80 bytes, versão atual) na posição atual do buffer.
+     */
+    void codificar(ByteBuffer buffer) {
+        int inicio = buffer.position();
+        buffer.putLong(sequencia)
+                .put((byte) tipo.ordinal())
+                .put(VERSAO_FORMATO)
+                .putShort((short) 0)
+                .putInt(postoId)
+                .putInt(abastecimentoId)
+                .putInt(bombaId)
+                .putInt(combustivelId)
+                .putInt(operadorId)
+                .putInt(turnoId)
+                .putLong(dataMillis)
+                .putLong(litrosMilesimos)
+                .putLong(valorCentavos)
+                .putLong(idOffline == null ? 0 : idOffline.getMostSignificantBits())
+                .putLong(idOffline == null ? 0 : idOffline.getLeastSignificantBits());
+        buffer.putInt(crc(buffer, inicio, TAMANHO));
+    }
+
+    /**
+     * Lê um evento a partir da posição atual do buffer para esta instância.
+     *
+     * @param tamanho O tamanho dos eventos do segmento de onde o evento é lido (`TAMANHO` ou `TAMANHO_VERSAO_1`).
+     * @return falso se o CRC ou a versão não corresponderem (registo incompleto ou corrompido).
+     */
+    boolean descodificar(ByteBuffer buffer, int tamanho) {
+        int inicio = buffer.position();
+        int esperado = buffer.getInt(inicio + tamanho - 4);
+        if (crc(buffer, inicio, tamanho) != esperado || tamanhoDaVersao(buffer.get(inicio + 9)) != tamanho) {
+            buffer.position(inicio + tamanho);
+            return false;
+        }
+        sequencia = buffer.getLong(inicio);
+        tipo = Tipo.values()[buffer.get(inicio + 8)];
+        postoId = buffer.getInt(inicio + 12);
+        abastecimentoId = buffer.getInt(inicio + 16);
+        bombaId = buffer.getInt(inicio + 20);
+        combustivelId = buffer.getInt(inicio + 24);
+        operadorId = buffer.getInt(inicio + 28);
+        turnoId = buffer.getInt(inicio + 32);
+        dataMillis = buffer.getLong(inicio + 36);
+        litrosMilesimos = buffer.getLong(inicio + 44);
+        valorCentavos = buffer.getLong(inicio + 52);
+        idOffline = null;
+        if (tamanho == TAMANHO) {
+            long alto = buffer.getLong(inicio + 60);
+            long baixo = buffer.getLong(inicio + 68);
+            if (alto != 0 || baixo != 0) {
+                idOffline = new UUID(alto, baixo);
+            }
+        }
+        buffer.position(inicio + tamanho);
+        return true;
+    }
+
+    private static int crc(ByteBuffer buffer, int inicio, int tamanho) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(inicio + tamanho - 4).position(inicio));
+        return (int) crc.getValue();
+    }
+}
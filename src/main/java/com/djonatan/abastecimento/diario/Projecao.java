@@ -0,0 +1,254 @@
+package com.djonatan.abastecimento.diario;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * O estado dos abastecimentos de um posto obtido pela reprodução (replay) do diário.
+ *
+ * Para suportar dezenas de milhões de abastecimentos em memória, o estado é guardado por colunas
+ * em vetores de tipos primitivos (cerca de 45 bytes por abastecimento), em vez de um objeto por linha.
+ * A posição de cada abastecimento nos vetores é encontrada por um índice de endereçamento aberto
+ * (ID do abastecimento -> posição), também em vetores primitivos. O `idOffline` só existe nos abastecimentos
+ * aceites offline, uma pequena fração, pelo que fica num mapa à parte (posição -> idOffline).
+ *
+ * As linhas mantêm a ordem de registo; os abastecimentos anulados ficam marcados como inativos.
+ * Não é thread-safe: cada instância é construída e lida por uma única thread.
+ */
+public class Projecao {
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    private long sequencia;
+    private long eventosAplicados;
+    private int tamanho;
+    private int ativas;
+
+    private int[] ids = new int[CAPACIDADE_INICIAL];
+    private int[] bombas = new int[CAPACIDADE_INICIAL];
+    private int[] combustiveis = new int[CAPACIDADE_INICIAL];
+    private int[] operadores = new int[CAPACIDADE_INICIAL];
+    private int[] turnos = new int[CAPACIDADE_INICIAL];
+    private long[] datas = new long[CAPACIDADE_INICIAL];
+    private long[] litros = new long[CAPACIDADE_INICIAL];
+    private long[] valores = new long[CAPACIDADE_INICIAL];
+    private boolean[] ativos = new boolean[CAPACIDADE_INICIAL];
+    private final Map<Integer, UUID> idsOffline = new HashMap<>();
+
+    private int[] chavesIndice = new int[CAPACIDADE_INICIAL * 2];
+    private int[] posicoesIndice = new int[CAPACIDADE_INICIAL * 2];
+
+    /**
+     * Aplica um evento do diário ao estado.
+     * - REGISTADO: acrescenta o abastecimento (ou substitui-o, se o ID já existir), com o seu `idOffline`.
+     * - ANULADO: marca o abastecimento como inativo.
+     * - CORRIGIDO: substitui os litros, o valor e a data do abastecimento.
+     */
+    public void aplicar(EventoAbastecimento evento) {
+        int posicao = procurar(evento.getAbastecimentoId());
+        switch (evento.getTipo()) {
+            case REGISTADO -> {
+                if (posicao < 0) {
+                    posicao = adicionar(evento.getAbastecimentoId(), evento.getBombaId(), evento.getCombustivelId(),
+                            evento.getOperadorId(), evento.getTurnoId(), evento.getDataMillis(),
+                            evento.getLitrosMilesimos(), evento.getValorCentavos());
+                } else {
+                    preencher(posicao, evento.getBombaId(), evento.getCombustivelId(), evento.getOperadorId(),
+                            evento.getTurnoId(), evento.getDataMillis(), evento.getLitrosMilesimos(),
+                            evento.getValorCentavos());
+                    ativar(posicao, true);
+                }
+                definirIdOffline(posicao, evento.getIdOffline());
+            }
+            case ANULADO -> {
+                if (posicao >= 0) {
+                    ativar(posicao, false);
+                }
+            }
+            case CORRIGIDO -> {
+                if (posicao >= 0) {
+                    datas[posicao] = evento.getDataMillis();
+                    litros[posicao] = evento.getLitrosMilesimos();
+                    valores[posicao] = evento.getValorCentavos();
+                }
+            }
+        }
+        sequencia = evento.getSequencia();
+        eventosAplicados++;
+    }
+
+    /**
+     * Acrescenta uma linha ativa (usado na reprodução e na leitura de instantâneos).
+     *
+     * @return a posição da linha.
+     */
+    int adicionar(int id, int bombaId, int combustivelId, int operadorId, int turnoId,
+                  long dataMillis, long litrosMilesimos, long valorCentavos) {
+        if (tamanho == ids.length) {
+            crescer();
+        }
+        int posicao = tamanho++;
+        ids[posicao] = id;
+        preencher(posicao, bombaId, combustivelId, operadorId, turnoId, dataMillis, litrosMilesimos, valorCentavos);
+        ativos[posicao] = true;
+        ativas++;
+        indexar(id, posicao);
+        return posicao;
+    }
+
+    /**
+     * Define o `idOffline` da linha (nulo se o abastecimento foi gravado diretamente).
+     */
+    void definirIdOffline(int posicao, UUID idOffline) {
+        if (idOffline == null) {
+            idsOffline.remove(posicao);
+        } else {
+            idsOffline.put(posicao, idOffline);
+        }
+    }
+
+    private void preencher(int posicao, int bombaId, int combustivelId, int operadorId, int turnoId,
+                           long dataMillis, long litrosMilesimos, long valorCentavos) {
+        bombas[posicao] = bombaId;
+        combustiveis[posicao] = combustivelId;
+        operadores[posicao] = operadorId;
+        turnos[posicao] = turnoId;
+        datas[posicao] = dataMillis;
+        litros[posicao] = litrosMilesimos;
+        valores[posicao] = valorCentavos;
+    }
+
+    private void ativar(int posicao, boolean ativo) {
+        if (ativos[posicao] != ativo) {
+            ativos[posicao] = ativo;
+            ativas += ativo ? 1 : -1;
+        }
+    }
+
+    private void crescer() {
+        int capacidade = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacidade);
+        bombas = Arrays.copyOf(bombas, capacidade);
+        combustiveis = Arrays.copyOf(combustiveis, capacidade);
+        operadores = Arrays.copyOf(operadores, capacidade);
+        turnos = Arrays.copyOf(turnos, capacidade);
+        datas = Arrays.copyOf(datas, capacidade);
+        litros = Arrays.copyOf(litros, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        ativos = Arrays.copyOf(ativos, capacidade);
+    }
+
+    /**
+     * Procura a posição de um abastecimento no índice (sondagem linear; a chave 0 indica posição vazia).
+     */
+    private int procurar(int id) {
+        int mascara = chavesIndice.length - 1;
+        for (int i = mistura(id) & mascara; ; i = (i + 1) & mascara) {
+            int chave = chavesIndice[i];
+            if (chave == id) {
+                return posicoesIndice[i];
+            }
+            if (chave == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void indexar(int id, int posicao) {
+        // O índice é mantido com ocupação máxima de 50%, para sondagens curtas.
+        if (tamanho * 2 > chavesIndice.length) {
+            int[] chaves = chavesIndice;
+            int[] posicoes = posicoesIndice;
+            chavesIndice = new int[chaves.length * 2];
+            posicoesIndice = new int[chaves.length * 2];
+            for (int i = 0; i < chaves.length; i++) {
+                if (chaves[i] != 0) {
+                    inserirNoIndice(chaves[i], posicoes[i]);
+                }
+            }
+        }
+        inserirNoIndice(id, posicao);
+    }
+
+    private void inserirNoIndice(int id, int posicao) {
+        int mascara = chavesIndice.length - 1;
+        int i = mistura(id) & mascara;
+        while (chavesIndice[i] != 0 && chavesIndice[i] != id) {
+            i = (i + 1) & mascara;
+        }
+        chavesIndice[i] = id;
+        posicoesIndice[i] = posicao;
+    }
+
+    private static int mistura(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    void definirSequencia(long sequencia) {
+        this.sequencia = sequencia;
+    }
+
+    /** A sequência do último evento refletido neste estado. */
+    public long sequencia() {
+        return sequencia;
+    }
+
+    /** O número de eventos reproduzidos (excluindo os já contidos no instantâneo de partida). */
+    public long eventosAplicados() {
+        return eventosAplicados;
+    }
+
+    /** O número de posições ocupadas (ativas e anuladas). */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /** O número de abastecimentos ativos. */
+    public int ativas() {
+        return ativas;
+    }
+
+    public boolean ativo(int posicao) {
+        return ativos[posicao];
+    }
+
+    public int id(int posicao) {
+        return ids[posicao];
+    }
+
+    public int bombaId(int posicao) {
+        return bombas[posicao];
+    }
+
+    public int combustivelId(int posicao) {
+        return combustiveis[posicao];
+    }
+
+    public int operadorId(int posicao) {
+        return operadores[posicao];
+    }
+
+    public int turnoId(int posicao) {
+        return turnos[posicao];
+    }
+
+    public long dataMillis(int posicao) {
+        return datas[posicao];
+    }
+
+    public long litrosMilesimos(int posicao) {
+        return litros[posicao];
+    }
+
+    public long valorCentavos(int posicao) {
+        return valores[posicao];
+    }
+
+    /** O identificador do abastecimento aceite offline, ou nulo se foi gravado diretamente. */
+    public UUID idOffline(int posicao) {
+        return idsOffline.get(posicao);
+    }
+}
@@ -35,4 +35,18 @@ public class AbastecimentoRequest {
      * Este campo é opcional; o cliente pode fornecer este ou o campo 'litros'.
      */
     private BigDecimal valor;
+
+    /**
+     * O ID do utilizador (operador) que está a registar o abastecimento.
+     * Este campo é opcional; quando fornecido, o abastecimento é atribuído ao operador
+     * e contabilizado nos totais por operador do turno aberto.
+     */
+    private Integer operadorId;
+
+    /**
+     * O preço por litro mostrado ao cliente pelo terminal da bomba.
+     * Este campo é opcional; quando fornecido, a deteção de anomalias compara-o com o valor cobrado
+     * (calculado com o preço do catálogo) e gera um alerta PRECO_INCONSISTENTE se divergirem.
+     */
+    private BigDecimal precoPorLitro;
 }
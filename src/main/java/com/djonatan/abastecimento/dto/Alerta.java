@@ -0,0 +1,70 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO (Data Transfer Object) que representa um alerta de abastecimento suspeito.
+ *
+ * Os alertas são gerados em tempo real pelo `DetecaoAnomaliaService`, no momento do registo,
+ * e mantidos apenas em memória (os mais recentes), para consulta pelo endpoint de anomalias.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Alerta {
+
+    /**
+     * Os tipos de anomalia detetados.
+     */
+    public enum Tipo {
+        /** Litros acima da capacidade máxima configurada para um único abastecimento. */
+        LITROS_EXCEDIDOS,
+        /** O valor cobrado não corresponde aos litros ao preço por litro mostrado pelo terminal da bomba. */
+        PRECO_INCONSISTENTE,
+        /** Demasiados abastecimentos na mesma bomba num curto intervalo de tempo. */
+        RAJADA,
+        /** Quantidade de litros muito afastada do padrão recente da bomba. */
+        VOLUME_ATIPICO,
+        /** Um abastecimento aceite offline foi recusado pela base de dados na reposição (ver `/api/saude`). */
+        REPOSICAO_RECUSADA
+    }
+
+    /**
+     * Número sequencial do alerta (crescente).
+     */
+    private long sequencia;
+
+    /**
+     * O tipo de anomalia.
+     */
+    private Tipo tipo;
+
+    /**
+     * O ID do posto onde ocorreu o abastecimento suspeito.
+     */
+    private int postoId;
+
+    /**
+     * O ID da bomba onde ocorreu o abastecimento suspeito.
+     */
+    private int bombaId;
+
+    /**
+     * O ID do abastecimento suspeito (0 se o abastecimento não chegou a ser gravado).
+     */
+    private int abastecimentoId;
+
+    /**
+     * A data e hora em que o alerta foi gerado.
+     */
+    private LocalDateTime data;
+
+    /**
+     * Descrição legível da anomalia.
+     */
+    private String descricao;
+}
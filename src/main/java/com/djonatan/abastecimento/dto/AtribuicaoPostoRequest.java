@@ -0,0 +1,15 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.Data;
+
+/**
+ * DTO (Data Transfer Object) para atribuir um posto a um shard (ex: `{"shard": "norte"}`).
+ */
+@Data
+public class AtribuicaoPostoRequest {
+
+    /**
+     * O nome de um shard existente.
+     */
+    private String shard;
+}
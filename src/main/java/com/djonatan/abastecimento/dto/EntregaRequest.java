@@ -0,0 +1,17 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO para registar uma entrega (reabastecimento) de um tanque.
+ */
+@Data
+public class EntregaRequest {
+
+    /**
+     * A quantidade entregue, em litros.
+     */
+    private BigDecimal litros;
+}
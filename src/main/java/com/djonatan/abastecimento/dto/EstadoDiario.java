@@ -0,0 +1,34 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com o estado do diário de eventos de um posto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoDiario {
+
+    /**
+     * O ID do posto.
+     */
+    private int postoId;
+
+    /**
+     * A sequência do último evento do diário (0 se estiver vazio).
+     */
+    private long ultimaSequencia;
+
+    /**
+     * A sequência do instantâneo mais recente (0 se não houver nenhum).
+     */
+    private long sequenciaInstantaneo;
+
+    /**
+     * O número de segmentos do diário.
+     */
+    private int segmentos;
+}
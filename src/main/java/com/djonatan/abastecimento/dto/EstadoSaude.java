@@ -0,0 +1,47 @@
+package com.djonatan.abastecimento.dto;
+
+import com.djonatan.abastecimento.config.DisjuntorBaseDados;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO com o estado de saúde da aplicação: disponibilidade das bases de dados e abastecimentos por repor ou rejeitados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoSaude {
+
+    public static final String DISPONIVEL = "DISPONIVEL";
+    public static final String DEGRADADO = "DEGRADADO";
+
+    /**
+     * DISPONIVEL, ou DEGRADADO se algum shard estiver inacessível ou houver abastecimentos offline por repor ou rejeitados.
+     */
+    private String estado;
+
+    /**
+     * O estado do disjuntor de cada shard (FECHADO ou ABERTO).
+     */
+    private Map<String, DisjuntorBaseDados.Estado> shards;
+
+    /**
+     * Os shards inacessíveis e o momento em que deixaram de responder.
+     */
+    private Map<String, LocalDateTime> indisponiveisDesde;
+
+    /**
+     * O número de abastecimentos aceites offline e ainda não repostos, por posto.
+     */
+    private Map<Integer, Long> abastecimentosPorRepor;
+
+    /**
+     * O número de abastecimentos aceites offline que a base de dados recusou na reposição, por posto.
+     * Estão no ficheiro `posto-{id}.rejeitados` e têm de ser tratados manualmente.
+     */
+    private Map<Integer, Long> abastecimentosRejeitados;
+}
@@ -0,0 +1,84 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO com o impacto das mudanças de preço no volume vendido de um combustível.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImpactoPreco {
+
+    /**
+     * O ID do combustível.
+     */
+    private int combustivelId;
+
+    /**
+     * O nome do combustível.
+     */
+    private String nome;
+
+    /**
+     * O preço por litro atual.
+     */
+    private BigDecimal precoAtual;
+
+    /**
+     * A elasticidade preço-procura estimada (ex: -0.8 significa que uma subida de 1% no preço reduz o volume
+     * em cerca de 0,8%), ou nulo se o preço não variou no período analisado.
+     */
+    private Double elasticidade;
+
+    /**
+     * O número de horas com vendas usadas na estimativa.
+     */
+    private int observacoes;
+
+    /**
+     * As mudanças de preço detetadas, da mais antiga para a mais recente.
+     */
+    private List<Mudanca> mudancas;
+
+    /**
+     * Uma mudança de preço e a variação de volume que se lhe seguiu.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mudanca {
+
+        /**
+         * O início da primeira hora com o novo preço.
+         */
+        private LocalDateTime inicio;
+
+        /**
+         * O preço médio por litro antes da mudança.
+         */
+        private double precoAnterior;
+
+        /**
+         * O preço médio por litro depois da mudança.
+         */
+        private double precoNovo;
+
+        /**
+         * A variação do preço, em percentagem.
+         */
+        private double variacaoPreco;
+
+        /**
+         * A variação do volume (descontada a sazonalidade) entre as horas anteriores e as seguintes, em percentagem,
+         * ou nulo se não houver dados suficientes.
+         */
+        private Double variacaoVolume;
+    }
+}
@@ -0,0 +1,36 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.Data;
+
+/**
+ * DTO (Data Transfer Object) para registar um novo shard de base de dados em funcionamento.
+ * A base de dados do shard deve já ter o esquema criado antes de lhe serem atribuídos postos.
+ */
+@Data
+public class NovoShardRequest {
+
+    /**
+     * O nome do novo shard (ex: "norte").
+     */
+    private String nome;
+
+    /**
+     * O URL JDBC da base de dados do shard.
+     */
+    private String url;
+
+    /**
+     * O utilizador da base de dados.
+     */
+    private String username;
+
+    /**
+     * A palavra-passe da base de dados.
+     */
+    private String password;
+
+    /**
+     * O tamanho máximo do pool de ligações do shard.
+     */
+    private int maxPool = 10;
+}
@@ -0,0 +1,41 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO com uma página de resultados da pesquisa, ordenados por relevância.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaPesquisa {
+
+    /**
+     * A consulta pesquisada.
+     */
+    private String consulta;
+
+    /**
+     * O número da página (a começar em 0).
+     */
+    private int pagina;
+
+    /**
+     * O tamanho da página.
+     */
+    private int tamanho;
+
+    /**
+     * O número total de resultados, em todas as páginas.
+     */
+    private int total;
+
+    /**
+     * Os resultados desta página.
+     */
+    private List<ResultadoPesquisa> resultados;
+}
@@ -0,0 +1,113 @@
+package com.djonatan.abastecimento.dto;
+
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO com o painel do gerente de um posto: catálogo, últimos abastecimentos e totais do dia.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Painel {
+
+    /**
+     * O ID do posto.
+     */
+    private int postoId;
+
+    /**
+     * O momento em que os últimos abastecimentos e os totais foram lidos da base de dados, ou nulo se ainda
+     * não foram lidos (primeiro pedido do posto). O catálogo (combustíveis e bombas) é sempre o atual.
+     */
+    private LocalDateTime atualizadoEm;
+
+    /**
+     * A idade, em milissegundos, dos últimos abastecimentos e dos totais no momento do pedido.
+     * Um valor muito acima de `painel.validade-ms` indica que os refrescamentos estão a falhar.
+     */
+    private long idadeMs;
+
+    /**
+     * O momento da última falha de refrescamento, se o último refrescamento falhou; nulo caso contrário.
+     */
+    private LocalDateTime falhaRefrescamentoEm;
+
+    /**
+     * Verdadeiro se os últimos abastecimentos e os totais ainda não foram lidos (vêm vazios) ou têm mais de
+     * `painel.validade-ms`; em ambos os casos já está agendado um refrescamento.
+     */
+    private boolean desatualizado;
+
+    /**
+     * Os combustíveis do posto, com o preço atual.
+     */
+    private List<Combustivel> combustiveis;
+
+    /**
+     * As bombas do posto.
+     */
+    private List<Bomba> bombas;
+
+    /**
+     * Os abastecimentos mais recentes, do mais recente para o mais antigo.
+     */
+    private List<Abastecimento> ultimosAbastecimentos;
+
+    /**
+     * Os totais do dia, por combustível.
+     */
+    private List<TotalDia> totaisHoje;
+
+    /**
+     * O número total de abastecimentos do dia.
+     */
+    private long abastecimentosHoje;
+
+    /**
+     * O total de litros vendidos no dia.
+     */
+    private BigDecimal litrosHoje;
+
+    /**
+     * O valor total vendido no dia.
+     */
+    private BigDecimal valorHoje;
+
+    /**
+     * Os totais do dia de um combustível.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TotalDia {
+
+        /**
+         * O ID do combustível.
+         */
+        private int combustivelId;
+
+        /**
+         * O número de abastecimentos.
+         */
+        private long abastecimentos;
+
+        /**
+         * Os litros vendidos.
+         */
+        private BigDecimal litros;
+
+        /**
+         * O valor vendido.
+         */
+        private BigDecimal valorTotal;
+    }
+}
@@ -0,0 +1,66 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO com a previsão de procura horária de um combustível.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrevisaoProcura {
+
+    /**
+     * O ID do combustível.
+     */
+    private int combustivelId;
+
+    /**
+     * O nome do combustível.
+     */
+    private String nome;
+
+    /**
+     * A média de litros por hora nas últimas horas completas (média móvel).
+     */
+    private double mediaMovel;
+
+    /**
+     * O fator aplicado à linha de base sazonal pelo nível recente da procura (1 = procura dentro do padrão).
+     */
+    private double nivel;
+
+    /**
+     * O total de litros previsto para o horizonte pedido.
+     */
+    private double litrosPrevistos;
+
+    /**
+     * Os litros previstos para cada hora, a começar na hora atual.
+     */
+    private List<Hora> horas;
+
+    /**
+     * A previsão de uma hora.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hora {
+
+        /**
+         * O início da hora.
+         */
+        private LocalDateTime inicio;
+
+        /**
+         * Os litros previstos.
+         */
+        private double litros;
+    }
+}
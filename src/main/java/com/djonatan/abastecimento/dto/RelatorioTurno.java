@@ -0,0 +1,72 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO (Data Transfer Object) com o relatório de fecho de um turno (caixa).
+ *
+ * Propósito e Design:
+ * O relatório agrega os totais de litros e valor do turno em duas dimensões: por combustível
+ * e por operador. Para um turno aberto os totais vêm dos acumuladores em memória do `TurnoService`;
+ * para um turno fechado vêm dos totais gravados na tabela 'total_turno'.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelatorioTurno {
+
+    /**
+     * O ID do turno.
+     */
+    private int turnoId;
+
+    /**
+     * A data e hora de abertura do turno.
+     */
+    private LocalDateTime dataAbertura;
+
+    /**
+     * A data e hora de fecho do turno, ou nula se o turno ainda estiver aberto.
+     */
+    private LocalDateTime dataFecho;
+
+    /**
+     * Os totais do turno agrupados por combustível.
+     */
+    private List<Linha> porCombustivel;
+
+    /**
+     * Os totais do turno agrupados por operador. Abastecimentos sem operador aparecem com o ID 0.
+     */
+    private List<Linha> porOperador;
+
+    /**
+     * Uma linha do relatório: o total de litros e valor para uma referência (combustível ou operador).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Linha {
+
+        /**
+         * O ID do combustível ou do operador.
+         */
+        private int referenciaId;
+
+        /**
+         * Total de litros abastecidos.
+         */
+        private BigDecimal litros;
+
+        /**
+         * Valor total faturado, em Reais.
+         */
+        private BigDecimal valorTotal;
+    }
+}
@@ -0,0 +1,49 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO que representa um resultado da pesquisa de bombas, combustíveis e utilizadores.
+ * Contém apenas dados de apresentação (nunca a palavra-passe dos utilizadores).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoPesquisa {
+
+    /**
+     * Os tipos de documento pesquisáveis.
+     */
+    public enum Tipo {
+        BOMBA,
+        COMBUSTIVEL,
+        USUARIO
+    }
+
+    /**
+     * O tipo do documento encontrado.
+     */
+    private Tipo tipo;
+
+    /**
+     * O ID da bomba, do combustível ou do utilizador.
+     */
+    private int id;
+
+    /**
+     * O nome (ou o username, no caso dos utilizadores).
+     */
+    private String nome;
+
+    /**
+     * Informação adicional: o combustível da bomba, o preço por litro do combustível ou o papel do utilizador.
+     */
+    private String detalhe;
+
+    /**
+     * A relevância do resultado (maior é mais relevante).
+     */
+    private int pontuacao;
+}
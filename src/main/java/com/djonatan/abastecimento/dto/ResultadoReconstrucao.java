@@ -0,0 +1,39 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO com o resultado de uma reconstrução da projeção a partir do diário (ou de uma importação para o diário).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoReconstrucao {
+
+    /**
+     * O ID do posto.
+     */
+    private int postoId;
+
+    /**
+     * A sequência do último evento refletido na projeção.
+     */
+    private long sequencia;
+
+    /**
+     * O número de eventos lidos do diário (na importação: o número de eventos escritos).
+     */
+    private long eventos;
+
+    /**
+     * O número de abastecimentos ativos escritos na tabela 'abastecimento'.
+     */
+    private long abastecimentos;
+
+    /**
+     * A duração total da operação, em milissegundos.
+     */
+    private long duracaoMs;
+}
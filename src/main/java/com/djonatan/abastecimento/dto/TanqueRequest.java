@@ -0,0 +1,22 @@
+package com.djonatan.abastecimento.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO para criar o tanque de um combustível, ou para acertar o seu nível após uma medição física.
+ */
+@Data
+public class TanqueRequest {
+
+    /**
+     * A capacidade máxima do tanque, em litros (obrigatória na criação; ignorada no acerto).
+     */
+    private BigDecimal capacidade;
+
+    /**
+     * O nível do tanque, em litros (na criação, o nível inicial; no acerto, o nível medido).
+     */
+    private BigDecimal nivel;
+}
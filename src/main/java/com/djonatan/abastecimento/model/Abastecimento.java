@@ -1,5 +1,6 @@
 package com.djonatan.abastecimento.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -28,7 +29,12 @@ import java.time.LocalDateTime;
  * fielmente os dados da tabela. A lógica de negócio foi delegada para a Camada de Serviço (`AbastecimentoService`).
  */
 @Entity
-@Table(name = "abastecimento")
+@Table(name = "abastecimento", indexes = {
+        @Index(name = "idx_abastecimento_posto", columnList = "posto_id, id"),
+        @Index(name = "idx_abastecimento_posto_data", columnList = "posto_id, data"),
+        @Index(name = "idx_abastecimento_bomba_data", columnList = "bomba_id, data"),
+        @Index(name = "uk_abastecimento_id_offline", columnList = "id_offline", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -44,6 +50,13 @@ public class Abastecimento {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    /**
+     * O posto (tenant) a que este abastecimento pertence.
+     * É preenchido pela camada de Serviço a partir do `ContextoPosto` do pedido e usado em todas as consultas.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
     /**
      * A bomba onde o abastecimento foi realizado.
      * - @ManyToOne: Define um relacionamento de muitos-para-um com a entidade Bomba.
@@ -77,4 +90,32 @@ public class Abastecimento {
      */
     @Column(name = "valor_total", nullable = false, precision = 10, scale = 2)
     private BigDecimal valorTotal;
+
+    /**
+     * Identificador (UUID) atribuído quando o abastecimento foi aceite offline, ou nulo se foi gravado diretamente.
+     * É único na tabela (índice `uk_abastecimento_id_offline`), para que a reposição da fila offline nunca grave
+     * o mesmo abastecimento duas vezes.
+     */
+    @Column(name = "id_offline", length = 36)
+    private String idOffline;
+
+    /**
+     * O operador (frentista) que registou o abastecimento.
+     * - @ManyToOne: Muitos abastecimentos podem ser registados pelo mesmo utilizador.
+     * - A coluna é opcional para manter compatibilidade com os registos anteriores à atribuição de operador.
+     * - @JsonIgnoreProperties: Evita que a palavra-passe do operador seja exposta na resposta da API.
+     */
+    @ManyToOne
+    @JoinColumn(name = "operador_id")
+    @JsonIgnoreProperties("password")
+    private Usuario operador;
+
+    /**
+     * O turno (caixa) em que o abastecimento foi registado.
+     * Permite que o fecho de turno e a recuperação dos totais após um reinício sejam feitos
+     * com uma consulta agregada sobre os abastecimentos do turno, sem percorrer o histórico completo.
+     */
+    @ManyToOne
+    @JoinColumn(name = "turno_id")
+    private Turno turno;
 }
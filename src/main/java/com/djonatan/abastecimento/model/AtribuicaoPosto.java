@@ -0,0 +1,32 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Representa a entidade 'AtribuicaoPosto', mapeada para a tabela 'posto_shard' do shard principal.
+ * Guarda as atribuições de postos a shards feitas em funcionamento (PUT /api/admin/shards/postos/{id}),
+ * que no arranque seguinte prevalecem sobre as de `tenancia.postos.*`.
+ */
+@Entity
+@Table(name = "posto_shard")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtribuicaoPosto {
+
+    /**
+     * O ID do posto.
+     */
+    @Id
+    @Column(name = "posto_id")
+    private int postoId;
+
+    /**
+     * O nome do shard onde estão os dados do posto.
+     */
+    @Column(name = "shard", nullable = false, length = 50)
+    private String shard;
+}
@@ -1,9 +1,13 @@
 package com.djonatan.abastecimento.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
 
 /**
  * Representa a entidade 'Bomba', mapeada para a tabela 'bomba' no banco de dados.
@@ -20,7 +24,7 @@ import lombok.NoArgsConstructor;
  * obrigatoriamente, ter um combustível associado.
  */
 @Entity
-@Table(name = "bomba")
+@Table(name = "bomba", indexes = @Index(name = "idx_bomba_posto_ativo", columnList = "posto_id, ativo"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +37,13 @@ public class Bomba {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    /**
+     * O posto (tenant) a que esta bomba pertence.
+     * É preenchido pela camada de Serviço a partir do `ContextoPosto` do pedido e usado em todas as consultas.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
     /**
      * Nome descritivo da bomba (ex: "Bomba 01").
      */
@@ -46,4 +57,34 @@ public class Bomba {
     @ManyToOne
     @JoinColumn(name = "combustivel_id", nullable = false)
     private Combustivel combustivel;
+
+    /**
+     * Indica se a bomba está em uso. Remover uma bomba apenas a desativa (remoção lógica):
+     * os abastecimentos já registados continuam a referenciá-la, e a linha só é apagada
+     * pela limpeza em segundo plano (`LimpezaService`), se estiver ativada.
+     * As leituras do catálogo filtram as bombas inativas pelo índice (posto_id, ativo).
+     */
+    @ColumnDefault("1")
+    @Column(name = "ativo", nullable = false)
+    private boolean ativo = true;
+
+    /**
+     * Data até à qual a limpeza em segundo plano (`LimpezaService`) apagou os abastecimentos desta bomba,
+     * ou nulo se nunca apagou nenhum. A reconstrução do diário não reinsere os abastecimentos anteriores a esta data.
+     * É gravada apenas pela limpeza (nunca pelo JPA) e não é exposta na API.
+     */
+    @JsonIgnore
+    @Column(name = "limpeza_ate", insertable = false, updatable = false)
+    private LocalDateTime limpezaAte;
+
+    /**
+     * Versão do registo, usada para o controlo de concorrência otimista.
+     * - @Version: O Hibernate incrementa este valor em cada atualização e inclui-o na cláusula WHERE
+     * do UPDATE. Se outro utilizador tiver alterado a bomba entretanto, a atualização falha em vez de
+     * sobrescrever silenciosamente os dados (resposta HTTP 409).
+     * O valor é exposto ao cliente como ETag e deve ser devolvido no cabeçalho If-Match (ou neste campo).
+     */
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Integer versao;
 }
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import java.math.BigDecimal;
 
 /**
@@ -17,7 +18,7 @@ import java.math.BigDecimal;
  * - @Column: Mapeia um atributo da classe para uma coluna específica na tabela.
  */
 @Entity
-@Table(name = "combustivel")
+@Table(name = "combustivel", indexes = @Index(name = "idx_combustivel_posto_ativo", columnList = "posto_id, ativo"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,6 +31,13 @@ public class Combustivel {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    /**
+     * O posto (tenant) a que este combustível pertence.
+     * É preenchido pela camada de Serviço a partir do `ContextoPosto` do pedido e usado em todas as consultas.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
     /**
      * Nome do tipo de combustível (ex: "Gasolina Aditivada").
      */
@@ -42,4 +50,24 @@ public class Combustivel {
      */
     @Column(name = "preco_por_litro", nullable = false, precision = 10, scale = 3)
     private BigDecimal precoPorLitro;
+
+    /**
+     * Indica se o combustível está em uso. Remover um combustível apenas o desativa (remoção lógica),
+     * juntamente com as suas bombas; bombas, tanques e abastecimentos existentes continuam a referenciá-lo.
+     * As leituras do catálogo filtram os combustíveis inativos pelo índice (posto_id, ativo).
+     */
+    @ColumnDefault("1")
+    @Column(name = "ativo", nullable = false)
+    private boolean ativo = true;
+
+    /**
+     * Versão do registo, usada para o controlo de concorrência otimista.
+     * - @Version: O Hibernate incrementa este valor em cada atualização e inclui-o na cláusula WHERE
+     * do UPDATE. Se outro utilizador tiver alterado o combustível entretanto, a atualização falha em vez de
+     * sobrescrever silenciosamente os dados (resposta HTTP 409).
+     * O valor é exposto ao cliente como ETag e deve ser devolvido no cabeçalho If-Match (ou neste campo).
+     */
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Integer versao;
 }
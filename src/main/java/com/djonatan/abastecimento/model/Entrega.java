@@ -0,0 +1,53 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Representa a entidade 'Entrega', mapeada para a tabela 'entrega' no banco de dados.
+ * Regista cada reabastecimento de um tanque pelo fornecedor (descarga de um camião-cisterna).
+ */
+@Entity
+@Table(name = "entrega", indexes = @Index(name = "idx_entrega_tanque", columnList = "tanque_id, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Entrega {
+
+    /**
+     * Identificador único da entrega.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    /**
+     * O posto (tenant) a que esta entrega pertence.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
+    /**
+     * O tanque reabastecido.
+     */
+    @ManyToOne
+    @JoinColumn(name = "tanque_id", nullable = false)
+    private Tanque tanque;
+
+    /**
+     * A quantidade entregue, em litros.
+     */
+    @Column(name = "litros", nullable = false, precision = 12, scale = 3)
+    private BigDecimal litros;
+
+    /**
+     * A data e hora da entrega.
+     */
+    @Column(name = "data", nullable = false)
+    private LocalDateTime data;
+}
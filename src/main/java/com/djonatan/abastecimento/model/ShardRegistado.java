@@ -0,0 +1,50 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Representa a entidade 'ShardRegistado', mapeada para a tabela 'shard' do shard principal.
+ * Guarda os shards registados em funcionamento (POST /api/admin/shards), para que sejam recriados
+ * no arranque seguinte. Os shards declarados em `tenancia.shards.*` não são gravados aqui.
+ */
+@Entity
+@Table(name = "shard")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardRegistado {
+
+    /**
+     * O nome do shard (ex: "norte").
+     */
+    @Id
+    @Column(name = "nome", length = 50)
+    private String nome;
+
+    /**
+     * O URL JDBC da base de dados do shard.
+     */
+    @Column(name = "url", nullable = false)
+    private String url;
+
+    /**
+     * O utilizador da base de dados.
+     */
+    @Column(name = "username", length = 100)
+    private String username;
+
+    /**
+     * A palavra-passe da base de dados.
+     */
+    @Column(name = "password")
+    private String password;
+
+    /**
+     * O tamanho máximo do pool de ligações do shard.
+     */
+    @Column(name = "max_pool", nullable = false)
+    private int maxPool;
+}
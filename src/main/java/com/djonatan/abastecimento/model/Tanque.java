@@ -0,0 +1,62 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Representa a entidade 'Tanque', mapeada para a tabela 'tanque' no banco de dados.
+ * Cada posto tem, no máximo, um tanque por combustível, que abastece todas as bombas desse combustível.
+ *
+ * O nível na base de dados é atualizado de forma assíncrona pelo `InventarioService`, com UPDATEs relativos
+ * (nivel = nivel + delta); o valor de referência durante o funcionamento é o mantido em memória.
+ */
+@Entity
+@Table(name = "tanque", uniqueConstraints = @UniqueConstraint(columnNames = {"posto_id", "combustivel_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tanque {
+
+    /**
+     * Identificador único do tanque.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    /**
+     * O posto (tenant) a que este tanque pertence.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
+    /**
+     * O combustível armazenado no tanque.
+     */
+    @ManyToOne
+    @JoinColumn(name = "combustivel_id", nullable = false)
+    private Combustivel combustivel;
+
+    /**
+     * A capacidade máxima do tanque, em litros.
+     */
+    @Column(name = "capacidade", nullable = false, precision = 12, scale = 3)
+    private BigDecimal capacidade;
+
+    /**
+     * O nível atual do tanque, em litros.
+     */
+    @Column(name = "nivel", nullable = false, precision = 12, scale = 3)
+    private BigDecimal nivel;
+
+    /**
+     * A data e hora da última gravação do nível.
+     */
+    @Column(name = "data_atualizacao")
+    private LocalDateTime dataAtualizacao;
+}
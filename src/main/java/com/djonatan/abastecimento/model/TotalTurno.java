@@ -0,0 +1,75 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Representa a entidade 'TotalTurno', mapeada para a tabela 'total_turno' no banco de dados.
+ * Cada linha guarda o total acumulado de um turno para uma dimensão (um combustível ou um operador).
+ *
+ * Os totais são mantidos em memória pelo `TurnoService` durante o turno e gravados nesta tabela
+ * periodicamente (checkpoints) e no fecho, o que torna a consulta do relatório de um turno fechado
+ * uma simples leitura de poucas linhas.
+ *
+ * - @UniqueConstraint: Garante que existe, no máximo, uma linha por turno, tipo e referência.
+ */
+@Entity
+@Table(name = "total_turno", uniqueConstraints =
+        @UniqueConstraint(columnNames = {"turno_id", "tipo", "referencia_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalTurno {
+
+    /**
+     * Enum para identificar a dimensão a que o total se refere.
+     */
+    public enum Tipo {
+        COMBUSTIVEL,
+        OPERADOR
+    }
+
+    /**
+     * Identificador único do total.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    /**
+     * O turno a que este total pertence.
+     */
+    @ManyToOne
+    @JoinColumn(name = "turno_id", nullable = false)
+    private Turno turno;
+
+    /**
+     * A dimensão do total (por combustível ou por operador).
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false, length = 20)
+    private Tipo tipo;
+
+    /**
+     * O ID do combustível ou do operador, conforme o `tipo`.
+     * Para abastecimentos registados sem operador é usado o valor 0.
+     */
+    @Column(name = "referencia_id", nullable = false)
+    private int referenciaId;
+
+    /**
+     * Total de litros abastecidos no turno para esta referência.
+     */
+    @Column(name = "litros", nullable = false, precision = 14, scale = 3)
+    private BigDecimal litros;
+
+    /**
+     * Valor total, em Reais, faturado no turno para esta referência.
+     */
+    @Column(name = "valor_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal valorTotal;
+}
@@ -0,0 +1,49 @@
+package com.djonatan.abastecimento.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Representa a entidade 'Turno', mapeada para a tabela 'turno' no banco de dados.
+ * Um turno corresponde ao período de caixa entre a abertura e o fecho, no final do qual
+ * o posto precisa dos totais de litros e valor por combustível e por operador.
+ *
+ * Um turno está aberto enquanto `dataFecho` for nula. Só pode existir um turno aberto de cada vez em cada posto.
+ */
+@Entity
+@Table(name = "turno", indexes = @Index(name = "idx_turno_posto_fecho", columnList = "posto_id, data_fecho"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Turno {
+
+    /**
+     * Identificador único do turno.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    /**
+     * O posto (tenant) a que este turno pertence.
+     * É preenchido pela camada de Serviço a partir do `ContextoPosto` do pedido e usado em todas as consultas.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
+    /**
+     * A data e hora em que o turno foi aberto.
+     */
+    @Column(name = "data_abertura", nullable = false)
+    private LocalDateTime dataAbertura;
+
+    /**
+     * A data e hora em que o turno foi fechado. Nula enquanto o turno estiver aberto.
+     */
+    @Column(name = "data_fecho")
+    private LocalDateTime dataFecho;
+}
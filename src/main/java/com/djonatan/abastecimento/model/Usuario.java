@@ -11,12 +11,19 @@ import lombok.NoArgsConstructor;
  * papel (role) no sistema, que determina as suas permissões.
  */
 @Entity
-@Table(name = "usuario")
+@Table(name = "usuario", uniqueConstraints = {
+        @UniqueConstraint(name = Usuario.RESTRICAO_USERNAME, columnNames = "username")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Usuario {
 
+    /**
+     * O nome da restrição única da coluna `username`, usado para reconhecer um nome de utilizador repetido.
+     */
+    public static final String RESTRICAO_USERNAME = "uk_usuario_username";
+
     /**
      * Enum para representar os papéis (roles) de utilizador de forma segura e controlada.
      * Usar um enum previne erros de digitação e limita as opções a 'ADMIN' e 'OPERADOR'.
@@ -33,11 +40,19 @@ public class Usuario {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    /**
+     * O posto (tenant) a que este utilizador pertence.
+     * Os utilizadores ficam no shard do posto, partilhado com outros postos; o nome de utilizador
+     * continua único em todo o shard.
+     */
+    @Column(name = "posto_id", nullable = false)
+    private int postoId;
+
     /**
      * Nome de utilizador para login.
-     * A restrição `unique = true` garante que não podem existir dois utilizadores com o mesmo nome.
+     * A restrição única `uk_usuario_username` garante que não podem existir dois utilizadores com o mesmo nome.
      */
-    @Column(name = "username", nullable = false, unique = true, length = 50)
+    @Column(name = "username", nullable = false, length = 50)
     private String username;
 
     /**
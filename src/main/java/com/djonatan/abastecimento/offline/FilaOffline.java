@@ -0,0 +1,375 @@
+package com.djonatan.abastecimento.offline;
+
+import com.djonatan.abastecimento.config.OfflineProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Fila local, em ficheiro, dos abastecimentos aceites enquanto a base de dados do posto está inacessível.
+ *
+ * Formato:
+ * Por posto há um ficheiro só de acréscimo (`posto-{id}.fila`) com registos de 72 bytes (com CRC32C),
+ * e um ficheiro de posição (`posto-{id}.posicao`) com o número de registos já repostos na base de dados.
+ * Cada registo é sincronizado com o disco antes de a venda ser confirmada ao terminal, pelo que sobrevive
+ * a um reinício da aplicação. No arranque, um registo incompleto no fim do ficheiro (escrita interrompida) é descartado;
+ * uma fila cujo primeiro registo não é válido (ex: formato de uma versão anterior) impede o arranque, em vez de ser apagada.
+ *
+ * Reposição:
+ * Os registos são lidos e confirmados pela ordem em que foram acrescentados. Quando todos estão confirmados,
+ * a fila é esvaziada. Os registos que a base de dados recusa (ex: bomba entretanto removida) são copiados
+ * para `posto-{id}.rejeitados`, para análise manual, e a reposição continua. O número de rejeitados de cada posto
+ * é exposto em `/api/saude`.
+ */
+@Component
+public class FilaOffline {
+
+    static final int TAMANHO = 72;
+    private static final String PREFIXO = "posto-";
+    private static final String EXTENSAO_FILA = ".fila";
+    private static final String EXTENSAO_REJEITADOS = ".rejeitados";
+
+    @Autowired
+    private OfflineProperties propriedades;
+
+    private final ConcurrentHashMap<Integer, Fila> filas = new ConcurrentHashMap<>();
+
+    /**
+     * Reabre as filas que ficaram com registos por repor antes do último encerramento.
+     */
+    @PostConstruct
+    public void abrirExistentes() {
+        Path raiz = Paths.get(propriedades.getDiretorio());
+        if (!Files.isDirectory(raiz)) {
+            return;
+        }
+        try (DirectoryStream<Path> ficheiros = Files.newDirectoryStream(raiz, PREFIXO + "*" + EXTENSAO_FILA)) {
+            for (Path ficheiro : ficheiros) {
+                String nome = ficheiro.getFileName().toString();
+                fila(Integer.parseInt(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO_FILA.length())));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new RuntimeException("Falha ao abrir as filas offline em " + raiz + ".", e);
+        }
+    }
+
+    /**
+     * Acrescenta um abastecimento à fila do posto e sincroniza-o com o disco.
+     *
+     * @param postoId O ID do posto.
+     * @param registo O abastecimento (a sequência indicada é ignorada).
+     * @return O registo com a sequência atribuída.
+     */
+    public RegistoOffline acrescentar(int postoId, RegistoOffline registo) {
+        try {
+            return fila(postoId).acrescentar(registo, propriedades.isSincronizar());
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao escrever na fila offline do posto " + postoId + ".", e);
+        }
+    }
+
+    /**
+     * Retorna o registo mais antigo ainda não reposto do posto, sem o retirar da fila.
+     *
+     * @return o registo, ou nulo se a fila estiver vazia.
+     */
+    public RegistoOffline proximo(int postoId) {
+        try {
+            return fila(postoId).proximo();
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao ler a fila offline do posto " + postoId + ".", e);
+        }
+    }
+
+    /**
+     * Confirma a reposição do registo devolvido por `proximo`.
+     */
+    public void confirmar(int postoId) {
+        try {
+            fila(postoId).confirmar();
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao atualizar a fila offline do posto " + postoId + ".", e);
+        }
+    }
+
+    /**
+     * Retira da fila o registo devolvido por `proximo`, copiando-o para o ficheiro de rejeitados do posto.
+     */
+    public void rejeitar(int postoId, RegistoOffline registo) {
+        try {
+            fila(postoId).rejeitar(registo);
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao rejeitar o registo offline " + registo.sequencia()
+                    + " do posto " + postoId + ".", e);
+        }
+    }
+
+    /**
+     * Retorna o número de registos recusados na reposição de cada posto com rejeitados (desde sempre,
+     * pois o ficheiro de rejeitados só é limpo manualmente).
+     */
+    public Map<Integer, Long> rejeitados() {
+        Map<Integer, Long> rejeitados = new TreeMap<>();
+        filas.forEach((postoId, fila) -> {
+            long numero = fila.rejeitados();
+            if (numero > 0) {
+                rejeitados.put(postoId, numero);
+            }
+        });
+        return rejeitados;
+    }
+
+    /**
+     * Retorna o número de registos por repor de cada posto com a fila não vazia.
+     */
+    public Map<Integer, Long> pendentes() {
+        Map<Integer, Long> pendentes = new TreeMap<>();
+        filas.forEach((postoId, fila) -> {
+            long numero = fila.pendentes();
+            if (numero > 0) {
+                pendentes.put(postoId, numero);
+            }
+        });
+        return pendentes;
+    }
+
+    /**
+     * Retorna o número de registos por repor do posto (0 se o posto não tiver fila).
+     */
+    public long pendentes(int postoId) {
+        Fila fila = filas.get(postoId);
+        return fila == null ? 0 : fila.pendentes();
+    }
+
+    @PreDestroy
+    public void fechar() {
+        for (Fila fila : filas.values()) {
+            try {
+                fila.fechar();
+            } catch (IOException e) {
+                // O conteúdo já está sincronizado; nada a fazer no encerramento.
+            }
+        }
+    }
+
+    private Fila fila(int postoId) {
+        return filas.computeIfAbsent(postoId, id -> {
+            try {
+                return new Fila(id, Paths.get(propriedades.getDiretorio()));
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao abrir a fila offline do posto " + id + ".", e);
+            }
+        });
+    }
+
+    /**
+     * Codifica um registo em 72 bytes: sequência, identificador (UUID, 16 bytes), data (epoch millis da hora local),
+     * litros (milésimos), valor (centavos), bomba, combustível, operador (-1 se não houver),
+     * indicadores (bit 0: litros já reservados), 4 bytes reservados e CRC32C dos 68 bytes anteriores.
+     */
+    static void codificar(RegistoOffline registo, ByteBuffer buffer) {
+        int inicio = buffer.position();
+        buffer.putLong(registo.sequencia())
+                .putLong(registo.idOffline().getMostSignificantBits())
+                .putLong(registo.idOffline().getLeastSignificantBits())
+                .putLong(registo.data().toInstant(ZoneOffset.UTC).toEpochMilli())
+                .putLong(registo.litros().movePointRight(3).longValueExact())
+                .putLong(registo.valorTotal().movePointRight(2).longValueExact())
+                .putInt(registo.bombaId())
+                .putInt(registo.combustivelId())
+                .putInt(registo.operadorId() == null ? -1 : registo.operadorId())
+                .putInt(registo.reservado() ? 1 : 0)
+                .putInt(0);
+        buffer.putInt(crc(buffer, inicio));
+    }
+
+    /**
+     * Descodifica um registo, ou retorna nulo se o CRC não coincidir (escrita interrompida).
+     */
+    static RegistoOffline descodificar(ByteBuffer buffer) {
+        int inicio = buffer.position();
+        buffer.position(inicio + TAMANHO);
+        if (crc(buffer, inicio) != buffer.getInt(inicio + TAMANHO - 4)) {
+            return null;
+        }
+        int operadorId = buffer.getInt(inicio + 56);
+        return new RegistoOffline(buffer.getLong(inicio),
+                new UUID(buffer.getLong(inicio + 8), buffer.getLong(inicio + 16)),
+                buffer.getInt(inicio + 48),
+                buffer.getInt(inicio + 52),
+                operadorId < 0 ? null : operadorId,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(inicio + 24)), ZoneOffset.UTC),
+                BigDecimal.valueOf(buffer.getLong(inicio + 32), 3),
+                BigDecimal.valueOf(buffer.getLong(inicio + 40), 2),
+                (buffer.getInt(inicio + 60) & 1) != 0);
+    }
+
+    private static int crc(ByteBuffer buffer, int inicio) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(inicio).limit(inicio + TAMANHO - 4));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A fila de um posto. Todos os acessos são feitos sob o lock da própria instância;
+     * o volume é pequeno (apenas as vendas feitas durante uma falha da base de dados).
+     */
+    private static class Fila {
+
+        private final int postoId;
+        private final Path pasta;
+        private final FileChannel canal;
+        private final FileChannel posicao;
+        private final ByteBuffer buffer = ByteBuffer.allocate(TAMANHO);
+        private final ByteBuffer bufferPosicao = ByteBuffer.allocate(Long.BYTES);
+        private long total;
+        private long confirmados;
+        private long rejeitados;
+
+        Fila(int postoId, Path pasta) throws IOException {
+            this.postoId = postoId;
+            this.pasta = pasta;
+            Files.createDirectories(pasta);
+            canal = FileChannel.open(pasta.resolve(PREFIXO + postoId + EXTENSAO_FILA),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            posicao = FileChannel.open(pasta.resolve(PREFIXO + postoId + ".posicao"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recuperar();
+            Path ficheiroRejeitados = pasta.resolve(PREFIXO + postoId + EXTENSAO_REJEITADOS);
+            rejeitados = Files.exists(ficheiroRejeitados) ? Files.size(ficheiroRejeitados) / TAMANHO : 0;
+        }
+
+        /**
+         * Conta os registos válidos, descarta uma cauda incompleta e lê a posição de reposição.
+         * Uma posição para lá do fim da fila (reinício entre o esvaziamento da fila e a gravação da posição,
+         * em `confirmar`) é corrigida também no ficheiro: se ficasse só em memória, os registos acrescentados
+         * a seguir seriam dados como repostos no reinício seguinte.
+         */
+        private void recuperar() throws IOException {
+            long registos = canal.size() / TAMANHO;
+            total = 0;
+            while (total < registos && ler(total) != null) {
+                total++;
+            }
+            if (total == 0 && registos > 0) {
+                throw new IOException("O primeiro registo da fila offline do posto " + postoId + " não é válido "
+                        + "(fila de uma versão anterior?); reponha-a com essa versão antes de atualizar.");
+            }
+            if (canal.size() != total * TAMANHO) {
+                canal.truncate(total * TAMANHO);
+                canal.force(false);
+            }
+            bufferPosicao.clear();
+            long gravada = posicao.read(bufferPosicao, 0) == Long.BYTES ? bufferPosicao.getLong(0) : 0;
+            confirmados = Math.max(0, Math.min(gravada, total));
+            if (confirmados != gravada) {
+                gravarPosicao();
+            }
+        }
+
+        synchronized RegistoOffline acrescentar(RegistoOffline registo, boolean sincronizar) throws IOException {
+            RegistoOffline comSequencia = new RegistoOffline(total + 1, registo.idOffline(), registo.bombaId(), registo.combustivelId(),
+                    registo.operadorId(), registo.data(), registo.litros(), registo.valorTotal(), registo.reservado());
+            buffer.clear();
+            codificar(comSequencia, buffer);
+            buffer.flip();
+            long deslocamento = total * TAMANHO;
+            while (buffer.hasRemaining()) {
+                deslocamento += canal.write(buffer, deslocamento);
+            }
+            if (sincronizar) {
+                canal.force(false);
+            }
+            total++;
+            return comSequencia;
+        }
+
+        synchronized RegistoOffline proximo() throws IOException {
+            return confirmados < total ? ler(confirmados) : null;
+        }
+
+        /**
+         * Avança a posição de reposição. Quando a fila fica toda reposta, é esvaziada
+         * (primeiro a fila e só depois a posição, para que um reinício entre os dois passos não perca registos).
+         */
+        synchronized void confirmar() throws IOException {
+            confirmados++;
+            if (confirmados >= total) {
+                canal.truncate(0);
+                canal.force(false);
+                total = 0;
+                confirmados = 0;
+            }
+            gravarPosicao();
+        }
+
+        private void gravarPosicao() throws IOException {
+            bufferPosicao.clear();
+            bufferPosicao.putLong(0, confirmados);
+            posicao.write(bufferPosicao, 0);
+            posicao.force(false);
+        }
+
+        /**
+         * Copia o registo devolvido por `proximo` para o ficheiro de rejeitados e retira-o da fila.
+         */
+        synchronized void rejeitar(RegistoOffline registo) throws IOException {
+            ByteBuffer copia = ByteBuffer.allocate(TAMANHO);
+            codificar(registo, copia);
+            copia.flip();
+            try (FileChannel ficheiro = FileChannel.open(pasta.resolve(PREFIXO + postoId + EXTENSAO_REJEITADOS),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (copia.hasRemaining()) {
+                    ficheiro.write(copia);
+                }
+                ficheiro.force(false);
+            }
+            rejeitados++;
+            confirmar();
+        }
+
+        synchronized long pendentes() {
+            return total - confirmados;
+        }
+
+        synchronized long rejeitados() {
+            return rejeitados;
+        }
+
+        private RegistoOffline ler(long indice) throws IOException {
+            buffer.clear();
+            long deslocamento = indice * TAMANHO;
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, deslocamento + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            buffer.flip();
+            return descodificar(buffer);
+        }
+
+        synchronized void fechar() throws IOException {
+            canal.close();
+            posicao.close();
+        }
+    }
+}
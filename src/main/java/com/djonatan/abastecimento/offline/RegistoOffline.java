@@ -0,0 +1,25 @@
+package com.djonatan.abastecimento.offline;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Um abastecimento aceite sem base de dados, à espera de ser reposto.
+ * Guarda os valores tal como foram calculados no momento da venda (preço do catálogo em memória e data original).
+ *
+ * @param sequencia A posição do registo na fila do posto (a partir de 1), atribuída ao acrescentar.
+ * @param idOffline O identificador único do abastecimento, gravado com ele na reposição.
+ * @param bombaId O ID da bomba.
+ * @param combustivelId O ID do combustível da bomba no momento da venda.
+ * @param operadorId O ID do operador, ou nulo.
+ * @param data A data e hora da venda.
+ * @param litros Os litros vendidos (3 casas decimais).
+ * @param valorTotal O valor cobrado (2 casas decimais).
+ * @param reservado Se os litros já foram descontados do tanque no momento da venda (falso se o estado do tanque
+ * não estava disponível em memória e a base de dados não respondia).
+ */
+public record RegistoOffline(long sequencia, UUID idOffline, int bombaId, int combustivelId, Integer operadorId,
+                             LocalDateTime data, BigDecimal litros, BigDecimal valorTotal,
+                             boolean reservado) {
+}
@@ -0,0 +1,284 @@
+package com.djonatan.abastecimento.pesquisa;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice de pesquisa imutável, em memória, sobre um conjunto pequeno de documentos (ex: nomes de bombas).
+ *
+ * Estrutura:
+ * - Termos: as palavras normalizadas (minúsculas, sem acentos) ordenadas, cada uma com a lista dos documentos
+ * que a contêm. Funciona como uma trie compacta: os termos com um dado prefixo ocupam um intervalo contíguo,
+ * encontrado por pesquisa binária.
+ * - Trigramas: para cada sequência de 3 caracteres do texto normalizado, a lista ordenada dos documentos que a contêm.
+ * Permite encontrar termos a meio de uma palavra (ex: "dit" em "Aditivada") intersetando listas curtas.
+ *
+ * Uma consulta percorre apenas as listas de documentos dos seus termos e interseta-as (listas ordenadas),
+ * sem percorrer nem alocar vetores do tamanho do índice.
+ *
+ * Pontuação (todos os termos da consulta têm de ser encontrados):
+ * - nome igual à consulta: +100; nome começa pela consulta: +15;
+ * - por termo: palavra igual +30, prefixo de palavra +20, parte de palavra +10.
+ * Os empates são desfeitos pelo nome mais curto e depois pela ordem alfabética.
+ *
+ * O índice nunca é alterado depois de construído; uma alteração aos dados cria um índice novo (copy-on-write),
+ * pelo que pode ser consultado por várias threads sem sincronização.
+ */
+public final class IndicePesquisa {
+
+    private static final int[] VAZIO = new int[0];
+
+    private final int[] ids;
+    private final String[] nomes;
+    private final String[] detalhes;
+    private final String[] normalizados;
+
+    private final String[] termos;
+    private final int[][] documentosPorTermo;
+    private final Map<Long, int[]> documentosPorTrigrama;
+
+    /**
+     * Um documento encontrado, com a sua pontuação.
+     */
+    public record Acerto(int id, String nome, String detalhe, int pontuacao) {
+    }
+
+    /**
+     * Ordem dos resultados: pontuação decrescente, depois nome mais curto, depois ordem alfabética.
+     */
+    public static final Comparator<Acerto> ORDEM = (a, b) -> {
+        if (a.pontuacao() != b.pontuacao()) {
+            return Integer.compare(b.pontuacao(), a.pontuacao());
+        }
+        if (a.nome().length() != b.nome().length()) {
+            return Integer.compare(a.nome().length(), b.nome().length());
+        }
+        return a.nome().compareToIgnoreCase(b.nome());
+    };
+
+    /**
+     * Constrói o índice.
+     *
+     * @param ids Os IDs dos documentos.
+     * @param nomes O texto pesquisável de cada documento.
+     * @param detalhes Uma informação adicional devolvida com cada documento (pode conter nulos).
+     */
+    public IndicePesquisa(int[] ids, String[] nomes, String[] detalhes) {
+        this.ids = ids;
+        this.nomes = nomes;
+        this.detalhes = detalhes;
+        this.normalizados = new String[ids.length];
+
+        TreeMap<String, List<Integer>> porTermo = new TreeMap<>();
+        Map<Long, List<Integer>> porTrigrama = new HashMap<>();
+        for (int d = 0; d < ids.length; d++) {
+            String normalizado = normalizar(nomes[d]);
+            normalizados[d] = normalizado;
+            for (String termo : termos(normalizado)) {
+                List<Integer> documentos = porTermo.computeIfAbsent(termo, t -> new ArrayList<>());
+                if (documentos.isEmpty() || documentos.get(documentos.size() - 1) != d) {
+                    documentos.add(d);
+                }
+            }
+            for (int i = 0; i + 3 <= normalizado.length(); i++) {
+                List<Integer> documentos = porTrigrama.computeIfAbsent(trigrama(normalizado, i), t -> new ArrayList<>());
+                if (documentos.isEmpty() || documentos.get(documentos.size() - 1) != d) {
+                    documentos.add(d);
+                }
+            }
+        }
+
+        this.termos = porTermo.keySet().toArray(new String[0]);
+        this.documentosPorTermo = new int[termos.length][];
+        for (int t = 0; t < termos.length; t++) {
+            documentosPorTermo[t] = paraVetor(porTermo.get(termos[t]));
+        }
+        this.documentosPorTrigrama = new HashMap<>(porTrigrama.size() * 2);
+        porTrigrama.forEach((trigrama, documentos) -> documentosPorTrigrama.put(trigrama, paraVetor(documentos)));
+    }
+
+    /**
+     * Pesquisa os documentos que contêm todos os termos da consulta e devolve-os ordenados por relevância.
+     *
+     * @param consulta O texto da consulta (acentos e maiúsculas são ignorados).
+     * @return os documentos encontrados, do mais relevante para o menos relevante.
+     */
+    public List<Acerto> pesquisar(String consulta) {
+        String normalizada = normalizar(consulta);
+        List<String> termosConsulta = termos(normalizada);
+        if (termosConsulta.isEmpty()) {
+            return List.of();
+        }
+
+        // Os documentos que contêm todos os termos processados até agora (ordenados) e a soma das suas pontuações.
+        int[] documentos = null;
+        int[] pontuacoes = null;
+        for (String termo : termosConsulta) {
+            long[] encontrados = encontrar(termo);
+            int[] documentosTermo = new int[encontrados.length];
+            int[] pontosTermo = new int[encontrados.length];
+            for (int i = 0; i < encontrados.length; i++) {
+                documentosTermo[i] = (int) (encontrados[i] >>> 32);
+                pontosTermo[i] = (int) encontrados[i];
+            }
+            if (documentos == null) {
+                documentos = documentosTermo;
+                pontuacoes = pontosTermo;
+            } else {
+                // Interseção das duas listas ordenadas, somando as pontuações.
+                int n = 0;
+                for (int i = 0, j = 0; i < documentos.length && j < documentosTermo.length; ) {
+                    if (documentos[i] < documentosTermo[j]) {
+                        i++;
+                    } else if (documentos[i] > documentosTermo[j]) {
+                        j++;
+                    } else {
+                        documentos[n] = documentos[i];
+                        pontuacoes[n++] = pontuacoes[i] + pontosTermo[j];
+                        i++;
+                        j++;
+                    }
+                }
+                documentos = Arrays.copyOf(documentos, n);
+                pontuacoes = Arrays.copyOf(pontuacoes, n);
+            }
+            if (documentos.length == 0) {
+                return List.of();
+            }
+        }
+
+        List<Acerto> acertos = new ArrayList<>(documentos.length);
+        for (int i = 0; i < documentos.length; i++) {
+            int d = documentos[i];
+            int pontuacao = pontuacoes[i];
+            if (normalizados[d].equals(normalizada)) {
+                pontuacao += 100;
+            } else if (normalizados[d].startsWith(normalizada)) {
+                pontuacao += 15;
+            }
+            acertos.add(new Acerto(ids[d], nomes[d], detalhes[d], pontuacao));
+        }
+        acertos.sort(ORDEM);
+        return acertos;
+    }
+
+    /**
+     * Os documentos que contêm um termo, cada um com a melhor pontuação do termo, ordenados pelo documento.
+     * Cada elemento guarda o documento nos 32 bits altos e a pontuação nos 32 bits baixos.
+     * O custo depende apenas do tamanho das listas de documentos percorridas, e não do número de documentos.
+     */
+    private long[] encontrar(String termo) {
+        long[] encontrados = new long[8];
+        int n = 0;
+        // Palavras iguais ou com o termo como prefixo: intervalo contíguo nos termos ordenados.
+        for (int t = inicioDoPrefixo(termo); t < termos.length && termos[t].startsWith(termo); t++) {
+            int pontos = termos[t].length() == termo.length() ? 30 : 20;
+            for (int d : documentosPorTermo[t]) {
+                if (n == encontrados.length) {
+                    encontrados = Arrays.copyOf(encontrados, n * 2);
+                }
+                encontrados[n++] = ((long) d << 32) | pontos;
+            }
+        }
+        // O termo a meio de uma palavra: candidatos pelos trigramas, confirmados no texto.
+        if (termo.length() >= 3) {
+            for (int d : candidatosPorTrigramas(termo)) {
+                if (normalizados[d].contains(termo)) {
+                    if (n == encontrados.length) {
+                        encontrados = Arrays.copyOf(encontrados, n * 2);
+                    }
+                    encontrados[n++] = ((long) d << 32) | 10;
+                }
+            }
+        }
+
+        // Ordena por documento e, para cada documento, fica com a maior pontuação (a última de cada grupo).
+        Arrays.sort(encontrados, 0, n);
+        int unicos = 0;
+        for (int i = 0; i < n; i++) {
+            if (i + 1 < n && encontrados[i + 1] >>> 32 == encontrados[i] >>> 32) {
+                continue;
+            }
+            encontrados[unicos++] = encontrados[i];
+        }
+        return Arrays.copyOf(encontrados, unicos);
+    }
+
+    /**
+     * O número de documentos indexados.
+     */
+    public int tamanho() {
+        return ids.length;
+    }
+
+    private int inicioDoPrefixo(String prefixo) {
+        int posicao = Arrays.binarySearch(termos, prefixo);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    /**
+     * Interseta as listas de documentos de todos os trigramas do termo (listas ordenadas).
+     */
+    private int[] candidatosPorTrigramas(String termo) {
+        int[] candidatos = null;
+        for (int i = 0; i + 3 <= termo.length(); i++) {
+            int[] documentos = documentosPorTrigrama.getOrDefault(trigrama(termo, i), VAZIO);
+            candidatos = candidatos == null ? documentos : intersetar(candidatos, documentos);
+            if (candidatos.length == 0) {
+                break;
+            }
+        }
+        return candidatos == null ? VAZIO : candidatos;
+    }
+
+    private static int[] intersetar(int[] a, int[] b) {
+        int[] resultado = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultado[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private static long trigrama(String texto, int inicio) {
+        return ((long) texto.charAt(inicio) << 32) | ((long) texto.charAt(inicio + 1) << 16) | texto.charAt(inicio + 2);
+    }
+
+    private static int[] paraVetor(List<Integer> lista) {
+        int[] vetor = new int[lista.size()];
+        for (int i = 0; i < vetor.length; i++) {
+            vetor[i] = lista.get(i);
+        }
+        return vetor;
+    }
+
+    /**
+     * Normaliza um texto para pesquisa: minúsculas, sem acentos e com espaços simples.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcentos.toLowerCase(Locale.ROOT).replaceAll("[^\\p{Alnum}]+", " ").trim();
+    }
+
+    private static List<String> termos(String normalizado) {
+        return normalizado.isEmpty() ? List.of() : List.of(normalizado.split(" "));
+    }
+}
@@ -1,10 +1,17 @@
 package com.djonatan.abastecimento.repository;
 
 import com.djonatan.abastecimento.model.Abastecimento;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository para a entidade Abastecimento.
@@ -27,4 +34,88 @@ public interface AbastecimentoRepository extends JpaRepository<Abastecimento, In
      * @return uma lista de todos os abastecimentos, ordenada pelo ID em ordem descendente (do mais recente para o mais antigo).
      */
     List<Abastecimento> findAllByOrderByIdDesc();
+
+    /**
+     * Lista os abastecimentos de um posto, do mais recente para o mais antigo.
+     * Servido pelo índice (posto_id, id), sem ordenação adicional.
+     *
+     * @param postoId O ID do posto.
+     * @return a lista de abastecimentos do posto.
+     */
+    List<Abastecimento> findAllByPostoIdOrderByIdDesc(int postoId);
+
+    /**
+     * Lista os abastecimentos mais recentes de um posto (ex: os últimos 20, com `PageRequest.of(0, 20)`).
+     * Servido pelo índice (posto_id, id), lendo apenas as linhas pedidas.
+     *
+     * @param postoId O ID do posto.
+     * @param pagina O número de abastecimentos a ler.
+     * @return os abastecimentos, do mais recente para o mais antigo.
+     */
+    List<Abastecimento> findByPostoIdOrderByIdDesc(int postoId, Pageable pagina);
+
+    /**
+     * Conta e soma os litros e o valor dos abastecimentos de um posto a partir de uma data, agrupados por combustível.
+     * Servido pelo índice (posto_id, data).
+     *
+     * @param postoId O ID do posto.
+     * @param desde A data inicial (inclusive).
+     * @return linhas no formato [combustivelId (Integer), abastecimentos (Long), litros (BigDecimal), valorTotal (BigDecimal)].
+     */
+    @Query("SELECT a.bomba.combustivel.id, COUNT(a), SUM(a.litros), SUM(a.valorTotal) FROM Abastecimento a " +
+            "WHERE a.postoId = :postoId AND a.data >= :desde GROUP BY a.bomba.combustivel.id")
+    List<Object[]> somarPorCombustivelDesde(@Param("postoId") int postoId, @Param("desde") LocalDateTime desde);
+
+    /**
+     * Procura um abastecimento pelo ID, apenas dentro do posto indicado.
+     *
+     * @param id O ID do abastecimento.
+     * @param postoId O ID do posto.
+     * @return um `Optional` com o abastecimento, ou vazio se não existir neste posto.
+     */
+    Optional<Abastecimento> findByIdAndPostoId(int id, int postoId);
+
+    /**
+     * Procura um abastecimento pelo ID, dentro do posto indicado, bloqueando a linha até ao fim da transação
+     * (SELECT ... FOR UPDATE).
+     * Usado na anulação e na correção: dois pedidos concorrentes sobre o mesmo abastecimento são serializados,
+     * e o segundo lê já o resultado do primeiro (em vez de partir dos mesmos litros e perder uma das alterações
+     * nos totais do turno e no inventário).
+     *
+     * @param id O ID do abastecimento.
+     * @param postoId O ID do posto.
+     * @return um `Optional` com o abastecimento bloqueado, ou vazio se não existir neste posto.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Abastecimento a WHERE a.id = :id AND a.postoId = :postoId")
+    Optional<Abastecimento> bloquearPorIdEPosto(@Param("id") int id, @Param("postoId") int postoId);
+
+    /**
+     * Verifica se um abastecimento aceite offline já foi reposto no posto.
+     * Usado na reposição da fila offline, para não repor duas vezes o mesmo (servido pelo índice único de `id_offline`).
+     */
+    boolean existsByPostoIdAndIdOffline(int postoId, String idOffline);
+
+    /**
+     * Soma os litros e o valor total dos abastecimentos de um turno, agrupados por combustível.
+     * Usado apenas para reconstruir os acumuladores do turno aberto após um reinício da aplicação;
+     * durante o funcionamento normal os totais são mantidos em memória pelo `TurnoService`.
+     *
+     * @param turnoId O ID do turno.
+     * @return linhas no formato [combustivelId (Integer), litros (BigDecimal), valorTotal (BigDecimal)].
+     */
+    @Query("SELECT a.bomba.combustivel.id, SUM(a.litros), SUM(a.valorTotal) FROM Abastecimento a " +
+            "WHERE a.turno.id = :turnoId GROUP BY a.bomba.combustivel.id")
+    List<Object[]> somarPorCombustivelNoTurno(@Param("turnoId") int turnoId);
+
+    /**
+     * Soma os litros e o valor total dos abastecimentos de um turno, agrupados por operador.
+     * Abastecimentos sem operador são agrupados com o ID 0.
+     *
+     * @param turnoId O ID do turno.
+     * @return linhas no formato [operadorId (Integer), litros (BigDecimal), valorTotal (BigDecimal)].
+     */
+    @Query("SELECT COALESCE(o.id, 0), SUM(a.litros), SUM(a.valorTotal) FROM Abastecimento a " +
+            "LEFT JOIN a.operador o WHERE a.turno.id = :turnoId GROUP BY COALESCE(o.id, 0)")
+    List<Object[]> somarPorOperadorNoTurno(@Param("turnoId") int turnoId);
 }
@@ -1,8 +1,17 @@
 package com.djonatan.abastecimento.repository;
 
 import com.djonatan.abastecimento.model.Bomba;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository para a entidade Bomba.
@@ -16,6 +25,43 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface BombaRepository extends JpaRepository<Bomba, Integer> {
-    // Para as operações básicas de CRUD, não é necessário adicionar nenhum método.
-    // O Spring Data JPA fornece a implementação em tempo de execução.
+
+    /**
+     * Lista as bombas ativas de um posto. Servido pelo índice (posto_id, ativo).
+     *
+     * @param postoId O ID do posto.
+     * @return a lista de bombas ativas do posto.
+     */
+    List<Bomba> findAllByPostoIdAndAtivoTrue(int postoId);
+
+    /**
+     * Procura uma bomba ativa pelo ID, apenas dentro do posto indicado.
+     *
+     * @param id O ID da bomba.
+     * @param postoId O ID do posto.
+     * @return um `Optional` com a bomba, ou vazio se não existir neste posto ou estiver desativada.
+     */
+    Optional<Bomba> findByIdAndPostoIdAndAtivoTrue(int id, int postoId);
+
+    /**
+     * Procura uma bomba ativa e bloqueia a linha em modo exclusivo até ao fim da transação (SELECT ... FOR UPDATE).
+     * Usado numa atualização com `If-Match: *`, que grava sobre a versão atual sem a poder perder para outra alteração.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Bomba b WHERE b.id = :id AND b.postoId = :postoId AND b.ativo = true")
+    Optional<Bomba> bloquearAtivoPorIdEPosto(@Param("id") int id, @Param("postoId") int postoId);
+
+    /**
+     * Desativa todas as bombas ativas de um combustível, numa única instrução UPDATE.
+     * A versão de cada bomba é incrementada, para que uma alteração feita com a versão anterior resulte em HTTP 409.
+     *
+     * @param postoId O ID do posto.
+     * @param combustivelId O ID do combustível desativado.
+     * @return o número de bombas desativadas.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Bomba b SET b.ativo = false, b.versao = b.versao + 1 " +
+            "WHERE b.postoId = :postoId AND b.combustivel.id = :combustivelId AND b.ativo = true")
+    int desativarPorCombustivel(@Param("postoId") int postoId, @Param("combustivelId") int combustivelId);
 }
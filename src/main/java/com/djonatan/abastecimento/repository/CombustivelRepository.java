@@ -1,9 +1,16 @@
 package com.djonatan.abastecimento.repository;
 
 import com.djonatan.abastecimento.model.Combustivel;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository para a entidade Combustivel.
  * Esta interface é um exemplo claro da produtividade ganha com o Spring Data JPA.
@@ -23,5 +30,39 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface CombustivelRepository extends JpaRepository<Combustivel, Integer> {
-    // Não é necessário escrever nenhum método aqui para as operações básicas de CRUD.
+
+    /**
+     * Lista os combustíveis ativos de um posto. Servido pelo índice (posto_id, ativo).
+     *
+     * @param postoId O ID do posto.
+     * @return a lista de combustíveis ativos do posto.
+     */
+    List<Combustivel> findAllByPostoIdAndAtivoTrue(int postoId);
+
+    /**
+     * Procura um combustível ativo pelo ID, apenas dentro do posto indicado.
+     *
+     * @param id O ID do combustível.
+     * @param postoId O ID do posto.
+     * @return um `Optional` com o combustível, ou vazio se não existir neste posto ou estiver desativado.
+     */
+    Optional<Combustivel> findByIdAndPostoIdAndAtivoTrue(int id, int postoId);
+
+    /**
+     * Procura um combustível ativo e bloqueia a linha em modo exclusivo até ao fim da transação (SELECT ... FOR UPDATE).
+     * Usado na desativação, que espera pelas gravações de bombas em curso sobre este combustível,
+     * e numa atualização com `If-Match: *`, que grava sobre a versão atual.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Combustivel c WHERE c.id = :id AND c.postoId = :postoId AND c.ativo = true")
+    Optional<Combustivel> bloquearAtivoPorIdEPosto(@Param("id") int id, @Param("postoId") int postoId);
+
+    /**
+     * Procura um combustível ativo e bloqueia a linha em modo partilhado até ao fim da transação (SELECT ... FOR SHARE).
+     * Usado ao gravar uma bomba: várias bombas podem ser gravadas em paralelo, mas uma desativação concorrente
+     * do combustível espera pelo commit (e inclui a bomba nova) ou é vista como já feita (e a gravação é recusada).
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM Combustivel c WHERE c.id = :id AND c.postoId = :postoId AND c.ativo = true")
+    Optional<Combustivel> partilharAtivoPorIdEPosto(@Param("id") int id, @Param("postoId") int postoId);
 }
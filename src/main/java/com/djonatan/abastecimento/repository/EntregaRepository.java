@@ -0,0 +1,22 @@
+package com.djonatan.abastecimento.repository;
+
+import com.djonatan.abastecimento.model.Entrega;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository para a entidade Entrega.
+ */
+@Repository
+public interface EntregaRepository extends JpaRepository<Entrega, Integer> {
+
+    /**
+     * Lista as entregas de um tanque, da mais recente para a mais antiga.
+     *
+     * @param tanqueId O ID do tanque.
+     * @return a lista de entregas do tanque.
+     */
+    List<Entrega> findAllByTanqueIdOrderByIdDesc(int tanqueId);
+}
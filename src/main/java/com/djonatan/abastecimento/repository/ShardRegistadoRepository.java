@@ -0,0 +1,13 @@
+package com.djonatan.abastecimento.repository;
+
+import com.djonatan.abastecimento.model.ShardRegistado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository para a entidade ShardRegistado.
+ * Usado sempre com o shard principal forçado no `ContextoPosto`.
+ */
+@Repository
+public interface ShardRegistadoRepository extends JpaRepository<ShardRegistado, String> {
+}
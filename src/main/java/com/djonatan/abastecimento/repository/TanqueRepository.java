@@ -0,0 +1,53 @@
+package com.djonatan.abastecimento.repository;
+
+import com.djonatan.abastecimento.model.Tanque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository para a entidade Tanque.
+ */
+@Repository
+public interface TanqueRepository extends JpaRepository<Tanque, Integer> {
+
+    /**
+     * Lista os tanques de um posto.
+     *
+     * @param postoId O ID do posto.
+     * @return a lista de tanques do posto.
+     */
+    List<Tanque> findAllByPostoId(int postoId);
+
+    /**
+     * Procura o tanque de um combustível num posto.
+     *
+     * @param postoId O ID do posto.
+     * @param combustivelId O ID do combustível.
+     * @return um `Optional` com o tanque, ou vazio se o combustível não tiver tanque neste posto.
+     */
+    Optional<Tanque> findByPostoIdAndCombustivelId(int postoId, int combustivelId);
+
+    /**
+     * Soma uma variação ao nível de um tanque com um UPDATE relativo (nivel = nivel + delta).
+     * Como não lê o valor anterior, não precisa de bloquear a linha entre a leitura e a escrita,
+     * e várias variações podem ser aplicadas por qualquer ordem com o mesmo resultado.
+     *
+     * @param id O ID do tanque.
+     * @param delta A variação, em litros (negativa para vendas, positiva para entregas).
+     * @param data A data da atualização.
+     * @return o número de linhas atualizadas (0 se o tanque já não existir).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Tanque t SET t.nivel = t.nivel + :delta, t.dataAtualizacao = :data WHERE t.id = :id")
+    int somarAoNivel(@Param("id") int id, @Param("delta") BigDecimal delta, @Param("data") LocalDateTime data);
+}
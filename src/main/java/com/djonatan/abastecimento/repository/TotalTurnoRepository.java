@@ -0,0 +1,24 @@
+package com.djonatan.abastecimento.repository;
+
+import com.djonatan.abastecimento.model.TotalTurno;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository para a entidade TotalTurno.
+ * Guarda os checkpoints dos totais acumulados de cada turno.
+ */
+@Repository
+public interface TotalTurnoRepository extends JpaRepository<TotalTurno, Integer> {
+
+    /**
+     * Lista todos os totais gravados para um turno.
+     * "findAllByTurnoId" é traduzido para: "SELECT t FROM TotalTurno t WHERE t.turno.id = ?".
+     *
+     * @param turnoId O ID do turno.
+     * @return a lista de totais (por combustível e por operador) do turno.
+     */
+    List<TotalTurno> findAllByTurnoId(int turnoId);
+}
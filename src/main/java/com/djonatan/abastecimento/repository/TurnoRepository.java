@@ -0,0 +1,33 @@
+package com.djonatan.abastecimento.repository;
+
+import com.djonatan.abastecimento.model.Turno;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository para a entidade Turno.
+ * Herda de JpaRepository para obter automaticamente as funcionalidades de CRUD.
+ */
+@Repository
+public interface TurnoRepository extends JpaRepository<Turno, Integer> {
+
+    /**
+     * Lista os turnos atualmente abertos (sem data de fecho), de todos os postos do shard.
+     * Usado no arranque da aplicação para retomar os turnos que estavam abertos antes de um reinício.
+     *
+     * @return a lista de turnos abertos.
+     */
+    List<Turno> findAllByDataFechoIsNull();
+
+    /**
+     * Procura um turno pelo ID, apenas dentro do posto indicado.
+     *
+     * @param id O ID do turno.
+     * @param postoId O ID do posto.
+     * @return um `Optional` com o turno, ou vazio se não existir neste posto.
+     */
+    Optional<Turno> findByIdAndPostoId(int id, int postoId);
+}
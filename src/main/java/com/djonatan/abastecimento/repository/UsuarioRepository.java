@@ -4,6 +4,7 @@ import com.djonatan.abastecimento.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -30,4 +31,12 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
      * @return um `Optional` contendo o Utilizador se encontrado, ou um `Optional` vazio caso contrário.
      */
     Optional<Usuario> findByUsername(String username);
+
+    /**
+     * Lista os utilizadores de um posto (usado para construir o índice de pesquisa do posto).
+     *
+     * @param postoId O ID do posto.
+     * @return a lista de utilizadores do posto.
+     */
+    List<Usuario> findAllByPostoId(int postoId);
 }
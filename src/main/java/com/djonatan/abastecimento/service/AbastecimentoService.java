@@ -1,16 +1,36 @@
 package com.djonatan.abastecimento.service;
 
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.DisjuntorBaseDados;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
 import com.djonatan.abastecimento.model.Abastecimento;
 import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Usuario;
+import com.djonatan.abastecimento.offline.FilaOffline;
+import com.djonatan.abastecimento.offline.RegistoOffline;
 import com.djonatan.abastecimento.repository.AbastecimentoRepository;
-import com.djonatan.abastecimento.repository.BombaRepository;
+import com.djonatan.abastecimento.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Camada de Serviço para a entidade Abastecimento.
@@ -26,22 +46,80 @@ import java.util.List;
  * - Mediar a comunicação entre a camada de Controller e a de Repository.
  * - Encapsular regras de negócio complexas, como o cálculo de valor a partir dos litros e vice-versa.
  * - Garantir a integridade dos dados antes da persistência (ex: verificar se a bomba existe).
+ *
+ * Multi-tenancy:
+ * Todas as operações atuam apenas sobre os dados do posto do pedido (`ContextoPosto`).
+ *
+ * Diário de Eventos:
+ * A fonte de verdade é o diário de eventos (`DiarioEventos`): cada registo, anulação ou correção é
+ * acrescentado ao diário na mesma transação que altera a tabela 'abastecimento', antes do commit.
+ * A tabela passa a ser uma projeção do diário, que pode ser reconstruída a qualquer momento (`DiarioService`).
+ * Nenhum abastecimento é apagado sem deixar rasto: a remoção é uma anulação registada no diário.
+ * As séries horárias da análise de procura (`AnaliseService`) são atualizadas depois do commit de cada alteração,
+ * e o painel do posto (`PainelService`) é refrescado em segundo plano.
+ *
+ * Modo Offline:
+ * Se a base de dados do posto estiver inacessível (disjuntor aberto, ou falha de ligação antes de qualquer escrita),
+ * o registo continua a funcionar: a bomba e o preço vêm do catálogo em memória, os litros são reservados no tanque
+ * e o abastecimento é guardado na fila local do posto (`FilaOffline`). Os abastecimentos da fila são repostos
+ * na base de dados, pela ordem em que foram aceites, assim que o shard volta a responder (`ModoOfflineService`);
+ * até a fila do posto ficar vazia, as vendas novas também vão para a fila, atrás das que já lá estão.
+ * Cada abastecimento aceite offline recebe um UUID (`idOffline`), gravado com ele numa coluna única, que torna a
+ * reposição idempotente.
  */
 @Service
 public class AbastecimentoService {
 
+    private static final Logger log = LoggerFactory.getLogger(AbastecimentoService.class);
+
     @Autowired
     private AbastecimentoRepository abastecimentoRepository;
 
     @Autowired
-    private BombaRepository bombaRepository;
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TurnoService turnoService;
+
+    @Autowired
+    private DetecaoAnomaliaService detecaoAnomaliaService;
+
+    @Autowired
+    private DiarioEventos diarioEventos;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private AnaliseService analiseService;
+
+    @Autowired
+    private PainelService painelService;
+
+    @Autowired
+    private FilaOffline filaOffline;
+
+    @Autowired
+    private DisjuntorBaseDados disjuntor;
+
+    @Autowired
+    private RoteadorShard roteadorShard;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     /**
-     * Retorna uma lista de todos os abastecimentos, ordenados do mais recente para o mais antigo.
+     * Retorna uma lista de todos os abastecimentos do posto, ordenados do mais recente para o mais antigo.
      * @return Uma lista de objetos Abastecimento.
      */
     public List<Abastecimento> listarTodos() {
-        return abastecimentoRepository.findAllByOrderByIdDesc();
+        return abastecimentoRepository.findAllByPostoIdOrderByIdDesc(ContextoPosto.atual());
     }
 
     /**
@@ -50,22 +128,24 @@ public class AbastecimentoService {
      *
      * @param bombaId O ID da bomba utilizada.
      * @param litros A quantidade de litros abastecida.
-     * @return O objeto Abastecimento que foi criado e salvo.
+     * @param operadorId O ID do operador que regista o abastecimento (opcional).
+     * @param precoTerminal O preço por litro mostrado pelo terminal da bomba (opcional), comparado pela deteção
+     * de anomalias com o valor cobrado.
+     * @return O objeto Abastecimento que foi criado e salvo (com ID 0, se foi aceite offline).
      */
-    public Abastecimento registarPorLitros(int bombaId, BigDecimal litros) {
-        Bomba bomba = bombaRepository.findById(bombaId)
-                .orElseThrow(() -> new RuntimeException("Bomba não encontrada com o ID: " + bombaId));
+    public Abastecimento registarPorLitros(int bombaId, BigDecimal litros, Integer operadorId, BigDecimal precoTerminal) {
+        Bomba bomba = obterBomba(bombaId);
 
         BigDecimal precoPorLitro = bomba.getCombustivel().getPrecoPorLitro();
         BigDecimal valorTotal = litros.multiply(precoPorLitro).setScale(2, RoundingMode.HALF_UP);
 
         Abastecimento novoAbastecimento = new Abastecimento();
         novoAbastecimento.setBomba(bomba);
-        novoAbastecimento.setLitros(litros);
+        novoAbastecimento.setLitros(litros.setScale(3, RoundingMode.HALF_UP));
         novoAbastecimento.setValorTotal(valorTotal);
         novoAbastecimento.setData(LocalDateTime.now());
 
-        return abastecimentoRepository.save(novoAbastecimento);
+        return registar(novoAbastecimento, operadorId, precoTerminal);
     }
 
     /**
@@ -74,11 +154,13 @@ public class AbastecimentoService {
      *
      * @param bombaId O ID da bomba utilizada.
      * @param valorTotal O valor em Reais a ser abastecido.
-     * @return O objeto Abastecimento que foi criado e salvo.
+     * @param operadorId O ID do operador que regista o abastecimento (opcional).
+     * @param precoTerminal O preço por litro mostrado pelo terminal da bomba (opcional), comparado pela deteção
+     * de anomalias com o valor cobrado.
+     * @return O objeto Abastecimento que foi criado e salvo (com ID 0, se foi aceite offline).
      */
-    public Abastecimento registarPorValor(int bombaId, BigDecimal valorTotal) {
-        Bomba bomba = bombaRepository.findById(bombaId)
-                .orElseThrow(() -> new RuntimeException("Bomba não encontrada com o ID: " + bombaId));
+    public Abastecimento registarPorValor(int bombaId, BigDecimal valorTotal, Integer operadorId, BigDecimal precoTerminal) {
+        Bomba bomba = obterBomba(bombaId);
 
         BigDecimal precoPorLitro = bomba.getCombustivel().getPrecoPorLitro();
         if (precoPorLitro.compareTo(BigDecimal.ZERO) <= 0) {
@@ -92,16 +174,393 @@ public class AbastecimentoService {
         novoAbastecimento.setValorTotal(valorTotal.setScale(2, RoundingMode.HALF_UP));
         novoAbastecimento.setData(LocalDateTime.now());
 
-        return abastecimentoRepository.save(novoAbastecimento);
+        return registar(novoAbastecimento, operadorId, precoTerminal);
+    }
+
+    /**
+     * Obtém a bomba, com o combustível e o preço atuais, a partir do snapshot em memória do catálogo.
+     * O registo nunca espera por escritas no catálogo e usa sempre um par bomba/preço consistente.
+     */
+    private Bomba obterBomba(int bombaId) {
+        Bomba bomba = catalogoService.bomba(bombaId);
+        if (bomba == null) {
+            throw new RuntimeException("Bomba não encontrada com o ID: " + bombaId);
+        }
+        return bomba;
+    }
+
+    /**
+     * Regista o abastecimento na base de dados ou, se o shard do posto estiver inacessível, na fila offline.
+     * Uma falha de ligação antes de qualquer escrita abre o disjuntor e a venda é aceite offline;
+     * os pedidos seguintes vão diretamente para a fila, sem esperar pelo timeout de ligação.
+     * Enquanto a fila do posto tiver registos por repor, as vendas novas continuam a ir para a fila, mesmo com
+     * o disjuntor já fechado: assim entram na base de dados (e no diário e no turno) depois das que foram
+     * aceites antes delas, pela ordem em que aconteceram.
+     */
+    private Abastecimento registar(Abastecimento novoAbastecimento, Integer operadorId, BigDecimal precoTerminal) {
+        int postoId = ContextoPosto.atual();
+        String shard = roteadorShard.shardDoPosto(postoId);
+        if (disjuntor.disponivel(shard) && filaOffline.pendentes(postoId) == 0) {
+            try {
+                Abastecimento salvo = persistir(novoAbastecimento, operadorId, false, precoTerminal);
+                disjuntor.sucesso(shard);
+                return salvo;
+            } catch (BaseDadosIndisponivelException e) {
+                disjuntor.falha(shard);
+            } catch (RuntimeException e) {
+                if (DisjuntorBaseDados.falhaDeLigacao(e)) {
+                    disjuntor.falha(shard);
+                }
+                throw e;
+            }
+        }
+        return registarOffline(novoAbastecimento, operadorId);
     }
 
     /**
-     * Remove um abastecimento do sistema.
+     * Aceita um abastecimento sem base de dados: reserva os litros no tanque (se o seu estado estiver em memória)
+     * e guarda-o, sincronizado com o disco, na fila offline do posto.
+     * O turno, os totais, a deteção de anomalias e o diário são tratados quando o abastecimento for reposto.
+     *
+     * @return O abastecimento aceite, ainda sem ID (0), com o `idOffline` com que será reposto.
+     */
+    private Abastecimento registarOffline(Abastecimento novoAbastecimento, Integer operadorId) {
+        int postoId = ContextoPosto.atual();
+        int combustivelId = combustivelId(novoAbastecimento);
+        // A data é guardada na fila ao milissegundo; a reposição usa exatamente a mesma data.
+        novoAbastecimento.setData(novoAbastecimento.getData().truncatedTo(ChronoUnit.MILLIS));
+        novoAbastecimento.setPostoId(postoId);
+        novoAbastecimento.setIdOffline(UUID.randomUUID().toString());
+
+        boolean reservado = true;
+        try {
+            inventarioService.reservar(combustivelId, novoAbastecimento.getLitros());
+        } catch (RuntimeException e) {
+            if (!DisjuntorBaseDados.falhaDeLigacao(e)) {
+                throw e;
+            }
+            // O estado do tanque não está em memória: os litros são descontados na reposição.
+            reservado = false;
+        }
+        try {
+            filaOffline.acrescentar(postoId, new RegistoOffline(0, UUID.fromString(novoAbastecimento.getIdOffline()),
+                    novoAbastecimento.getBomba().getId(), combustivelId,
+                    operadorId, novoAbastecimento.getData(), novoAbastecimento.getLitros(),
+                    novoAbastecimento.getValorTotal(), reservado));
+        } catch (RuntimeException e) {
+            if (reservado) {
+                inventarioService.libertar(combustivelId, novoAbastecimento.getLitros());
+            }
+            throw e;
+        }
+        return novoAbastecimento;
+    }
+
+    /**
+     * Repõe na base de dados um abastecimento aceite offline, com a data, os litros e o valor originais.
+     * Se o abastecimento já lá estiver (reposição interrompida depois do commit), nada é feito: a verificação usa o
+     * `idOffline` do registo, e não a data, pois a coluna `data` não guarda os milissegundos.
+     * O abastecimento não passa pela deteção de anomalias: a venda já aconteceu e a deteção de rajadas usa o instante
+     * da análise, pelo que a reposição seguida de vários abastecimentos da mesma bomba seria tomada por uma rajada.
+     * Deve ser chamado com o contexto do posto definido, pela ordem da fila.
+     *
+     * @param registo O abastecimento da fila offline.
+     * @throws BaseDadosIndisponivelException se a base de dados continuar inacessível.
+     * @throws RuntimeException se o abastecimento for recusado (ex: a bomba ou o operador já não existem).
+     */
+    public void repor(RegistoOffline registo) {
+        boolean existente;
+        try {
+            existente = abastecimentoRepository.existsByPostoIdAndIdOffline(ContextoPosto.atual(),
+                    registo.idOffline().toString());
+        } catch (RuntimeException e) {
+            throw BaseDadosIndisponivelException.traduzir(e);
+        }
+        if (existente) {
+            return;
+        }
+
+        Abastecimento abastecimento = new Abastecimento();
+        abastecimento.setBomba(obterBomba(registo.bombaId()));
+        abastecimento.setData(registo.data());
+        abastecimento.setLitros(registo.litros());
+        abastecimento.setValorTotal(registo.valorTotal());
+        abastecimento.setIdOffline(registo.idOffline().toString());
+        persistir(abastecimento, registo.operadorId(), true, null);
+        if (!registo.reservado()) {
+            inventarioService.descontar(registo.combustivelId(), registo.litros());
+        }
+    }
+
+    /**
+     * Atribui o operador e o turno aberto ao abastecimento, persiste-o e regista o evento no diário,
+     * e depois atualiza os totais do turno e submete-o à deteção de anomalias.
+     *
+     * @param novoAbastecimento O abastecimento já calculado (bomba, litros, valor e data).
+     * @param operadorId O ID do operador (opcional).
+     * @param reposicao Se é a reposição de um abastecimento aceite offline: os litros já foram reservados quando
+     * foi aceite e a deteção de anomalias não é feita.
+     * @param precoTerminal O preço por litro mostrado pelo terminal da bomba, ou nulo se não for conhecido.
+     * @return O objeto Abastecimento que foi salvo.
+     * @throws BaseDadosIndisponivelException se a base de dados estiver inacessível e nada tiver sido gravado.
+     * @throws RuntimeException se o operador indicado não existir.
+     */
+    private Abastecimento persistir(Abastecimento novoAbastecimento, Integer operadorId, boolean reposicao,
+                                    BigDecimal precoTerminal) {
+        // O turno atribuído não pode ser fechado antes de o abastecimento ser contabilizado nos seus totais.
+        return turnoService.comTurnoPartilhado(() -> gravar(novoAbastecimento, operadorId, reposicao, precoTerminal));
+    }
+
+    private Abastecimento gravar(Abastecimento novoAbastecimento, Integer operadorId, boolean reposicao,
+                                 BigDecimal precoTerminal) {
+        if (operadorId != null) {
+            Usuario operador;
+            try {
+                operador = usuarioRepository.findById(operadorId)
+                        .orElseThrow(() -> new RuntimeException("Operador não encontrado com o ID: " + operadorId));
+            } catch (RuntimeException e) {
+                throw BaseDadosIndisponivelException.traduzir(e);
+            }
+            novoAbastecimento.setOperador(operador);
+        }
+        novoAbastecimento.setPostoId(ContextoPosto.atual());
+        novoAbastecimento.setTurno(turnoService.turnoAberto());
+
+        // Reserva os litros no tanque antes de gravar; a venda é recusada se o tanque não tiver litros suficientes.
+        int combustivelId = novoAbastecimento.getBomba().getCombustivel().getId();
+        if (!reposicao) {
+            try {
+                inventarioService.reservar(combustivelId, novoAbastecimento.getLitros());
+            } catch (RuntimeException e) {
+                throw BaseDadosIndisponivelException.traduzir(e);
+            }
+        }
+        Abastecimento salvo;
+        try {
+            salvo = executarComEvento(() -> abastecimentoRepository.saveAndFlush(novoAbastecimento),
+                    abastecimento -> EventoAbastecimento.de(EventoAbastecimento.Tipo.REGISTADO, abastecimento),
+                    EventoAbastecimento.Tipo.ANULADO,
+                    (abastecimento, linha) -> linha.isPresent(),
+                    abastecimento -> analiseService.somarAposCommit(abastecimento, 1));
+        } catch (RuntimeException e) {
+            if (!reposicao) {
+                inventarioService.libertar(combustivelId, novoAbastecimento.getLitros());
+            }
+            throw e;
+        }
+        turnoService.contabilizar(salvo);
+        if (!reposicao) {
+            detecaoAnomaliaService.analisar(salvo, precoTerminal);
+        }
+        painelService.invalidar(salvo.getPostoId());
+        return salvo;
+    }
+
+    /**
+     * Anula um abastecimento: regista o evento ANULADO no diário e retira-o da projeção (tabela e totais do turno).
+     * O registo original continua no diário, para auditoria.
      * A lógica de verificação de permissões (se o utilizador é admin) é tratada na camada de Controller,
      * que decide se deve ou não chamar este método.
-     * @param id O ID do abastecimento a ser removido.
+     * @param id O ID do abastecimento a ser anulado.
+     * @throws RuntimeException se o abastecimento não existir no posto do pedido.
      */
     public void remover(int id) {
-        abastecimentoRepository.deleteById(id);
+        turnoService.comTurnoPartilhado(() -> anular(id));
+    }
+
+    private Abastecimento anular(int id) {
+        Abastecimento anulado = executarComEvento(() -> {
+                    Abastecimento abastecimento = obter(id);
+                    abastecimentoRepository.delete(abastecimento);
+                    abastecimentoRepository.flush();
+                    return abastecimento;
+                },
+                abastecimento -> EventoAbastecimento.de(EventoAbastecimento.Tipo.ANULADO, abastecimento),
+                EventoAbastecimento.Tipo.REGISTADO,
+                (abastecimento, linha) -> linha.isEmpty(),
+                abastecimento -> analiseService.somarAposCommit(abastecimento, -1));
+        turnoService.descontar(anulado);
+        inventarioService.libertar(anulado.getBomba().getCombustivel().getId(), anulado.getLitros());
+        painelService.invalidar(anulado.getPostoId());
+        return anulado;
+    }
+
+    /**
+     * Corrige os litros ou o valor de um abastecimento, registando o evento CORRIGIDO no diário.
+     * A grandeza não indicada é recalculada com o preço por litro do registo original (valor / litros),
+     * pois o preço do combustível pode ter mudado desde então.
+     *
+     * @param id O ID do abastecimento a corrigir.
+     * @param litros Os litros corretos (ou nulo, se for indicado o valor).
+     * @param valorTotal O valor correto (ou nulo, se forem indicados os litros).
+     * @return O abastecimento corrigido.
+     * @throws RuntimeException se o abastecimento não existir no posto do pedido.
+     */
+    public Abastecimento corrigir(int id, BigDecimal litros, BigDecimal valorTotal) {
+        return turnoService.comTurnoPartilhado(() -> corrigirNoTurno(id, litros, valorTotal));
+    }
+
+    private Abastecimento corrigirNoTurno(int id, BigDecimal litros, BigDecimal valorTotal) {
+        Abastecimento[] original = new Abastecimento[1];
+        BigDecimal[] reservado = new BigDecimal[1];
+        Abastecimento corrigido;
+        try {
+            corrigido = executarComEvento(() -> {
+                        Abastecimento abastecimento = obter(id);
+                        original[0] = copiar(abastecimento);
+                        if (abastecimento.getLitros().signum() <= 0) {
+                            throw new RuntimeException("Não é possível determinar o preço do abastecimento " + id + ".");
+                        }
+                        BigDecimal precoPorLitro = abastecimento.getValorTotal()
+                                .divide(abastecimento.getLitros(), 6, RoundingMode.HALF_UP);
+                        if (litros != null) {
+                            abastecimento.setLitros(litros.setScale(3, RoundingMode.HALF_UP));
+                            abastecimento.setValorTotal(litros.multiply(precoPorLitro).setScale(2, RoundingMode.HALF_UP));
+                        } else if (valorTotal != null && precoPorLitro.signum() > 0) {
+                            abastecimento.setValorTotal(valorTotal.setScale(2, RoundingMode.HALF_UP));
+                            abastecimento.setLitros(valorTotal.divide(precoPorLitro, 3, RoundingMode.HALF_UP));
+                        } else {
+                            throw new IllegalArgumentException("É necessário fornecer a quantidade de litros ou o valor total.");
+                        }
+                        // Uma correção para mais reserva a diferença no tanque (e pode ser recusada por falta de stock).
+                        BigDecimal diferenca = abastecimento.getLitros().subtract(original[0].getLitros());
+                        if (diferenca.signum() > 0) {
+                            inventarioService.reservar(combustivelId(abastecimento), diferenca);
+                            reservado[0] = diferenca;
+                        }
+                        return abastecimentoRepository.saveAndFlush(abastecimento);
+                    },
+                    abastecimento -> EventoAbastecimento.de(EventoAbastecimento.Tipo.CORRIGIDO, abastecimento),
+                    abastecimento -> EventoAbastecimento.de(EventoAbastecimento.Tipo.CORRIGIDO, original[0]),
+                    (abastecimento, linha) -> linha.isPresent() && linha.get().coincide(abastecimento),
+                    abastecimento -> {
+                        analiseService.somarAposCommit(original[0], -1);
+                        analiseService.somarAposCommit(abastecimento, 1);
+                    });
+        } catch (RuntimeException e) {
+            if (reservado[0] != null) {
+                inventarioService.libertar(combustivelId(original[0]), reservado[0]);
+            }
+            throw e;
+        }
+        BigDecimal devolvidos = original[0].getLitros().subtract(corrigido.getLitros());
+        if (devolvidos.signum() > 0) {
+            inventarioService.libertar(combustivelId(corrigido), devolvidos);
+        }
+        turnoService.descontar(original[0]);
+        turnoService.contabilizar(corrigido);
+        painelService.invalidar(corrigido.getPostoId());
+        return corrigido;
+    }
+
+    private static int combustivelId(Abastecimento abastecimento) {
+        return abastecimento.getBomba().getCombustivel().getId();
+    }
+
+    /**
+     * Lê e bloqueia o abastecimento a anular ou corrigir, dentro da transação de `executarComEvento`.
+     */
+    private Abastecimento obter(int id) {
+        return abastecimentoRepository.bloquearPorIdEPosto(id, ContextoPosto.atual())
+                .orElseThrow(() -> new RuntimeException("Abastecimento não encontrado com o ID: " + id));
+    }
+
+    private static Abastecimento copiar(Abastecimento abastecimento) {
+        return new Abastecimento(abastecimento.getId(), abastecimento.getPostoId(), abastecimento.getBomba(),
+                abastecimento.getData(), abastecimento.getLitros(), abastecimento.getValorTotal(),
+                abastecimento.getIdOffline(), abastecimento.getOperador(), abastecimento.getTurno());
+    }
+
+    private <T extends Abastecimento> T executarComEvento(Supplier<T> alteracao,
+                                                          Function<T, EventoAbastecimento> evento,
+                                                          EventoAbastecimento.Tipo tipoCompensacao,
+                                                          BiPredicate<T, Optional<LinhaGravada>> gravada,
+                                                          Consumer<T> aposCommit) {
+        return executarComEvento(alteracao, evento, abastecimento -> evento.apply(abastecimento).comTipo(tipoCompensacao),
+                gravada, aposCommit);
+    }
+
+    /**
+     * Executa uma alteração à projeção numa transação e acrescenta o evento correspondente ao diário
+     * antes do commit (a alteração deve fazer flush, para que os erros da base de dados surjam antes da escrita
+     * no diário). Uma falha de ligação antes da escrita no diário é lançada como `BaseDadosIndisponivelException`.
+     *
+     * Se a transação falhar depois de o evento ter sido escrito, o resultado do commit é ambíguo: a ligação pode
+     * ter caído depois de o MySQL o ter aceitado. A linha é relida numa nova ligação e, se refletir a alteração
+     * (`gravada`), o commit é tratado como bem-sucedido. Caso contrário (ou se não for possível relê-la)
+     * é acrescentado um evento de compensação, para que a reprodução do diário coincida com o que foi respondido
+     * ao cliente; se a linha não pôde ser relida, a divergência possível é registada no log, e uma reconstrução
+     * do posto a partir do diário repõe a tabela.
+     *
+     * `aposCommit` (ex: a atualização das séries da análise) só é executado depois de um commit confirmado.
+     * Tudo é feito sob o lock partilhado da projeção do posto, para não coincidir com uma reconstrução.
+     */
+    private <T extends Abastecimento> T executarComEvento(Supplier<T> alteracao,
+                                                          Function<T, EventoAbastecimento> evento,
+                                                          Function<T, EventoAbastecimento> compensacao,
+                                                          BiPredicate<T, Optional<LinhaGravada>> gravada,
+                                                          Consumer<T> aposCommit) {
+        int postoId = ContextoPosto.atual();
+        return diarioEventos.comProjecaoPartilhada(postoId, () -> {
+            List<T> escritos = new ArrayList<>(1);
+            T resultado;
+            try {
+                resultado = transactionTemplate.execute(estado -> {
+                    T alterado = alteracao.get();
+                    diarioEventos.acrescentar(evento.apply(alterado));
+                    escritos.add(alterado);
+                    return alterado;
+                });
+            } catch (RuntimeException e) {
+                if (escritos.isEmpty()) {
+                    // Nada chegou ao diário nem, por isso, ao commit: uma falha de ligação é segura para o modo offline.
+                    throw BaseDadosIndisponivelException.traduzir(e);
+                }
+                resultado = escritos.get(0);
+                Boolean confirmada = confirmarGravacao(postoId, resultado, gravada);
+                if (!Boolean.TRUE.equals(confirmada)) {
+                    if (confirmada == null) {
+                        log.warn("Commit do abastecimento {} do posto {} sem confirmação; o diário foi compensado e "
+                                + "a tabela pode divergir até à reconstrução do posto.", resultado.getId(), postoId, e);
+                    }
+                    diarioEventos.acrescentar(compensacao.apply(resultado));
+                    throw e;
+                }
+                log.warn("Commit do abastecimento {} do posto {} confirmado após a falha: {}",
+                        resultado.getId(), postoId, e.toString());
+            }
+            aposCommit.accept(resultado);
+            return resultado;
+        });
+    }
+
+    /**
+     * Relê a linha do abastecimento, numa nova ligação e sem a cache do Hibernate, para saber se um commit
+     * que falhou chegou a ser aplicado.
+     *
+     * @return true ou false conforme a linha reflita a alteração, ou nulo se não foi possível relê-la.
+     */
+    private <T extends Abastecimento> Boolean confirmarGravacao(int postoId, T alterado,
+                                                                BiPredicate<T, Optional<LinhaGravada>> gravada) {
+        try {
+            List<LinhaGravada> linhas = jdbcTemplate.query(
+                    "SELECT litros, valor_total FROM abastecimento WHERE id = ? AND posto_id = ?",
+                    (linha, n) -> new LinhaGravada(linha.getBigDecimal(1), linha.getBigDecimal(2)),
+                    alterado.getId(), postoId);
+            return gravada.test(alterado, linhas.stream().findFirst());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Os litros e o valor de um abastecimento, tal como estão na base de dados.
+     */
+    private record LinhaGravada(BigDecimal litros, BigDecimal valorTotal) {
+
+        boolean coincide(Abastecimento abastecimento) {
+            return litros.compareTo(abastecimento.getLitros()) == 0
+                    && valorTotal.compareTo(abastecimento.getValorTotal()) == 0;
+        }
     }
 }
@@ -0,0 +1,373 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.analise.AnaliseProcura;
+import com.djonatan.abastecimento.analise.SerieHoraria;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.dto.ImpactoPreco;
+import com.djonatan.abastecimento.dto.PrevisaoProcura;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Combustivel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Camada de Serviço para a previsão de procura e a análise do impacto das mudanças de preço, por combustível.
+ *
+ * Séries Horárias:
+ * Por (posto, combustível) é mantida uma `SerieHoraria`: um buffer circular com os litros e a receita de cada hora
+ * das últimas `analise.semanas` semanas, em vetores primitivos. A memória depende apenas do número de combustíveis
+ * (cerca de 32 KB por combustível com 8 semanas), e não do número de abastecimentos.
+ * As séries são atualizadas por cada registo, anulação e correção, depois do commit; as consultas nunca leem
+ * a tabela 'abastecimento'.
+ *
+ * Carregamento:
+ * Na primeira consulta de um posto após o arranque, as séries são preenchidas com uma única consulta agregada por hora
+ * (índice (posto_id, data)). A consulta não bloqueia as vendas: o lock exclusivo da projeção do posto (`DiarioEventos`)
+ * só é tomado para abrir uma transação REPEATABLE READ e fixar o seu snapshot. Como as alterações são confirmadas
+ * com o lock partilhado, o snapshot contém exatamente as confirmadas antes desse instante; as confirmadas depois
+ * ficam em espera e são aplicadas sobre as séries carregadas no fim da consulta. Assim, nenhum abastecimento é
+ * contado duas vezes nem perdido. Antes do carregamento, as atualizações são ignoradas, pois o carregamento já as inclui.
+ *
+ * Cálculo:
+ * As médias móveis, as linhas de base sazonais, as previsões e a elasticidade de cada combustível são calculadas
+ * em paralelo na pool fork-join (`AnaliseProcura`), sobre cópias das séries.
+ */
+@Service
+public class AnaliseService {
+
+    /**
+     * Número de semanas guardadas em cada série.
+     */
+    @Value("${analise.semanas:8}")
+    private int semanas;
+
+    /**
+     * Número de horas completas usadas na média móvel, no ajuste de nível da previsão e na comparação
+     * do volume antes e depois de cada mudança de preço.
+     */
+    @Value("${analise.janela-horas:24}")
+    private int janelaHoras;
+
+    /**
+     * Horizonte máximo de previsão, em horas.
+     */
+    @Value("${analise.horizonte-maximo-horas:168}")
+    private int horizonteMaximo;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private DiarioEventos diarioEventos;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * A série de cada combustível, indexada por (ID do posto, ID do combustível) num único `long`,
+     * pois os IDs dos combustíveis só são únicos dentro do shard de cada posto.
+     */
+    private final ConcurrentHashMap<Long, SerieHoraria> series = new ConcurrentHashMap<>();
+
+    /**
+     * O carregamento de cada posto, em curso ou concluído. Um posto sem entrada ainda não começou a ser carregado.
+     */
+    private final ConcurrentHashMap<Integer, Carga> cargas = new ConcurrentHashMap<>();
+
+    /**
+     * Um monitor por posto, para que só um pedido carregue as séries de cada posto.
+     */
+    private final ConcurrentHashMap<Integer, Object> bloqueios = new ConcurrentHashMap<>();
+
+    /**
+     * Soma (sinal 1) ou retira (sinal -1) um abastecimento da série do seu combustível, depois do commit
+     * da transação em curso (ou de imediato, se não houver transação).
+     * Deve ser chamado dentro da transação que altera o abastecimento, com os dados que foram gravados.
+     *
+     * @param abastecimento O abastecimento (com posto, bomba, data, litros e valor preenchidos).
+     * @param sinal 1 para um registo, -1 para uma anulação (ou para os valores anteriores de uma correção).
+     */
+    public void somarAposCommit(Abastecimento abastecimento, int sinal) {
+        int postoId = abastecimento.getPostoId();
+        int combustivelId = abastecimento.getBomba().getCombustivel().getId();
+        long hora = hora(abastecimento.getData());
+        long litros = sinal * abastecimento.getLitros().movePointRight(3).longValue();
+        long valor = sinal * abastecimento.getValorTotal().movePointRight(2).longValue();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            somar(postoId, combustivelId, hora, litros, valor);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                somar(postoId, combustivelId, hora, litros, valor);
+            }
+        });
+    }
+
+    /**
+     * Descarta as séries de um posto, para que sejam recarregadas na próxima consulta (ex: após uma reconstrução
+     * da tabela a partir do diário). Deve ser chamado com o lock exclusivo da projeção do posto.
+     */
+    public void descartar(int postoId) {
+        Carga carga = cargas.remove(postoId);
+        if (carga == null) {
+            series.keySet().removeIf(chave -> (int) (chave >>> 32) == postoId);
+            return;
+        }
+        synchronized (carga) {
+            series.keySet().removeIf(chave -> (int) (chave >>> 32) == postoId);
+        }
+    }
+
+    /**
+     * Prevê a procura horária dos combustíveis do posto do pedido.
+     *
+     * @param horas O número de horas a prever, a começar na hora atual.
+     * @param combustivelId Se não for nulo, limita a previsão a este combustível.
+     * @return a previsão de cada combustível.
+     */
+    public List<PrevisaoProcura> prever(int horas, Integer combustivelId) {
+        if (horas < 1 || horas > horizonteMaximo) {
+            throw new IllegalArgumentException("O horizonte de previsão deve estar entre 1 e " + horizonteMaximo + " horas.");
+        }
+        List<Combustivel> combustiveis = combustiveis(combustivelId);
+        AnaliseProcura.Resultado[] resultados = analisar(combustiveis, horas);
+
+        List<PrevisaoProcura> previsoes = new ArrayList<>(combustiveis.size());
+        for (int i = 0; i < combustiveis.size(); i++) {
+            AnaliseProcura.Resultado resultado = resultados[i];
+            List<PrevisaoProcura.Hora> porHora = new ArrayList<>(horas);
+            double total = 0;
+            for (int k = 0; k < horas; k++) {
+                double litros = resultado.previsao()[k];
+                porHora.add(new PrevisaoProcura.Hora(data(resultado.horaAtual() + k), arredondar(litros)));
+                total += litros;
+            }
+            previsoes.add(new PrevisaoProcura(combustiveis.get(i).getId(), combustiveis.get(i).getNome(),
+                    arredondar(resultado.mediaMovel()), arredondar(resultado.nivel()), arredondar(total), porHora));
+        }
+        return previsoes;
+    }
+
+    /**
+     * Estima o impacto das mudanças de preço no volume vendido dos combustíveis do posto do pedido.
+     *
+     * @param combustivelId Se não for nulo, limita a análise a este combustível.
+     * @return a elasticidade e as mudanças de preço de cada combustível.
+     */
+    public List<ImpactoPreco> impactoPreco(Integer combustivelId) {
+        List<Combustivel> combustiveis = combustiveis(combustivelId);
+        AnaliseProcura.Resultado[] resultados = analisar(combustiveis, 0);
+
+        List<ImpactoPreco> impactos = new ArrayList<>(combustiveis.size());
+        for (int i = 0; i < combustiveis.size(); i++) {
+            AnaliseProcura.Resultado resultado = resultados[i];
+            List<ImpactoPreco.Mudanca> mudancas = new ArrayList<>(resultado.mudancas().size());
+            for (AnaliseProcura.MudancaPreco mudanca : resultado.mudancas()) {
+                mudancas.add(new ImpactoPreco.Mudanca(data(mudanca.hora()), arredondar(mudanca.precoAnterior()),
+                        arredondar(mudanca.precoNovo()), arredondar(mudanca.variacaoPreco()),
+                        mudanca.variacaoVolume() != null ? arredondar(mudanca.variacaoVolume()) : null));
+            }
+            Combustivel combustivel = combustiveis.get(i);
+            impactos.add(new ImpactoPreco(combustivel.getId(), combustivel.getNome(), combustivel.getPrecoPorLitro(),
+                    resultado.elasticidade() != null ? arredondar(resultado.elasticidade()) : null,
+                    resultado.observacoes(), mudancas));
+        }
+        return impactos;
+    }
+
+    /**
+     * Copia as séries dos combustíveis indicados e analisa-as em paralelo.
+     */
+    private AnaliseProcura.Resultado[] analisar(List<Combustivel> combustiveis, int horizonte) {
+        int postoId = ContextoPosto.atual();
+        garantirCarregado(postoId);
+
+        long horaAtual = hora(LocalDateTime.now());
+        SerieHoraria.Copia[] copias = new SerieHoraria.Copia[combustiveis.size()];
+        for (int i = 0; i < copias.length; i++) {
+            copias[i] = serie(postoId, combustiveis.get(i).getId()).copiar(horaAtual);
+        }
+        AnaliseProcura.Resultado[] resultados = new AnaliseProcura.Resultado[copias.length];
+        ForkJoinPool.commonPool().invoke(new AnaliseProcura(copias, resultados, horizonte, janelaHoras));
+        return resultados;
+    }
+
+    private List<Combustivel> combustiveis(Integer combustivelId) {
+        List<Combustivel> combustiveis = new ArrayList<>();
+        for (Combustivel combustivel : catalogoService.combustiveis()) {
+            if (combustivelId == null || combustivel.getId() == combustivelId) {
+                combustiveis.add(combustivel);
+            }
+        }
+        if (combustivelId != null && combustiveis.isEmpty()) {
+            throw new RuntimeException("Combustível não encontrado com o ID: " + combustivelId);
+        }
+        return combustiveis;
+    }
+
+    private void somar(int postoId, int combustivelId, long hora, long litros, long valor) {
+        Carga carga = cargas.get(postoId);
+        if (carga == null) {
+            return;
+        }
+        if (!carga.concluida) {
+            synchronized (carga) {
+                if (!carga.concluida) {
+                    carga.pendentes.add(new long[]{combustivelId, hora, litros, valor});
+                    return;
+                }
+            }
+        }
+        serie(postoId, combustivelId).somar(hora, litros, valor);
+    }
+
+    private SerieHoraria serie(int postoId, int combustivelId) {
+        long chave = ((long) postoId << 32) | (combustivelId & 0xFFFFFFFFL);
+        return series.computeIfAbsent(chave, c -> new SerieHoraria(semanas * AnaliseProcura.HORAS_SEMANA));
+    }
+
+    /**
+     * Preenche as séries do posto com os totais horários das últimas semanas, uma única vez por posto.
+     */
+    private void garantirCarregado(int postoId) {
+        Carga carga = cargas.get(postoId);
+        if (carga != null && carga.concluida) {
+            return;
+        }
+        synchronized (bloqueios.computeIfAbsent(postoId, id -> new Object())) {
+            carga = cargas.get(postoId);
+            if (carga == null || !carga.concluida) {
+                carregar(postoId);
+            }
+        }
+    }
+
+    private void carregar(int postoId) {
+        Carga carga = new Carga();
+        DefaultTransactionDefinition definicao = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        definicao.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        definicao.setReadOnly(true);
+
+        // Só a abertura do snapshot é feita com o lock exclusivo; a partir daqui, as alterações confirmadas ficam em espera.
+        TransactionStatus transacao = diarioEventos.comProjecaoExclusiva(postoId, () -> {
+            TransactionStatus aberta = transactionManager.getTransaction(definicao);
+            try {
+                jdbcTemplate.query("SELECT 1 FROM abastecimento WHERE posto_id = ? LIMIT 1", linha -> {
+                }, postoId);
+            } catch (RuntimeException e) {
+                transactionManager.rollback(aberta);
+                throw e;
+            }
+            cargas.put(postoId, carga);
+            return aberta;
+        });
+
+        Map<Integer, SerieHoraria> carregadas;
+        try {
+            carregadas = consultar(postoId);
+            transactionManager.commit(transacao);
+        } catch (RuntimeException e) {
+            if (!transacao.isCompleted()) {
+                transactionManager.rollback(transacao);
+            }
+            cargas.remove(postoId, carga);
+            throw e;
+        }
+
+        synchronized (carga) {
+            if (cargas.get(postoId) != carga) {
+                // Descartada por uma reconstrução durante a consulta; a próxima consulta volta a carregar.
+                return;
+            }
+            carregadas.forEach((combustivelId, serie) ->
+                    series.put(((long) postoId << 32) | (combustivelId & 0xFFFFFFFFL), serie));
+            for (long[] pendente : carga.pendentes) {
+                serie(postoId, (int) pendente[0]).somar(pendente[1], pendente[2], pendente[3]);
+            }
+            carga.pendentes.clear();
+            carga.concluida = true;
+        }
+    }
+
+    /**
+     * Lê os totais horários das últimas semanas do posto, em séries novas indexadas pelo ID do combustível.
+     */
+    private Map<Integer, SerieHoraria> consultar(int postoId) {
+        long horaAtual = hora(LocalDateTime.now());
+        long horaInicial = horaAtual - (long) semanas * AnaliseProcura.HORAS_SEMANA + 1;
+        long[] primeiraHora = {horaAtual};
+        Map<Integer, SerieHoraria> carregadas = new HashMap<>();
+
+        jdbcTemplate.query("SELECT b.combustivel_id, DATE_FORMAT(a.data, '%Y-%m-%d %H:00:00') AS hora, "
+                        + "SUM(a.litros) AS litros, SUM(a.valor_total) AS valor "
+                        + "FROM abastecimento a JOIN bomba b ON b.id = a.bomba_id "
+                        + "WHERE a.posto_id = ? AND a.data >= ? "
+                        + "GROUP BY b.combustivel_id, hora",
+                linha -> {
+                    long hora = hora(Timestamp.valueOf(linha.getString("hora")).toLocalDateTime());
+                    SerieHoraria serie = carregadas.computeIfAbsent(linha.getInt("combustivel_id"),
+                            id -> new SerieHoraria(semanas * AnaliseProcura.HORAS_SEMANA));
+                    serie.somar(hora, linha.getBigDecimal("litros").movePointRight(3).longValue(),
+                            linha.getBigDecimal("valor").movePointRight(2).longValue());
+                    primeiraHora[0] = Math.min(primeiraHora[0], hora);
+                },
+                postoId, Timestamp.valueOf(data(horaInicial)));
+
+        // As horas anteriores à primeira venda do posto não contam como horas sem procura.
+        for (SerieHoraria serie : carregadas.values()) {
+            serie.iniciarEm(primeiraHora[0]);
+        }
+        return carregadas;
+    }
+
+    /**
+     * A hora (em horas desde a época) de uma data local. As datas são tratadas como hora local do posto,
+     * tal como no diário de eventos, para que as horas do dia coincidam com as do posto.
+     */
+    private static long hora(LocalDateTime data) {
+        return Math.floorDiv(data.toEpochSecond(ZoneOffset.UTC), 3600L);
+    }
+
+    private static LocalDateTime data(long hora) {
+        return LocalDateTime.ofEpochSecond(hora * 3600, 0, ZoneOffset.UTC);
+    }
+
+    private static double arredondar(double valor) {
+        return Math.round(valor * 1000) / 1000.0;
+    }
+
+    /**
+     * O carregamento das séries de um posto. Enquanto não está concluído, as alterações confirmadas depois
+     * do snapshot ficam em `pendentes` (combustível, hora, litros, valor), protegidas pelo monitor da própria carga.
+     */
+    private static class Carga {
+
+        private final List<long[]> pendentes = new ArrayList<>();
+        private volatile boolean concluida;
+    }
+}
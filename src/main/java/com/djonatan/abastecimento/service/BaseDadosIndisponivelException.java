@@ -0,0 +1,25 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.DisjuntorBaseDados;
+
+/**
+ * Indica que uma operação falhou por não ser possível ligar à base de dados do posto, sem que nada tenha sido gravado.
+ * Permite ao registo de abastecimentos passar com segurança para o modo offline, sem risco de duplicar a venda.
+ */
+public class BaseDadosIndisponivelException extends RuntimeException {
+
+    public BaseDadosIndisponivelException(Throwable causa) {
+        super("Base de dados do posto indisponível.", causa);
+    }
+
+    /**
+     * Converte uma falha de ligação numa `BaseDadosIndisponivelException`; as restantes exceções são devolvidas sem alteração.
+     * Só deve ser usado em pontos onde se sabe que nada foi gravado (antes do commit).
+     */
+    static RuntimeException traduzir(RuntimeException erro) {
+        if (erro instanceof BaseDadosIndisponivelException || !DisjuntorBaseDados.falhaDeLigacao(erro)) {
+            return erro;
+        }
+        return new BaseDadosIndisponivelException(erro);
+    }
+}
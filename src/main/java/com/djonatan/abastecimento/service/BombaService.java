@@ -1,11 +1,13 @@
 package com.djonatan.abastecimento.service;
 
+import com.djonatan.abastecimento.config.ContextoPosto;
 import com.djonatan.abastecimento.model.Bomba;
 import com.djonatan.abastecimento.model.Combustivel;
 import com.djonatan.abastecimento.repository.BombaRepository;
 import com.djonatan.abastecimento.repository.CombustivelRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -27,12 +29,30 @@ public class BombaService {
     @Autowired
     private CombustivelRepository combustivelRepository;
 
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
-     * Retorna uma lista de todas as bombas registadas.
+     * Retorna uma lista de todas as bombas registadas no posto do pedido.
+     * A lista vem do snapshot em memória do catálogo, sem consultar a base de dados.
      * @return a lista de bombas.
      */
     public List<Bomba> listarTodas() {
-        return bombaRepository.findAll();
+        return catalogoService.bombas();
+    }
+
+    /**
+     * Retorna uma bomba ativa do posto do pedido, lida da base de dados (com a versão atual).
+     * @param id O ID da bomba.
+     * @return A bomba encontrada.
+     * @throws RuntimeException se a bomba não existir no posto ou estiver desativada.
+     */
+    public Bomba obter(Integer id) {
+        return bombaRepository.findByIdAndPostoIdAndAtivoTrue(id, ContextoPosto.atual())
+                .orElseThrow(() -> new RuntimeException("Bomba não encontrada com o ID: " + id));
     }
 
     /**
@@ -42,30 +62,69 @@ public class BombaService {
      * Antes de salvar, este método valida se o ID do combustível fornecido corresponde a um
      * combustível real no banco de dados. Isto previne a criação de dados inconsistentes
      * (uma bomba associada a um combustível que não existe).
+     * Tanto a bomba (quando é uma atualização) como o combustível têm de pertencer ao posto do pedido.
+     *
+     * Concorrência:
+     * Numa atualização, a `versao` da bomba tem de ser a que o cliente leu. Se outra alteração tiver
+     * sido gravada entretanto, o Hibernate lança uma `OptimisticLockingFailureException` (HTTP 409).
+     * Sem `versao` (`If-Match: *`), a linha é bloqueada e a alteração é gravada sobre a versão atual.
+     * O combustível é lido com um bloqueio partilhado, na mesma transação da gravação: uma desativação
+     * concorrente do combustível ou espera pelo commit (e desativa também esta bomba), ou já terminou
+     * (e a gravação é recusada), pelo que nunca fica uma bomba ativa associada a um combustível desativado.
+     * Depois de gravar, é publicado um novo snapshot do catálogo do posto.
      *
      * @param bomba O objeto Bomba a ser salvo. O seu atributo 'combustivel' deve conter
      * pelo menos o ID do combustível desejado.
      * @return O objeto Bomba salvo.
-     * @throws RuntimeException se o combustível associado não for encontrado.
+     * @throws RuntimeException se a bomba a atualizar ou o combustível associado não forem encontrados (ou estiverem desativados).
      */
     public Bomba salvar(Bomba bomba) {
-        int combustivelId = bomba.getCombustivel().getId();
+        int postoId = ContextoPosto.atual();
+        if (bomba.getId() != 0 && bombaRepository.findByIdAndPostoIdAndAtivoTrue(bomba.getId(), postoId).isEmpty()) {
+            throw new RuntimeException("Bomba não encontrada com o ID: " + bomba.getId());
+        }
 
-        Combustivel combustivel = combustivelRepository.findById(combustivelId)
-                .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + combustivelId));
+        int combustivelId = bomba.getCombustivel().getId();
 
-        bomba.setCombustivel(combustivel);
+        Bomba salva = transactionTemplate.execute(estado -> {
+            Combustivel combustivel = combustivelRepository.partilharAtivoPorIdEPosto(combustivelId, postoId)
+                    .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + combustivelId));
 
-        return bombaRepository.save(bomba);
+            if (bomba.getId() != 0 && bomba.getVersao() == null) {
+                bomba.setVersao(bombaRepository.bloquearAtivoPorIdEPosto(bomba.getId(), postoId)
+                        .orElseThrow(() -> new RuntimeException("Bomba não encontrada com o ID: " + bomba.getId()))
+                        .getVersao());
+            }
+            bomba.setCombustivel(combustivel);
+            bomba.setPostoId(postoId);
+            bomba.setAtivo(true);
+            return bombaRepository.save(bomba);
+        });
+        catalogoService.recarregar(postoId);
+        return salva;
     }
 
     /**
-     * Remove uma bomba pelo seu ID.
+     * Remove uma bomba pelo seu ID (remoção lógica).
+     *
+     * A bomba é apenas desativada: deixa de aparecer no catálogo e de aceitar abastecimentos, mas os
+     * abastecimentos já registados continuam a referenciá-la. Não há DELETE em cascata sobre a tabela
+     * 'abastecimento' (que bloquearia um grande intervalo de linhas durante o funcionamento do posto);
+     * a remoção física, se desejada, é feita em blocos pela `LimpezaService`, fora do horário de funcionamento.
+     * Se o cliente indicar a versão que leu (If-Match), a desativação só é gravada se a bomba ainda estiver
+     * nessa versão; caso contrário, o Hibernate lança uma `OptimisticLockingFailureException` (HTTP 409).
+     *
      * @param id O ID da bomba a ser removida.
+     * @param versao A versão esperada, ou nulo para desativar a versão atual.
+     * @throws RuntimeException se a bomba não existir no posto ou já estiver desativada.
      */
-    public void remover(Integer id) {
-        // A lógica de verificação de dependências (se a bomba tem abastecimentos)
-        // é tratada na camada de Controller através da captura de exceções.
-        bombaRepository.deleteById(id);
+    public void remover(Integer id, Integer versao) {
+        Bomba bomba = obter(id);
+        if (versao != null) {
+            bomba.setVersao(versao);
+        }
+        bomba.setAtivo(false);
+        bombaRepository.save(bomba);
+        catalogoService.recarregar(ContextoPosto.atual());
     }
 }
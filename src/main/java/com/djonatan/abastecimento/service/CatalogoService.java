@@ -0,0 +1,226 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.repository.BombaRepository;
+import com.djonatan.abastecimento.repository.CombustivelRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Camada de Serviço que mantém, em memória, o catálogo de bombas e combustíveis de cada posto.
+ *
+ * Copy-on-Write:
+ * O catálogo de um posto é um snapshot imutável (listas e mapas só de leitura, com cópias das entidades).
+ * Cada alteração ao catálogo (ex: mudança de preço) constrói um snapshot novo a partir da base de dados
+ * e publica-o com uma única escrita de referência. Assim:
+ * - o registo de abastecimentos lê a bomba e o preço sem consultar a base de dados e sem nunca
+ * esperar por uma escrita no catálogo;
+ * - um registo vê sempre um par bomba/preço consistente, o de antes ou o de depois da alteração.
+ *
+ * O snapshot contém apenas as bombas e os combustíveis ativos: uma bomba ou um combustível desativado
+ * deixa de ser listado e de aceitar abastecimentos a partir da publicação seguinte.
+ *
+ * As entidades do snapshot são cópias desligadas do Hibernate e não devem ser alteradas por quem as lê.
+ * Para apanhar alterações feitas por outras instâncias da aplicação, os catálogos carregados são
+ * refrescados periodicamente (`catalogo.refrescamento-ms`).
+ *
+ * As recargas são serializadas por posto (um lock por posto): a recarga de um posto nunca espera pela de outro,
+ * e vários pedidos que encontrem o catálogo de um posto ainda por carregar esperam por uma única carga.
+ * Os IDs de bombas procurados e inexistentes ficam registados no snapshot, para que pedidos repetidos com
+ * uma bomba desconhecida não consultem a base de dados até à recarga seguinte.
+ */
+@Service
+public class CatalogoService {
+
+    /**
+     * Número máximo de IDs de bombas inexistentes registados por snapshot, para que pedidos com IDs
+     * arbitrários não façam crescer a memória; acima disso, a base de dados volta a ser consultada.
+     */
+    private static final int MAX_AUSENTES = 1024;
+
+    @Autowired
+    private BombaRepository bombaRepository;
+
+    @Autowired
+    private CombustivelRepository combustivelRepository;
+
+    /**
+     * O snapshot atual do catálogo de cada posto (ID do posto -> snapshot).
+     */
+    private final ConcurrentHashMap<Integer, Catalogo> catalogos = new ConcurrentHashMap<>();
+
+    /**
+     * O lock das recargas de cada posto (ID do posto -> lock).
+     */
+    private final ConcurrentHashMap<Integer, Object> bloqueios = new ConcurrentHashMap<>();
+
+    /**
+     * Retorna a bomba do posto do pedido, com o combustível e o preço atuais.
+     *
+     * @param bombaId O ID da bomba.
+     * @return A bomba (cópia só de leitura), ou nulo se não existir no posto ou estiver desativada.
+     */
+    public Bomba bomba(int bombaId) {
+        int postoId = ContextoPosto.atual();
+        Catalogo catalogo = catalogo(postoId);
+        Bomba bomba = catalogo.bombasPorId.get(bombaId);
+        if (bomba == null && !catalogo.ausentes.contains(bombaId)) {
+            if (bombaRepository.findByIdAndPostoIdAndAtivoTrue(bombaId, postoId).isPresent()) {
+                // A bomba foi criada noutra instância depois do último refrescamento.
+                bomba = recarregar(postoId).bombasPorId.get(bombaId);
+            } else if (catalogo.ausentes.size() < MAX_AUSENTES) {
+                catalogo.ausentes.add(bombaId);
+            }
+        }
+        return bomba;
+    }
+
+    /**
+     * Retorna as bombas do posto do pedido.
+     * @return a lista (só de leitura) de bombas.
+     */
+    public List<Bomba> bombas() {
+        return catalogo(ContextoPosto.atual()).bombas;
+    }
+
+    /**
+     * Retorna os combustíveis do posto do pedido.
+     * @return a lista (só de leitura) de combustíveis.
+     */
+    public List<Combustivel> combustiveis() {
+        return catalogo(ContextoPosto.atual()).combustiveis;
+    }
+
+    /**
+     * Retorna o snapshot atual do catálogo do posto do pedido.
+     * Um snapshot diferente do anterior (outra referência) indica que o catálogo foi alterado.
+     * @return o snapshot imutável.
+     */
+    public Catalogo atual() {
+        return catalogo(ContextoPosto.atual());
+    }
+
+    /**
+     * Constrói e publica um novo snapshot do catálogo de um posto.
+     * Deve ser chamado depois de cada alteração a bombas ou combustíveis, com o contexto do posto definido.
+     * As recargas de um posto são serializadas, para que um snapshot mais antigo nunca substitua um mais recente.
+     *
+     * @param postoId O ID do posto.
+     * @return O snapshot publicado.
+     */
+    public Catalogo recarregar(int postoId) {
+        synchronized (bloqueio(postoId)) {
+            return construir(postoId);
+        }
+    }
+
+    private Catalogo construir(int postoId) {
+        List<Combustivel> combustiveis = new ArrayList<>();
+        Map<Integer, Combustivel> combustiveisPorId = new HashMap<>();
+        for (Combustivel combustivel : combustivelRepository.findAllByPostoIdAndAtivoTrue(postoId)) {
+            Combustivel copia = copiar(combustivel);
+            combustiveis.add(copia);
+            combustiveisPorId.put(copia.getId(), copia);
+        }
+
+        List<Bomba> bombas = new ArrayList<>();
+        Map<Integer, Bomba> bombasPorId = new HashMap<>();
+        for (Bomba bomba : bombaRepository.findAllByPostoIdAndAtivoTrue(postoId)) {
+            Bomba copia = new Bomba();
+            copia.setId(bomba.getId());
+            copia.setPostoId(bomba.getPostoId());
+            copia.setNome(bomba.getNome());
+            copia.setAtivo(bomba.isAtivo());
+            copia.setVersao(bomba.getVersao());
+            copia.setCombustivel(combustiveisPorId.getOrDefault(bomba.getCombustivel().getId(),
+                    copiar(bomba.getCombustivel())));
+            bombas.add(copia);
+            bombasPorId.put(copia.getId(), copia);
+        }
+
+        Catalogo catalogo = new Catalogo(List.copyOf(combustiveis), List.copyOf(bombas), Map.copyOf(bombasPorId));
+        catalogos.put(postoId, catalogo);
+        return catalogo;
+    }
+
+    /**
+     * Refresca periodicamente os catálogos já carregados, cada um no contexto do seu posto.
+     */
+    @Scheduled(fixedDelayString = "${catalogo.refrescamento-ms:30000}")
+    public void refrescar() {
+        for (Integer postoId : catalogos.keySet()) {
+            ContextoPosto.definir(postoId);
+            try {
+                recarregar(postoId);
+            } finally {
+                ContextoPosto.limpar();
+            }
+        }
+    }
+
+    private Catalogo catalogo(int postoId) {
+        Catalogo catalogo = catalogos.get(postoId);
+        if (catalogo != null) {
+            return catalogo;
+        }
+        synchronized (bloqueio(postoId)) {
+            // Outro pedido pode ter carregado o catálogo enquanto este esperava pelo lock.
+            catalogo = catalogos.get(postoId);
+            return catalogo != null ? catalogo : construir(postoId);
+        }
+    }
+
+    private Object bloqueio(int postoId) {
+        return bloqueios.computeIfAbsent(postoId, id -> new Object());
+    }
+
+    private static Combustivel copiar(Combustivel combustivel) {
+        Combustivel copia = new Combustivel();
+        copia.setId(combustivel.getId());
+        copia.setPostoId(combustivel.getPostoId());
+        copia.setNome(combustivel.getNome());
+        copia.setPrecoPorLitro(combustivel.getPrecoPorLitro());
+        copia.setAtivo(combustivel.isAtivo());
+        copia.setVersao(combustivel.getVersao());
+        return copia;
+    }
+
+    /**
+     * Snapshot imutável do catálogo de um posto.
+     */
+    public static class Catalogo {
+
+        private final List<Combustivel> combustiveis;
+        private final List<Bomba> bombas;
+        private final Map<Integer, Bomba> bombasPorId;
+
+        /**
+         * IDs de bombas procurados e inexistentes (ou desativados) neste snapshot; descartados com ele na recarga.
+         */
+        private final Set<Integer> ausentes = ConcurrentHashMap.newKeySet();
+
+        Catalogo(List<Combustivel> combustiveis, List<Bomba> bombas, Map<Integer, Bomba> bombasPorId) {
+            this.combustiveis = combustiveis;
+            this.bombas = bombas;
+            this.bombasPorId = bombasPorId;
+        }
+
+        List<Combustivel> combustiveis() {
+            return combustiveis;
+        }
+
+        List<Bomba> bombas() {
+            return bombas;
+        }
+    }
+}
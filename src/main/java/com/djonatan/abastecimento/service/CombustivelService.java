@@ -1,9 +1,13 @@
 package com.djonatan.abastecimento.service;
 
+import com.djonatan.abastecimento.config.ContextoPosto;
 import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.repository.BombaRepository;
 import com.djonatan.abastecimento.repository.CombustivelRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -23,30 +27,94 @@ public class CombustivelService {
     @Autowired
     private CombustivelRepository combustivelRepository;
 
+    @Autowired
+    private BombaRepository bombaRepository;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
-     * Retorna uma lista de todos os combustíveis registados.
+     * Retorna uma lista de todos os combustíveis registados no posto do pedido.
+     * A lista vem do snapshot em memória do catálogo, sem consultar a base de dados.
      * @return a lista de combustíveis.
      */
     public List<Combustivel> listarTodos() {
-        return combustivelRepository.findAll();
+        return catalogoService.combustiveis();
+    }
+
+    /**
+     * Retorna um combustível ativo do posto do pedido, lido da base de dados (com a versão atual).
+     * @param id O ID do combustível.
+     * @return O combustível encontrado.
+     * @throws RuntimeException se o combustível não existir no posto ou estiver desativado.
+     */
+    public Combustivel obter(Integer id) {
+        return combustivelRepository.findByIdAndPostoIdAndAtivoTrue(id, ContextoPosto.atual())
+                .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + id));
     }
 
     /**
      * Salva um novo combustível ou atualiza um existente.
      * O método `save` do JpaRepository é inteligente: se o objeto não tiver ID, ele insere;
      * se tiver ID, ele atualiza o registo correspondente.
+     * Uma atualização só é aceite se o combustível pertencer ao posto do pedido e se a sua `versao`
+     * for a atual; caso contrário, o Hibernate lança uma `OptimisticLockingFailureException` (HTTP 409).
+     * Sem `versao` (`If-Match: *`), a linha é bloqueada e a alteração é gravada sobre a versão atual.
+     * Depois de gravar, o novo preço é publicado atomicamente no snapshot do catálogo do posto.
      * @param combustivel O objeto Combustivel a ser salvo.
      * @return O objeto Combustivel salvo.
+     * @throws RuntimeException se o combustível a atualizar não existir no posto do pedido (ou estiver desativado).
      */
     public Combustivel salvar(Combustivel combustivel) {
-        return combustivelRepository.save(combustivel);
+        int postoId = ContextoPosto.atual();
+        if (combustivel.getId() != 0 && combustivelRepository.findByIdAndPostoIdAndAtivoTrue(combustivel.getId(), postoId).isEmpty()) {
+            throw new RuntimeException("Combustível não encontrado com o ID: " + combustivel.getId());
+        }
+        combustivel.setPostoId(postoId);
+        combustivel.setAtivo(true);
+
+        Combustivel salvo = transactionTemplate.execute(estado -> {
+            if (combustivel.getId() != 0 && combustivel.getVersao() == null) {
+                combustivel.setVersao(combustivelRepository.bloquearAtivoPorIdEPosto(combustivel.getId(), postoId)
+                        .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + combustivel.getId()))
+                        .getVersao());
+            }
+            return combustivelRepository.save(combustivel);
+        });
+        catalogoService.recarregar(postoId);
+        return salvo;
     }
 
     /**
-     * Remove um combustível pelo seu ID.
+     * Remove um combustível pelo seu ID (remoção lógica).
+     *
+     * O combustível e todas as suas bombas são desativados numa única transação, com dois UPDATEs curtos:
+     * nenhuma linha de 'abastecimento' é tocada, pelo que não há falhas de chave estrangeira nem bloqueios
+     * sobre o histórico. A linha do combustível é bloqueada primeiro, para que uma bomba gravada em paralelo
+     * sobre este combustível seja também desativada (ou recusada).
+     *
+     * Se o cliente indicar a versão que leu (If-Match) e o combustível tiver sido alterado entretanto,
+     * nada é desativado e é lançada uma `OptimisticLockingFailureException` (HTTP 409).
+     *
      * @param id O ID do combustível a ser removido.
+     * @param versao A versão esperada, ou nulo para desativar a versão atual.
+     * @throws RuntimeException se o combustível não existir no posto ou já estiver desativado.
      */
-    public void remover(Integer id) {
-        combustivelRepository.deleteById(id);
+    public void remover(Integer id, Integer versao) {
+        int postoId = ContextoPosto.atual();
+        transactionTemplate.executeWithoutResult(estado -> {
+            Combustivel combustivel = combustivelRepository.bloquearAtivoPorIdEPosto(id, postoId)
+                    .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + id));
+            if (versao != null && !versao.equals(combustivel.getVersao())) {
+                throw new ObjectOptimisticLockingFailureException(Combustivel.class, id);
+            }
+            combustivel.setAtivo(false);
+            combustivelRepository.saveAndFlush(combustivel);
+            bombaRepository.desativarPorCombustivel(postoId, id);
+        });
+        catalogoService.recarregar(postoId);
     }
 }
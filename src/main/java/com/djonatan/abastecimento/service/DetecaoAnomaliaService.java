@@ -0,0 +1,219 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.AnomaliaProperties;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.Alerta;
+import com.djonatan.abastecimento.model.Abastecimento;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Camada de Serviço para a deteção, em tempo real, de abastecimentos suspeitos.
+ *
+ * Funcionamento:
+ * Cada abastecimento registado é analisado logo após a persistência, sem consultas à base de dados.
+ * Por bomba (de cada posto) é mantido um estado de tamanho constante com estatísticas exponencialmente amortecidas:
+ * - média e variância dos litros (EWMA), para detetar volumes atípicos;
+ * - taxa de eventos com decaimento exponencial, para detetar rajadas de registos.
+ * Adicionalmente, cada abastecimento é comparado com o limite de litros e, se o terminal da bomba tiver enviado
+ * o preço por litro que mostrou ao cliente, o valor cobrado é comparado com esse preço. O valor cobrado é calculado
+ * com o preço do catálogo central, pelo que uma diferença indica um terminal com um preço desatualizado ou adulterado.
+ *
+ * A análise custa apenas algumas operações aritméticas sob o lock do estado da bomba (da ordem do microssegundo,
+ * bem abaixo do orçamento de 50 µs por evento, medido pelo programa de carga `MedicaoAnomalias`).
+ * Os alertas mais recentes de cada posto são mantidos num buffer circular de tamanho fixo, com o seu próprio lock,
+ * para que os alertas de um posto nunca esperem pelos de outro.
+ */
+@Service
+public class DetecaoAnomaliaService {
+
+    @Autowired
+    private AnomaliaProperties propriedades;
+
+    /**
+     * Estado de cada bomba, indexado por (ID do posto, ID da bomba) num único `long`,
+     * pois os IDs das bombas só são únicos dentro do shard de cada posto.
+     */
+    private final ConcurrentHashMap<Long, EstadoBomba> estados = new ConcurrentHashMap<>();
+
+    /**
+     * Os alertas recentes de cada posto (ID do posto -> buffer circular).
+     */
+    private final ConcurrentHashMap<Integer, AlertasPosto> alertas = new ConcurrentHashMap<>();
+
+    /**
+     * Analisa um abastecimento acabado de registar e gera os alertas correspondentes.
+     *
+     * @param abastecimento O abastecimento persistido (com ID, bomba e combustível preenchidos).
+     * @param precoTerminal O preço por litro mostrado pelo terminal da bomba, ou nulo se o terminal não o enviou
+     * (nesse caso a consistência do preço não é verificada).
+     */
+    public void analisar(Abastecimento abastecimento, BigDecimal precoTerminal) {
+        int bombaId = abastecimento.getBomba().getId();
+        BigDecimal litros = abastecimento.getLitros();
+        BigDecimal valorTotal = abastecimento.getValorTotal();
+
+        BigDecimal litrosMaximos = propriedades.getLitrosMaximos();
+        if (litros.compareTo(litrosMaximos) > 0) {
+            registarAlerta(Alerta.Tipo.LITROS_EXCEDIDOS, abastecimento,
+                    "Abastecimento de " + litros + " L excede o máximo de " + litrosMaximos + " L.");
+        }
+
+        if (precoTerminal != null) {
+            double esperado = litros.doubleValue() * precoTerminal.doubleValue();
+            double cobrado = valorTotal.doubleValue();
+            // Meio centavo de margem absoluta cobre o arredondamento do valor a 2 casas decimais.
+            if (Math.abs(cobrado - esperado) > Math.max(0.005, esperado * propriedades.getToleranciaPreco())) {
+                registarAlerta(Alerta.Tipo.PRECO_INCONSISTENTE, abastecimento, "Valor cobrado " + valorTotal
+                        + " difere do preço mostrado no terminal para " + litros + " L a " + precoTerminal + "/L.");
+            }
+        }
+
+        long chave = ((long) abastecimento.getPostoId() << 32) | (bombaId & 0xFFFFFFFFL);
+        EstadoBomba estado = estados.computeIfAbsent(chave, id -> new EstadoBomba());
+        boolean rajada;
+        boolean atipico;
+        double media;
+        double desvio;
+        synchronized (estado) {
+            rajada = estado.registarEvento(System.nanoTime(), propriedades.getRajadaJanelaSegundos(),
+                    propriedades.getRajadaLimiar());
+            media = estado.media;
+            desvio = Math.sqrt(estado.variancia);
+            atipico = estado.amostras >= propriedades.getAmostrasAquecimento()
+                    && Math.abs(litros.doubleValue() - media) > propriedades.getDesviosLimiar() * desvio;
+            estado.registarAmostra(litros.doubleValue(), propriedades.getPesoAmostra());
+        }
+
+        if (rajada) {
+            registarAlerta(Alerta.Tipo.RAJADA, abastecimento,
+                    "Rajada de abastecimentos na bomba " + bombaId + ".");
+        }
+        if (atipico) {
+            registarAlerta(Alerta.Tipo.VOLUME_ATIPICO, abastecimento, String.format(
+                    "Volume de %s L afastado do padrão da bomba (média %.1f L, desvio %.1f L).", litros, media, desvio));
+        }
+    }
+
+    /**
+     * Gera um alerta para um abastecimento aceite offline que a base de dados recusou na reposição
+     * (ex: bomba desativada entretanto). O abastecimento fica apenas no ficheiro de rejeitados do posto.
+     *
+     * @param postoId O ID do posto.
+     * @param bombaId O ID da bomba do abastecimento.
+     * @param descricao O abastecimento e o motivo da recusa.
+     */
+    public void alertarReposicaoRecusada(int postoId, int bombaId, String descricao) {
+        registarAlerta(Alerta.Tipo.REPOSICAO_RECUSADA, postoId, bombaId, 0, descricao);
+    }
+
+    /**
+     * Retorna os alertas mais recentes do posto do pedido, do mais recente para o mais antigo.
+     *
+     * @param bombaId Se não for nulo, filtra os alertas desta bomba.
+     * @return a lista de alertas em memória.
+     */
+    public List<Alerta> listarAlertas(Integer bombaId) {
+        List<Alerta> resultado = new ArrayList<>();
+        AlertasPosto doPosto = alertas.get(ContextoPosto.atual());
+        if (doPosto == null) {
+            return resultado;
+        }
+        synchronized (doPosto) {
+            Alerta[] buffer = doPosto.buffer;
+            for (long seq = doPosto.proximaSequencia - 1; seq >= 1 && seq >= doPosto.proximaSequencia - buffer.length; seq--) {
+                Alerta alerta = buffer[(int) (seq % buffer.length)];
+                if (bombaId == null || alerta.getBombaId() == bombaId) {
+                    resultado.add(alerta);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private void registarAlerta(Alerta.Tipo tipo, Abastecimento abastecimento, String descricao) {
+        registarAlerta(tipo, abastecimento.getPostoId(), abastecimento.getBomba().getId(), abastecimento.getId(), descricao);
+    }
+
+    private void registarAlerta(Alerta.Tipo tipo, int postoId, int bombaId, int abastecimentoId, String descricao) {
+        AlertasPosto doPosto = alertas.computeIfAbsent(postoId,
+                id -> new AlertasPosto(Math.max(1, propriedades.getMaxAlertas())));
+        Alerta alerta = new Alerta(0, tipo, postoId, bombaId, abastecimentoId, LocalDateTime.now(), descricao);
+        synchronized (doPosto) {
+            long sequencia = doPosto.proximaSequencia++;
+            alerta.setSequencia(sequencia);
+            doPosto.buffer[(int) (sequencia % doPosto.buffer.length)] = alerta;
+        }
+    }
+
+    /**
+     * Buffer circular dos alertas de um posto, com a sua própria sequência. Acedido sempre sob o lock da própria instância.
+     */
+    private static class AlertasPosto {
+
+        private final Alerta[] buffer;
+        private long proximaSequencia = 1;
+
+        AlertasPosto(int tamanho) {
+            this.buffer = new Alerta[tamanho];
+        }
+    }
+
+    /**
+     * Estatísticas de uma bomba, de tamanho constante. Acedido sempre sob o lock da própria instância.
+     */
+    private static class EstadoBomba {
+
+        private double media;
+        private double variancia;
+        private long amostras;
+
+        private double taxaEventos;
+        private long ultimoEventoNanos;
+        private boolean emRajada;
+
+        /**
+         * Atualiza a média e a variância exponencialmente amortecidas com uma nova amostra.
+         */
+        void registarAmostra(double valor, double peso) {
+            if (amostras == 0) {
+                media = valor;
+            } else {
+                double diferenca = valor - media;
+                double incremento = peso * diferenca;
+                media += incremento;
+                variancia = (1 - peso) * (variancia + diferenca * incremento);
+            }
+            amostras++;
+        }
+
+        /**
+         * Atualiza a taxa de eventos amortecida e indica se começou uma nova rajada.
+         * O alerta é emitido apenas na entrada da rajada; a rajada termina quando a taxa desce
+         * abaixo de metade do limiar.
+         */
+        boolean registarEvento(long agoraNanos, double janelaSegundos, double limiar) {
+            if (ultimoEventoNanos != 0) {
+                double decorrido = (agoraNanos - ultimoEventoNanos) / 1e9;
+                taxaEventos *= Math.exp(-decorrido / janelaSegundos);
+            }
+            taxaEventos += 1;
+            ultimoEventoNanos = agoraNanos;
+
+            if (!emRajada && taxaEventos > limiar) {
+                emRajada = true;
+                return true;
+            }
+            if (emRajada && taxaEventos < limiar / 2) {
+                emRajada = false;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.DiarioProperties;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
+import com.djonatan.abastecimento.diario.Projecao;
+import com.djonatan.abastecimento.dto.EstadoDiario;
+import com.djonatan.abastecimento.dto.ResultadoReconstrucao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Camada de Serviço para a administração do diário de eventos e das projeções derivadas dele.
+ *
+ * Reconstrução:
+ * A tabela 'abastecimento' e os totais de turno ('total_turno') de um posto são reconstruídos
+ * a partir do diário: o instantâneo mais recente é carregado e os eventos seguintes são reproduzidos
+ * para uma `Projecao` em vetores primitivos (leitura sequencial, sem objetos por evento). Os abastecimentos ativos
+ * são ordenados por ID e a tabela é substituída por intervalos de IDs, em blocos de `diario.tamanho-lote` linhas:
+ * cada bloco apaga as linhas atuais do posto nesse intervalo e reinsere as da projeção (JDBC batch, com os IDs
+ * e os `id_offline` originais) numa transação própria e curta. Com o perfil 'producao' (rewriteBatchedStatements), dezenas de milhões
+ * de eventos são reconstruídos em minutos; o tempo é dominado pelos INSERTs.
+ *
+ * Cada transação só apaga e bloqueia o seu intervalo (índice (posto_id, id)), pelo que o undo log se mantém
+ * pequeno e as leituras do posto nunca deixam de ver uma linha: dentro de cada intervalo, veem as linhas anteriores
+ * ou as reconstruídas. Os totais de turno são regravados no fim, numa transação própria (são poucas linhas).
+ * Uma interrupção (erro ou queda do processo) deixa os primeiros intervalos reconstruídos e os restantes como estavam;
+ * basta repetir a reconstrução, que é idempotente.
+ *
+ * Durante a reconstrução, as escritas de abastecimentos do posto ficam em espera (lock exclusivo da projeção).
+ * Os abastecimentos apagados pela limpeza (`LimpezaService`) não são reinseridos: os de bombas já apagadas
+ * e os anteriores à data de limpeza da bomba (`bomba.limpeza_ate`). Continuam no diário e nos totais de turno.
+ */
+@Service
+public class DiarioService {
+
+    @Autowired
+    private DiarioEventos diarioEventos;
+
+    @Autowired
+    private DiarioProperties propriedades;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TurnoService turnoService;
+
+    @Autowired
+    private AnaliseService analiseService;
+
+    /**
+     * Retorna o estado do diário do posto do pedido.
+     */
+    public EstadoDiario estado() {
+        int postoId = ContextoPosto.atual();
+        return new EstadoDiario(postoId, diarioEventos.ultimaSequencia(postoId),
+                diarioEventos.sequenciaInstantaneo(postoId), diarioEventos.numeroSegmentos(postoId));
+    }
+
+    /**
+     * Retorna uma página de eventos do posto do pedido, a partir de uma sequência (auditoria).
+     *
+     * @param desde A primeira sequência da página.
+     * @param limite O número máximo de eventos.
+     * @return os eventos, por ordem de sequência.
+     */
+    public List<EventoAbastecimento> listarEventos(long desde, int limite) {
+        return diarioEventos.listar(ContextoPosto.atual(), desde, Math.min(limite, 10_000));
+    }
+
+    /**
+     * Reconstrói a tabela 'abastecimento' e os totais de turno do posto do pedido a partir do diário.
+     *
+     * @return O resultado, com o número de eventos reproduzidos e de abastecimentos reinseridos.
+     */
+    public ResultadoReconstrucao reconstruir() {
+        int postoId = ContextoPosto.atual();
+        // O lock do turno é obtido antes do lock da projeção (a mesma ordem das alterações de abastecimentos),
+        // para que os acumuladores do turno aberto sejam trocados sem alterações em curso.
+        return turnoService.comTurnoExclusivo(() -> diarioEventos.comProjecaoExclusiva(postoId, () -> {
+            long inicio = System.nanoTime();
+            Projecao projecao = diarioEventos.carregarProjecao(postoId);
+
+            substituirAbastecimentos(postoId, projecao);
+            transactionTemplate.executeWithoutResult(estado -> regravarTotaisTurno(postoId, projecao));
+            turnoService.recarregarTurnoAberto();
+            analiseService.descartar(postoId);
+
+            return new ResultadoReconstrucao(postoId, projecao.sequencia(), projecao.eventosAplicados(),
+                    projecao.ativas(), (System.nanoTime() - inicio) / 1_000_000);
+        }));
+    }
+
+    /**
+     * Importa para o diário, como eventos REGISTADO, os abastecimentos já existentes na tabela do posto do pedido.
+     * Usado uma única vez, ao atualizar uma instalação anterior ao diário.
+     *
+     * @return O resultado, com o número de eventos escritos.
+     * @throws RuntimeException se o diário do posto já tiver eventos.
+     */
+    public ResultadoReconstrucao importar() {
+        int postoId = ContextoPosto.atual();
+        return diarioEventos.comProjecaoExclusiva(postoId, () -> {
+            if (diarioEventos.ultimaSequencia(postoId) > 0) {
+                throw new RuntimeException("O diário do posto " + postoId + " já contém eventos.");
+            }
+            long inicio = System.nanoTime();
+            long escritos = 0;
+            int ultimoId = 0;
+            while (true) {
+                List<EventoAbastecimento> lote = jdbcTemplate.query(
+                        "SELECT a.id, a.bomba_id, b.combustivel_id, a.operador_id, a.turno_id, a.data, a.litros, a.valor_total, " +
+                                "a.id_offline " +
+                                "FROM abastecimento a JOIN bomba b ON b.id = a.bomba_id " +
+                                "WHERE a.posto_id = ? AND a.id > ? ORDER BY a.id LIMIT ?",
+                        (linha, n) -> {
+                            EventoAbastecimento evento = new EventoAbastecimento();
+                            evento.setTipo(EventoAbastecimento.Tipo.REGISTADO);
+                            evento.setPostoId(postoId);
+                            evento.setAbastecimentoId(linha.getInt(1));
+                            evento.setBombaId(linha.getInt(2));
+                            evento.setCombustivelId(linha.getInt(3));
+                            evento.setOperadorId(linha.getInt(4));
+                            evento.setTurnoId(linha.getInt(5));
+                            evento.setDataMillis(linha.getTimestamp(6).toLocalDateTime()
+                                    .toInstant(ZoneOffset.UTC).toEpochMilli());
+                            evento.setLitrosMilesimos(linha.getBigDecimal(7).movePointRight(3).longValueExact());
+                            evento.setValorCentavos(linha.getBigDecimal(8).movePointRight(2).longValueExact());
+                            String idOffline = linha.getString(9);
+                            evento.setIdOffline(idOffline == null ? null : UUID.fromString(idOffline));
+                            return evento;
+                        },
+                        postoId, ultimoId, propriedades.getTamanhoLote());
+                if (lote.isEmpty()) {
+                    break;
+                }
+                for (EventoAbastecimento evento : lote) {
+                    diarioEventos.acrescentar(evento, false);
+                }
+                escritos += lote.size();
+                ultimoId = lote.get(lote.size() - 1).getAbastecimentoId();
+            }
+            diarioEventos.sincronizar(postoId);
+            return new ResultadoReconstrucao(postoId, diarioEventos.ultimaSequencia(postoId), escritos, escritos,
+                    (System.nanoTime() - inicio) / 1_000_000);
+        });
+    }
+
+    /**
+     * Grava imediatamente um instantâneo do diário do posto do pedido.
+     *
+     * @return A sequência do instantâneo.
+     */
+    public long gravarInstantaneo() {
+        int postoId = ContextoPosto.atual();
+        return diarioEventos.gravarInstantaneo(postoId, diarioEventos.carregarProjecao(postoId));
+    }
+
+    /**
+     * Grava periodicamente um instantâneo dos postos com muitos eventos desde o último instantâneo.
+     * Não acede à base de dados: lê apenas o instantâneo anterior e os segmentos do diário.
+     */
+    @Scheduled(fixedDelayString = "${diario.instantaneo-intervalo-ms:600000}")
+    public void gravarInstantaneos() {
+        for (int postoId : diarioEventos.postos()) {
+            long novos = diarioEventos.ultimaSequencia(postoId) - diarioEventos.sequenciaInstantaneo(postoId);
+            if (novos >= propriedades.getEventosEntreInstantaneos()) {
+                diarioEventos.gravarInstantaneo(postoId, diarioEventos.carregarProjecao(postoId));
+            }
+        }
+    }
+
+    /**
+     * Substitui as linhas do posto na tabela 'abastecimento' pelas da projeção, por intervalos de IDs,
+     * cada um na sua transação. O último intervalo não tem limite superior, para apagar também as linhas
+     * com IDs acima do último abastecimento ativo.
+     */
+    private void substituirAbastecimentos(int postoId, Projecao projecao) {
+        String sql = "INSERT INTO abastecimento (id, posto_id, bomba_id, data, litros, valor_total, operador_id, turno_id, " +
+                "id_offline) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int[] tipos = {Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.TIMESTAMP, Types.DECIMAL, Types.DECIMAL,
+                Types.INTEGER, Types.INTEGER, Types.CHAR};
+        // Bomba -> data (em milissegundos UTC, como no diário) até à qual os abastecimentos foram apagados pela limpeza.
+        Map<Integer, Long> bombas = new HashMap<>();
+        jdbcTemplate.query("SELECT id, limpeza_ate FROM bomba WHERE posto_id = ?", linha -> {
+            Timestamp limpezaAte = linha.getTimestamp(2);
+            bombas.put(linha.getInt(1), limpezaAte == null ? Long.MIN_VALUE
+                    : limpezaAte.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }, postoId);
+        long[] ordem = ativosPorId(projecao);
+        int tamanhoBloco = propriedades.getTamanhoLote();
+
+        long desdeId = Long.MIN_VALUE;
+        int inicio = 0;
+        do {
+            int fim = Math.min(inicio + tamanhoBloco, ordem.length);
+            long ateId = fim == ordem.length ? Long.MAX_VALUE : ordem[fim - 1] >>> 32;
+            List<Object[]> lote = new ArrayList<>(fim - inicio);
+            for (int k = inicio; k < fim; k++) {
+                int i = (int) ordem[k];
+                Long limpezaAte = bombas.get(projecao.bombaId(i));
+                if (limpezaAte != null && projecao.dataMillis(i) >= limpezaAte) {
+                    lote.add(linha(postoId, projecao, i));
+                }
+            }
+            long de = desdeId;
+            transactionTemplate.executeWithoutResult(estado -> {
+                jdbcTemplate.update("DELETE FROM abastecimento WHERE posto_id = ? AND id > ? AND id <= ?",
+                        postoId, de, ateId);
+                if (!lote.isEmpty()) {
+                    jdbcTemplate.batchUpdate(sql, lote, tipos);
+                }
+            });
+            desdeId = ateId;
+            inicio = fim;
+        } while (inicio < ordem.length);
+    }
+
+    /**
+     * Retorna as posições dos abastecimentos ativos da projeção, ordenadas por ID, cada uma num `long`
+     * com o ID nos 32 bits altos e a posição nos 32 bits baixos.
+     * A ordem de registo no diário não é a ordem dos IDs (registos concorrentes, reposições offline).
+     */
+    private static long[] ativosPorId(Projecao projecao) {
+        long[] ordem = new long[projecao.ativas()];
+        int n = 0;
+        for (int i = 0; i < projecao.tamanho(); i++) {
+            if (projecao.ativo(i)) {
+                ordem[n++] = ((long) projecao.id(i) << 32) | i;
+            }
+        }
+        ordem = n == ordem.length ? ordem : Arrays.copyOf(ordem, n);
+        Arrays.sort(ordem);
+        return ordem;
+    }
+
+    private static Object[] linha(int postoId, Projecao projecao, int i) {
+        return new Object[]{
+                projecao.id(i), postoId, projecao.bombaId(i),
+                Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(projecao.dataMillis(i)), ZoneOffset.UTC)),
+                BigDecimal.valueOf(projecao.litrosMilesimos(i), 3),
+                BigDecimal.valueOf(projecao.valorCentavos(i), 2),
+                projecao.operadorId(i) == 0 ? null : projecao.operadorId(i),
+                projecao.turnoId(i) == 0 ? null : projecao.turnoId(i),
+                projecao.idOffline(i) == null ? null : projecao.idOffline(i).toString()};
+    }
+
+    /**
+     * Recalcula os totais por combustível e por operador de todos os turnos do posto a partir da projeção.
+     */
+    private void regravarTotaisTurno(int postoId, Projecao projecao) {
+        Map<Long, long[]> porCombustivel = new HashMap<>();
+        Map<Long, long[]> porOperador = new HashMap<>();
+        for (int i = 0; i < projecao.tamanho(); i++) {
+            if (!projecao.ativo(i) || projecao.turnoId(i) == 0) {
+                continue;
+            }
+            somar(porCombustivel, projecao.turnoId(i), projecao.combustivelId(i), projecao, i);
+            somar(porOperador, projecao.turnoId(i), projecao.operadorId(i), projecao, i);
+        }
+
+        jdbcTemplate.update("DELETE t FROM total_turno t JOIN turno u ON u.id = t.turno_id WHERE u.posto_id = ?", postoId);
+        List<Object[]> linhas = new ArrayList<>();
+        adicionarTotais(linhas, porCombustivel, "COMBUSTIVEL");
+        adicionarTotais(linhas, porOperador, "OPERADOR");
+        jdbcTemplate.batchUpdate("INSERT INTO total_turno (turno_id, tipo, referencia_id, litros, valor_total) " +
+                "VALUES (?, ?, ?, ?, ?)", linhas);
+    }
+
+    private static void somar(Map<Long, long[]> totais, int turnoId, int referenciaId, Projecao projecao, int posicao) {
+        long[] total = totais.computeIfAbsent(((long) turnoId << 32) | (referenciaId & 0xFFFFFFFFL), chave -> new long[2]);
+        total[0] += projecao.litrosMilesimos(posicao);
+        total[1] += projecao.valorCentavos(posicao);
+    }
+
+    private static void adicionarTotais(List<Object[]> linhas, Map<Long, long[]> totais, String tipo) {
+        totais.forEach((chave, total) -> linhas.add(new Object[]{
+                (int) (chave >>> 32), tipo, (int) (long) chave,
+                BigDecimal.valueOf(total[0], 3), BigDecimal.valueOf(total[1], 2)}));
+    }
+}
@@ -0,0 +1,346 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.TanqueRequest;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.model.Entrega;
+import com.djonatan.abastecimento.model.Tanque;
+import com.djonatan.abastecimento.repository.CombustivelRepository;
+import com.djonatan.abastecimento.repository.EntregaRepository;
+import com.djonatan.abastecimento.repository.TanqueRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Camada de Serviço para o inventário de combustível (nível dos tanques).
+ *
+ * Reservas sem locks:
+ * O nível de cada tanque é mantido em memória num `AtomicLong`, em milésimos de litro. Cada abastecimento
+ * reserva os seus litros com um ciclo de compare-and-set: lê o nível, recusa a venda se não houver litros
+ * suficientes e tenta gravar o nível menos os litros; se outra thread alterou o nível entretanto, repete.
+ * Centenas de abastecimentos concorrentes no mesmo tanque nunca esperam por um lock nem por uma linha
+ * bloqueada na base de dados, e o nível nunca fica negativo.
+ *
+ * Reconciliação assíncrona:
+ * Cada variação é também somada a um contador de variações pendentes. Periodicamente
+ * (`inventario.reconciliacao-ms`), as variações pendentes são aplicadas à tabela 'tanque' com um UPDATE
+ * relativo por tanque. Se a gravação falhar, a variação volta a ficar pendente para o ciclo seguinte.
+ * Uma paragem abrupta da aplicação pode perder, no máximo, as variações de um intervalo; o nível
+ * pode ser acertado a qualquer momento com uma medição física do tanque.
+ *
+ * Combustíveis sem tanque configurado não são controlados (as vendas são sempre aceites). A ausência de tanque
+ * fica em cache durante `inventario.sem-tanque-validade-ms`, para que um tanque criado noutra instância passe a
+ * ser controlado sem reiniciar a aplicação.
+ *
+ * Uma instância por posto:
+ * O nível em memória só é válido se todas as vendas de um posto passarem pela mesma instância. Duas instâncias
+ * a servir o mesmo posto reservariam cada uma sobre a sua cópia do nível e poderiam vender mais litros do que o
+ * tanque tem. Com várias instâncias, o balanceador deve encaminhar cada posto (cabeçalho `X-Posto-Id`) sempre
+ * para a mesma instância.
+ */
+@Service
+public class InventarioService {
+
+    @Autowired
+    private TanqueRepository tanqueRepository;
+
+    @Autowired
+    private EntregaRepository entregaRepository;
+
+    @Autowired
+    private CombustivelRepository combustivelRepository;
+
+    /**
+     * Durante quanto tempo (ms) a ausência de tanque de um combustível fica em cache.
+     */
+    @Value("${inventario.sem-tanque-validade-ms:60000}")
+    private long validadeSemTanqueMs;
+
+    /**
+     * O estado de cada tanque carregado, indexado por (ID do posto, ID do combustível) num único `long`.
+     */
+    private final ConcurrentHashMap<Long, EstadoTanque> estados = new ConcurrentHashMap<>();
+
+    /**
+     * Reserva litros no tanque do combustível, para um abastecimento no posto do pedido.
+     *
+     * @param combustivelId O ID do combustível vendido.
+     * @param litros Os litros a reservar.
+     * @throws StockInsuficienteException se o tanque não tiver litros suficientes.
+     */
+    public void reservar(int combustivelId, BigDecimal litros) {
+        EstadoTanque estado = estado(ContextoPosto.atual(), combustivelId);
+        if (estado.semTanque()) {
+            return;
+        }
+        long quantidade = milesimos(litros);
+        while (true) {
+            long atual = estado.nivel.get();
+            if (atual < quantidade) {
+                throw new StockInsuficienteException(combustivelId, BigDecimal.valueOf(atual, 3));
+            }
+            if (estado.nivel.compareAndSet(atual, atual - quantidade)) {
+                break;
+            }
+        }
+        estado.pendente.addAndGet(-quantidade);
+    }
+
+    /**
+     * Desconta litros do tanque sem verificar o stock, para vendas que já aconteceram e não podem ser recusadas
+     * (ex: abastecimentos aceites offline sem o estado do tanque em memória, descontados ao serem repostos).
+     * O nível pode ficar negativo até ao próximo acerto por medição.
+     *
+     * @param combustivelId O ID do combustível.
+     * @param litros Os litros vendidos.
+     */
+    public void descontar(int combustivelId, BigDecimal litros) {
+        libertar(combustivelId, litros.negate());
+    }
+
+    /**
+     * Devolve litros ao tanque do combustível (registo falhado, anulação ou correção para menos).
+     *
+     * @param combustivelId O ID do combustível.
+     * @param litros Os litros a devolver.
+     */
+    public void libertar(int combustivelId, BigDecimal litros) {
+        EstadoTanque estado = estado(ContextoPosto.atual(), combustivelId);
+        if (estado.semTanque()) {
+            return;
+        }
+        long quantidade = milesimos(litros);
+        estado.nivel.addAndGet(quantidade);
+        estado.pendente.addAndGet(quantidade);
+    }
+
+    /**
+     * Lista os tanques do posto do pedido, com o nível atual em memória.
+     *
+     * @return a lista de tanques.
+     */
+    public List<Tanque> listar() {
+        int postoId = ContextoPosto.atual();
+        List<Tanque> tanques = tanqueRepository.findAllByPostoId(postoId);
+        for (Tanque tanque : tanques) {
+            EstadoTanque estado = estado(postoId, tanque.getCombustivel().getId());
+            if (!estado.semTanque()) {
+                tanque.setNivel(BigDecimal.valueOf(estado.nivel.get(), 3));
+            }
+        }
+        return tanques;
+    }
+
+    /**
+     * Cria o tanque de um combustível do posto do pedido.
+     *
+     * @param combustivelId O ID do combustível.
+     * @param request A capacidade e o nível inicial (0 se não for indicado).
+     * @return O tanque criado.
+     * @throws RuntimeException se o combustível não existir ou se o nível exceder a capacidade.
+     */
+    public Tanque criar(int combustivelId, TanqueRequest request) {
+        int postoId = ContextoPosto.atual();
+        Combustivel combustivel = combustivelRepository.findByIdAndPostoIdAndAtivoTrue(combustivelId, postoId)
+                .orElseThrow(() -> new RuntimeException("Combustível não encontrado com o ID: " + combustivelId));
+        BigDecimal nivel = request.getNivel() == null ? BigDecimal.ZERO : request.getNivel();
+        if (request.getCapacidade() == null || nivel.signum() < 0 || nivel.compareTo(request.getCapacidade()) > 0) {
+            throw new IllegalArgumentException("É necessário indicar a capacidade e um nível entre 0 e a capacidade.");
+        }
+
+        Tanque tanque = new Tanque();
+        tanque.setPostoId(postoId);
+        tanque.setCombustivel(combustivel);
+        tanque.setCapacidade(request.getCapacidade().setScale(3, RoundingMode.HALF_UP));
+        tanque.setNivel(nivel.setScale(3, RoundingMode.HALF_UP));
+        tanque.setDataAtualizacao(LocalDateTime.now());
+        Tanque salvo = tanqueRepository.save(tanque);
+
+        estados.put(chave(postoId, combustivelId), new EstadoTanque(salvo.getId(), postoId,
+                milesimos(salvo.getCapacidade()), milesimos(salvo.getNivel())));
+        return salvo;
+    }
+
+    /**
+     * Acerta o nível do tanque para o valor medido fisicamente (régua ou sonda).
+     * O acerto é aplicado como uma variação relativa, para não perder vendas concorrentes.
+     *
+     * @param combustivelId O ID do combustível.
+     * @param nivelMedido O nível medido, em litros.
+     * @return O tanque com o novo nível.
+     */
+    public Tanque acertar(int combustivelId, BigDecimal nivelMedido) {
+        EstadoTanque estado = estadoObrigatorio(combustivelId);
+        if (nivelMedido == null || nivelMedido.signum() < 0) {
+            throw new IllegalArgumentException("É necessário indicar o nível medido.");
+        }
+        long novo = milesimos(nivelMedido);
+        long anterior = estado.nivel.getAndSet(novo);
+        estado.pendente.addAndGet(novo - anterior);
+        reconciliar(estado);
+        return tanqueComNivel(estado);
+    }
+
+    /**
+     * Regista uma entrega (reabastecimento) do tanque do combustível.
+     *
+     * @param combustivelId O ID do combustível.
+     * @param litros Os litros entregues.
+     * @return A entrega registada.
+     * @throws RuntimeException se o combustível não tiver tanque ou se a entrega exceder a capacidade livre.
+     */
+    public Entrega registarEntrega(int combustivelId, BigDecimal litros) {
+        EstadoTanque estado = estadoObrigatorio(combustivelId);
+        if (litros == null || litros.signum() <= 0) {
+            throw new IllegalArgumentException("É necessário indicar os litros entregues.");
+        }
+        long quantidade = milesimos(litros);
+        while (true) {
+            long atual = estado.nivel.get();
+            if (atual + quantidade > estado.capacidade) {
+                throw new RuntimeException("A entrega excede a capacidade livre do tanque: cabem "
+                        + BigDecimal.valueOf(estado.capacidade - atual, 3) + " L.");
+            }
+            if (estado.nivel.compareAndSet(atual, atual + quantidade)) {
+                break;
+            }
+        }
+
+        Entrega entrega = new Entrega();
+        entrega.setPostoId(estado.postoId);
+        entrega.setTanque(tanqueRepository.getReferenceById(estado.tanqueId));
+        entrega.setLitros(litros.setScale(3, RoundingMode.HALF_UP));
+        entrega.setData(LocalDateTime.now());
+        try {
+            entrega = entregaRepository.save(entrega);
+        } catch (RuntimeException e) {
+            estado.nivel.addAndGet(-quantidade);
+            throw e;
+        }
+        estado.pendente.addAndGet(quantidade);
+        return entrega;
+    }
+
+    /**
+     * Lista as entregas do tanque do combustível, da mais recente para a mais antiga.
+     */
+    public List<Entrega> listarEntregas(int combustivelId) {
+        return entregaRepository.findAllByTanqueIdOrderByIdDesc(estadoObrigatorio(combustivelId).tanqueId);
+    }
+
+    /**
+     * Aplica à base de dados as variações pendentes de todos os tanques, cada um no contexto do seu posto.
+     */
+    @Scheduled(fixedDelayString = "${inventario.reconciliacao-ms:1000}")
+    @PreDestroy
+    public void reconciliar() {
+        for (EstadoTanque estado : estados.values()) {
+            if (!estado.semTanque()) {
+                ContextoPosto.definir(estado.postoId);
+                try {
+                    reconciliar(estado);
+                } finally {
+                    ContextoPosto.limpar();
+                }
+            }
+        }
+    }
+
+    private void reconciliar(EstadoTanque estado) {
+        long delta = estado.pendente.getAndSet(0);
+        if (delta == 0) {
+            return;
+        }
+        try {
+            tanqueRepository.somarAoNivel(estado.tanqueId, BigDecimal.valueOf(delta, 3), LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // Fica pendente para o próximo ciclo.
+            estado.pendente.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Devolve o estado em memória do tanque, carregando-o da base de dados na primeira utilização.
+     * A consulta é feita fora do mapa, para não bloquear outros tanques; se duas threads carregarem o mesmo
+     * tanque ao mesmo tempo, fica o estado publicado primeiro e as reservas de ambas aplicam-se sobre ele.
+     */
+    private EstadoTanque estado(int postoId, int combustivelId) {
+        long chave = chave(postoId, combustivelId);
+        EstadoTanque atual = estados.get(chave);
+        if (atual != null && !(atual.semTanque() && System.currentTimeMillis() >= atual.expiraEm)) {
+            return atual;
+        }
+        EstadoTanque carregado = tanqueRepository.findByPostoIdAndCombustivelId(postoId, combustivelId)
+                .map(tanque -> new EstadoTanque(tanque.getId(), postoId,
+                        milesimos(tanque.getCapacidade()), milesimos(tanque.getNivel())))
+                .orElseGet(() -> EstadoTanque.semTanque(postoId, System.currentTimeMillis() + validadeSemTanqueMs));
+        return estados.compute(chave, (k, existente) -> existente == null || existente == atual ? carregado : existente);
+    }
+
+    private EstadoTanque estadoObrigatorio(int combustivelId) {
+        EstadoTanque estado = estado(ContextoPosto.atual(), combustivelId);
+        if (estado.semTanque()) {
+            throw new RuntimeException("O combustível " + combustivelId + " não tem tanque configurado.");
+        }
+        return estado;
+    }
+
+    private Tanque tanqueComNivel(EstadoTanque estado) {
+        Tanque tanque = tanqueRepository.findById(estado.tanqueId)
+                .orElseThrow(() -> new RuntimeException("Tanque não encontrado com o ID: " + estado.tanqueId));
+        tanque.setNivel(BigDecimal.valueOf(estado.nivel.get(), 3));
+        return tanque;
+    }
+
+    private static long chave(int postoId, int combustivelId) {
+        return ((long) postoId << 32) | (combustivelId & 0xFFFFFFFFL);
+    }
+
+    private static long milesimos(BigDecimal litros) {
+        return litros.setScale(3, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * O estado em memória de um tanque: o nível disponível e as variações ainda não gravadas (em milésimos de litro).
+     * Um combustível sem tanque é representado por um estado com `tanqueId` 0, válido até `expiraEm`.
+     */
+    private static class EstadoTanque {
+
+        private final int tanqueId;
+        private final int postoId;
+        private final long capacidade;
+        private final AtomicLong nivel;
+        private final AtomicLong pendente = new AtomicLong();
+        private final long expiraEm;
+
+        EstadoTanque(int tanqueId, int postoId, long capacidade, long nivel) {
+            this(tanqueId, postoId, capacidade, nivel, Long.MAX_VALUE);
+        }
+
+        private EstadoTanque(int tanqueId, int postoId, long capacidade, long nivel, long expiraEm) {
+            this.tanqueId = tanqueId;
+            this.postoId = postoId;
+            this.capacidade = capacidade;
+            this.nivel = new AtomicLong(nivel);
+            this.expiraEm = expiraEm;
+        }
+
+        static EstadoTanque semTanque(int postoId, long expiraEm) {
+            return new EstadoTanque(0, postoId, 0, 0, expiraEm);
+        }
+
+        boolean semTanque() {
+            return tanqueId == 0;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.LimpezaProperties;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Camada de Serviço para a remoção física, em segundo plano, das bombas desativadas e dos seus abastecimentos antigos.
+ *
+ * Remover uma bomba ou um combustível é apenas uma desativação (ver `BombaService.remover`). Esta limpeza,
+ * desligada por omissão (`limpeza.ativa`), apaga mais tarde o que já não é necessário, sem bloqueios longos:
+ * - só corre dentro da janela configurada (ex: 02:00-05:00), fora do horário de funcionamento do posto;
+ * - os abastecimentos são apagados em blocos (`DELETE ... LIMIT`), cada um numa transação curta em autocommit,
+ * com uma pausa entre blocos, e a limpeza para assim que a janela termina (é retomada na noite seguinte);
+ * - cada bloco é executado com o lock partilhado da projeção do posto, tal como um registo normal,
+ * para nunca se cruzar com uma reconstrução do diário;
+ * - uma bomba desativada só é apagada quando já não tem abastecimentos (todos mais antigos que a retenção).
+ *
+ * Os abastecimentos apagados continuam no diário de eventos, para auditoria; a reconstrução da projeção
+ * ignora os abastecimentos cuja bomba já não existe e os anteriores à data de limpeza da bomba (`limpeza_ate`). Os combustíveis desativados não são apagados
+ * (são poucas linhas e continuam referenciados por tanques, entregas e totais de turno).
+ */
+@Service
+public class LimpezaService {
+
+    private static final Logger log = LoggerFactory.getLogger(LimpezaService.class);
+
+    @Autowired
+    private LimpezaProperties propriedades;
+
+    @Autowired
+    private RoteadorShard roteadorShard;
+
+    @Autowired
+    private DiarioEventos diarioEventos;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Executa a limpeza em todos os shards, se estiver ativa e dentro da janela.
+     */
+    @Scheduled(fixedDelayString = "${limpeza.intervalo-ms:300000}")
+    public void limpar() {
+        if (!propriedades.isAtiva() || !dentroDaJanela()) {
+            return;
+        }
+        LocalDateTime limite = LocalDateTime.now().minusDays(propriedades.getRetencaoDias());
+        for (String shard : roteadorShard.nomesShards()) {
+            List<int[]> bombas;
+            ContextoPosto.forcarShard(shard);
+            try {
+                bombas = jdbcTemplate.query("SELECT id, posto_id FROM bomba WHERE ativo = 0",
+                        (linha, numero) -> new int[]{linha.getInt("id"), linha.getInt("posto_id")});
+            } catch (RuntimeException e) {
+                // Shard inacessível: é tentado de novo na execução seguinte.
+                log.warn("Limpeza do shard {} adiada: não foi possível ler as bombas inativas: {}", shard, e.toString());
+                continue;
+            } finally {
+                ContextoPosto.limpar();
+            }
+            for (int[] bomba : bombas) {
+                if (!limparBomba(bomba[0], bomba[1], limite)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Apaga, em blocos, os abastecimentos da bomba anteriores ao limite e, se não restar nenhum, a própria bomba.
+     *
+     * O limite é gravado em `bomba.limpeza_ate` antes do primeiro bloco: a reconstrução do diário não reinsere
+     * os abastecimentos anteriores a essa data, mesmo que a limpeza tenha sido interrompida a meio
+     * (esses abastecimentos seriam apagados na execução seguinte).
+     *
+     * @return falso se a janela terminou ou a execução foi interrompida, e a limpeza deve parar.
+     */
+    private boolean limparBomba(int bombaId, int postoId, LocalDateTime limite) {
+        ContextoPosto.definir(postoId);
+        try {
+            Timestamp ate = Timestamp.valueOf(limite);
+            diarioEventos.comProjecaoPartilhada(postoId, () -> jdbcTemplate.update(
+                    "UPDATE bomba SET limpeza_ate = ? WHERE id = ? AND (limpeza_ate IS NULL OR limpeza_ate < ?)",
+                    ate, bombaId, ate));
+            int apagados;
+            do {
+                if (!dentroDaJanela()) {
+                    return false;
+                }
+                apagados = diarioEventos.comProjecaoPartilhada(postoId, () -> jdbcTemplate.update(
+                        "DELETE FROM abastecimento WHERE bomba_id = ? AND data < ? LIMIT " + propriedades.getTamanhoBloco(),
+                        bombaId, ate));
+                if (apagados > 0 && !pausar()) {
+                    return false;
+                }
+            } while (apagados == propriedades.getTamanhoBloco());
+
+            diarioEventos.comProjecaoPartilhada(postoId, () -> jdbcTemplate.update(
+                    "DELETE FROM bomba WHERE id = ? AND ativo = 0 " +
+                            "AND NOT EXISTS (SELECT 1 FROM abastecimento a WHERE a.bomba_id = ?)", bombaId, bombaId));
+            return true;
+        } catch (RuntimeException e) {
+            // Falha de ligação ou bloqueio: esta bomba é retomada na execução seguinte.
+            log.warn("Limpeza da bomba {} do posto {} interrompida; é retomada na execução seguinte.",
+                    bombaId, postoId, e);
+            return true;
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+
+    private boolean pausar() {
+        try {
+            Thread.sleep(propriedades.getPausaMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean dentroDaJanela() {
+        LocalTime agora = LocalTime.now();
+        LocalTime inicio = LocalTime.parse(propriedades.getJanelaInicio());
+        LocalTime fim = LocalTime.parse(propriedades.getJanelaFim());
+        if (inicio.isBefore(fim)) {
+            return !agora.isBefore(inicio) && agora.isBefore(fim);
+        }
+        // Janela que atravessa a meia-noite (ex: 23:00-05:00).
+        return !agora.isBefore(inicio) || agora.isBefore(fim);
+    }
+}
@@ -0,0 +1,132 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.DisjuntorBaseDados;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.dto.EstadoSaude;
+import com.djonatan.abastecimento.offline.FilaOffline;
+import com.djonatan.abastecimento.offline.RegistoOffline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Camada de Serviço que recupera do modo offline: sonda os shards com o disjuntor aberto e repõe as filas offline.
+ *
+ * Funcionamento (a cada `offline.sonda-ms`):
+ * - cada shard com o disjuntor aberto é sondado com um `SELECT 1`; se responder, o disjuntor fecha e os registos
+ * voltam a ir diretamente para a base de dados;
+ * - as filas offline dos postos cujo shard está disponível são repostas, registo a registo e pela ordem da fila,
+ * pelo mesmo caminho de um registo normal (`AbastecimentoService.repor`: diário, turno, anomalias, análises).
+ * Se a base de dados voltar a falhar a meio, a reposição para e é retomada na sonda seguinte, a partir do mesmo registo.
+ *
+ * Com o `connectTimeout` do driver a 250 ms e a sonda a 200 ms, a passagem para offline (`offline.falhas-limiar`
+ * falhas seguidas) e o regresso ao modo normal ficam na ordem do segundo.
+ */
+@Service
+public class ModoOfflineService {
+
+    private static final Logger log = LoggerFactory.getLogger(ModoOfflineService.class);
+
+    @Autowired
+    private DisjuntorBaseDados disjuntor;
+
+    @Autowired
+    private RoteadorShard roteadorShard;
+
+    @Autowired
+    private FilaOffline filaOffline;
+
+    @Autowired
+    private AbastecimentoService abastecimentoService;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private DetecaoAnomaliaService detecaoAnomaliaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Sonda os shards inacessíveis e repõe as filas dos postos cujo shard está disponível.
+     */
+    @Scheduled(fixedDelayString = "${offline.sonda-ms:200}")
+    public void sondar() {
+        for (String shard : disjuntor.abertos().keySet()) {
+            ContextoPosto.forcarShard(shard);
+            try {
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                disjuntor.fechar(shard);
+            } catch (RuntimeException e) {
+                // Continua inacessível; o disjuntor fica aberto até à próxima sonda.
+            } finally {
+                ContextoPosto.limpar();
+            }
+        }
+        for (Integer postoId : filaOffline.pendentes().keySet()) {
+            if (disjuntor.disponivel(roteadorShard.shardDoPosto(postoId))) {
+                repor(postoId);
+            }
+        }
+    }
+
+    /**
+     * Retorna o estado de saúde da aplicação: o disjuntor de cada shard e os abastecimentos por repor e rejeitados.
+     */
+    public EstadoSaude estado() {
+        Map<String, DisjuntorBaseDados.Estado> shards = new LinkedHashMap<>();
+        for (String shard : roteadorShard.nomesShards()) {
+            shards.put(shard, disjuntor.estado(shard));
+        }
+        Map<String, LocalDateTime> abertos = disjuntor.abertos();
+        Map<Integer, Long> pendentes = filaOffline.pendentes();
+        Map<Integer, Long> rejeitados = filaOffline.rejeitados();
+        String estado = abertos.isEmpty() && pendentes.isEmpty() && rejeitados.isEmpty()
+                ? EstadoSaude.DISPONIVEL : EstadoSaude.DEGRADADO;
+        return new EstadoSaude(estado, shards, abertos, pendentes, rejeitados);
+    }
+
+    /**
+     * Repõe a fila offline de um posto, pela ordem em que os abastecimentos foram aceites.
+     * Os registos recusados pela base de dados são rejeitados (e os litros reservados devolvidos ao tanque),
+     * para não bloquearem os seguintes; cada rejeição é registada no log e gera um alerta do posto.
+     */
+    private void repor(int postoId) {
+        ContextoPosto.definir(postoId);
+        try {
+            RegistoOffline registo;
+            while ((registo = filaOffline.proximo(postoId)) != null) {
+                try {
+                    abastecimentoService.repor(registo);
+                } catch (RuntimeException e) {
+                    if (e instanceof BaseDadosIndisponivelException || DisjuntorBaseDados.falhaDeLigacao(e)) {
+                        disjuntor.falha(roteadorShard.shardDoPosto(postoId));
+                        return;
+                    }
+                    if (registo.reservado()) {
+                        inventarioService.libertar(registo.combustivelId(), registo.litros());
+                    }
+                    filaOffline.rejeitar(postoId, registo);
+                    log.error("Abastecimento offline {} do posto {} recusado na reposição e movido para os rejeitados: {}",
+                            registo.idOffline(), postoId, e.toString());
+                    detecaoAnomaliaService.alertarReposicaoRecusada(postoId, registo.bombaId(), "Abastecimento offline "
+                            + registo.idOffline() + " de " + registo.litros() + " L (" + registo.valorTotal() + ") em "
+                            + registo.data() + " recusado na reposição: " + e.getMessage());
+                    continue;
+                }
+                filaOffline.confirmar(postoId);
+            }
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+}
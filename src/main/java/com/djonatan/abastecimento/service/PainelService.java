@@ -0,0 +1,230 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.Painel;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.repository.AbastecimentoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Camada de Serviço que mantém, em memória, o painel do gerente de cada posto.
+ *
+ * Snapshots Materializados:
+ * A parte do painel que vem da base de dados (últimos abastecimentos e totais do dia) é lida de uma só vez
+ * para um snapshot imutável por posto, publicado com uma única escrita de referência. O catálogo (combustíveis
+ * e bombas) vem do snapshot do `CatalogoService`, também em memória. Assim, um pedido ao painel nunca espera
+ * pela base de dados, nem falha por ela estar inacessível. O primeiro pedido de cada posto após o arranque
+ * recebe o painel sem abastecimentos nem totais, marcado como desatualizado, e agenda a construção do snapshot.
+ *
+ * Stale-While-Revalidate:
+ * O snapshot é refrescado em segundo plano (no `TaskScheduler` das tarefas agendadas):
+ * - após cada registo, anulação ou correção (`invalidar`), agrupando as escritas de um intervalo
+ * de `painel.intervalo-minimo-ms` num único refrescamento;
+ * - a cada `painel.refrescamento-ms`, para apanhar alterações feitas por outras instâncias;
+ * - quando um pedido encontra um snapshot com mais de `painel.validade-ms`, ou de um dia anterior.
+ * Em todos os casos o pedido recebe de imediato o snapshot atual. Se o refrescamento falhar (ex: base de dados
+ * inacessível), a falha é registada no log com o posto e o snapshot anterior continua a ser servido, com o
+ * `atualizadoEm` original, a sua idade (`idadeMs`) e o momento da falha (`falhaRefrescamentoEm`).
+ */
+@Service
+public class PainelService {
+
+    private static final Logger log = LoggerFactory.getLogger(PainelService.class);
+
+    /**
+     * Número de abastecimentos recentes mostrados no painel.
+     */
+    @Value("${painel.ultimos:20}")
+    private int ultimos;
+
+    /**
+     * Idade máxima, em milissegundos, de um snapshot antes de um pedido desencadear o seu refrescamento.
+     */
+    @Value("${painel.validade-ms:10000}")
+    private long validadeMs;
+
+    /**
+     * Intervalo mínimo, em milissegundos, entre dois refrescamentos do mesmo posto desencadeados por escritas.
+     */
+    @Value("${painel.intervalo-minimo-ms:500}")
+    private long intervaloMinimoMs;
+
+    @Autowired
+    private AbastecimentoRepository abastecimentoRepository;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    /**
+     * O estado do painel de cada posto (ID do posto -> estado).
+     */
+    private final ConcurrentHashMap<Integer, EstadoPainel> estados = new ConcurrentHashMap<>();
+
+    /**
+     * Retorna o painel do posto do pedido, a partir do snapshot em memória.
+     *
+     * @return o painel, com o catálogo atual e os últimos abastecimentos e totais do snapshot.
+     */
+    public Painel obter() {
+        int postoId = ContextoPosto.atual();
+        EstadoPainel estado = estados.computeIfAbsent(postoId, id -> new EstadoPainel());
+        Snapshot snapshot = estado.snapshot;
+        CatalogoService.Catalogo catalogo = catalogoService.atual();
+        if (snapshot == null) {
+            // Primeiro pedido do posto: o snapshot é construído em segundo plano e, entretanto,
+            // o painel é servido só com o catálogo.
+            agendar(postoId, estado, 0);
+            return new Painel(postoId, null, 0, estado.falhaEm, true, catalogo.combustiveis(), catalogo.bombas(),
+                    List.of(), List.of(), 0, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        boolean desatualizado = snapshot.geradoEm.isBefore(LocalDateTime.now().minus(validadeMs, ChronoUnit.MILLIS))
+                || !snapshot.dia.equals(LocalDate.now());
+        if (desatualizado) {
+            agendar(postoId, estado, 0);
+        }
+
+        long idadeMs = Math.max(0, Duration.between(snapshot.geradoEm, LocalDateTime.now()).toMillis());
+        return new Painel(postoId, snapshot.geradoEm, idadeMs, estado.falhaEm, desatualizado,
+                catalogo.combustiveis(), catalogo.bombas(), snapshot.ultimosAbastecimentos, snapshot.totaisHoje,
+                snapshot.abastecimentosHoje, snapshot.litrosHoje, snapshot.valorHoje);
+    }
+
+    /**
+     * Indica que os abastecimentos de um posto mudaram. O snapshot é refrescado em segundo plano,
+     * no máximo uma vez por `painel.intervalo-minimo-ms`. Não faz nada se o painel do posto nunca foi pedido.
+     *
+     * @param postoId O ID do posto.
+     */
+    public void invalidar(int postoId) {
+        EstadoPainel estado = estados.get(postoId);
+        if (estado != null) {
+            agendar(postoId, estado, intervaloMinimoMs);
+        }
+    }
+
+    /**
+     * Refresca periodicamente os painéis já pedidos, para apanhar alterações feitas por outras instâncias.
+     */
+    @Scheduled(fixedDelayString = "${painel.refrescamento-ms:30000}")
+    public void refrescarTodos() {
+        estados.forEach((postoId, estado) -> agendar(postoId, estado, 0));
+    }
+
+    /**
+     * Agenda um refrescamento do posto, se ainda não houver um agendado. Um refrescamento desencadeado por escritas
+     * espera até passar `espacamentoMs` desde o anterior, para agrupar as escritas desse intervalo.
+     */
+    private void agendar(int postoId, EstadoPainel estado, long espacamentoMs) {
+        if (!estado.agendado.compareAndSet(false, true)) {
+            return;
+        }
+        long espera = Math.max(0, estado.ultimoRefrescamentoMs + espacamentoMs - System.currentTimeMillis());
+        taskScheduler.schedule(() -> {
+            // Limpo antes da leitura: as escritas feitas durante a leitura agendam um novo refrescamento.
+            estado.agendado.set(false);
+            ContextoPosto.definir(postoId);
+            try {
+                refrescar(postoId, estado);
+            } catch (RuntimeException e) {
+                // Mantém o snapshot anterior; o próximo pedido ou ciclo volta a tentar.
+                estado.falhaEm = LocalDateTime.now();
+                Snapshot anterior = estado.snapshot;
+                log.warn("Falha ao refrescar o painel do posto {} (snapshot de {}): {}", postoId,
+                        anterior != null ? anterior.geradoEm : "-", e.toString());
+            } finally {
+                ContextoPosto.limpar();
+            }
+        }, Instant.now().plusMillis(espera));
+    }
+
+    /**
+     * Lê os últimos abastecimentos e os totais do dia do posto e publica um novo snapshot.
+     * Deve ser chamado com o contexto do posto definido.
+     */
+    private void refrescar(int postoId, EstadoPainel estado) {
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDate dia = agora.toLocalDate();
+        List<Abastecimento> recentes = abastecimentoRepository.findByPostoIdOrderByIdDesc(postoId, PageRequest.of(0, ultimos));
+
+        List<Painel.TotalDia> totais = new ArrayList<>();
+        long abastecimentos = 0;
+        BigDecimal litros = BigDecimal.ZERO;
+        BigDecimal valor = BigDecimal.ZERO;
+        for (Object[] linha : abastecimentoRepository.somarPorCombustivelDesde(postoId, dia.atStartOfDay())) {
+            Painel.TotalDia total = new Painel.TotalDia((Integer) linha[0], (Long) linha[1],
+                    (BigDecimal) linha[2], (BigDecimal) linha[3]);
+            totais.add(total);
+            abastecimentos += total.getAbastecimentos();
+            litros = litros.add(total.getLitros());
+            valor = valor.add(total.getValorTotal());
+        }
+
+        Snapshot snapshot = new Snapshot(agora, dia, List.copyOf(recentes), List.copyOf(totais),
+                abastecimentos, litros, valor);
+        synchronized (estado) {
+            // Um refrescamento mais antigo que termine depois de um mais recente não o substitui.
+            if (estado.snapshot == null || !estado.snapshot.geradoEm.isAfter(agora)) {
+                estado.snapshot = snapshot;
+            }
+            estado.ultimoRefrescamentoMs = System.currentTimeMillis();
+            estado.falhaEm = null;
+        }
+    }
+
+    /**
+     * O estado do painel de um posto: o snapshot publicado e o controlo dos refrescamentos.
+     */
+    private static class EstadoPainel {
+
+        private volatile Snapshot snapshot;
+        private volatile long ultimoRefrescamentoMs;
+        private volatile LocalDateTime falhaEm;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+    }
+
+    /**
+     * Snapshot imutável da parte do painel lida da base de dados.
+     */
+    private static class Snapshot {
+
+        private final LocalDateTime geradoEm;
+        private final LocalDate dia;
+        private final List<Abastecimento> ultimosAbastecimentos;
+        private final List<Painel.TotalDia> totaisHoje;
+        private final long abastecimentosHoje;
+        private final BigDecimal litrosHoje;
+        private final BigDecimal valorHoje;
+
+        Snapshot(LocalDateTime geradoEm, LocalDate dia, List<Abastecimento> ultimosAbastecimentos,
+                 List<Painel.TotalDia> totaisHoje, long abastecimentosHoje, BigDecimal litrosHoje, BigDecimal valorHoje) {
+            this.geradoEm = geradoEm;
+            this.dia = dia;
+            this.ultimosAbastecimentos = ultimosAbastecimentos;
+            this.totaisHoje = totaisHoje;
+            this.abastecimentosHoje = abastecimentosHoje;
+            this.litrosHoje = litrosHoje;
+            this.valorHoje = valorHoje;
+        }
+    }
+}
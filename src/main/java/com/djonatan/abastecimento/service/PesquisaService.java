@@ -0,0 +1,280 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.PaginaPesquisa;
+import com.djonatan.abastecimento.dto.ResultadoPesquisa;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.model.Usuario;
+import com.djonatan.abastecimento.pesquisa.IndicePesquisa;
+import com.djonatan.abastecimento.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Camada de Serviço para a pesquisa, no servidor, de bombas e combustíveis (por nome) e de utilizadores (por username).
+ *
+ * Índices:
+ * - Bombas e combustíveis: um `IndicePesquisa` por posto, construído a partir do snapshot do `CatalogoService`.
+ * Como cada gravação ou remoção no catálogo publica um snapshot novo, o índice é reconstruído sempre que
+ * o snapshot mudar, ficando sincronizado sem qualquer invalidação explícita.
+ * - Utilizadores: um índice por posto, apenas com os utilizadores do posto (o shard é partilhado por vários postos).
+ * Quando é registado um utilizador, o índice é reconstruído e publicado de imediato (é pequeno), para que
+ * o novo utilizador possa ser pesquisado logo a seguir ao registo. Quando tem mais de `pesquisa.usuarios-validade-ms`,
+ * é reconstruído em segundo plano (no `TaskScheduler` das tarefas agendadas); entretanto, as pesquisas usam o anterior.
+ * Cada invalidação incrementa a geração do índice do posto, e uma reconstrução só é publicada se não houver
+ * já um índice de uma geração mais recente: uma reconstrução lenta, iniciada antes de um registo,
+ * nunca substitui o índice que já inclui esse registo, nem impede que seja pedida uma nova.
+ *
+ * Uma pesquisa não acede à base de dados (exceto a primeira pesquisa de utilizadores de cada posto, que constrói
+ * o índice inicial): consulta apenas índices imutáveis em memória.
+ */
+@Service
+public class PesquisaService {
+
+    private static final Logger log = LoggerFactory.getLogger(PesquisaService.class);
+
+    private static final int TAMANHO_MAXIMO = 100;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${pesquisa.usuarios-validade-ms:60000}")
+    private long validadeUsuariosMs;
+
+    /**
+     * Os índices do catálogo de cada posto, com o snapshot a partir do qual foram construídos.
+     */
+    private final ConcurrentHashMap<Integer, IndicesCatalogo> indicesCatalogo = new ConcurrentHashMap<>();
+
+    /**
+     * O índice de utilizadores de cada posto (ID do posto -> estado).
+     */
+    private final ConcurrentHashMap<Integer, EstadoUsuarios> indicesUsuarios = new ConcurrentHashMap<>();
+
+    /**
+     * Pesquisa bombas, combustíveis e/ou utilizadores do posto do pedido.
+     *
+     * @param consulta O texto a pesquisar (palavras inteiras, prefixos ou partes de palavras).
+     * @param tipo Se não for nulo, restringe a pesquisa a um tipo de documento.
+     * @param pagina O número da página (a começar em 0).
+     * @param tamanho O tamanho da página (máximo 100).
+     * @return a página de resultados, ordenados por relevância.
+     */
+    public PaginaPesquisa pesquisar(String consulta, ResultadoPesquisa.Tipo tipo, int pagina, int tamanho) {
+        int tamanhoPagina = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO));
+        int numeroPagina = Math.max(0, pagina);
+
+        List<Encontrado> encontrados = new ArrayList<>();
+        if (tipo == null || tipo == ResultadoPesquisa.Tipo.BOMBA) {
+            adicionar(encontrados, ResultadoPesquisa.Tipo.BOMBA, indicesCatalogo().bombas, consulta);
+        }
+        if (tipo == null || tipo == ResultadoPesquisa.Tipo.COMBUSTIVEL) {
+            adicionar(encontrados, ResultadoPesquisa.Tipo.COMBUSTIVEL, indicesCatalogo().combustiveis, consulta);
+        }
+        if (tipo == null || tipo == ResultadoPesquisa.Tipo.USUARIO) {
+            adicionar(encontrados, ResultadoPesquisa.Tipo.USUARIO, indiceUsuarios(), consulta);
+        }
+        if (tipo == null) {
+            // Cada índice já devolve os seus acertos nesta ordem; só a junção de vários tipos precisa de ser ordenada.
+            encontrados.sort(Comparator.comparing(Encontrado::acerto, IndicePesquisa.ORDEM));
+        }
+
+        int inicio = (int) Math.min((long) numeroPagina * tamanhoPagina, encontrados.size());
+        int fim = Math.min(inicio + tamanhoPagina, encontrados.size());
+        List<ResultadoPesquisa> resultados = new ArrayList<>(fim - inicio);
+        for (Encontrado encontrado : encontrados.subList(inicio, fim)) {
+            IndicePesquisa.Acerto acerto = encontrado.acerto();
+            resultados.add(new ResultadoPesquisa(encontrado.tipo(), acerto.id(), acerto.nome(), acerto.detalhe(),
+                    acerto.pontuacao()));
+        }
+        return new PaginaPesquisa(consulta, numeroPagina, tamanhoPagina, encontrados.size(), resultados);
+    }
+
+    /**
+     * Indica que os utilizadores do posto do pedido mudaram: o índice passa a uma nova geração, que é construída
+     * e publicada antes de o método terminar. Chamado depois de cada registo de utilizador.
+     * Se a reconstrução falhar, o registo não é afetado: o índice anterior continua a ser usado e a reconstrução
+     * é repetida em segundo plano.
+     */
+    public void invalidarUsuarios() {
+        int postoId = ContextoPosto.atual();
+        EstadoUsuarios estado = indicesUsuarios.get(postoId);
+        if (estado != null) {
+            estado.geracao.incrementAndGet();
+            try {
+                construir(postoId, estado);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao reconstruir o índice de utilizadores do posto {}", postoId, e);
+                agendar(postoId, estado);
+            }
+        }
+    }
+
+    private static void adicionar(List<Encontrado> encontrados, ResultadoPesquisa.Tipo tipo,
+                                  IndicePesquisa indice, String consulta) {
+        for (IndicePesquisa.Acerto acerto : indice.pesquisar(consulta)) {
+            encontrados.add(new Encontrado(tipo, acerto));
+        }
+    }
+
+    private IndicesCatalogo indicesCatalogo() {
+        int postoId = ContextoPosto.atual();
+        CatalogoService.Catalogo catalogo = catalogoService.atual();
+        IndicesCatalogo indices = indicesCatalogo.get(postoId);
+        if (indices == null || indices.origem != catalogo) {
+            indices = new IndicesCatalogo(catalogo);
+            indicesCatalogo.put(postoId, indices);
+        }
+        return indices;
+    }
+
+    private IndicePesquisa indiceUsuarios() {
+        int postoId = ContextoPosto.atual();
+        EstadoUsuarios estado = indicesUsuarios.computeIfAbsent(postoId, id -> new EstadoUsuarios());
+        IndiceUsuarios indice = estado.indice;
+        if (indice == null) {
+            // Primeira pesquisa do posto: não há nada para servir, pelo que o índice é construído já.
+            return construir(postoId, estado).indice;
+        }
+        if (indice.geracao != estado.geracao.get() || System.currentTimeMillis() - indice.criadoEm > validadeUsuariosMs) {
+            agendar(postoId, estado);
+        }
+        return indice.indice;
+    }
+
+    /**
+     * Agenda a reconstrução do índice de utilizadores do posto, se ainda não houver uma agendada.
+     */
+    private void agendar(int postoId, EstadoUsuarios estado) {
+        if (!estado.agendado.compareAndSet(false, true)) {
+            return;
+        }
+        taskScheduler.schedule(() -> {
+            // Limpo antes da leitura: uma invalidação feita durante a leitura agenda uma nova reconstrução.
+            estado.agendado.set(false);
+            ContextoPosto.definir(postoId);
+            try {
+                construir(postoId, estado);
+            } catch (RuntimeException e) {
+                // Mantém o índice anterior; a próxima pesquisa volta a agendar a reconstrução.
+                log.warn("Falha ao reconstruir o índice de utilizadores do posto {}", postoId, e);
+            } finally {
+                ContextoPosto.limpar();
+            }
+        }, Instant.now());
+    }
+
+    /**
+     * Lê os utilizadores do posto e publica o novo índice, a menos que já exista um de uma geração mais recente.
+     * Deve ser chamado com o contexto do posto definido.
+     *
+     * @return o índice publicado (o construído, ou o mais recente que já estava publicado).
+     */
+    private IndiceUsuarios construir(int postoId, EstadoUsuarios estado) {
+        long geracao = estado.geracao.get();
+        List<Usuario> usuarios = usuarioRepository.findAllByPostoId(postoId);
+        int[] ids = new int[usuarios.size()];
+        String[] nomes = new String[usuarios.size()];
+        String[] detalhes = new String[usuarios.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = usuarios.get(i).getId();
+            nomes[i] = usuarios.get(i).getUsername();
+            detalhes[i] = usuarios.get(i).getPapel() == null ? null : usuarios.get(i).getPapel().name();
+        }
+        IndiceUsuarios novo = new IndiceUsuarios(geracao, System.currentTimeMillis(), new IndicePesquisa(ids, nomes, detalhes));
+        synchronized (estado) {
+            if (estado.indice == null || estado.indice.geracao <= geracao) {
+                estado.indice = novo;
+            }
+            return estado.indice;
+        }
+    }
+
+    /**
+     * Um acerto de um dos índices, com o tipo de documento a que pertence.
+     */
+    private record Encontrado(ResultadoPesquisa.Tipo tipo, IndicePesquisa.Acerto acerto) {
+    }
+
+    /**
+     * Os índices de bombas e combustíveis construídos a partir de um snapshot do catálogo.
+     */
+    private static class IndicesCatalogo {
+
+        private final CatalogoService.Catalogo origem;
+        private final IndicePesquisa bombas;
+        private final IndicePesquisa combustiveis;
+
+        IndicesCatalogo(CatalogoService.Catalogo origem) {
+            this.origem = origem;
+
+            List<Bomba> listaBombas = origem.bombas();
+            int[] ids = new int[listaBombas.size()];
+            String[] nomes = new String[ids.length];
+            String[] detalhes = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = listaBombas.get(i).getId();
+                nomes[i] = listaBombas.get(i).getNome();
+                detalhes[i] = listaBombas.get(i).getCombustivel().getNome();
+            }
+            this.bombas = new IndicePesquisa(ids, nomes, detalhes);
+
+            List<Combustivel> listaCombustiveis = origem.combustiveis();
+            ids = new int[listaCombustiveis.size()];
+            nomes = new String[ids.length];
+            detalhes = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = listaCombustiveis.get(i).getId();
+                nomes[i] = listaCombustiveis.get(i).getNome();
+                detalhes[i] = listaCombustiveis.get(i).getPrecoPorLitro().toPlainString();
+            }
+            this.combustiveis = new IndicePesquisa(ids, nomes, detalhes);
+        }
+    }
+
+    /**
+     * O estado do índice de utilizadores de um posto: o índice publicado, a geração atual e o controlo
+     * das reconstruções.
+     */
+    private static class EstadoUsuarios {
+
+        private volatile IndiceUsuarios indice;
+        private final AtomicLong geracao = new AtomicLong();
+        private final AtomicBoolean agendado = new AtomicBoolean();
+    }
+
+    /**
+     * O índice de utilizadores de um posto, a geração a partir da qual foi construído e o instante da construção.
+     */
+    private static class IndiceUsuarios {
+
+        private final long geracao;
+        private final long criadoEm;
+        private final IndicePesquisa indice;
+
+        IndiceUsuarios(long geracao, long criadoEm, IndicePesquisa indice) {
+            this.geracao = geracao;
+            this.criadoEm = criadoEm;
+            this.indice = indice;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.config.TenanciaConfig;
+import com.djonatan.abastecimento.config.TenanciaProperties;
+import com.djonatan.abastecimento.dto.NovoShardRequest;
+import com.djonatan.abastecimento.model.AtribuicaoPosto;
+import com.djonatan.abastecimento.model.ShardRegistado;
+import com.djonatan.abastecimento.repository.AtribuicaoPostoRepository;
+import com.djonatan.abastecimento.repository.ShardRegistadoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Camada de Serviço para a administração dos shards de base de dados.
+ *
+ * Permite adicionar shards e atribuir postos novos a shards sem reiniciar a aplicação:
+ * o novo pool de ligações é criado com as mesmas definições do pool principal e registado
+ * no `RoteadorShard`, passando a receber os pedidos dos postos que lhe forem atribuídos.
+ *
+ * Persistência:
+ * Os shards e as atribuições feitos em funcionamento são gravados nas tabelas `shard` e `posto_shard`
+ * do shard principal e voltam a ser aplicados ao roteador no arranque, antes de a aplicação aceitar pedidos.
+ * Sem isso, depois de um reinício, os postos movidos voltariam ao shard principal (onde não estão os seus dados).
+ * Uma atribuição a um shard que já não existe impede o arranque, em vez de encaminhar o posto para o shard errado.
+ *
+ * Só postos novos podem ser atribuídos: um posto que já tem uma atribuição, ou dados no shard principal,
+ * é recusado. Mudá-lo de shard deixaria as suas linhas no shard antigo, e o estado em memória do posto
+ * (turno, catálogo, inventário, análise, painel) continuaria a refletir o shard antigo.
+ */
+@Service
+public class ShardService {
+
+    /**
+     * Nomes de shard aceites: letras minúsculas, dígitos, '-' e '_' (também usados no nome do pool).
+     */
+    private static final Pattern NOME_SHARD = Pattern.compile("[a-z0-9_-]{1,50}");
+
+    @Autowired
+    private RoteadorShard roteadorShard;
+
+    @Autowired
+    private HikariDataSource shardPrincipal;
+
+    @Autowired
+    private ShardRegistadoRepository shardRegistadoRepository;
+
+    @Autowired
+    private AtribuicaoPostoRepository atribuicaoPostoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Recria os shards registados em funcionamento e aplica as atribuições de postos gravadas.
+     */
+    @PostConstruct
+    public void carregar() {
+        noShardPrincipal(() -> {
+            List<String> existentes = roteadorShard.nomesShards();
+            for (ShardRegistado registo : shardRegistadoRepository.findAll()) {
+                if (!existentes.contains(registo.getNome())) {
+                    roteadorShard.adicionarShard(registo.getNome(), criarPool(registo));
+                }
+            }
+            for (AtribuicaoPosto atribuicao : atribuicaoPostoRepository.findAll()) {
+                roteadorShard.atribuirPosto(atribuicao.getPostoId(), atribuicao.getShard());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retorna os nomes dos shards registados.
+     * @return a lista de shards.
+     */
+    public List<String> listarShards() {
+        return roteadorShard.nomesShards();
+    }
+
+    /**
+     * Retorna a atribuição de postos a shards (postos sem atribuição usam o shard principal).
+     * @return o mapa ID do posto -> nome do shard.
+     */
+    public Map<Integer, String> listarAtribuicoes() {
+        return roteadorShard.atribuicoes();
+    }
+
+    /**
+     * Cria o pool de ligações de um novo shard, regista-o no roteador e grava-o no shard principal.
+     *
+     * @param request Os dados de ligação do novo shard.
+     * @throws IllegalArgumentException se o nome do shard for inválido.
+     * @throws RuntimeException se já existir um shard com o mesmo nome.
+     */
+    public void adicionarShard(NovoShardRequest request) {
+        String nome = validarNome(request.getNome());
+        ShardRegistado registo = new ShardRegistado(nome, request.getUrl(), request.getUsername(),
+                request.getPassword(), request.getMaxPool());
+
+        HikariDataSource pool = criarPool(registo);
+        try {
+            roteadorShard.adicionarShard(nome, pool);
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        try {
+            noShardPrincipal(() -> shardRegistadoRepository.save(registo));
+        } catch (RuntimeException e) {
+            // Sem o registo gravado, o shard desapareceria no próximo arranque: não é aceite.
+            DataSource removido = roteadorShard.removerShard(nome);
+            if (removido == pool) {
+                pool.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Atribui um posto novo a um shard existente e grava a atribuição no shard principal.
+     *
+     * @param postoId O ID do posto.
+     * @param shard O nome do shard.
+     * @throws IllegalArgumentException se o nome do shard for inválido.
+     * @throws RuntimeException se o shard não existir, ou se o posto já estiver atribuído ou tiver dados.
+     */
+    public void atribuirPosto(int postoId, String shard) {
+        String nome = validarNome(shard);
+        if (!roteadorShard.nomesShards().contains(nome)) {
+            throw new RuntimeException("Shard não encontrado: " + nome);
+        }
+        // Um posto sem atribuição está no shard principal; atribuído (gravado ou em `tenancia.postos.*`), já tem shard.
+        String atual = roteadorShard.shardDoPosto(postoId);
+        if (!TenanciaProperties.SHARD_PRINCIPAL.equals(atual)) {
+            throw new RuntimeException("O posto " + postoId + " já está atribuído ao shard " + atual + ".");
+        }
+        noShardPrincipal(() -> {
+            atribuicaoPostoRepository.findById(postoId).ifPresent(atribuicao -> {
+                throw new RuntimeException("O posto " + postoId + " já está atribuído ao shard "
+                        + atribuicao.getShard() + ".");
+            });
+            if (temDados(postoId)) {
+                throw new RuntimeException("O posto " + postoId
+                        + " já tem dados no shard principal e não pode ser movido sem uma migração.");
+            }
+            return null;
+        });
+        // Grava primeiro: uma atribuição só em memória perder-se-ia no próximo arranque.
+        noShardPrincipal(() -> atribuicaoPostoRepository.save(new AtribuicaoPosto(postoId, nome)));
+        roteadorShard.atribuirPosto(postoId, nome);
+    }
+
+    /**
+     * Indica se o posto tem linhas em alguma das tabelas por posto do shard forçado na thread.
+     */
+    private boolean temDados(int postoId) {
+        Boolean existe = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM combustivel WHERE posto_id = ?)"
+                        + " OR EXISTS (SELECT 1 FROM bomba WHERE posto_id = ?)"
+                        + " OR EXISTS (SELECT 1 FROM abastecimento WHERE posto_id = ?)"
+                        + " OR EXISTS (SELECT 1 FROM turno WHERE posto_id = ?)"
+                        + " OR EXISTS (SELECT 1 FROM tanque WHERE posto_id = ?)"
+                        + " OR EXISTS (SELECT 1 FROM usuario WHERE posto_id = ?)",
+                Boolean.class, postoId, postoId, postoId, postoId, postoId, postoId);
+        return Boolean.TRUE.equals(existe);
+    }
+
+    private static String validarNome(String nome) {
+        if (nome == null || !NOME_SHARD.matcher(nome.trim()).matches()) {
+            throw new IllegalArgumentException(
+                    "Nome de shard inválido (use letras minúsculas, dígitos, '-' e '_'): " + nome);
+        }
+        return nome.trim();
+    }
+
+    private HikariDataSource criarPool(ShardRegistado registo) {
+        TenanciaProperties.Shard shard = new TenanciaProperties.Shard();
+        shard.setUrl(registo.getUrl());
+        shard.setUsername(registo.getUsername());
+        shard.setPassword(registo.getPassword());
+        shard.setMaxPool(registo.getMaxPool());
+        return TenanciaConfig.criarPool(shardPrincipal, registo.getNome(), shard);
+    }
+
+    /**
+     * Executa a operação no shard principal (onde está o registo dos shards), repondo depois o shard
+     * forçado anterior da thread (o pedido continua associado ao seu posto).
+     */
+    private static <T> T noShardPrincipal(Supplier<T> operacao) {
+        String anterior = ContextoPosto.shardForcado();
+        ContextoPosto.forcarShard(TenanciaProperties.SHARD_PRINCIPAL);
+        try {
+            return operacao.get();
+        } finally {
+            ContextoPosto.forcarShard(anterior);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.djonatan.abastecimento.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Indica que um abastecimento foi recusado por o tanque do combustível não ter litros suficientes.
+ * Não é uma falha do servidor: o pedido só pode ser aceite depois de uma entrega ou de um acerto do nível.
+ */
+public class StockInsuficienteException extends RuntimeException {
+
+    public StockInsuficienteException(int combustivelId, BigDecimal restantes) {
+        super("Stock insuficiente no tanque do combustível " + combustivelId + ": restam " + restantes + " L.");
+    }
+}
@@ -0,0 +1,434 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.dto.RelatorioTurno;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.TotalTurno;
+import com.djonatan.abastecimento.model.Turno;
+import com.djonatan.abastecimento.repository.AbastecimentoRepository;
+import com.djonatan.abastecimento.repository.TotalTurnoRepository;
+import com.djonatan.abastecimento.repository.TurnoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Camada de Serviço para a gestão de turnos (caixa) e dos seus totais.
+ *
+ * Totais Incrementais:
+ * Em vez de percorrer o histórico de abastecimentos no fecho do turno, este serviço mantém
+ * acumuladores em memória que são atualizados a cada registo. Os acumuladores usam `LongAdder`
+ * (contadores distribuídos por várias células, sem contenção entre threads) com valores em
+ * unidades inteiras: milésimos de litro e centavos de Real. Assim, o fecho do turno é instantâneo.
+ *
+ * Durabilidade:
+ * - Os totais são gravados na tabela 'total_turno' periodicamente (checkpoint) e no fecho.
+ * - No arranque da aplicação, para cada turno aberto, os acumuladores são reconstruídos
+ * com uma única consulta agregada sobre os abastecimentos desse turno.
+ *
+ * Fecho e concorrência:
+ * Cada posto tem um lock de leitura/escrita do turno. As alterações de abastecimentos (registo, anulação, correção)
+ * correm com o lock partilhado, desde a atribuição do turno aberto até à atualização dos acumuladores
+ * (`comTurnoPartilhado`). A abertura, o fecho e a reconstrução dos acumuladores correm com o lock exclusivo
+ * (`comTurnoExclusivo`): o fecho espera pelos abastecimentos em curso, pelo que nenhum abastecimento carimbado
+ * com o turno fica de fora dos totais finais. O estado em memória só é retirado depois do commit do fecho;
+ * se a gravação falhar, o turno continua aberto, com os acumuladores intactos.
+ * O checkpoint e o fecho gravam os totais sob o monitor do estado do turno, nunca em simultâneo.
+ * Ordem dos locks: o lock do turno é sempre obtido antes do lock da projeção do diário (`DiarioEventos`).
+ *
+ * Multi-tenancy:
+ * Cada posto tem o seu próprio turno. O estado em memória é indexado pelo ID do posto.
+ */
+@Service
+public class TurnoService {
+
+    @Autowired
+    private TurnoRepository turnoRepository;
+
+    @Autowired
+    private TotalTurnoRepository totalTurnoRepository;
+
+    @Autowired
+    private AbastecimentoRepository abastecimentoRepository;
+
+    @Autowired
+    private RoteadorShard roteadorShard;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * O estado do turno aberto de cada posto (ID do posto -> estado).
+     * A troca é atómica, para que o fecho e os registos concorrentes vejam sempre um estado consistente.
+     */
+    private final ConcurrentHashMap<Integer, EstadoTurno> estados = new ConcurrentHashMap<>();
+
+    /**
+     * O lock do turno de cada posto (ID do posto -> lock). Nunca é removido, para que o fecho de um turno
+     * e a abertura do seguinte usem o mesmo lock.
+     */
+    private final ConcurrentHashMap<Integer, ReentrantReadWriteLock> bloqueios = new ConcurrentHashMap<>();
+
+    /**
+     * Retoma os turnos que estavam abertos antes do reinício da aplicação, percorrendo todos os shards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarTurnosAbertos() {
+        for (String shard : roteadorShard.nomesShards()) {
+            ContextoPosto.forcarShard(shard);
+            try {
+                for (Turno turno : turnoRepository.findAllByDataFechoIsNull()) {
+                    estados.put(turno.getPostoId(), reconstruirEstado(turno));
+                }
+            } finally {
+                ContextoPosto.limpar();
+            }
+        }
+    }
+
+    private EstadoTurno reconstruirEstado(Turno turno) {
+        EstadoTurno estado = new EstadoTurno(turno);
+        for (Object[] linha : abastecimentoRepository.somarPorCombustivelNoTurno(turno.getId())) {
+            estado.acumulador(estado.porCombustivel, (Integer) linha[0])
+                    .somar((BigDecimal) linha[1], (BigDecimal) linha[2]);
+        }
+        for (Object[] linha : abastecimentoRepository.somarPorOperadorNoTurno(turno.getId())) {
+            estado.acumulador(estado.porOperador, (Integer) linha[0])
+                    .somar((BigDecimal) linha[1], (BigDecimal) linha[2]);
+        }
+        return estado;
+    }
+
+    /**
+     * Executa uma alteração de abastecimentos do posto do pedido com o lock partilhado do turno.
+     * O turno devolvido por `turnoAberto()` dentro da operação não é fechado antes de a operação terminar,
+     * pelo que a atribuição do turno e a chamada a `contabilizar`/`descontar` devem ser feitas aqui dentro.
+     *
+     * @param acao A operação.
+     * @return O resultado da operação.
+     */
+    public <T> T comTurnoPartilhado(Supplier<T> acao) {
+        return executar(bloqueio(ContextoPosto.atual()).readLock(), acao);
+    }
+
+    /**
+     * Executa uma operação com o lock exclusivo do turno do posto do pedido, esperando pelas alterações
+     * de abastecimentos em curso e bloqueando as novas até ao fim (ex: fecho, reconstrução dos acumuladores).
+     *
+     * @param acao A operação.
+     * @return O resultado da operação.
+     */
+    public <T> T comTurnoExclusivo(Supplier<T> acao) {
+        return executar(bloqueio(ContextoPosto.atual()).writeLock(), acao);
+    }
+
+    private ReentrantReadWriteLock bloqueio(int postoId) {
+        return bloqueios.computeIfAbsent(postoId, id -> new ReentrantReadWriteLock());
+    }
+
+    private static <T> T executar(Lock lock, Supplier<T> acao) {
+        lock.lock();
+        try {
+            return acao.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Abre um novo turno no posto do pedido.
+     *
+     * @return O turno aberto.
+     * @throws RuntimeException se já existir um turno aberto no posto.
+     */
+    public Turno abrir() {
+        int postoId = ContextoPosto.atual();
+        return comTurnoExclusivo(() -> {
+            EstadoTurno atual = estados.get(postoId);
+            if (atual != null) {
+                throw new RuntimeException("Já existe um turno aberto com o ID: " + atual.turno.getId());
+            }
+
+            Turno turno = new Turno();
+            turno.setPostoId(postoId);
+            turno.setDataAbertura(LocalDateTime.now());
+            turno = turnoRepository.save(turno);
+
+            estados.put(postoId, new EstadoTurno(turno));
+            return turno;
+        });
+    }
+
+    /**
+     * Retorna o turno atualmente aberto no posto do pedido.
+     *
+     * @return O turno aberto, ou nulo se não houver nenhum.
+     */
+    public Turno turnoAberto() {
+        EstadoTurno estado = estados.get(ContextoPosto.atual());
+        return estado == null ? null : estado.turno;
+    }
+
+    /**
+     * Contabiliza um abastecimento já persistido nos totais do turno aberto.
+     * Chamado pelo `AbastecimentoService` após cada registo; o custo é apenas o de dois
+     * incrementos em `LongAdder` por dimensão.
+     *
+     * @param abastecimento O abastecimento registado.
+     */
+    public void contabilizar(Abastecimento abastecimento) {
+        acumular(abastecimento, 1);
+    }
+
+    /**
+     * Retira um abastecimento dos totais do turno aberto (anulação, ou valores antigos de uma correção).
+     * Abastecimentos de turnos já fechados não alteram os totais gravados.
+     *
+     * @param abastecimento O abastecimento com os valores a retirar.
+     */
+    public void descontar(Abastecimento abastecimento) {
+        acumular(abastecimento, -1);
+    }
+
+    private void acumular(Abastecimento abastecimento, int sinal) {
+        EstadoTurno estado = estados.get(abastecimento.getPostoId());
+        if (estado == null || abastecimento.getTurno() == null
+                || abastecimento.getTurno().getId() != estado.turno.getId()) {
+            return;
+        }
+
+        int combustivelId = abastecimento.getBomba().getCombustivel().getId();
+        int operadorId = abastecimento.getOperador() == null ? 0 : abastecimento.getOperador().getId();
+        BigDecimal litros = sinal < 0 ? abastecimento.getLitros().negate() : abastecimento.getLitros();
+        BigDecimal valorTotal = sinal < 0 ? abastecimento.getValorTotal().negate() : abastecimento.getValorTotal();
+
+        estado.acumulador(estado.porCombustivel, combustivelId).somar(litros, valorTotal);
+        estado.acumulador(estado.porOperador, operadorId).somar(litros, valorTotal);
+    }
+
+    /**
+     * Reconstrói os acumuladores do turno aberto do posto do pedido a partir da tabela 'abastecimento'.
+     * Usado depois de a tabela ter sido reconstruída a partir do diário de eventos.
+     * Deve ser chamado dentro de `comTurnoExclusivo`, para que nenhuma alteração em curso se perca na troca.
+     */
+    public void recarregarTurnoAberto() {
+        estados.computeIfPresent(ContextoPosto.atual(), (postoId, estado) -> reconstruirEstado(estado.turno));
+    }
+
+    /**
+     * Grava periodicamente os totais dos turnos abertos na tabela 'total_turno', posto a posto,
+     * cada um no seu shard.
+     * O intervalo é configurável através da propriedade `turno.checkpoint-intervalo-ms`.
+     */
+    @Scheduled(fixedDelayString = "${turno.checkpoint-intervalo-ms:60000}")
+    public void checkpoint() {
+        estados.forEach((postoId, estado) -> {
+            ContextoPosto.definir(postoId);
+            try {
+                synchronized (estado) {
+                    // Um turno fechado entretanto já tem os totais finais gravados pelo fecho.
+                    if (!estado.fechado) {
+                        gravarTotais(estado);
+                    }
+                }
+            } finally {
+                ContextoPosto.limpar();
+            }
+        });
+    }
+
+    /**
+     * Fecha o turno aberto do posto do pedido, grava os totais finais e devolve o relatório de fecho.
+     *
+     * O fecho corre com o lock exclusivo do turno: espera pelos abastecimentos em curso (já carimbados com
+     * o turno, mas ainda não contabilizados) e só depois grava a data de fecho e os totais, numa única transação.
+     * O estado em memória só é retirado depois do commit; se a gravação falhar, o turno continua aberto.
+     *
+     * @return O relatório do turno fechado.
+     * @throws RuntimeException se não houver nenhum turno aberto.
+     */
+    public RelatorioTurno fechar() {
+        int postoId = ContextoPosto.atual();
+        return comTurnoExclusivo(() -> {
+            EstadoTurno estado = estados.get(postoId);
+            if (estado == null) {
+                throw new RuntimeException("Não existe nenhum turno aberto.");
+            }
+
+            synchronized (estado) {
+                estado.turno.setDataFecho(LocalDateTime.now());
+                try {
+                    transactionTemplate.executeWithoutResult(transacao -> {
+                        turnoRepository.save(estado.turno);
+                        gravarTotais(estado);
+                    });
+                } catch (RuntimeException e) {
+                    estado.turno.setDataFecho(null);
+                    throw e;
+                }
+                estado.fechado = true;
+            }
+            estados.remove(postoId, estado);
+            return criarRelatorio(estado);
+        });
+    }
+
+    /**
+     * Retorna o relatório do turno aberto do posto, calculado a partir dos acumuladores em memória.
+     *
+     * @return O relatório parcial do turno aberto.
+     * @throws RuntimeException se não houver nenhum turno aberto.
+     */
+    public RelatorioTurno relatorioAtual() {
+        EstadoTurno estado = estados.get(ContextoPosto.atual());
+        if (estado == null) {
+            throw new RuntimeException("Não existe nenhum turno aberto.");
+        }
+        return criarRelatorio(estado);
+    }
+
+    /**
+     * Retorna o relatório de um turno pelo seu ID.
+     * Se o turno estiver aberto, os totais vêm da memória; caso contrário, dos totais gravados.
+     *
+     * @param turnoId O ID do turno.
+     * @return O relatório do turno.
+     * @throws RuntimeException se o turno não for encontrado.
+     */
+    public RelatorioTurno relatorio(int turnoId) {
+        int postoId = ContextoPosto.atual();
+        EstadoTurno estado = estados.get(postoId);
+        if (estado != null && estado.turno.getId() == turnoId) {
+            return criarRelatorio(estado);
+        }
+
+        Turno turno = turnoRepository.findByIdAndPostoId(turnoId, postoId)
+                .orElseThrow(() -> new RuntimeException("Turno não encontrado com o ID: " + turnoId));
+
+        List<RelatorioTurno.Linha> porCombustivel = new ArrayList<>();
+        List<RelatorioTurno.Linha> porOperador = new ArrayList<>();
+        for (TotalTurno total : totalTurnoRepository.findAllByTurnoId(turnoId)) {
+            RelatorioTurno.Linha linha = new RelatorioTurno.Linha(
+                    total.getReferenciaId(), total.getLitros(), total.getValorTotal());
+            if (total.getTipo() == TotalTurno.Tipo.COMBUSTIVEL) {
+                porCombustivel.add(linha);
+            } else {
+                porOperador.add(linha);
+            }
+        }
+        porCombustivel.sort(Comparator.comparingInt(RelatorioTurno.Linha::getReferenciaId));
+        porOperador.sort(Comparator.comparingInt(RelatorioTurno.Linha::getReferenciaId));
+
+        return new RelatorioTurno(turno.getId(), turno.getDataAbertura(), turno.getDataFecho(),
+                porCombustivel, porOperador);
+    }
+
+    /**
+     * Grava (insere ou atualiza) os totais de um turno a partir dos acumuladores em memória.
+     * As linhas existentes são reaproveitadas, para respeitar a restrição de unicidade da tabela.
+     */
+    private void gravarTotais(EstadoTurno estado) {
+        Map<String, TotalTurno> existentes = new HashMap<>();
+        for (TotalTurno total : totalTurnoRepository.findAllByTurnoId(estado.turno.getId())) {
+            existentes.put(total.getTipo() + ":" + total.getReferenciaId(), total);
+        }
+
+        List<TotalTurno> totais = new ArrayList<>();
+        adicionarTotais(totais, existentes, estado, TotalTurno.Tipo.COMBUSTIVEL, estado.porCombustivel);
+        adicionarTotais(totais, existentes, estado, TotalTurno.Tipo.OPERADOR, estado.porOperador);
+
+        totalTurnoRepository.saveAll(totais);
+    }
+
+    private void adicionarTotais(List<TotalTurno> totais, Map<String, TotalTurno> existentes, EstadoTurno estado,
+                                 TotalTurno.Tipo tipo, Map<Integer, Acumulador> acumuladores) {
+        acumuladores.forEach((referenciaId, acumulador) -> {
+            TotalTurno total = existentes.get(tipo + ":" + referenciaId);
+            if (total == null) {
+                total = new TotalTurno();
+                total.setTurno(estado.turno);
+                total.setTipo(tipo);
+                total.setReferenciaId(referenciaId);
+            }
+            total.setLitros(acumulador.litros());
+            total.setValorTotal(acumulador.valorTotal());
+            totais.add(total);
+        });
+    }
+
+    private RelatorioTurno criarRelatorio(EstadoTurno estado) {
+        return new RelatorioTurno(estado.turno.getId(), estado.turno.getDataAbertura(), estado.turno.getDataFecho(),
+                criarLinhas(estado.porCombustivel), criarLinhas(estado.porOperador));
+    }
+
+    private List<RelatorioTurno.Linha> criarLinhas(Map<Integer, Acumulador> acumuladores) {
+        List<RelatorioTurno.Linha> linhas = new ArrayList<>();
+        acumuladores.forEach((referenciaId, acumulador) ->
+                linhas.add(new RelatorioTurno.Linha(referenciaId, acumulador.litros(), acumulador.valorTotal())));
+        linhas.sort(Comparator.comparingInt(RelatorioTurno.Linha::getReferenciaId));
+        return linhas;
+    }
+
+    /**
+     * O estado em memória de um turno aberto: a entidade e os acumuladores por combustível e por operador.
+     * O monitor da instância serializa a gravação dos totais (checkpoint e fecho).
+     */
+    private static class EstadoTurno {
+
+        private final Turno turno;
+        private final ConcurrentHashMap<Integer, Acumulador> porCombustivel = new ConcurrentHashMap<>();
+        /**
+         * Verdadeiro depois do commit do fecho. Lido e escrito sob o monitor do próprio estado.
+         */
+        private boolean fechado;
+        private final ConcurrentHashMap<Integer, Acumulador> porOperador = new ConcurrentHashMap<>();
+
+        EstadoTurno(Turno turno) {
+            this.turno = turno;
+        }
+
+        Acumulador acumulador(ConcurrentHashMap<Integer, Acumulador> acumuladores, int referenciaId) {
+            return acumuladores.computeIfAbsent(referenciaId, id -> new Acumulador());
+        }
+    }
+
+    /**
+     * Par de contadores sem contenção para os litros (em milésimos) e o valor (em centavos).
+     */
+    private static class Acumulador {
+
+        private final LongAdder litrosMilesimos = new LongAdder();
+        private final LongAdder valorCentavos = new LongAdder();
+
+        void somar(BigDecimal litros, BigDecimal valorTotal) {
+            litrosMilesimos.add(litros.setScale(3, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+            valorCentavos.add(valorTotal.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        }
+
+        BigDecimal litros() {
+            return BigDecimal.valueOf(litrosMilesimos.sum(), 3);
+        }
+
+        BigDecimal valorTotal() {
+            return BigDecimal.valueOf(valorCentavos.sum(), 2);
+        }
+    }
+}
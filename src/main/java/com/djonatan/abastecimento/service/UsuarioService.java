@@ -1,8 +1,10 @@
 package com.djonatan.abastecimento.service;
 
+import com.djonatan.abastecimento.config.ContextoPosto;
 import com.djonatan.abastecimento.model.Usuario;
 import com.djonatan.abastecimento.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -22,6 +24,9 @@ public class UsuarioService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private PesquisaService pesquisaService;
+
     /**
      * Autentica um utilizador com base no nome de utilizador e palavra-passe.
      *
@@ -41,25 +46,36 @@ public class UsuarioService {
     }
 
     /**
-     * Regista um novo utilizador no sistema.
+     * Regista um novo utilizador no posto do pedido.
      *
      * @param username O nome do novo utilizador.
      * @param password A palavra-passe para o novo utilizador.
      * @param papel O papel (ADMIN ou OPERADOR) do novo utilizador.
      * @return O objeto Utilizador que foi criado e salvo.
      * @throws RuntimeException se o nome de utilizador já existir.
+     * @throws DataIntegrityViolationException se os dados violarem outra restrição da tabela (ex: nome demasiado longo).
      */
     public Usuario registar(String username, String password, Usuario.Papel papel) {
-        // Regra de negócio: impede o registo de um utilizador se o nome já estiver em uso.
-        if (usuarioRepository.findByUsername(username).isPresent()) {
-            throw new RuntimeException("O nome de utilizador '" + username + "' já está em uso.");
-        }
-
         Usuario novoUtilizador = new Usuario();
         novoUtilizador.setUsername(username);
         novoUtilizador.setPassword(password); // Num sistema real, a palavra-passe seria criptografada aqui.
         novoUtilizador.setPapel(papel);
+        novoUtilizador.setPostoId(ContextoPosto.atual());
 
-        return usuarioRepository.save(novoUtilizador);
+        // Regra de negócio: impede o registo de um utilizador se o nome já estiver em uso.
+        // A verificação é feita pela restrição única da coluna `username` e não por uma consulta prévia,
+        // que deixaria dois registos concorrentes com o mesmo nome passarem ambos.
+        Usuario salvo;
+        try {
+            salvo = usuarioRepository.saveAndFlush(novoUtilizador);
+        } catch (DataIntegrityViolationException e) {
+            if (ViolacaoIntegridade.daRestricao(e, Usuario.RESTRICAO_USERNAME)) {
+                throw new RuntimeException("O nome de utilizador '" + username + "' já está em uso.");
+            }
+            throw e;
+        }
+        // O índice de pesquisa de utilizadores passa a incluir o novo utilizador.
+        pesquisaService.invalidarUsuarios();
+        return salvo;
     }
 }
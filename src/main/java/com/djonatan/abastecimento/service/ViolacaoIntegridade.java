@@ -0,0 +1,63 @@
+package com.djonatan.abastecimento.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Classifica as violações de integridade da base de dados (`DataIntegrityViolationException` e as suas causas).
+ *
+ * Só as violações de chaves únicas e estrangeiras são conflitos com outros dados (ex: dois registos concorrentes com
+ * o mesmo nome, ou remover um combustível que uma bomba acabou de passar a usar). As restantes (coluna obrigatória
+ * em falta, valor demasiado longo, restrição CHECK) são erros nos dados do próprio pedido.
+ */
+public final class ViolacaoIntegridade {
+
+    /**
+     * Códigos de erro do MySQL: entrada duplicada (1062, 1586) e chave estrangeira (1216, 1217, 1451, 1452).
+     */
+    private static final int[] CONFLITOS_MYSQL = {1062, 1586, 1216, 1217, 1451, 1452};
+
+    private ViolacaoIntegridade() {
+    }
+
+    /**
+     * Indica se a violação é de uma chave única ou estrangeira (SQLState 23505, 23503 ou 23506, ou o código
+     * de erro equivalente do MySQL, que usa o SQLState genérico 23000).
+     */
+    public static boolean conflito(Throwable erro) {
+        for (Throwable causa = erro; causa != null && causa.getCause() != causa; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql) {
+                String estado = sql.getSQLState();
+                if ("23505".equals(estado) || "23503".equals(estado) || "23506".equals(estado)) {
+                    return true;
+                }
+                for (int codigo : CONFLITOS_MYSQL) {
+                    if (sql.getErrorCode() == codigo) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica se a violação é da restrição com o nome indicado (pelo nome extraído pelo Hibernate ou, na falta dele,
+     * pela mensagem do driver). A comparação ignora maiúsculas e o prefixo da tabela ou do esquema.
+     */
+    public static boolean daRestricao(Throwable erro, String restricao) {
+        String procurada = restricao.toLowerCase(Locale.ROOT);
+        for (Throwable causa = erro; causa != null && causa.getCause() != causa; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacao && violacao.getConstraintName() != null) {
+                return violacao.getConstraintName().toLowerCase(Locale.ROOT).contains(procurada);
+            }
+            if (causa instanceof SQLException sql && sql.getMessage() != null
+                    && sql.getMessage().toLowerCase(Locale.ROOT).contains(procurada)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
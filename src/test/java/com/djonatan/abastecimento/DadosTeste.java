@@ -0,0 +1,94 @@
+package com.djonatan.abastecimento;
+
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.model.Usuario;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Entidades de teste partilhadas pelos testes e pelos programas de carga.
+ *
+ * Os valores por omissão são os de uma venda de gasolina a 5,899/L, às 10h de 1 de maio de 2024.
+ */
+public final class DadosTeste {
+
+    public static final BigDecimal PRECO_GASOLINA = new BigDecimal("5.899");
+    public static final LocalDateTime DATA = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private DadosTeste() {
+    }
+
+    public static Combustivel combustivel(int id, String nome, BigDecimal precoPorLitro) {
+        Combustivel combustivel = new Combustivel();
+        combustivel.setId(id);
+        combustivel.setNome(nome);
+        combustivel.setPrecoPorLitro(precoPorLitro);
+        return combustivel;
+    }
+
+    public static Combustivel gasolina(int id) {
+        return combustivel(id, "Gasolina", PRECO_GASOLINA);
+    }
+
+    public static Bomba bomba(int id, int postoId, Combustivel combustivel) {
+        Bomba bomba = new Bomba();
+        bomba.setId(id);
+        bomba.setPostoId(postoId);
+        bomba.setNome("Bomba " + id);
+        bomba.setCombustivel(combustivel);
+        return bomba;
+    }
+
+    /**
+     * Abastecimento na bomba indicada, cobrado ao preço de catálogo do combustível da bomba.
+     */
+    public static Abastecimento abastecimento(int id, Bomba bomba, BigDecimal litros) {
+        Abastecimento abastecimento = new Abastecimento();
+        abastecimento.setId(id);
+        abastecimento.setPostoId(bomba.getPostoId());
+        abastecimento.setBomba(bomba);
+        abastecimento.setData(DATA);
+        abastecimento.setLitros(litros.setScale(3, RoundingMode.HALF_UP));
+        abastecimento.setValorTotal(litros.multiply(bomba.getCombustivel().getPrecoPorLitro())
+                .setScale(2, RoundingMode.HALF_UP));
+        return abastecimento;
+    }
+
+    /**
+     * Abastecimento de 20 litros de gasolina (117,98) na bomba 1 do posto indicado.
+     */
+    public static Abastecimento abastecimento(int id, int postoId) {
+        return abastecimento(id, bomba(1, postoId, gasolina(1)), new BigDecimal("20"));
+    }
+
+    /**
+     * Evento do diário correspondente a um abastecimento de 20 litros de gasolina (117,98) na bomba 1.
+     */
+    public static EventoAbastecimento evento(EventoAbastecimento.Tipo tipo, int postoId, int abastecimentoId) {
+        EventoAbastecimento evento = new EventoAbastecimento();
+        evento.setTipo(tipo);
+        evento.setPostoId(postoId);
+        evento.setAbastecimentoId(abastecimentoId);
+        evento.setBombaId(1);
+        evento.setCombustivelId(1);
+        evento.setDataMillis(DATA.toInstant(ZoneOffset.UTC).toEpochMilli());
+        evento.setLitrosMilesimos(20_000);
+        evento.setValorCentavos(11_798);
+        return evento;
+    }
+
+    public static Usuario usuario(int id, String username, int postoId) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setUsername(username);
+        usuario.setPapel(Usuario.Papel.OPERADOR);
+        usuario.setPostoId(postoId);
+        return usuario;
+    }
+}
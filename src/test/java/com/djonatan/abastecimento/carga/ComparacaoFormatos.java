@@ -0,0 +1,111 @@
+package com.djonatan.abastecimento.carga;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.FormatoBinarioConfig;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compara o tamanho e o custo de serialização do histórico de abastecimentos em JSON e em CBOR.
+ *
+ * É gerada uma lista sintética de abastecimentos sobre um catálogo pequeno (poucas bombas e combustíveis),
+ * tal como acontece numa resposta real de GET /api/abastecimentos, e cada formato é medido:
+ * - bytes sem compressão e com gzip;
+ * - tempo médio de serialização por resposta, após aquecimento da JVM.
+ *
+ * Execução:
+ * <pre>
+ * mvn -Pcarga test-compile exec:java -Dexec.mainClass=com.djonatan.abastecimento.carga.ComparacaoFormatos -Dexec.args="1000"
+ * </pre>
+ */
+public class ComparacaoFormatos {
+
+    private static final int ITERACOES_AQUECIMENTO = 200;
+    private static final int ITERACOES_MEDICAO = 500;
+
+    public static void main(String[] args) throws IOException {
+        int linhas = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        List<Abastecimento> historico = criarHistorico(linhas);
+
+        ObjectMapper json = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper cbor = FormatoBinarioConfig.criarMapeadorCbor();
+
+        System.out.printf(Locale.ROOT, "Histórico com %d abastecimentos%n", linhas);
+        System.out.printf(Locale.ROOT, "%-6s %12s %12s %16s%n", "formato", "bytes", "bytes gzip", "µs/serialização");
+        medir("json", json, historico);
+        medir("cbor", cbor, historico);
+    }
+
+    private static void medir(String nome, ObjectMapper mapeador, List<Abastecimento> historico) throws IOException {
+        byte[] bytes = mapeador.writeValueAsBytes(historico);
+
+        for (int i = 0; i < ITERACOES_AQUECIMENTO; i++) {
+            mapeador.writeValueAsBytes(historico);
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ITERACOES_MEDICAO; i++) {
+            mapeador.writeValueAsBytes(historico);
+        }
+        double microsPorSerializacao = (System.nanoTime() - inicio) / 1000.0 / ITERACOES_MEDICAO;
+
+        System.out.printf(Locale.ROOT, "%-6s %12d %12d %16.1f%n", nome, bytes.length, comprimir(bytes), microsPorSerializacao);
+    }
+
+    private static int comprimir(byte[] bytes) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(bytes);
+        }
+        return saida.size();
+    }
+
+    private static List<Abastecimento> criarHistorico(int linhas) {
+        Random aleatorio = new Random(42);
+        List<Combustivel> combustiveis = List.of(
+                DadosTeste.combustivel(1, "Gasolina Comum", new BigDecimal("5.899")),
+                DadosTeste.combustivel(2, "Gasolina Aditivada", new BigDecimal("6.099")),
+                DadosTeste.combustivel(3, "Etanol", new BigDecimal("3.999")),
+                DadosTeste.combustivel(4, "Diesel S10", new BigDecimal("6.299")));
+        List<Bomba> bombas = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            Bomba bomba = new Bomba();
+            bomba.setId(i);
+            bomba.setNome(String.format("Bomba %02d", i));
+            bomba.setCombustivel(combustiveis.get(i % combustiveis.size()));
+            bombas.add(bomba);
+        }
+
+        List<Abastecimento> historico = new ArrayList<>();
+        LocalDateTime data = LocalDateTime.of(2024, 1, 15, 6, 0);
+        for (int i = linhas; i >= 1; i--) {
+            Bomba bomba = bombas.get(aleatorio.nextInt(bombas.size()));
+            BigDecimal litros = BigDecimal.valueOf(5 + aleatorio.nextDouble() * 55).setScale(3, RoundingMode.HALF_UP);
+            Abastecimento abastecimento = new Abastecimento();
+            abastecimento.setId(i);
+            abastecimento.setBomba(bomba);
+            abastecimento.setData(data.plusSeconds(i * 90L));
+            abastecimento.setLitros(litros);
+            abastecimento.setValorTotal(litros.multiply(bomba.getCombustivel().getPrecoPorLitro())
+                    .setScale(2, RoundingMode.HALF_UP));
+            historico.add(abastecimento);
+        }
+        return historico;
+    }
+}
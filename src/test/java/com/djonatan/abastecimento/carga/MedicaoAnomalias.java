@@ -0,0 +1,61 @@
+package com.djonatan.abastecimento.carga;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.AnomaliaProperties;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Bomba;
+import com.djonatan.abastecimento.service.DetecaoAnomaliaService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Mede o custo médio da deteção de anomalias por abastecimento (`DetecaoAnomaliaService.analisar`),
+ * face ao orçamento de 50 µs por evento.
+ *
+ * Os eventos sintéticos percorrem 4 postos e 16 bombas e incluem os que geram alertas (rajadas, volumes atípicos
+ * e preços inconsistentes). A medição é feita depois do aquecimento do JIT; termina com código 1 se o orçamento
+ * for excedido, para poder ser usada numa máquina de medição dedicada.
+ *
+ * Execução:
+ * <pre>
+ * mvn -Pcarga test-compile exec:java -Dexec.mainClass=com.djonatan.abastecimento.carga.MedicaoAnomalias -Dexec.args="200000"
+ * </pre>
+ */
+public class MedicaoAnomalias {
+
+    private static final double ORCAMENTO_MICROSSEGUNDOS = 50.0;
+    private static final int ITERACOES_AQUECIMENTO = 100_000;
+
+    public static void main(String[] args) {
+        int medidos = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        DetecaoAnomaliaService servico = new DetecaoAnomaliaService();
+        ReflectionTestUtils.setField(servico, "propriedades", new AnomaliaProperties());
+
+        Abastecimento[] eventos = new Abastecimento[4096];
+        BigDecimal[] precos = new BigDecimal[eventos.length];
+        for (int i = 0; i < eventos.length; i++) {
+            int postoId = 1 + i % 4;
+            Bomba bomba = DadosTeste.bomba(1 + i % 16, postoId, DadosTeste.gasolina(1));
+            eventos[i] = DadosTeste.abastecimento(i + 1, bomba, BigDecimal.valueOf(5 + (i * 37) % 60));
+            precos[i] = i % 50 == 0 ? new BigDecimal("4.999") : DadosTeste.PRECO_GASOLINA;
+        }
+
+        for (int i = 0; i < ITERACOES_AQUECIMENTO; i++) {
+            servico.analisar(eventos[i % eventos.length], precos[i % precos.length]);
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < medidos; i++) {
+            servico.analisar(eventos[i % eventos.length], precos[i % precos.length]);
+        }
+        double microssegundosPorEvento = (System.nanoTime() - inicio) / 1_000.0 / medidos;
+
+        System.out.printf(Locale.ROOT, "%d eventos analisados: %.2f µs/evento (orçamento: %.0f µs)%n",
+                medidos, microssegundosPorEvento, ORCAMENTO_MICROSSEGUNDOS);
+        if (microssegundosPorEvento >= ORCAMENTO_MICROSSEGUNDOS) {
+            System.exit(1);
+        }
+    }
+}
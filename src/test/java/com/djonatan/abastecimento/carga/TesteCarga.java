@@ -0,0 +1,426 @@
+package com.djonatan.abastecimento.carga;
+
+import com.djonatan.abastecimento.config.FormatoBinarioConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Teste de carga reprodutível para a API, executado fora do contexto Spring.
+ *
+ * Propósito e Design:
+ * Cada thread de trabalho executa pedidos em ciclo fechado (envia, espera a resposta, envia o seguinte),
+ * escolhendo a operação de acordo com uma mistura ponderada que imita o tráfego de um posto:
+ * muitos registos de abastecimento e consultas, poucas leituras do catálogo.
+ * A latência de cada pedido é guardada por thread (sem partilha entre threads durante a medição)
+ * e, no fim, são calculados o débito e os percentis p50/p90/p99/p99.9 de cada operação.
+ *
+ * Escalonamento e invariantes:
+ * Com `--escalonamento`, o teste é repetido para cada número de threads indicado e, no fim, é impressa a curva
+ * de escalonamento (débito, aceleração face à primeira ronda, eficiência por thread e latências).
+ * Com `--verificar=true`, cada ronda confirma que os totais do turno aberto aumentaram exatamente a soma dos litros
+ * dos registos confirmados (HTTP 200), isto é, que nenhum registo concorrente foi perdido ou contado duas vezes.
+ * A verificação exige um turno aberto e nenhum outro tráfego de registos durante o teste; o processo termina
+ * com código 1 se algum invariante falhar.
+ *
+ * Execução (com a aplicação a correr, de preferência com os perfis 'producao,benchmark'):
+ * <pre>
+ * mvn -Pcarga test-compile exec:java -Dexec.args="--url=http://localhost:8080 --threads=16 --duracao=60"
+ * </pre>
+ *
+ * Argumentos (todos opcionais):
+ * --url          URL base da API (padrão: http://localhost:8080)
+ * --threads      Número de threads concorrentes (padrão: 16)
+ * --aquecimento  Segundos de aquecimento, não contabilizados (padrão: 10)
+ * --duracao      Segundos de medição (padrão: 60)
+ * --bombas       IDs das bombas a usar nos registos, separados por vírgula (padrão: 1,2,3)
+ * --mix          Pesos das operações (padrão: registar:60,historico:20,bombas:10,combustiveis:10)
+ * --semente      Semente aleatória, para repetir exatamente a mesma sequência de operações
+ * --formato      Formato das respostas pedido no cabeçalho Accept: json ou cbor (padrão: json)
+ * --posto        ID do posto enviado no cabeçalho X-Posto-Id (padrão: nenhum, usa o posto padrão)
+ * --escalonamento Números de threads das rondas sucessivas, separados por vírgula (ex: 1,2,4,8,16,32);
+ *                substitui --threads
+ * --verificar    true para verificar os totais do turno no fim de cada ronda (padrão: false)
+ */
+public class TesteCarga {
+
+    /**
+     * As operações suportadas pelo teste, com o método HTTP e o caminho correspondentes.
+     */
+    enum Operacao {
+        REGISTAR("registar", "POST", "/api/abastecimentos"),
+        HISTORICO("historico", "GET", "/api/abastecimentos"),
+        BOMBAS("bombas", "GET", "/api/bombas"),
+        COMBUSTIVEIS("combustiveis", "GET", "/api/combustiveis");
+
+        final String nome;
+        final String metodo;
+        final String caminho;
+
+        Operacao(String nome, String metodo, String caminho) {
+            this.nome = nome;
+            this.metodo = metodo;
+            this.caminho = caminho;
+        }
+
+        static Operacao porNome(String nome) {
+            for (Operacao operacao : values()) {
+                if (operacao.nome.equals(nome)) {
+                    return operacao;
+                }
+            }
+            throw new IllegalArgumentException("Operação desconhecida: " + nome);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = lerOpcoes(args);
+        String url = opcoes.getOrDefault("url", "http://localhost:8080");
+        int threads = Integer.parseInt(opcoes.getOrDefault("threads", "16"));
+        int aquecimento = Integer.parseInt(opcoes.getOrDefault("aquecimento", "10"));
+        int duracao = Integer.parseInt(opcoes.getOrDefault("duracao", "60"));
+        int[] bombas = Arrays.stream(opcoes.getOrDefault("bombas", "1,2,3").split(","))
+                .mapToInt(id -> Integer.parseInt(id.trim())).toArray();
+        Operacao[] roleta = criarRoleta(opcoes.getOrDefault("mix", "registar:60,historico:20,bombas:10,combustiveis:10"));
+        long semente = Long.parseLong(opcoes.getOrDefault("semente", String.valueOf(System.nanoTime())));
+        String aceitar = "cbor".equals(opcoes.get("formato")) ? "application/cbor" : "application/json";
+        List<String> cabecalhos = new ArrayList<>(List.of("Accept", aceitar, "Accept-Encoding", "gzip"));
+        if (opcoes.containsKey("posto")) {
+            cabecalhos.addAll(List.of("X-Posto-Id", opcoes.get("posto")));
+        }
+
+        int[] rondas = opcoes.containsKey("escalonamento")
+                ? Arrays.stream(opcoes.get("escalonamento").split(",")).mapToInt(n -> Integer.parseInt(n.trim())).toArray()
+                : new int[]{threads};
+        boolean verificar = Boolean.parseBoolean(opcoes.getOrDefault("verificar", "false"));
+        ObjectMapper leitor = "cbor".equals(opcoes.get("formato")) ? FormatoBinarioConfig.criarMapeadorCbor() : new ObjectMapper();
+        String[] cabecalhosPedido = cabecalhos.toArray(new String[0]);
+
+        List<Resultado> resultados = new ArrayList<>();
+        boolean invariantesOk = true;
+        for (int threadsRonda : rondas) {
+            System.out.printf(Locale.ROOT, "Teste de carga: %s | threads=%d | aquecimento=%ds | duração=%ds | semente=%d | %s%n",
+                    url, threadsRonda, aquecimento, duracao, semente, aceitar);
+
+            BigDecimal litrosAntes = verificar ? litrosDoTurno(url, cabecalhosPedido, leitor) : null;
+            Resultado resultado = executar(url, threadsRonda, aquecimento, duracao, bombas, roleta, semente,
+                    cabecalhosPedido, verificar ? leitor : null);
+            resultado.imprimir(duracao);
+            if (verificar) {
+                invariantesOk &= resultado.verificar(litrosDoTurno(url, cabecalhosPedido, leitor).subtract(litrosAntes));
+            }
+            resultados.add(resultado);
+        }
+        if (rondas.length > 1) {
+            imprimirEscalonamento(resultados, duracao);
+        }
+        if (!invariantesOk) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Executa uma ronda de carga e devolve as medições agregadas de todas as threads.
+     *
+     * @param leitor Se não for nulo, as respostas dos registos são lidas e os litros dos registos confirmados
+     * (incluindo os do aquecimento) são somados, para a verificação dos totais do turno.
+     */
+    static Resultado executar(String url, int threads, int aquecimento, int duracao, int[] bombas,
+                              Operacao[] roleta, long semente, String[] cabecalhos,
+                              ObjectMapper leitor) throws InterruptedException {
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long inicioMedicao = System.nanoTime() + Duration.ofSeconds(aquecimento).toNanos();
+        long fim = inicioMedicao + Duration.ofSeconds(duracao).toNanos();
+
+        Medicoes[] porThread = new Medicoes[threads];
+        CountDownLatch terminadas = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Medicoes medicoes = new Medicoes();
+            porThread[t] = medicoes;
+            Random aleatorio = new Random(semente + t);
+            Thread trabalhador = new Thread(() -> {
+                try {
+                    while (true) {
+                        long agora = System.nanoTime();
+                        if (agora >= fim) {
+                            break;
+                        }
+                        Operacao operacao = roleta[aleatorio.nextInt(roleta.length)];
+                        HttpRequest pedido = criarPedido(url, operacao, bombas, aleatorio, cabecalhos);
+                        long inicio = System.nanoTime();
+                        boolean sucesso;
+                        try {
+                            if (leitor != null && operacao == Operacao.REGISTAR) {
+                                HttpResponse<byte[]> resposta = cliente.send(pedido, HttpResponse.BodyHandlers.ofByteArray());
+                                sucesso = resposta.statusCode() < 400;
+                                medicoes.contarRegisto(resposta.statusCode(), resposta.body(), leitor);
+                            } else {
+                                HttpResponse<Void> resposta = cliente.send(pedido, HttpResponse.BodyHandlers.discarding());
+                                sucesso = resposta.statusCode() < 400;
+                            }
+                        } catch (Exception e) {
+                            sucesso = false;
+                        }
+                        long latencia = System.nanoTime() - inicio;
+                        if (inicio >= inicioMedicao) {
+                            medicoes.registar(operacao, latencia, sucesso);
+                        }
+                    }
+                } finally {
+                    terminadas.countDown();
+                }
+            }, "carga-" + t);
+            trabalhador.start();
+        }
+        terminadas.await();
+
+        Resultado resultado = new Resultado(threads);
+        for (Medicoes medicoes : porThread) {
+            resultado.juntar(medicoes);
+        }
+        return resultado;
+    }
+
+    /**
+     * Lê o total de litros do turno aberto (soma das linhas por combustível de GET /api/turnos/atual).
+     */
+    static BigDecimal litrosDoTurno(String url, String[] cabecalhos, ObjectMapper leitor)
+            throws IOException, InterruptedException {
+        HttpResponse<byte[]> resposta = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url + "/api/turnos/atual")).headers(cabecalhos).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Não foi possível ler o turno aberto (HTTP " + resposta.statusCode()
+                    + "). A verificação exige um turno aberto.");
+        }
+        BigDecimal litros = BigDecimal.ZERO;
+        for (JsonNode linha : leitor.readTree(resposta.body()).path("porCombustivel")) {
+            litros = litros.add(linha.path("litros").decimalValue());
+        }
+        return litros;
+    }
+
+    /**
+     * Imprime a curva de escalonamento: débito por número de threads, aceleração face à primeira ronda
+     * e eficiência (aceleração a dividir pelo aumento do número de threads).
+     */
+    static void imprimirEscalonamento(List<Resultado> resultados, int duracao) {
+        System.out.printf(Locale.ROOT, "%nEscalonamento (%ds por ronda)%n", duracao);
+        System.out.printf(Locale.ROOT, "%8s %11s %11s %11s %9s %9s %8s%n",
+                "threads", "pedidos/s", "aceleração", "eficiência", "p50 ms", "p99 ms", "erros");
+        Resultado base = resultados.get(0);
+        double debitoBase = (double) base.total() / duracao;
+        for (Resultado resultado : resultados) {
+            double debito = (double) resultado.total() / duracao;
+            double aceleracao = debitoBase > 0 ? debito / debitoBase : 0;
+            long[] todas = resultado.todasLatencias();
+            System.out.printf(Locale.ROOT, "%8d %11.1f %10.2fx %10.0f%% %9.2f %9.2f %8d%n",
+                    resultado.threads, debito, aceleracao,
+                    100 * aceleracao * base.threads / resultado.threads,
+                    todas.length > 0 ? Resultado.percentil(todas, 50) : 0,
+                    todas.length > 0 ? Resultado.percentil(todas, 99) : 0,
+                    resultado.totalErros());
+        }
+    }
+
+    private static HttpRequest criarPedido(String url, Operacao operacao, int[] bombas, Random aleatorio,
+                                           String[] cabecalhos) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url + operacao.caminho))
+                .timeout(Duration.ofSeconds(30))
+                .headers(cabecalhos);
+
+        if (operacao == Operacao.REGISTAR) {
+            int bombaId = bombas[aleatorio.nextInt(bombas.length)];
+            // Metade dos registos por litros e metade por valor, como acontece na pista.
+            String corpo = aleatorio.nextBoolean()
+                    ? String.format(Locale.ROOT, "{\"bombaId\":%d,\"litros\":%.3f}", bombaId, 5 + aleatorio.nextDouble() * 55)
+                    : String.format(Locale.ROOT, "{\"bombaId\":%d,\"valor\":%.2f}", bombaId, 20 + aleatorio.nextDouble() * 280);
+            return builder.header("Content-Type", "application/json")
+                    .header("X-Bomba-Id", String.valueOf(bombaId))
+                    .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                    .build();
+        }
+        return builder.GET().build();
+    }
+
+    /**
+     * Converte a mistura "nome:peso,..." num vetor onde cada operação aparece tantas vezes quanto o seu peso,
+     * para que a escolha ponderada seja um simples acesso por índice aleatório.
+     */
+    static Operacao[] criarRoleta(String mix) {
+        List<Operacao> roleta = new ArrayList<>();
+        for (String parte : mix.split(",")) {
+            String[] nomePeso = parte.trim().split(":");
+            Operacao operacao = Operacao.porNome(nomePeso[0]);
+            int peso = Integer.parseInt(nomePeso[1]);
+            for (int i = 0; i < peso; i++) {
+                roleta.add(operacao);
+            }
+        }
+        if (roleta.isEmpty()) {
+            throw new IllegalArgumentException("A mistura de operações não pode estar vazia.");
+        }
+        return roleta.toArray(new Operacao[0]);
+    }
+
+    static Map<String, String> lerOpcoes(String[] args) {
+        Map<String, String> opcoes = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separador = arg.indexOf('=');
+                opcoes.put(arg.substring(2, separador), arg.substring(separador + 1));
+            }
+        }
+        return opcoes;
+    }
+
+    /**
+     * Latências e erros de uma thread, por operação. Cada instância é escrita por uma única thread.
+     */
+    static class Medicoes {
+
+        final long[][] latencias = new long[Operacao.values().length][1024];
+        final int[] contagens = new int[Operacao.values().length];
+        final int[] erros = new int[Operacao.values().length];
+        BigDecimal litrosRegistados = BigDecimal.ZERO;
+        int registosOffline;
+
+        /**
+         * Soma os litros de um registo confirmado (HTTP 200) ou conta um registo aceite offline (HTTP 202).
+         */
+        void contarRegisto(int status, byte[] corpo, ObjectMapper leitor) throws IOException {
+            if (status == 200) {
+                litrosRegistados = litrosRegistados.add(leitor.readTree(corpo).path("litros").decimalValue());
+            } else if (status == 202) {
+                registosOffline++;
+            }
+        }
+
+        void registar(Operacao operacao, long latenciaNanos, boolean sucesso) {
+            int i = operacao.ordinal();
+            if (!sucesso) {
+                erros[i]++;
+            }
+            if (contagens[i] == latencias[i].length) {
+                latencias[i] = Arrays.copyOf(latencias[i], latencias[i].length * 2);
+            }
+            latencias[i][contagens[i]++] = latenciaNanos;
+        }
+    }
+
+    /**
+     * Medições agregadas de todas as threads e respetivo relatório.
+     */
+    static class Resultado {
+
+        final int threads;
+        final long[][] latencias = new long[Operacao.values().length][0];
+        final int[] erros = new int[Operacao.values().length];
+        BigDecimal litrosRegistados = BigDecimal.ZERO;
+        int registosOffline;
+
+        Resultado(int threads) {
+            this.threads = threads;
+        }
+
+        void juntar(Medicoes medicoes) {
+            for (int i = 0; i < latencias.length; i++) {
+                long[] juntas = Arrays.copyOf(latencias[i], latencias[i].length + medicoes.contagens[i]);
+                System.arraycopy(medicoes.latencias[i], 0, juntas, latencias[i].length, medicoes.contagens[i]);
+                latencias[i] = juntas;
+                erros[i] += medicoes.erros[i];
+            }
+            litrosRegistados = litrosRegistados.add(medicoes.litrosRegistados);
+            registosOffline += medicoes.registosOffline;
+        }
+
+        long totalErros() {
+            long total = 0;
+            for (int e : erros) {
+                total += e;
+            }
+            return total;
+        }
+
+        long[] todasLatencias() {
+            long[] todas = new long[(int) total()];
+            int posicao = 0;
+            for (long[] l : latencias) {
+                System.arraycopy(l, 0, todas, posicao, l.length);
+                posicao += l.length;
+            }
+            Arrays.sort(todas);
+            return todas;
+        }
+
+        /**
+         * Compara o aumento dos litros do turno com a soma dos litros dos registos confirmados.
+         * Os registos aceites offline só entram no turno quando forem repostos, pelo que tornam a verificação inconclusiva.
+         *
+         * @return falso se o invariante falhar.
+         */
+        boolean verificar(BigDecimal aumentoTurno) {
+            if (registosOffline > 0) {
+                System.out.printf(Locale.ROOT, "Verificação inconclusiva: %d registos aceites offline.%n", registosOffline);
+                return true;
+            }
+            boolean ok = aumentoTurno.compareTo(litrosRegistados) == 0;
+            System.out.printf(Locale.ROOT, "Verificação do turno: %s (aumento do turno %s L, registos confirmados %s L)%n",
+                    ok ? "OK" : "FALHOU", aumentoTurno.toPlainString(), litrosRegistados.toPlainString());
+            return ok;
+        }
+
+        long total() {
+            long total = 0;
+            for (long[] l : latencias) {
+                total += l.length;
+            }
+            return total;
+        }
+
+        void imprimir(int duracao) {
+            System.out.printf(Locale.ROOT, "%-14s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                    "operação", "pedidos", "erros", "pedidos/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+            for (Operacao operacao : Operacao.values()) {
+                long[] l = latencias[operacao.ordinal()];
+                if (l.length == 0) {
+                    continue;
+                }
+                Arrays.sort(l);
+                System.out.printf(Locale.ROOT, "%-14s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        operacao.nome, l.length, erros[operacao.ordinal()], (double) l.length / duracao,
+                        percentil(l, 50), percentil(l, 90), percentil(l, 99), percentil(l, 99.9),
+                        l[l.length - 1] / 1_000_000.0);
+            }
+            System.out.printf(Locale.ROOT, "Total: %d pedidos em %ds (%.1f pedidos/s) com %d threads%n",
+                    total(), duracao, (double) total() / duracao, threads);
+        }
+
+        /**
+         * Percentil pelo método do rank mais próximo, em milissegundos. O vetor tem de estar ordenado.
+         */
+        static double percentil(long[] ordenadas, double p) {
+            int rank = (int) Math.ceil(p / 100.0 * ordenadas.length);
+            return ordenadas[Math.max(0, Math.min(ordenadas.length - 1, rank - 1))] / 1_000_000.0;
+        }
+    }
+}
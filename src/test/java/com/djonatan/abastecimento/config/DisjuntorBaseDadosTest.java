@@ -0,0 +1,57 @@
+package com.djonatan.abastecimento.config;
+
+import org.hibernate.exception.JDBCConnectionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da classificação das falhas de ligação e do limiar do disjuntor.
+ */
+class DisjuntorBaseDadosTest {
+
+    @Test
+    void esgotamentoDoPoolNaoEFalhaDeLigacao() {
+        SQLTransientConnectionException timeout = new SQLTransientConnectionException(
+                "HikariPool-1 - Connection is not available, request timed out after 30000ms.", null, null);
+
+        assertThat(DisjuntorBaseDados.falhaDeLigacao(embrulhar(timeout))).isFalse();
+    }
+
+    @Test
+    void timeoutDoPoolComABaseDeDadosInacessivelEFalhaDeLigacao() {
+        SQLException rede = new SQLException("Communications link failure", "08S01", new ConnectException("Connection refused"));
+        SQLTransientConnectionException timeout = new SQLTransientConnectionException(
+                "HikariPool-1 - Connection is not available, request timed out after 30000ms.", "08S01", rede);
+
+        assertThat(DisjuntorBaseDados.falhaDeLigacao(embrulhar(timeout))).isTrue();
+    }
+
+    @Test
+    void disjuntorSoAbreNoLimiarDeFalhasSeguidas() {
+        OfflineProperties propriedades = new OfflineProperties();
+        DisjuntorBaseDados disjuntor = new DisjuntorBaseDados();
+        ReflectionTestUtils.setField(disjuntor, "propriedades", propriedades);
+
+        disjuntor.falha("principal");
+        disjuntor.falha("principal");
+        disjuntor.sucesso("principal");
+        disjuntor.falha("principal");
+        disjuntor.falha("principal");
+        assertThat(disjuntor.disponivel("principal")).isTrue();
+
+        disjuntor.falha("principal");
+        assertThat(disjuntor.disponivel("principal")).isFalse();
+    }
+
+    private static RuntimeException embrulhar(SQLException causa) {
+        return new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                new JDBCConnectionException("Unable to acquire JDBC Connection", causa));
+    }
+}
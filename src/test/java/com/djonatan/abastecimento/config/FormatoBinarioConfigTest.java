@@ -0,0 +1,38 @@
+package com.djonatan.abastecimento.config;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Bomba;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes das referências normalizadas do formato CBOR.
+ */
+class FormatoBinarioConfigTest {
+
+    /**
+     * A bomba 1 e o combustível 1 são entidades diferentes com o mesmo ID: a leitura tem de as manter separadas.
+     */
+    @Test
+    void entidadesDeTiposDiferentesComOMesmoIdNaoColidem() throws Exception {
+        Bomba bomba = DadosTeste.bomba(1, 1, DadosTeste.gasolina(1));
+        List<Abastecimento> historico = List.of(DadosTeste.abastecimento(1, bomba, new BigDecimal("20")),
+                DadosTeste.abastecimento(2, bomba, new BigDecimal("20")));
+
+        ObjectMapper cbor = FormatoBinarioConfig.criarMapeadorCbor();
+        List<Abastecimento> lidos = cbor.readValue(cbor.writeValueAsBytes(historico), new TypeReference<>() {
+        });
+
+        assertThat(lidos).hasSize(2);
+        assertThat(lidos.get(1).getBomba()).isSameAs(lidos.get(0).getBomba());
+        assertThat(lidos.get(1).getBomba().getNome()).isEqualTo("Bomba 1");
+        assertThat(lidos.get(1).getBomba().getCombustivel().getNome()).isEqualTo("Gasolina");
+    }
+}
@@ -0,0 +1,85 @@
+package com.djonatan.abastecimento.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes do limitador de taxa com um relógio controlado.
+ */
+class LimitadorTaxaTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    private final AtomicLong relogio = new AtomicLong(5 * SEGUNDO);
+
+    @Test
+    void reposicaoFracionariaNaoSePerde() {
+        LimitadorTaxa limitador = new LimitadorTaxa(16, 1, 0.5, relogio::get);
+
+        assertThat(limitador.tentarConsumir("bomba-1")).isTrue();
+        relogio.addAndGet(SEGUNDO);
+        assertThat(limitador.tentarConsumir("bomba-1")).isFalse();
+        relogio.addAndGet(SEGUNDO);
+        assertThat(limitador.tentarConsumir("bomba-1")).isTrue();
+    }
+
+    /**
+     * Com 2,5 tokens por segundo e pedidos a cada 100 ms, em 10 segundos são aceites a capacidade mais 25 pedidos,
+     * sem perder as frações de token entre pedidos.
+     */
+    @Test
+    void pedidosFrequentesRecebemExatamenteAReposicao() {
+        LimitadorTaxa limitador = new LimitadorTaxa(16, 3, 2.5, relogio::get);
+
+        int aceites = 0;
+        for (int i = 0; i <= 100; i++) {
+            if (limitador.tentarConsumir("bomba-1")) {
+                aceites++;
+            }
+            relogio.addAndGet(SEGUNDO / 10);
+        }
+
+        assertThat(aceites).isEqualTo(3 + 25);
+    }
+
+    @Test
+    void pedidosConcorrentesNaoExcedemACapacidade() throws Exception {
+        LimitadorTaxa limitador = new LimitadorTaxa(16, 50, 1, relogio::get);
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch partida = new CountDownLatch(1);
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                resultados.add(threads.submit(() -> {
+                    partida.await();
+                    int aceites = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (limitador.tentarConsumir("bomba-1")) {
+                            aceites++;
+                        }
+                    }
+                    return aceites;
+                }));
+            }
+            partida.countDown();
+            int total = 0;
+            for (Future<Integer> resultado : resultados) {
+                total += resultado.get(10, TimeUnit.SECONDS);
+            }
+
+            assertThat(total).isEqualTo(50);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
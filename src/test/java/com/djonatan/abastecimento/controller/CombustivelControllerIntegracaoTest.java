@@ -0,0 +1,181 @@
+package com.djonatan.abastecimento.controller;
+
+import com.djonatan.abastecimento.config.ContextoPostoFilter;
+import com.djonatan.abastecimento.model.Combustivel;
+import com.djonatan.abastecimento.repository.CombustivelRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Testes de integração das atualizações e remoções concorrentes de combustíveis com If-Match (H2).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource("classpath:integracao.properties")
+class CombustivelControllerIntegracaoTest {
+
+    private static final int THREADS = 8;
+    private static final String POSTO = "1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CombustivelRepository combustivelRepository;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    void criarThreads() {
+        threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void terminar() {
+        threads.shutdownNow();
+    }
+
+    /**
+     * Várias atualizações com a mesma ETag: só a primeira é gravada, as restantes recebem HTTP 409.
+     */
+    @Test
+    void atualizacoesConcorrentesComAMesmaVersaoSoUmaEAceite() throws Exception {
+        int id = criar("Gasolina");
+        String etag = etag(id);
+
+        List<Callable<Integer>> pedidos = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            BigDecimal preco = new BigDecimal("6.00" + t);
+            pedidos.add(() -> estado(put("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, etag)
+                    .contentType(MediaType.APPLICATION_JSON).content(corpo("Gasolina", preco))));
+        }
+        List<Integer> estados = emSimultaneo(pedidos);
+
+        assertThat(estados).filteredOn(estado -> estado == 200).hasSize(1);
+        assertThat(estados).filteredOn(estado -> estado == 409).hasSize(THREADS - 1);
+        assertThat(etag(id)).isNotEqualTo(etag);
+    }
+
+    /**
+     * Remoções com uma ETag desatualizada são todas recusadas e o combustível continua ativo.
+     */
+    @Test
+    void remocoesConcorrentesComVersaoDesatualizadaSaoRecusadas() throws Exception {
+        int id = criar("Diesel");
+        String antiga = etag(id);
+        assertThat(estado(put("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, antiga)
+                .contentType(MediaType.APPLICATION_JSON).content(corpo("Diesel S10", new BigDecimal("6.299")))))
+                .isEqualTo(200);
+
+        List<Callable<Integer>> pedidos = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            pedidos.add(() -> estado(delete("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, antiga)));
+        }
+
+        assertThat(emSimultaneo(pedidos)).containsOnly(409);
+        assertThat(combustivelRepository.findById(id)).get().extracting(Combustivel::isAtivo).isEqualTo(true);
+        assertThat(estado(delete("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, etag(id)))).isEqualTo(204);
+    }
+
+    /**
+     * Uma atualização e uma remoção com a mesma ETag: só uma é aplicada, e a atualização nunca reativa
+     * um combustível entretanto removido.
+     */
+    @Test
+    void atualizacaoERemocaoConcorrentesNaoSaoAmbasAplicadas() throws Exception {
+        for (int ronda = 0; ronda < 10; ronda++) {
+            int id = criar("Etanol " + ronda);
+            String etag = etag(id);
+
+            List<Integer> estados = emSimultaneo(List.of(
+                    () -> estado(put("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, etag)
+                            .contentType(MediaType.APPLICATION_JSON).content(corpo("Etanol", new BigDecimal("3.999")))),
+                    () -> estado(delete("/api/combustiveis/{id}", id).header(HttpHeaders.IF_MATCH, etag))));
+
+            assertThat(estados).filteredOn(estado -> estado == 200 || estado == 204).hasSize(1);
+            boolean removido = estados.get(1) == 204;
+            assertThat(combustivelRepository.findById(id)).get().extracting(Combustivel::isAtivo).isEqualTo(!removido);
+        }
+    }
+
+    private int criar(String nome) throws Exception {
+        String resposta = mockMvc.perform(post("/api/combustiveis").header(ContextoPostoFilter.CABECALHO_POSTO, POSTO)
+                        .contentType(MediaType.APPLICATION_JSON).content(corpo(nome, new BigDecimal("5.899"))))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(resposta, Combustivel.class).getId();
+    }
+
+    private String etag(int id) throws Exception {
+        return mockMvc.perform(get("/api/combustiveis/{id}", id).header(ContextoPostoFilter.CABECALHO_POSTO, POSTO))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String corpo(String nome, BigDecimal precoPorLitro) throws Exception {
+        Combustivel combustivel = new Combustivel();
+        combustivel.setNome(nome);
+        combustivel.setPrecoPorLitro(precoPorLitro);
+        return objectMapper.writeValueAsString(combustivel);
+    }
+
+    /**
+     * Executa o pedido no posto de teste e devolve o estado HTTP; um combustível que já não existe
+     * (removido por um pedido concorrente) conta como 404.
+     */
+    private int estado(MockHttpServletRequestBuilder pedido) throws Exception {
+        try {
+            return mockMvc.perform(pedido.header(ContextoPostoFilter.CABECALHO_POSTO, POSTO))
+                    .andReturn().getResponse().getStatus();
+        } catch (Exception e) {
+            if (e.getCause() != null && e.getCause().getMessage().startsWith("Combustível não encontrado")) {
+                return 404;
+            }
+            throw e;
+        }
+    }
+
+    private List<Integer> emSimultaneo(List<Callable<Integer>> pedidos) throws Exception {
+        CountDownLatch partida = new CountDownLatch(1);
+        List<Future<Integer>> respostas = new ArrayList<>();
+        for (Callable<Integer> pedido : pedidos) {
+            respostas.add(threads.submit(() -> {
+                partida.await();
+                return pedido.call();
+            }));
+        }
+        partida.countDown();
+        List<Integer> estados = new ArrayList<>();
+        for (Future<Integer> resposta : respostas) {
+            estados.add(resposta.get(30, TimeUnit.SECONDS));
+        }
+        return estados;
+    }
+}
@@ -0,0 +1,40 @@
+package com.djonatan.abastecimento.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da resposta às violações de integridade: 409 para chaves únicas e estrangeiras, 400 para as restantes.
+ */
+class TratamentoErrosTest {
+
+    private final TratamentoErros tratamento = new TratamentoErros();
+
+    @Test
+    void chaveUnicaOuEstrangeiraEConflito() {
+        assertThat(estado(new SQLException("Duplicate entry 'ana' for key 'usuario.uk_usuario_username'", "23000", 1062)))
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThat(estado(new SQLException("Cannot delete or update a parent row", "23000", 1451)))
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThat(estado(new SQLException("Unique index or primary key violation", "23505", 23505)))
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void restantesViolacoesSaoPedidosInvalidos() {
+        assertThat(estado(new SQLException("Column 'nome' cannot be null", "23000", 1048)))
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(estado(new SQLException("Data too long for column 'nome' at row 1", "22001", 1406)))
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private HttpStatus estado(SQLException causa) {
+        return HttpStatus.valueOf(tratamento.violacaoDeIntegridade(
+                new DataIntegrityViolationException("could not execute statement", causa)).getStatusCode().value());
+    }
+}
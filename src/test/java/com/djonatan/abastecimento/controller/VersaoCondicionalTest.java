@@ -0,0 +1,41 @@
+package com.djonatan.abastecimento.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes da leitura do cabeçalho If-Match (comparação forte).
+ */
+class VersaoCondicionalTest {
+
+    @Test
+    void etagForteDaAVersao() {
+        assertThat(VersaoCondicional.versaoEsperada("\"3\"", null)).isEqualTo(3);
+        assertThat(VersaoCondicional.versaoOpcional(" \"3\" ")).isEqualTo(3);
+    }
+
+    @Test
+    void asteriscoAceitaQualquerVersao() {
+        assertThat(VersaoCondicional.versaoEsperada("*", 7)).isNull();
+        assertThat(VersaoCondicional.versaoOpcional("*")).isNull();
+    }
+
+    @Test
+    void etagFracaNuncaCoincide() {
+        assertThatThrownBy(() -> VersaoCondicional.versaoEsperada("W/\"3\"", null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED));
+    }
+
+    @Test
+    void semVersaoAAtualizacaoERecusadaEARemocaoNao() {
+        assertThatThrownBy(() -> VersaoCondicional.versaoEsperada(null, null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_REQUIRED));
+        assertThat(VersaoCondicional.versaoOpcional(null)).isNull();
+    }
+}
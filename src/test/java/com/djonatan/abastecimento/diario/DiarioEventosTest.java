@@ -0,0 +1,100 @@
+package com.djonatan.abastecimento.diario;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.DiarioProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes do `idOffline` no diário (eventos, instantâneos e reabertura) e da leitura de segmentos da versão 1.
+ */
+class DiarioEventosTest {
+
+    private static final int POSTO = 1;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void idOfflineSobreviveAReaberturaEAoInstantaneo() throws Exception {
+        UUID idOffline = UUID.randomUUID();
+        DiarioEventos diario = abrir();
+        diario.acrescentar(evento(1, null));
+        diario.acrescentar(evento(2, idOffline));
+        diario.gravarInstantaneo(POSTO, diario.carregarProjecao(POSTO));
+        diario.acrescentar(evento(3, UUID.randomUUID()));
+        diario.fechar();
+
+        DiarioEventos reaberto = abrir();
+        Projecao projecao = reaberto.carregarProjecao(POSTO);
+        reaberto.fechar();
+
+        assertThat(projecao.sequencia()).isEqualTo(3);
+        assertThat(projecao.eventosAplicados()).isEqualTo(1);
+        assertThat(projecao.idOffline(0)).isNull();
+        assertThat(projecao.idOffline(1)).isEqualTo(idOffline);
+        assertThat(projecao.idOffline(2)).isNotNull();
+    }
+
+    /**
+     * Um diário escrito antes do `idOffline` (eventos de 64 bytes) continua a ser lido, e os eventos novos
+     * vão para um segmento novo, no formato atual.
+     */
+    @Test
+    void segmentoDaVersaoAnteriorContinuaASerLido() throws Exception {
+        Path postoPasta = Files.createDirectories(pasta.resolve("posto-" + POSTO));
+        ByteBuffer segmento = ByteBuffer.allocate(2 * EventoAbastecimento.TAMANHO_VERSAO_1);
+        eventoVersao1(segmento, 1, 10);
+        eventoVersao1(segmento, 2, 11);
+        Files.write(postoPasta.resolve(String.format("segmento-%020d.log", 1)), segmento.array());
+
+        DiarioEventos diario = abrir();
+        assertThat(diario.ultimaSequencia(POSTO)).isEqualTo(2);
+        UUID idOffline = UUID.randomUUID();
+        diario.acrescentar(evento(12, idOffline));
+        List<EventoAbastecimento> eventos = diario.listar(POSTO, 1, 10);
+        diario.fechar();
+
+        assertThat(eventos).extracting(EventoAbastecimento::getAbastecimentoId).containsExactly(10, 11, 12);
+        assertThat(eventos).extracting(EventoAbastecimento::getIdOffline).containsExactly(null, null, idOffline);
+        assertThat(diario.numeroSegmentos(POSTO)).isEqualTo(2);
+    }
+
+    private DiarioEventos abrir() {
+        DiarioProperties propriedades = new DiarioProperties();
+        propriedades.setDiretorio(pasta.toString());
+        propriedades.setSincronizar(false);
+        DiarioEventos diario = new DiarioEventos();
+        ReflectionTestUtils.setField(diario, "propriedades", propriedades);
+        return diario;
+    }
+
+    private static EventoAbastecimento evento(int id, UUID idOffline) {
+        EventoAbastecimento evento = DadosTeste.evento(EventoAbastecimento.Tipo.REGISTADO, POSTO, id);
+        evento.setIdOffline(idOffline);
+        return evento;
+    }
+
+    /**
+     * Escreve um evento REGISTADO no formato da versão 1 (64 bytes, CRC32C no byte 60).
+     */
+    private static void eventoVersao1(ByteBuffer buffer, long sequencia, int id) {
+        int inicio = buffer.position();
+        buffer.putLong(sequencia).put((byte) EventoAbastecimento.Tipo.REGISTADO.ordinal()).put((byte) 1).putShort((short) 0)
+                .putInt(POSTO).putInt(id).putInt(1).putInt(1).putInt(0).putInt(0)
+                .putLong(1_714_557_600_000L).putLong(20_000).putLong(11_798);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), inicio, 60);
+        buffer.putInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,64 @@
+package com.djonatan.abastecimento.offline;
+
+import com.djonatan.abastecimento.config.OfflineProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da recuperação da fila offline depois de um reinício.
+ */
+class FilaOfflineTest {
+
+    private static final int POSTO = 1;
+
+    @TempDir
+    Path pasta;
+
+    /**
+     * Reinício entre o esvaziamento da fila e a gravação da posição: a posição antiga (3) fica no ficheiro
+     * com a fila vazia. Os registos acrescentados depois continuam por repor após um novo reinício.
+     */
+    @Test
+    void posicaoAntigaNaoEscondeRegistosNovos() throws Exception {
+        Files.createFile(pasta.resolve("posto-1.fila"));
+        Files.write(pasta.resolve("posto-1.posicao"), ByteBuffer.allocate(Long.BYTES).putLong(0, 3).array());
+
+        FilaOffline fila = abrir();
+        fila.acrescentar(POSTO, registo());
+        fila.acrescentar(POSTO, registo());
+        fila.fechar();
+
+        FilaOffline reaberta = abrir();
+        try {
+            assertThat(reaberta.pendentes()).isEqualTo(Map.of(POSTO, 2L));
+            assertThat(reaberta.proximo(POSTO).sequencia()).isEqualTo(1);
+        } finally {
+            reaberta.fechar();
+        }
+    }
+
+    private FilaOffline abrir() {
+        OfflineProperties propriedades = new OfflineProperties();
+        propriedades.setDiretorio(pasta.toString());
+        FilaOffline fila = new FilaOffline();
+        ReflectionTestUtils.setField(fila, "propriedades", propriedades);
+        fila.abrirExistentes();
+        return fila;
+    }
+
+    private static RegistoOffline registo() {
+        return new RegistoOffline(0, UUID.randomUUID(), 1, 1, null, LocalDateTime.of(2024, 5, 1, 10, 0),
+                new BigDecimal("20.000"), new BigDecimal("117.98"), true);
+    }
+}
@@ -0,0 +1,49 @@
+package com.djonatan.abastecimento.pesquisa;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da pesquisa por palavra, prefixo e parte de palavra, e da pontuação dos resultados.
+ */
+class IndicePesquisaTest {
+
+    private final IndicePesquisa indice = new IndicePesquisa(
+            new int[]{1, 2, 3, 4},
+            new String[]{"Gasolina Comum", "Gasolina Aditivada", "Etanol", "Diesel S10"},
+            new String[]{"5.899", "6.099", "3.999", "5.499"});
+
+    @Test
+    void palavraInteiraEPrefixo() {
+        assertThat(indice.pesquisar("gasolina")).extracting(IndicePesquisa.Acerto::id).containsExactly(1, 2);
+        assertThat(indice.pesquisar("gas")).extracting(IndicePesquisa.Acerto::pontuacao).containsExactly(35, 35);
+    }
+
+    @Test
+    void parteDePalavraPorTrigramas() {
+        assertThat(indice.pesquisar("dit")).extracting(IndicePesquisa.Acerto::id).containsExactly(2);
+        assertThat(indice.pesquisar("dit").get(0).pontuacao()).isEqualTo(10);
+    }
+
+    @Test
+    void todosOsTermosTemDeSerEncontrados() {
+        assertThat(indice.pesquisar("gasolina adit")).extracting(IndicePesquisa.Acerto::id).containsExactly(2);
+        assertThat(indice.pesquisar("gasolina etanol")).isEmpty();
+        assertThat(indice.pesquisar("  ")).isEmpty();
+    }
+
+    @Test
+    void nomeIgualAConsultaFicaEmPrimeiro() {
+        assertThat(indice.pesquisar("Etanol")).singleElement()
+                .satisfies(acerto -> assertThat(acerto.pontuacao()).isEqualTo(130));
+        assertThat(indice.pesquisar("Gasolina Comum").get(0).pontuacao()).isEqualTo(160);
+    }
+
+    @Test
+    void acentosEMaiusculasSaoIgnorados() {
+        IndicePesquisa comAcentos = new IndicePesquisa(new int[]{9}, new String[]{"Gasóleo Rodoviário"}, new String[]{null});
+
+        assertThat(comAcentos.pesquisar("GASOLEO rodov")).extracting(IndicePesquisa.Acerto::id).containsExactly(9);
+    }
+}
@@ -0,0 +1,202 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.DisjuntorBaseDados;
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.config.TenanciaProperties;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.offline.FilaOffline;
+import com.djonatan.abastecimento.offline.RegistoOffline;
+import com.djonatan.abastecimento.repository.AbastecimentoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da escrita no diário quando o commit de uma alteração falha depois de o evento ter sido escrito,
+ * e do registo e da reposição dos abastecimentos aceites offline.
+ */
+@ExtendWith(MockitoExtension.class)
+class AbastecimentoServiceTest {
+
+    private static final int POSTO = 1;
+    private static final int ID = 7;
+
+    @Mock
+    private DiarioEventos diarioEventos;
+
+    @Mock
+    private TurnoService turnoService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private AbastecimentoRepository abastecimentoRepository;
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AnaliseService analiseService;
+
+    @Mock
+    private InventarioService inventarioService;
+
+    @Mock
+    private PainelService painelService;
+
+    @Mock
+    private FilaOffline filaOffline;
+
+    @Mock
+    private DisjuntorBaseDados disjuntor;
+
+    @Mock
+    private RoteadorShard roteadorShard;
+
+    @InjectMocks
+    private AbastecimentoService servico;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepararMocks() {
+        lenient().when(diarioEventos.comProjecaoPartilhada(anyInt(), any()))
+                .thenAnswer(invocacao -> ((Supplier<?>) invocacao.getArgument(1)).get());
+        lenient().when(turnoService.comTurnoPartilhado(any()))
+                .thenAnswer(invocacao -> ((Supplier<?>) invocacao.getArgument(0)).get());
+        // O commit falha depois de a alteração e o evento terem sido feitos (ex: ligação perdida na resposta).
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocacao -> {
+            ((TransactionCallback<?>) invocacao.getArgument(0)).doInTransaction(null);
+            throw new TransactionSystemException("Ligação perdida durante o commit");
+        });
+        lenient().when(abastecimentoRepository.bloquearPorIdEPosto(ID, POSTO))
+                .thenReturn(Optional.of(DadosTeste.abastecimento(ID, POSTO)));
+        lenient().when(disjuntor.disponivel(TenanciaProperties.SHARD_PRINCIPAL)).thenReturn(true);
+        lenient().when(roteadorShard.shardDoPosto(POSTO)).thenReturn(TenanciaProperties.SHARD_PRINCIPAL);
+        ContextoPosto.definir(POSTO);
+    }
+
+    @AfterEach
+    void limparContexto() {
+        ContextoPosto.limpar();
+    }
+
+    @Test
+    void commitAplicadoApesarDaFalhaNaoECompensado() {
+        linhaNaBaseDeDados(List.of());
+
+        servico.remover(ID);
+
+        assertThat(eventosEscritos()).containsExactly(EventoAbastecimento.Tipo.ANULADO);
+        verify(analiseService).somarAposCommit(any(), eq(-1));
+    }
+
+    @Test
+    void commitNaoAplicadoECompensado() {
+        linhaNaBaseDeDados(List.of(new Object()));
+
+        assertThatThrownBy(() -> servico.remover(ID)).isInstanceOf(TransactionSystemException.class);
+
+        assertThat(eventosEscritos()).containsExactly(EventoAbastecimento.Tipo.ANULADO, EventoAbastecimento.Tipo.REGISTADO);
+        verify(analiseService, never()).somarAposCommit(any(), anyInt());
+    }
+
+    /**
+     * Uma reposição interrompida depois do commit (ex: a aplicação parou antes de retirar o registo da fila)
+     * é repetida no arranque seguinte sem duplicar o abastecimento.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void reposicaoRepetidaNaoDuplicaOAbastecimento() {
+        doAnswer(invocacao -> ((TransactionCallback<?>) invocacao.getArgument(0)).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        when(catalogoService.bomba(1)).thenReturn(DadosTeste.bomba(1, POSTO, DadosTeste.gasolina(1)));
+        Set<String> gravados = ConcurrentHashMap.newKeySet();
+        when(abastecimentoRepository.existsByPostoIdAndIdOffline(eq(POSTO), anyString()))
+                .thenAnswer(invocacao -> gravados.contains(invocacao.<String>getArgument(1)));
+        when(abastecimentoRepository.saveAndFlush(any())).thenAnswer(invocacao -> {
+            Abastecimento abastecimento = invocacao.getArgument(0);
+            gravados.add(abastecimento.getIdOffline());
+            return abastecimento;
+        });
+        RegistoOffline registo = new RegistoOffline(1, UUID.randomUUID(), 1, 1, null,
+                LocalDateTime.of(2024, 5, 1, 10, 0, 0, 250_000_000), new BigDecimal("20.000"),
+                new BigDecimal("117.98"), true);
+
+        servico.repor(registo);
+        servico.repor(registo);
+
+        verify(abastecimentoRepository, times(1)).saveAndFlush(any());
+        assertThat(gravados).containsExactly(registo.idOffline().toString());
+        assertThat(eventosEscritos()).containsExactly(EventoAbastecimento.Tipo.REGISTADO);
+    }
+
+    /**
+     * Com o disjuntor já fechado mas a fila do posto ainda por repor, uma venda nova vai para o fim da fila
+     * em vez de ser gravada antes das vendas aceites offline.
+     */
+    @Test
+    void vendaNovaEsperaPelaReposicaoDaFila() {
+        when(catalogoService.bomba(1)).thenReturn(DadosTeste.bomba(1, POSTO, DadosTeste.gasolina(1)));
+        when(filaOffline.pendentes(POSTO)).thenReturn(3L);
+
+        Abastecimento aceite = servico.registarPorLitros(1, new BigDecimal("20"), null, null);
+
+        assertThat(aceite.getIdOffline()).isNotNull();
+        verify(filaOffline).acrescentar(eq(POSTO), any(RegistoOffline.class));
+        verify(abastecimentoRepository, never()).saveAndFlush(any());
+        assertThat(eventosEscritos()).isEmpty();
+    }
+
+    private void linhaNaBaseDeDados(List<Object> linhas) {
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object>>any(), eq(ID), eq(POSTO)))
+                .thenReturn(linhas);
+    }
+
+    private List<EventoAbastecimento.Tipo> eventosEscritos() {
+        ArgumentCaptor<EventoAbastecimento> eventos = ArgumentCaptor.forClass(EventoAbastecimento.class);
+        verify(diarioEventos, atLeast(0)).acrescentar(eventos.capture());
+        return eventos.getAllValues().stream().map(EventoAbastecimento::getTipo).toList();
+    }
+}
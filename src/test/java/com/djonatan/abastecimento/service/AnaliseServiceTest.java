@@ -0,0 +1,163 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.analise.SerieHoraria;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.model.Abastecimento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do carregamento das séries horárias em concorrência com as vendas.
+ */
+@ExtendWith(MockitoExtension.class)
+class AnaliseServiceTest {
+
+    private static final int POSTO = 1;
+    private static final int COMBUSTIVEL = 1;
+
+    private final ReentrantReadWriteLock projecao = new ReentrantReadWriteLock();
+    private final CountDownLatch dentroDaConsulta = new CountDownLatch(1);
+    private final CountDownLatch libertarConsulta = new CountDownLatch(1);
+    private final LocalDateTime hora = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(1);
+
+    @Mock
+    private DiarioEventos diarioEventos;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @InjectMocks
+    private AnaliseService servico;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    void prepararMocks() throws Exception {
+        when(diarioEventos.comProjecaoPartilhada(anyInt(), any()))
+                .thenAnswer(invocacao -> comLock(projecao.readLock(), invocacao.getArgument(1)));
+        lenient().when(diarioEventos.comProjecaoExclusiva(anyInt(), any()))
+                .thenAnswer(invocacao -> comLock(projecao.writeLock(), invocacao.getArgument(1)));
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        // A consulta agregada demora até o teste a libertar e devolve 10 L na hora anterior; as restantes
+        // consultas (ex: a de arranque da transação) não devolvem linhas.
+        ResultSet linha = mock(ResultSet.class);
+        when(linha.getInt("combustivel_id")).thenReturn(COMBUSTIVEL);
+        when(linha.getString("hora")).thenReturn(hora.toString().replace('T', ' ') + ":00");
+        when(linha.getBigDecimal("litros")).thenReturn(new BigDecimal("10.000"));
+        when(linha.getBigDecimal("valor")).thenReturn(new BigDecimal("58.99"));
+        lenient().doAnswer(invocacao -> {
+            dentroDaConsulta.countDown();
+            libertarConsulta.await();
+            ((RowCallbackHandler) invocacao.getArgument(1)).processRow(linha);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT b.combustivel_id"), any(RowCallbackHandler.class), eq(POSTO), any());
+        when(catalogoService.combustiveis()).thenReturn(List.of(DadosTeste.gasolina(COMBUSTIVEL)));
+
+        ReflectionTestUtils.setField(servico, "semanas", 8);
+        ReflectionTestUtils.setField(servico, "janelaHoras", 24);
+        ReflectionTestUtils.setField(servico, "horizonteMaximo", 168);
+        threads = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void terminar() {
+        libertarConsulta.countDown();
+        threads.shutdownNow();
+    }
+
+    /**
+     * Uma venda confirmada durante o carregamento não espera pela consulta e é contada uma única vez.
+     */
+    @Test
+    void vendaDuranteOCarregamentoNaoBloqueiaENaoSePerde() throws Exception {
+        Future<?> carregamento = threads.submit(() -> {
+            ContextoPosto.definir(POSTO);
+            try {
+                return servico.prever(1, null);
+            } finally {
+                ContextoPosto.limpar();
+            }
+        });
+        assertThat(dentroDaConsulta.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> venda = threads.submit(() -> diarioEventos.comProjecaoPartilhada(POSTO, () -> {
+            servico.somarAposCommit(abastecimento(), 1);
+            return null;
+        }));
+        venda.get(5, TimeUnit.SECONDS);
+        libertarConsulta.countDown();
+        carregamento.get(5, TimeUnit.SECONDS);
+
+        assertThat(litrosNaHora()).isEqualTo(15_000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long litrosNaHora() {
+        Map<Long, SerieHoraria> series = (Map<Long, SerieHoraria>) ReflectionTestUtils.getField(servico, "series");
+        long horaEpoch = Math.floorDiv(hora.toEpochSecond(ZoneOffset.UTC), 3600L);
+        SerieHoraria.Copia copia = series.get(((long) POSTO << 32) | COMBUSTIVEL).copiar(horaEpoch);
+        return Arrays.stream(copia.litros()).sum();
+    }
+
+    private Abastecimento abastecimento() {
+        Abastecimento abastecimento = DadosTeste.abastecimento(0,
+                DadosTeste.bomba(1, POSTO, DadosTeste.gasolina(COMBUSTIVEL)), new BigDecimal("5"));
+        abastecimento.setData(hora.plusMinutes(10));
+        return abastecimento;
+    }
+
+    private static Object comLock(Lock lock, Supplier<?> acao) {
+        lock.lock();
+        try {
+            return acao.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.repository.BombaRepository;
+import com.djonatan.abastecimento.repository.CombustivelRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes das recargas por posto e da cache de bombas inexistentes do catálogo.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogoServiceTest {
+
+    @Mock
+    private BombaRepository bombaRepository;
+
+    @Mock
+    private CombustivelRepository combustivelRepository;
+
+    @InjectMocks
+    private CatalogoService servico;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    void criarThreads() {
+        threads = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void terminar() {
+        threads.shutdownNow();
+        ContextoPosto.limpar();
+    }
+
+    @Test
+    void bombaInexistenteSoEProcuradaUmaVezPorSnapshot() {
+        when(bombaRepository.findByIdAndPostoIdAndAtivoTrue(99, 1)).thenReturn(Optional.empty());
+        ContextoPosto.definir(1);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(servico.bomba(99)).isNull();
+        }
+        verify(bombaRepository, times(1)).findByIdAndPostoIdAndAtivoTrue(99, 1);
+
+        servico.recarregar(1);
+        assertThat(servico.bomba(99)).isNull();
+        verify(bombaRepository, times(2)).findByIdAndPostoIdAndAtivoTrue(99, 1);
+    }
+
+    @Test
+    void recargaDeUmPostoNaoEsperaPelaDeOutro() throws Exception {
+        CountDownLatch dentroDaRecarga = new CountDownLatch(1);
+        CountDownLatch libertar = new CountDownLatch(1);
+        when(combustivelRepository.findAllByPostoIdAndAtivoTrue(1)).thenAnswer(invocacao -> {
+            dentroDaRecarga.countDown();
+            libertar.await();
+            return List.of();
+        });
+
+        Future<?> lenta = threads.submit(() -> servico.recarregar(1));
+        assertThat(dentroDaRecarga.await(5, TimeUnit.SECONDS)).isTrue();
+        try {
+            Future<?> outroPosto = threads.submit(() -> servico.recarregar(2));
+            outroPosto.get(5, TimeUnit.SECONDS);
+        } finally {
+            libertar.countDown();
+        }
+        lenta.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void pedidosConcorrentesFazemUmaUnicaCargaInicial() throws Exception {
+        CountDownLatch partida = new CountDownLatch(1);
+        List<Future<?>> pedidos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            pedidos.add(threads.submit(() -> {
+                partida.await();
+                ContextoPosto.definir(3);
+                try {
+                    return servico.bombas();
+                } finally {
+                    ContextoPosto.limpar();
+                }
+            }));
+        }
+        partida.countDown();
+        for (Future<?> pedido : pedidos) {
+            pedido.get(5, TimeUnit.SECONDS);
+        }
+
+        verify(combustivelRepository, times(1)).findAllByPostoIdAndAtivoTrue(3);
+    }
+}
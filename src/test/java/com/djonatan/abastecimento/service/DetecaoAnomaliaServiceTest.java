@@ -0,0 +1,70 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.AnomaliaProperties;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.Alerta;
+import com.djonatan.abastecimento.model.Abastecimento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da deteção de anomalias: o alerta de preço inconsistente (contra o preço mostrado pelo terminal)
+ * e o isolamento dos alertas por posto. O custo por evento é medido pelo programa de carga `MedicaoAnomalias`.
+ */
+@ExtendWith(MockitoExtension.class)
+class DetecaoAnomaliaServiceTest {
+
+    @Spy
+    private AnomaliaProperties propriedades = new AnomaliaProperties();
+
+    @InjectMocks
+    private DetecaoAnomaliaService servico;
+
+    @AfterEach
+    void limparContexto() {
+        ContextoPosto.limpar();
+    }
+
+    @Test
+    void precoDoTerminalDiferenteDoCobradoGeraAlerta() {
+        servico.analisar(abastecimento(1, 1, 1, new BigDecimal("40")), new BigDecimal("4.999"));
+
+        assertThat(alertasDoPosto(1)).extracting(Alerta::getTipo).containsExactly(Alerta.Tipo.PRECO_INCONSISTENTE);
+    }
+
+    @Test
+    void precoDoTerminalIgualAoDoCatalogoNaoGeraAlerta() {
+        servico.analisar(abastecimento(1, 1, 1, new BigDecimal("40")), DadosTeste.PRECO_GASOLINA);
+        servico.analisar(abastecimento(1, 2, 2, new BigDecimal("33.333")), null);
+
+        assertThat(alertasDoPosto(1)).isEmpty();
+    }
+
+    @Test
+    void alertasDeUmPostoNaoAparecemNoutro() {
+        servico.analisar(abastecimento(1, 1, 1, new BigDecimal("200")), null);
+        servico.analisar(abastecimento(2, 1, 2, new BigDecimal("10")), new BigDecimal("1.000"));
+
+        assertThat(alertasDoPosto(1)).extracting(Alerta::getTipo).containsExactly(Alerta.Tipo.LITROS_EXCEDIDOS);
+        assertThat(alertasDoPosto(2)).extracting(Alerta::getTipo).containsExactly(Alerta.Tipo.PRECO_INCONSISTENTE);
+    }
+
+    private List<Alerta> alertasDoPosto(int postoId) {
+        ContextoPosto.definir(postoId);
+        return servico.listarAlertas(null);
+    }
+
+    private static Abastecimento abastecimento(int postoId, int bombaId, int id, BigDecimal litros) {
+        return DadosTeste.abastecimento(id, DadosTeste.bomba(bombaId, postoId, DadosTeste.gasolina(1)), litros);
+    }
+}
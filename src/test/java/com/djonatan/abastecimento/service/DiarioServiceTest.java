@@ -0,0 +1,177 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.config.DiarioProperties;
+import com.djonatan.abastecimento.diario.DiarioEventos;
+import com.djonatan.abastecimento.diario.EventoAbastecimento;
+import com.djonatan.abastecimento.diario.Projecao;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da reconstrução da tabela de abastecimentos por intervalos de IDs, cada um na sua transação,
+ * sem os abastecimentos apagados pela limpeza.
+ */
+@ExtendWith(MockitoExtension.class)
+class DiarioServiceTest {
+
+    private static final int POSTO = 1;
+
+    @Mock
+    private DiarioEventos diarioEventos;
+
+    @Spy
+    private DiarioProperties propriedades = new DiarioProperties();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TurnoService turnoService;
+
+    @Mock
+    private AnaliseService analiseService;
+
+    @InjectMocks
+    private DiarioService servico;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepararLocks() {
+        when(turnoService.comTurnoExclusivo(any()))
+                .thenAnswer(invocacao -> ((Supplier<?>) invocacao.getArgument(0)).get());
+        when(diarioEventos.comProjecaoExclusiva(eq(POSTO), any()))
+                .thenAnswer(invocacao -> ((Supplier<?>) invocacao.getArgument(1)).get());
+        doAnswer(invocacao -> {
+            ((Consumer<TransactionStatus>) invocacao.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        ContextoPosto.definir(POSTO);
+    }
+
+    @AfterEach
+    void limparContexto() {
+        ContextoPosto.limpar();
+    }
+
+    /**
+     * Cinco abastecimentos ativos, registados fora da ordem dos IDs, em blocos de dois: três transações,
+     * cada uma a apagar só o seu intervalo, e a última sem limite superior. O `idOffline` é reinserido.
+     */
+    @Test
+    void reconstrucaoSubstituiAsLinhasPorIntervalosDeIds() throws Exception {
+        bombas(Map.of(1, Optional.empty()));
+        propriedades.setTamanhoLote(2);
+        Projecao projecao = new Projecao();
+        UUID idOffline = UUID.randomUUID();
+        for (int id : new int[]{10, 30, 20, 50, 40, 60}) {
+            EventoAbastecimento evento = DadosTeste.evento(EventoAbastecimento.Tipo.REGISTADO, POSTO, id);
+            evento.setIdOffline(id == 30 ? idOffline : null);
+            projecao.aplicar(evento);
+        }
+        projecao.aplicar(DadosTeste.evento(EventoAbastecimento.Tipo.ANULADO, POSTO, 60));
+        when(diarioEventos.carregarProjecao(POSTO)).thenReturn(projecao);
+
+        servico.reconstruir();
+
+        ArgumentCaptor<Object> de = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Object> ate = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(3)).update(eq("DELETE FROM abastecimento WHERE posto_id = ? AND id > ? AND id <= ?"),
+                eq(POSTO), de.capture(), ate.capture());
+        assertThat(de.getAllValues()).containsExactly(Long.MIN_VALUE, 20L, 40L);
+        assertThat(ate.getAllValues()).containsExactly(20L, 40L, Long.MAX_VALUE);
+        verify(transactionTemplate, times(4)).executeWithoutResult(any());
+
+        ArgumentCaptor<List<Object[]>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(eq(
+                "INSERT INTO abastecimento (id, posto_id, bomba_id, data, litros, valor_total, operador_id, turno_id, "
+                        + "id_offline) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"), lotes.capture(), any(int[].class));
+        assertThat(lotes.getAllValues()).extracting(lote -> lote.stream().map(linha -> linha[0]).toList())
+                .containsExactly(List.of(10, 20), List.of(30, 40), List.of(50));
+        assertThat(lotes.getAllValues().get(1)).extracting(linha -> linha[8]).containsExactly(idOffline.toString(), null);
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * A limpeza apagou os abastecimentos da bomba 2 anteriores a 1 de maio: a reconstrução reinsere
+     * os abastecimentos da bomba 1 e só os mais recentes da bomba 2; os da bomba 3, já apagada, nenhum.
+     */
+    @Test
+    void reconstrucaoNaoReinsereOsAbastecimentosApagadosPelaLimpeza() throws Exception {
+        bombas(Map.of(1, Optional.empty(), 2, Optional.of(DadosTeste.DATA.minusHours(10))));
+        Projecao projecao = new Projecao();
+        long dia = 24 * 3_600_000L;
+        int[][] abastecimentos = {{1, 1, -30}, {2, 2, -30}, {3, 2, 0}, {4, 3, 0}, {5, 2, -1}};
+        for (int[] abastecimento : abastecimentos) {
+            EventoAbastecimento evento = DadosTeste.evento(EventoAbastecimento.Tipo.REGISTADO, POSTO, abastecimento[0]);
+            evento.setBombaId(abastecimento[1]);
+            evento.setDataMillis(evento.getDataMillis() + abastecimento[2] * dia);
+            projecao.aplicar(evento);
+        }
+        when(diarioEventos.carregarProjecao(POSTO)).thenReturn(projecao);
+
+        servico.reconstruir();
+
+        ArgumentCaptor<List<Object[]>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO abastecimento"), lotes.capture(), any(int[].class));
+        assertThat(lotes.getValue()).extracting(linha -> linha[0]).containsExactly(1, 3);
+    }
+
+    /**
+     * As bombas do posto na base de dados, com a data até à qual a limpeza apagou os seus abastecimentos.
+     */
+    private void bombas(Map<Integer, Optional<LocalDateTime>> limpezas) throws SQLException {
+        List<ResultSet> linhas = new ArrayList<>();
+        for (Map.Entry<Integer, Optional<LocalDateTime>> bomba : limpezas.entrySet()) {
+            ResultSet linha = mock(ResultSet.class);
+            when(linha.getInt(1)).thenReturn(bomba.getKey());
+            when(linha.getTimestamp(2)).thenReturn(bomba.getValue().map(Timestamp::valueOf).orElse(null));
+            linhas.add(linha);
+        }
+        doAnswer(invocacao -> {
+            for (ResultSet linha : linhas) {
+                invocacao.<RowCallbackHandler>getArgument(1).processRow(linha);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, limpeza_ate FROM bomba"), any(RowCallbackHandler.class), eq(POSTO));
+    }
+}
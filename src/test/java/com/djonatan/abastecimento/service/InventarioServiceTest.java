@@ -0,0 +1,138 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.model.Tanque;
+import com.djonatan.abastecimento.repository.TanqueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes das reservas em memória sobre o nível dos tanques.
+ */
+@ExtendWith(MockitoExtension.class)
+class InventarioServiceTest {
+
+    private static final int POSTO = 1;
+    private static final int COMBUSTIVEL = 1;
+
+    @Mock
+    private TanqueRepository tanqueRepository;
+
+    @InjectMocks
+    private InventarioService servico;
+
+    @BeforeEach
+    void prepararServico() {
+        ReflectionTestUtils.setField(servico, "validadeSemTanqueMs", 60_000L);
+        ContextoPosto.definir(POSTO);
+    }
+
+    @AfterEach
+    void limparContexto() {
+        ContextoPosto.limpar();
+    }
+
+    @Test
+    void ausenciaDeTanqueFicaEmCacheDentroDaValidade() {
+        when(tanqueRepository.findByPostoIdAndCombustivelId(POSTO, COMBUSTIVEL)).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 10; i++) {
+            servico.reservar(COMBUSTIVEL, new BigDecimal("10"));
+        }
+
+        verify(tanqueRepository, times(1)).findByPostoIdAndCombustivelId(POSTO, COMBUSTIVEL);
+    }
+
+    /**
+     * Um tanque criado noutra instância depois da primeira venda passa a ser controlado quando a cache expira.
+     */
+    @Test
+    void tanqueCriadoNoutraInstanciaPassaASerControlado() {
+        ReflectionTestUtils.setField(servico, "validadeSemTanqueMs", 0L);
+        when(tanqueRepository.findByPostoIdAndCombustivelId(POSTO, COMBUSTIVEL))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(tanque("5.000")));
+
+        servico.reservar(COMBUSTIVEL, new BigDecimal("10"));
+
+        assertThatThrownBy(() -> servico.reservar(COMBUSTIVEL, new BigDecimal("10")))
+                .isInstanceOf(StockInsuficienteException.class)
+                .hasMessageContaining("restam 5.000 L");
+    }
+
+    /**
+     * Reservas concorrentes sobre o mesmo tanque nunca vendem mais do que o nível: cada litro é reservado uma só vez.
+     */
+    @Test
+    void reservasConcorrentesNaoExcedemONivel() throws Exception {
+        when(tanqueRepository.findByPostoIdAndCombustivelId(POSTO, COMBUSTIVEL))
+                .thenReturn(Optional.of(tanque("1000.000")));
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch partida = new CountDownLatch(1);
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                resultados.add(threads.submit(() -> {
+                    ContextoPosto.definir(POSTO);
+                    try {
+                        partida.await();
+                        int aceites = 0;
+                        for (int i = 0; i < 100; i++) {
+                            try {
+                                servico.reservar(COMBUSTIVEL, BigDecimal.ONE);
+                                aceites++;
+                            } catch (StockInsuficienteException e) {
+                                // Recusada: o tanque já não tem litros suficientes.
+                            }
+                        }
+                        return aceites;
+                    } finally {
+                        ContextoPosto.limpar();
+                    }
+                }));
+            }
+            partida.countDown();
+            int total = 0;
+            for (Future<Integer> resultado : resultados) {
+                total += resultado.get(10, TimeUnit.SECONDS);
+            }
+
+            assertThat(total).isEqualTo(1000);
+            assertThatThrownBy(() -> servico.reservar(COMBUSTIVEL, new BigDecimal("0.001")))
+                    .hasMessageContaining("restam 0.000 L");
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static Tanque tanque(String nivel) {
+        Tanque tanque = new Tanque();
+        tanque.setId(3);
+        tanque.setPostoId(POSTO);
+        tanque.setCapacidade(new BigDecimal("10000.000"));
+        tanque.setNivel(new BigDecimal(nivel));
+        return tanque;
+    }
+}
@@ -0,0 +1,109 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.Painel;
+import com.djonatan.abastecimento.repository.AbastecimentoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do refrescamento em segundo plano do painel: primeiro pedido de um posto e falhas da base de dados.
+ */
+@ExtendWith(MockitoExtension.class)
+class PainelServiceTest {
+
+    private static final int POSTO = 1;
+
+    @Mock
+    private AbastecimentoRepository abastecimentoRepository;
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @Spy
+    private ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+    @InjectMocks
+    private PainelService servico;
+
+    @BeforeEach
+    void prepararServico() {
+        when(catalogoService.atual()).thenReturn(new CatalogoService.Catalogo(List.of(), List.of(), Map.of()));
+        taskScheduler.initialize();
+        ReflectionTestUtils.setField(servico, "ultimos", 20);
+        ReflectionTestUtils.setField(servico, "validadeMs", 10_000L);
+        ContextoPosto.definir(POSTO);
+    }
+
+    @AfterEach
+    void terminar() {
+        taskScheduler.shutdown();
+        ContextoPosto.limpar();
+    }
+
+    /**
+     * Com a base de dados inacessível, o primeiro pedido de um posto é respondido de imediato, vazio e desatualizado.
+     */
+    @Test
+    void primeiroPedidoNaoEsperaPelaBaseDeDados() throws Exception {
+        when(abastecimentoRepository.findByPostoIdOrderByIdDesc(anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("Base de dados inacessível"));
+
+        Painel painel = servico.obter();
+
+        assertThat(painel.isDesatualizado()).isTrue();
+        assertThat(painel.getAtualizadoEm()).isNull();
+        assertThat(painel.getUltimosAbastecimentos()).isEmpty();
+        assertThat(aguardar(p -> p.getFalhaRefrescamentoEm() != null).isDesatualizado()).isTrue();
+    }
+
+    @Test
+    void falhaDoRefrescamentoFicaVisivelNoPainel() throws Exception {
+        when(abastecimentoRepository.findByPostoIdOrderByIdDesc(anyInt(), any())).thenReturn(List.of());
+        when(abastecimentoRepository.somarPorCombustivelDesde(anyInt(), any())).thenReturn(List.of());
+        Painel inicial = aguardar(p -> p.getAtualizadoEm() != null);
+        assertThat(inicial.getFalhaRefrescamentoEm()).isNull();
+        assertThat(inicial.isDesatualizado()).isFalse();
+
+        when(abastecimentoRepository.findByPostoIdOrderByIdDesc(anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("Base de dados inacessível"));
+        servico.refrescarTodos();
+
+        Painel painel = aguardar(p -> p.getFalhaRefrescamentoEm() != null);
+        assertThat(painel.getAtualizadoEm()).isEqualTo(inicial.getAtualizadoEm());
+        assertThat(painel.getIdadeMs()).isGreaterThanOrEqualTo(0);
+    }
+
+    /**
+     * Pede o painel até a condição se verificar (no máximo 5 segundos).
+     */
+    private Painel aguardar(Predicate<Painel> condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Painel painel = servico.obter();
+        while (!condicao.test(painel) && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            painel = servico.obter();
+        }
+        assertThat(condicao.test(painel)).isTrue();
+        return painel;
+    }
+}
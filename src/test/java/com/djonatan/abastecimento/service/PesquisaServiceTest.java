@@ -0,0 +1,125 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.ResultadoPesquisa;
+import com.djonatan.abastecimento.model.Usuario;
+import com.djonatan.abastecimento.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do índice de utilizadores: isolamento por posto, publicação imediata após um registo e reconstrução
+ * em segundo plano por gerações.
+ */
+@ExtendWith(MockitoExtension.class)
+class PesquisaServiceTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Spy
+    private ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+    @InjectMocks
+    private PesquisaService servico;
+
+    @BeforeEach
+    void prepararServico() {
+        taskScheduler.setPoolSize(2);
+        taskScheduler.initialize();
+        ReflectionTestUtils.setField(servico, "validadeUsuariosMs", 60_000L);
+    }
+
+    @AfterEach
+    void terminar() {
+        taskScheduler.shutdown();
+        ContextoPosto.limpar();
+    }
+
+    @Test
+    void utilizadoresDeOutroPostoNaoAparecem() {
+        lenient().when(usuarioRepository.findAllByPostoId(1))
+                .thenReturn(List.of(DadosTeste.usuario(1, "operador.norte", 1)));
+        when(usuarioRepository.findAllByPostoId(2)).thenReturn(List.of(DadosTeste.usuario(2, "operador.sul", 2)));
+
+        assertThat(nomes(2, "operador")).containsExactly("operador.sul");
+    }
+
+    @Test
+    void utilizadorRegistadoApareceLogoNaPesquisa() {
+        when(usuarioRepository.findAllByPostoId(1))
+                .thenReturn(List.of(DadosTeste.usuario(1, "ana", 1)))
+                .thenReturn(List.of(DadosTeste.usuario(1, "ana", 1), DadosTeste.usuario(2, "anabela", 1)));
+
+        assertThat(nomes(1, "ana")).containsExactly("ana");
+        ContextoPosto.definir(1);
+        servico.invalidarUsuarios();
+
+        assertThat(nomes(1, "ana")).containsExactly("ana", "anabela");
+    }
+
+    /**
+     * Uma reconstrução lenta em segundo plano (por o índice ter expirado), iniciada antes de um registo,
+     * não substitui o índice que já inclui o registo.
+     */
+    @Test
+    void reconstrucaoAntigaNaoSubstituiIndiceMaisRecente() throws Exception {
+        ReflectionTestUtils.setField(servico, "validadeUsuariosMs", 0L);
+        Usuario antigo = DadosTeste.usuario(1, "ana", 1);
+        Usuario novo = DadosTeste.usuario(2, "anabela", 1);
+        CountDownLatch lentaIniciada = new CountDownLatch(1);
+        CountDownLatch libertarLenta = new CountDownLatch(1);
+        CountDownLatch lentaTerminada = new CountDownLatch(1);
+        when(usuarioRepository.findAllByPostoId(1))
+                .thenReturn(List.of(antigo))
+                .thenAnswer(invocacao -> {
+                    lentaIniciada.countDown();
+                    libertarLenta.await();
+                    lentaTerminada.countDown();
+                    return List.of(antigo);
+                })
+                .thenReturn(List.of(antigo, novo));
+
+        assertThat(nomes(1, "ana")).containsExactly("ana");
+        // O índice já expirou: esta pesquisa agenda a reconstrução lenta.
+        assertThat(nomes(1, "ana")).containsExactly("ana");
+        assertThat(lentaIniciada.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // O registo de "anabela" acontece durante a reconstrução lenta.
+        ContextoPosto.definir(1);
+        servico.invalidarUsuarios();
+        assertThat(nomes(1, "ana")).containsExactlyInAnyOrder("ana", "anabela");
+        libertarLenta.countDown();
+        assertThat(lentaTerminada.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+
+        assertThat(nomes(1, "ana")).containsExactlyInAnyOrder("ana", "anabela");
+    }
+
+    private List<String> nomes(int postoId, String consulta) {
+        ContextoPosto.definir(postoId);
+        try {
+            return servico.pesquisar(consulta, ResultadoPesquisa.Tipo.USUARIO, 0, 100).getResultados().stream()
+                    .map(ResultadoPesquisa::getNome).toList();
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+}
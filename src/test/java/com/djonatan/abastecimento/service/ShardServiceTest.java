@@ -0,0 +1,118 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.RoteadorShard;
+import com.djonatan.abastecimento.model.AtribuicaoPosto;
+import com.djonatan.abastecimento.repository.AtribuicaoPostoRepository;
+import com.djonatan.abastecimento.repository.ShardRegistadoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da persistência da atribuição de postos a shards e da recusa de mover postos existentes.
+ */
+@ExtendWith(MockitoExtension.class)
+class ShardServiceTest {
+
+    @Spy
+    private RoteadorShard roteador = new RoteadorShard(mock(DataSource.class));
+
+    @Mock
+    private AtribuicaoPostoRepository atribuicoes;
+
+    @Mock
+    private ShardRegistadoRepository shards;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ShardService servico;
+
+    @BeforeEach
+    void prepararServico() {
+        roteador.adicionarShard("norte", mock(DataSource.class));
+        lenient().when(shards.findAll()).thenReturn(List.of());
+        postoComDados(false);
+    }
+
+    @Test
+    void atribuicaoGravadaEReaplicadaNoArranque() {
+        when(atribuicoes.findAll()).thenReturn(List.of(new AtribuicaoPosto(101, "norte")));
+
+        servico.carregar();
+
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("norte");
+    }
+
+    @Test
+    void atribuicaoEmFuncionamentoEGravada() {
+        servico.atribuirPosto(101, "norte");
+
+        verify(atribuicoes).save(new AtribuicaoPosto(101, "norte"));
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("norte");
+    }
+
+    @Test
+    void nomeDeShardComAspasERecusado() {
+        assertThatThrownBy(() -> servico.atribuirPosto(101, "\"norte\"")).isInstanceOf(IllegalArgumentException.class);
+
+        verify(atribuicoes, never()).save(any());
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("principal");
+    }
+
+    @Test
+    void postoJaAtribuidoNaoEMovido() {
+        when(atribuicoes.findById(101)).thenReturn(Optional.of(new AtribuicaoPosto(101, "principal")));
+
+        assertThatThrownBy(() -> servico.atribuirPosto(101, "norte")).hasMessageContaining("já está atribuído");
+
+        verify(atribuicoes, never()).save(any());
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("principal");
+    }
+
+    @Test
+    void postoAtribuidoPelaConfiguracaoNaoEMovido() {
+        roteador.adicionarShard("sul", mock(DataSource.class));
+        roteador.atribuirPosto(101, "sul");
+
+        assertThatThrownBy(() -> servico.atribuirPosto(101, "norte")).hasMessageContaining("já está atribuído");
+
+        verify(atribuicoes, never()).save(any());
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("sul");
+    }
+
+    @Test
+    void postoComDadosNaoEMovido() {
+        postoComDados(true);
+
+        assertThatThrownBy(() -> servico.atribuirPosto(101, "norte")).hasMessageContaining("já tem dados");
+
+        verify(atribuicoes, never()).save(any());
+        assertThat(roteador.shardDoPosto(101)).isEqualTo("principal");
+    }
+
+    private void postoComDados(boolean comDados) {
+        lenient().when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(comDados);
+    }
+}
@@ -0,0 +1,143 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.DadosTeste;
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.dto.RelatorioTurno;
+import com.djonatan.abastecimento.model.Abastecimento;
+import com.djonatan.abastecimento.model.Turno;
+import com.djonatan.abastecimento.repository.TotalTurnoRepository;
+import com.djonatan.abastecimento.repository.TurnoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes dos totais do turno com abastecimentos concorrentes com o fecho.
+ */
+@ExtendWith(MockitoExtension.class)
+class TurnoServiceTest {
+
+    private static final int POSTO = 1;
+    private static final int THREADS = 8;
+
+    @Mock
+    private TurnoRepository turnoRepository;
+
+    @Mock
+    private TotalTurnoRepository totalTurnoRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private TurnoService servico;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void prepararMocks() {
+        when(turnoRepository.save(any())).thenAnswer(invocacao -> {
+            Turno turno = invocacao.getArgument(0);
+            if (turno.getId() == 0) {
+                turno.setId(1);
+            }
+            return turno;
+        });
+        when(totalTurnoRepository.findAllByTurnoId(anyInt())).thenReturn(List.of());
+        doAnswer(invocacao -> {
+            ((Consumer<TransactionStatus>) invocacao.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        threads = Executors.newFixedThreadPool(THREADS);
+        ContextoPosto.definir(POSTO);
+    }
+
+    @AfterEach
+    void terminar() {
+        threads.shutdownNow();
+        ContextoPosto.limpar();
+    }
+
+    /**
+     * Todos os abastecimentos carimbados com o turno entram nos totais finais, mesmo os que estavam a meio
+     * (carimbados, mas ainda não contabilizados) quando o fecho começou.
+     */
+    @Test
+    void fechoNaoPerdeAbastecimentosEmCurso() throws Exception {
+        servico.abrir();
+        ConcurrentLinkedQueue<Abastecimento> carimbados = new ConcurrentLinkedQueue<>();
+        CountDownLatch emCurso = new CountDownLatch(THREADS);
+        List<Future<?>> vendas = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            vendas.add(threads.submit(() -> {
+                ContextoPosto.definir(POSTO);
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        boolean registado = servico.comTurnoPartilhado(() -> {
+                            Turno turno = servico.turnoAberto();
+                            if (turno == null) {
+                                return false;
+                            }
+                            Abastecimento abastecimento = abastecimento(turno);
+                            carimbados.add(abastecimento);
+                            // A gravação do abastecimento, entre a atribuição do turno e a contabilização.
+                            Thread.yield();
+                            servico.contabilizar(abastecimento);
+                            return true;
+                        });
+                        if (i == 10) {
+                            emCurso.countDown();
+                        }
+                        if (!registado) {
+                            break;
+                        }
+                    }
+                } finally {
+                    ContextoPosto.limpar();
+                }
+                return null;
+            }));
+        }
+        assertThat(emCurso.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RelatorioTurno relatorio = servico.fechar();
+        for (Future<?> venda : vendas) {
+            venda.get(10, TimeUnit.SECONDS);
+        }
+
+        BigDecimal esperado = carimbados.stream().map(Abastecimento::getLitros).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(relatorio.getPorCombustivel()).hasSize(1);
+        assertThat(relatorio.getPorCombustivel().get(0).getLitros()).isEqualByComparingTo(esperado);
+    }
+
+    private static Abastecimento abastecimento(Turno turno) {
+        Abastecimento abastecimento = DadosTeste.abastecimento(0, DadosTeste.bomba(1, POSTO, DadosTeste.gasolina(1)),
+                new BigDecimal("1.5"));
+        abastecimento.setTurno(turno);
+        return abastecimento;
+    }
+}
@@ -0,0 +1,98 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.model.Usuario;
+import com.djonatan.abastecimento.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes de integração do registo de utilizadores contra a restrição única real da tabela 'usuario' (H2).
+ */
+@SpringBootTest
+@TestPropertySource("classpath:integracao.properties")
+class UsuarioServiceIntegracaoTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UsuarioService servico;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    void criarThreads() {
+        threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void terminar() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void registosConcorrentesComOMesmoNomeCriamUmSoUtilizador() throws Exception {
+        CountDownLatch partida = new CountDownLatch(1);
+        List<Future<String>> pedidos = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            pedidos.add(threads.submit(() -> {
+                partida.await();
+                ContextoPosto.definir(1);
+                try {
+                    servico.registar("bruno", "segredo", Usuario.Papel.OPERADOR);
+                    return "criado";
+                } catch (RuntimeException e) {
+                    return e.getMessage();
+                } finally {
+                    ContextoPosto.limpar();
+                }
+            }));
+        }
+        partida.countDown();
+        List<String> respostas = new ArrayList<>();
+        for (Future<String> pedido : pedidos) {
+            respostas.add(pedido.get(30, TimeUnit.SECONDS));
+        }
+
+        assertThat(respostas).filteredOn("criado"::equals).hasSize(1);
+        assertThat(respostas).filteredOn(resposta -> !"criado".equals(resposta))
+                .hasSize(THREADS - 1)
+                .allMatch(resposta -> resposta.equals("O nome de utilizador 'bruno' já está em uso."));
+        assertThat(usuarioRepository.findByUsername("bruno")).isPresent();
+    }
+
+    /**
+     * Um nome acima dos 50 caracteres da coluna viola outra restrição e não é respondido como nome já em uso.
+     */
+    @Test
+    void nomeDemasiadoLongoNaoEConfundidoComNomeRepetido() {
+        ContextoPosto.definir(1);
+        try {
+            assertThatThrownBy(() -> servico.registar("x".repeat(51), "segredo", Usuario.Papel.OPERADOR))
+                    .isInstanceOfSatisfying(DataIntegrityViolationException.class,
+                            e -> assertThat(ViolacaoIntegridade.conflito(e)).isFalse())
+                    .hasMessageNotContaining("já está em uso");
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+}
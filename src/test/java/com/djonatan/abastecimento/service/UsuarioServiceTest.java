@@ -0,0 +1,138 @@
+package com.djonatan.abastecimento.service;
+
+import com.djonatan.abastecimento.config.ContextoPosto;
+import com.djonatan.abastecimento.model.Usuario;
+import com.djonatan.abastecimento.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.hibernate.exception.ConstraintViolationException;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do registo concorrente de utilizadores com o mesmo nome e das violações de outras restrições.
+ */
+@ExtendWith(MockitoExtension.class)
+class UsuarioServiceTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * A tabela 'usuario', com a restrição única da coluna `username`.
+     */
+    private final ConcurrentHashMap<String, Usuario> tabela = new ConcurrentHashMap<>();
+    private final CountDownLatch todosVerificaram = new CountDownLatch(THREADS);
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private PesquisaService pesquisaService;
+
+    @InjectMocks
+    private UsuarioService servico;
+
+    private ExecutorService threads;
+
+    @BeforeEach
+    void prepararServico() {
+        // Uma verificação prévia do nome só responde depois de todos os pedidos a terem feito.
+        lenient().when(usuarioRepository.findByUsername(anyString())).thenAnswer(invocacao -> {
+            todosVerificaram.countDown();
+            todosVerificaram.await(1, TimeUnit.SECONDS);
+            return Optional.ofNullable(tabela.get(invocacao.<String>getArgument(0)));
+        });
+        lenient().when(usuarioRepository.saveAndFlush(any())).thenAnswer(invocacao -> inserir(invocacao.getArgument(0)));
+        lenient().when(usuarioRepository.save(any())).thenAnswer(invocacao -> inserir(invocacao.getArgument(0)));
+        threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void terminar() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void registosConcorrentesComOMesmoNomeCriamUmSoUtilizador() throws Exception {
+        CountDownLatch partida = new CountDownLatch(1);
+        List<Future<String>> pedidos = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            pedidos.add(threads.submit(() -> {
+                partida.await();
+                ContextoPosto.definir(1);
+                try {
+                    servico.registar("ana", "segredo", Usuario.Papel.OPERADOR);
+                    return "criado";
+                } catch (RuntimeException e) {
+                    return e.getMessage();
+                } finally {
+                    ContextoPosto.limpar();
+                }
+            }));
+        }
+        partida.countDown();
+        List<String> respostas = new ArrayList<>();
+        for (Future<String> pedido : pedidos) {
+            respostas.add(pedido.get(10, TimeUnit.SECONDS));
+        }
+
+        assertThat(respostas).filteredOn("criado"::equals).hasSize(1);
+        assertThat(respostas).filteredOn(resposta -> !"criado".equals(resposta))
+                .hasSize(THREADS - 1)
+                .allMatch(resposta -> resposta.equals("O nome de utilizador 'ana' já está em uso."));
+    }
+
+    /**
+     * Outra restrição violada (ex: nome demasiado longo) não é respondida como nome já em uso.
+     */
+    @Test
+    void outraViolacaoNaoEConfundidaComNomeRepetido() {
+        ContextoPosto.definir(1);
+        try {
+            assertThatThrownBy(() -> servico.registar("x".repeat(51), "segredo", Usuario.Papel.OPERADOR))
+                    .isInstanceOf(DataIntegrityViolationException.class)
+                    .hasMessageNotContaining("já está em uso");
+        } finally {
+            ContextoPosto.limpar();
+        }
+    }
+
+    private Usuario inserir(Usuario usuario) {
+        if (usuario.getUsername().length() > 50) {
+            throw violacao("Data too long for column 'username' at row 1", "22001", 1406, null);
+        }
+        if (tabela.putIfAbsent(usuario.getUsername(), usuario) != null) {
+            throw violacao("Duplicate entry '" + usuario.getUsername() + "' for key 'usuario.uk_usuario_username'",
+                    "23000", 1062, "usuario.uk_usuario_username");
+        }
+        return usuario;
+    }
+
+    private static DataIntegrityViolationException violacao(String mensagem, String estado, int codigo, String restricao) {
+        SQLException sql = new SQLException(mensagem, estado, codigo);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sql, restricao));
+    }
+}